@@ -47,18 +47,31 @@ const mergeNotifications = (notifications: Notification[]): Notification[] => {
 interface UseNotificationsProps {
   userRole?: string; // 传入用户角色
   userId?: string; // 传入用户ID（学号）
+  refreshAuth?: () => Promise<boolean>; // 推送连接被服务端关闭（如令牌过期）时先刷新令牌再重连
 }
 
+// 推送连接被关闭后的重连：第 n 次等待 n * STREAM_RETRY_MS，连续失败超过 MAX_STREAM_FAILURES 次后改为轮询
+const STREAM_RETRY_MS = 2000;
+const MAX_STREAM_FAILURES = 3;
+
 export const useNotifications = (props?: UseNotificationsProps) => {
   const [unreadCount, setUnreadCount] = useState(0);
   const [pendingReviewCount, setPendingReviewCount] = useState(0);
   const [isPolling, setIsPolling] = useState(false);
   const pollingIntervalRef = useRef<NodeJS.Timeout | null>(null);
+  const eventSourceRef = useRef<EventSource | null>(null); // 服务端推送连接
+  const consumeTimerRef = useRef<NodeJS.Timeout | null>(null);
+  const reconnectTimerRef = useRef<NodeJS.Timeout | null>(null);
+  const streamFailuresRef = useRef(0); // 推送连接连续失败次数，连上后清零
+  const streamSessionRef = useRef(0); // 每次开始/停止接收时递增，作废旧连接的重连
   const isConsumingRef = useRef(false); // 新增：防止重复consume的锁
   const isFetchingCountRef = useRef(false); // 新增：防止重复fetch count的锁
 
   const isReviewer = props?.userRole === 'REVIEWER' || props?.userRole === 'ADMIN';
   const userId = props?.userId; // 获取用户ID
+  // 放在 ref 中：refresh 的引用随刷新状态变化，不应因此重建推送连接
+  const refreshAuthRef = useRef(props?.refreshAuth);
+  refreshAuthRef.current = props?.refreshAuth;
 
   // 获取未读消息数量（带锁）
   const fetchUnreadCount = useCallback(async () => {
@@ -202,22 +215,108 @@ export const useNotifications = (props?: UseNotificationsProps) => {
     }
   }, [fetchUnreadCount, consumeNotifications, fetchPendingReviewCount, isReviewer]);
 
-  // 开始轮询
+  // 短时间内收到多条推送时只消费一次
+  const scheduleConsume = useCallback(() => {
+    if (consumeTimerRef.current) {
+      clearTimeout(consumeTimerRef.current);
+    }
+    consumeTimerRef.current = setTimeout(() => {
+      consumeTimerRef.current = null;
+      consumeNotifications();
+    }, 300);
+  }, [consumeNotifications]);
+
+  // 开始接收通知：优先使用服务端推送（SSE），不支持或多次连接失败时退回轮询
   const startPolling = useCallback((intervalMs: number = 30000) => {
     if (pollingIntervalRef.current) {
       clearInterval(pollingIntervalRef.current);
     }
+    if (reconnectTimerRef.current) {
+      clearTimeout(reconnectTimerRef.current);
+      reconnectTimerRef.current = null;
+    }
+    eventSourceRef.current?.close();
+    eventSourceRef.current = null;
+    streamFailuresRef.current = 0;
+    const session = ++streamSessionRef.current;
 
     setIsPolling(true);
 
-    // 立即检查一次
-    checkAndConsumeNotifications();
-
-    // 设置定时轮询
-    pollingIntervalRef.current = setInterval(() => {
+    const poll = () => {
+      if (pollingIntervalRef.current) {
+        clearInterval(pollingIntervalRef.current);
+      }
+      // 立即检查一次
       checkAndConsumeNotifications();
-    }, intervalMs);
-  }, [checkAndConsumeNotifications]);
+
+      // 设置定时轮询
+      pollingIntervalRef.current = setInterval(() => {
+        checkAndConsumeNotifications();
+      }, intervalMs);
+    };
+
+    const connect = () => {
+      const source = new EventSource('/api/notifications/stream', { withCredentials: true });
+      // 连接（含自动重连）时收到未读总数，之后收到增量
+      source.addEventListener('unread', (event) => {
+        const data = JSON.parse((event as MessageEvent).data);
+        if (typeof data.count === 'number') {
+          setUnreadCount(data.count);
+          if (data.count > 0) {
+            scheduleConsume();
+          }
+        } else if (typeof data.delta === 'number') {
+          setUnreadCount(prev => Math.max(0, prev + data.delta));
+        }
+      });
+      source.addEventListener('notification', () => {
+        scheduleConsume();
+      });
+      source.onopen = () => {
+        streamFailuresRef.current = 0;
+      };
+      source.onerror = () => {
+        // 网络中断时浏览器会自行重连（CONNECTING）；CLOSED 表示服务端拒绝了连接（如令牌过期返回 401），不会再重连
+        if (source.readyState !== EventSource.CLOSED || eventSourceRef.current !== source) {
+          return;
+        }
+        source.close();
+        eventSourceRef.current = null;
+        const failures = ++streamFailuresRef.current;
+        if (failures > MAX_STREAM_FAILURES) {
+          console.warn('通知推送连接多次失败，改为轮询');
+          poll();
+          return;
+        }
+        reconnectTimerRef.current = setTimeout(async () => {
+          reconnectTimerRef.current = null;
+          if (refreshAuthRef.current) {
+            await refreshAuthRef.current();
+          }
+          // 等待期间已停止或重新开始接收
+          if (streamSessionRef.current === session) {
+            connect();
+          }
+        }, STREAM_RETRY_MS * failures);
+      };
+      eventSourceRef.current = source;
+    };
+
+    if (typeof EventSource !== 'undefined') {
+      connect();
+
+      // 待审核数量不走推送，审核员仍定期拉取
+      if (isReviewer) {
+        fetchPendingReviewCount();
+        pollingIntervalRef.current = setInterval(() => {
+          fetchPendingReviewCount();
+        }, intervalMs);
+      }
+      return;
+    }
+
+    poll();
+  }, [checkAndConsumeNotifications, scheduleConsume, fetchPendingReviewCount, isReviewer]);
 
   // 停止轮询
   const stopPolling = useCallback(() => {
@@ -225,6 +324,15 @@ export const useNotifications = (props?: UseNotificationsProps) => {
       clearInterval(pollingIntervalRef.current);
       pollingIntervalRef.current = null;
     }
+    if (reconnectTimerRef.current) {
+      clearTimeout(reconnectTimerRef.current);
+      reconnectTimerRef.current = null;
+    }
+    if (eventSourceRef.current) {
+      eventSourceRef.current.close();
+      eventSourceRef.current = null;
+    }
+    streamSessionRef.current++;
     setIsPolling(false);
   }, []);
 
@@ -239,6 +347,14 @@ export const useNotifications = (props?: UseNotificationsProps) => {
       if (pollingIntervalRef.current) {
         clearInterval(pollingIntervalRef.current);
       }
+      if (consumeTimerRef.current) {
+        clearTimeout(consumeTimerRef.current);
+      }
+      if (reconnectTimerRef.current) {
+        clearTimeout(reconnectTimerRef.current);
+      }
+      streamSessionRef.current++;
+      eventSourceRef.current?.close();
     };
   }, []);
 
@@ -26,12 +26,13 @@ interface NotificationProviderProps {
 }
 
 export const NotificationProvider: React.FC<NotificationProviderProps> = ({ children }) => {
-  const { user } = useAuth();
+  const { user, refresh } = useAuth();
 
   // 传递用户角色和用户ID给 useNotifications
   const notifications = useNotifications({
     userRole: user?.role,
-    userId: user?.studentId || user?.id  // 使用学号作为用户ID
+    userId: user?.studentId || user?.id,  // 使用学号作为用户ID
+    refreshAuth: refresh
   });
 
   // 当用户登录时开始轮询，登出时停止轮询
@@ -0,0 +1,23 @@
+package com.xuqinyang.xmudemo.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 支持 stale-while-revalidate 的缓存值包装
+ * freshUntil 之前为新鲜值；之后到 Redis TTL 到期前为陈旧值，可先返回再后台刷新。
+ * 非 final 类，默认类型信息会随值写入，反序列化时能还原为本类型。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEnvelope {
+
+    private Object value;
+    private long freshUntil;
+
+    public boolean isStale(long nowMillis) {
+        return nowMillis >= freshUntil;
+    }
+}
@@ -0,0 +1,133 @@
+package com.xuqinyang.xmudemo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内一级缓存（L1）
+ * 基于 Caffeine，按条目数上限淘汰；每个条目的存活时间取 min(默认 TTL, 写入时给定的 TTL)，
+ * 因此不会比 Redis 中的同一条目活得更久。
+ *
+ * 失效戳：每次失效都会递增，读 Redis 前取一次、回填 L1 时比较，
+ * 避免“读到旧值 -> 收到失效 -> 把旧值写回 L1”的竞态。
+ * 返回的是共享实例，调用方不应修改缓存中的对象。
+ */
+public class NearCache {
+
+    private final String name;
+    private final long defaultTtlNanos;
+    private final Cache<String, Entry> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private record Entry(Object value, long ttlNanos) {
+    }
+
+    NearCache(String name, long maxSize, Duration defaultTtl) {
+        this.name = name;
+        this.defaultTtlNanos = defaultTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(Math.max(0, maxSize))
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                    return entry.ttlNanos();
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                    return entry.ttlNanos();
+                }
+
+                @Override
+                public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Cache<String, ?> nativeCache() {
+        return cache;
+    }
+
+    /**
+     * 读取 L1，未命中返回 null
+     */
+    public Object get(String key) {
+        Entry e = cache.getIfPresent(key);
+        return e == null ? null : e.value();
+    }
+
+    /**
+     * 当前失效戳，在读取 L2 之前获取
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * 以默认 TTL 写入
+     */
+    public void put(String key, Object value) {
+        put(key, value, null);
+    }
+
+    /**
+     * 写入 L1；ttl 为 L2 中的过期时间，可为 null
+     */
+    public void put(String key, Object value, Duration ttl) {
+        if (value == null) {
+            return;
+        }
+        cache.put(key, new Entry(value, ttlNanos(ttl)));
+    }
+
+    /**
+     * 仅当自 stamp 以来没有发生任何失效时才回填
+     */
+    public void putIfUnchanged(String key, Object value, long stamp) {
+        if (value == null || invalidations.get() != stamp) {
+            return;
+        }
+        cache.put(key, new Entry(value, defaultTtlNanos));
+        // 回填与失效并发时，以失效为准
+        if (invalidations.get() != stamp) {
+            cache.invalidate(key);
+        }
+    }
+
+    public void invalidate(String key) {
+        invalidations.incrementAndGet();
+        cache.invalidate(key);
+    }
+
+    public void invalidatePrefix(String prefix) {
+        invalidations.incrementAndGet();
+        cache.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private long ttlNanos(Duration ttl) {
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            return defaultTtlNanos;
+        }
+        return Math.min(defaultTtlNanos, ttl.toNanos());
+    }
+}
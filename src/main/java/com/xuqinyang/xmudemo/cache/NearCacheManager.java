@@ -0,0 +1,118 @@
+package com.xuqinyang.xmudemo.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 一级缓存管理与跨节点失效
+ * 按名称创建 {@link NearCache}，注册 Micrometer 指标（cache.gets / cache.evictions 等，tag cache=名称, level=l1），
+ * 并通过 Redis pub/sub 频道广播失效消息，使各节点的 L1 保持一致。
+ *
+ * 消息格式：节点ID \t 缓存名 \t K|P \t 键（K=单键，P=前缀，前缀为空即整个缓存）。
+ * pub/sub 不保证送达，丢失的消息由 L1 的短 TTL 兜底。
+ */
+@Component
+@Slf4j
+public class NearCacheManager implements MessageListener {
+
+    public static final String CHANNEL = "cache:near:invalidate";
+
+    private static final char SEP = '\t';
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final long maxSize;
+    private final Duration ttl;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, NearCache> caches = new ConcurrentHashMap<>();
+
+    public NearCacheManager(StringRedisTemplate stringRedisTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.cache.near.max-size:10000}") long maxSize,
+                            @Value("${app.cache.near.ttl:10s}") Duration ttl) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+    }
+
+    /**
+     * 获取（必要时创建）指定名称的 L1
+     */
+    public NearCache getCache(String name) {
+        return caches.computeIfAbsent(name, n -> {
+            NearCache cache = new NearCache(n, maxSize, ttl);
+            CaffeineCacheMetrics.monitor(meterRegistry, cache.nativeCache(), n, Tags.of("level", "l1"));
+            return cache;
+        });
+    }
+
+    /**
+     * 本地删除单键并通知其他节点
+     */
+    public void evict(String name, String key) {
+        getCache(name).invalidate(key);
+        publish(name, 'K', key);
+    }
+
+    /**
+     * 本地删除前缀下所有键并通知其他节点；prefix 为空即清空整个缓存
+     */
+    public void evictPrefix(String name, String prefix) {
+        NearCache cache = getCache(name);
+        if (prefix.isEmpty()) {
+            cache.clear();
+        } else {
+            cache.invalidatePrefix(prefix);
+        }
+        publish(name, 'P', prefix);
+    }
+
+    /**
+     * 只通知其他节点删除单键（本节点刚写入新值时使用）
+     */
+    public void evictRemote(String name, String key) {
+        publish(name, 'K', key);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(String.valueOf(SEP), 4);
+        if (parts.length < 4 || nodeId.equals(parts[0]) || parts[2].length() != 1) {
+            return;
+        }
+        NearCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts[2].charAt(0) == 'K') {
+            cache.invalidate(parts[3]);
+        } else if (parts[3].isEmpty()) {
+            cache.clear();
+        } else {
+            cache.invalidatePrefix(parts[3]);
+        }
+    }
+
+    private void publish(String name, char type, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, nodeId + SEP + name + SEP + type + SEP + key);
+        } catch (Exception e) {
+            log.warn("Failed to publish near cache invalidation {}[{}]: {}", name, key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.xuqinyang.xmudemo.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 进程内请求合并（single-flight）
+ * 同一 key 同一时刻只有一个调用方执行加载，其余调用方等待同一个 future 的结果；
+ * 加载结束（成功或失败）后立即移除，下一次调用重新加载。
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 在当前线程加载，或等待正在进行的同 key 加载；加载异常会抛给所有等待者
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inflight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return (T) await(existing);
+        }
+        try {
+            T value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 若该 key 当前没有加载在进行，则交给 executor 异步加载（后台刷新用）
+     * 刷新期间到来的同 key 同步调用会等待并拿到刷新结果
+     *
+     * @return 是否提交了新的加载
+     */
+    public boolean executeAsync(String key, Supplier<?> loader, Executor executor) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        if (inflight.putIfAbsent(key, mine) != null) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    mine.complete(loader.get());
+                } catch (RuntimeException | Error e) {
+                    mine.completeExceptionally(e);
+                } finally {
+                    inflight.remove(key, mine);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inflight.remove(key, mine);
+            mine.completeExceptionally(e);
+            return false;
+        }
+    }
+
+    public boolean isInFlight(String key) {
+        return inflight.containsKey(key);
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error err) {
+                throw err;
+            }
+            throw e;
+        }
+    }
+}
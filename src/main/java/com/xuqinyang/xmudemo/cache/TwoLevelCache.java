@@ -0,0 +1,107 @@
+package com.xuqinyang.xmudemo.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 两级缓存：L1 为进程内 {@link NearCache}，L2 为 Redis 缓存
+ * 读先查 L1，未命中再读 L2 并回填；写入和删除先落 L2，再删除其他节点的 L1。
+ */
+public class TwoLevelCache implements Cache {
+
+    private final Cache redis;
+    private final NearCache near;
+    private final NearCacheManager nearCacheManager;
+
+    public TwoLevelCache(Cache redis, NearCache near, NearCacheManager nearCacheManager) {
+        this.redis = redis;
+        this.near = near;
+        this.nearCacheManager = nearCacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return redis.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redis.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String k = String.valueOf(key);
+        Object local = near.get(k);
+        if (local != null) {
+            return new SimpleValueWrapper(local);
+        }
+        long stamp = near.stamp();
+        ValueWrapper remote = redis.get(key);
+        if (remote != null) {
+            near.putIfUnchanged(k, remote.get(), stamp);
+        }
+        return remote;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper w = get(key);
+        Object value = w == null ? null : w.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String k = String.valueOf(key);
+        Object local = near.get(k);
+        if (local != null) {
+            return (T) local;
+        }
+        long stamp = near.stamp();
+        T value = redis.get(key, valueLoader);
+        near.putIfUnchanged(k, value, stamp);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redis.put(key, value);
+        String k = String.valueOf(key);
+        near.put(k, value);
+        nearCacheManager.evictRemote(getName(), k);
+    }
+
+    @Override
+    public void evict(Object key) {
+        redis.evict(key);
+        nearCacheManager.evict(getName(), String.valueOf(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = redis.evictIfPresent(key);
+        nearCacheManager.evict(getName(), String.valueOf(key));
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        redis.clear();
+        nearCacheManager.evictPrefix(getName(), "");
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean invalidated = redis.invalidate();
+        nearCacheManager.evictPrefix(getName(), "");
+        return invalidated;
+    }
+}
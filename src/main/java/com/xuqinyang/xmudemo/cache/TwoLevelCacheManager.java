@@ -0,0 +1,42 @@
+package com.xuqinyang.xmudemo.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在 Redis CacheManager 前面加一层进程内 L1 的 CacheManager
+ * 缓存名与 L2 一致，L1 由 {@link NearCacheManager} 按同名创建并负责跨节点失效。
+ */
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final CacheManager redisCacheManager;
+    private final NearCacheManager nearCacheManager;
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager redisCacheManager, NearCacheManager nearCacheManager) {
+        this.redisCacheManager = redisCacheManager;
+        this.nearCacheManager = nearCacheManager;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache redis = redisCacheManager.getCache(name);
+        if (redis == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new TwoLevelCache(redis, nearCacheManager.getCache(n), nearCacheManager));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return redisCacheManager.getCacheNames();
+    }
+}
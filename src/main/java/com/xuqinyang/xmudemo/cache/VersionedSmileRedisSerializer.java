@@ -0,0 +1,77 @@
+package com.xuqinyang.xmudemo.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 缓存值的紧凑二进制序列化器
+ * 格式：1 字节魔数 + 1 字节格式版本 + Smile（二进制 JSON）正文。
+ * - 开启共享属性名/短字符串：列表中每个对象重复的字段名和类型名只写一次；
+ * - 长字符串（如申请 content）按原始 UTF-8 存放，不再被转义成 JSON 字符串。
+ *
+ * 读取时魔数或版本不符（旧的 JSON 条目、将来的格式）以及解析失败都返回 null，
+ * 由缓存当作未命中处理，而不是向调用方抛出反序列化异常。
+ */
+@Slf4j
+public class VersionedSmileRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte MAGIC = (byte) 0xCA;
+    public static final byte FORMAT_VERSION = 1;
+
+    private final ObjectMapper mapper;
+    private final byte version;
+
+    /**
+     * @param typedMapper 带默认类型信息的 ObjectMapper（与 JSON 缓存使用的配置一致），会被复制为 Smile 版本
+     */
+    public VersionedSmileRedisSerializer(ObjectMapper typedMapper) {
+        this(typedMapper, FORMAT_VERSION);
+    }
+
+    VersionedSmileRedisSerializer(ObjectMapper typedMapper, byte version) {
+        SmileFactory factory = SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_NAMES)
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build();
+        this.mapper = typedMapper.copyWith(factory);
+        this.version = version;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            byte[] body = mapper.writeValueAsBytes(value);
+            byte[] out = new byte[body.length + 2];
+            out[0] = MAGIC;
+            out[1] = version;
+            System.arraycopy(body, 0, out, 2, body.length);
+            return out;
+        } catch (Exception e) {
+            throw new SerializationException("Could not write cache value: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length < 2 || bytes[0] != MAGIC || bytes[1] != version) {
+            log.debug("Ignoring cache value with unknown format (first byte 0x{})", Integer.toHexString(bytes[0] & 0xFF));
+            return null;
+        }
+        try {
+            return mapper.readValue(bytes, 2, bytes.length - 2, Object.class);
+        } catch (Exception e) {
+            log.debug("Ignoring undecodable cache value: {}", e.getMessage());
+            return null;
+        }
+    }
+}
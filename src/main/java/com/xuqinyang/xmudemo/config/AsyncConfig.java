@@ -1,11 +1,13 @@
 package com.xuqinyang.xmudemo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -38,50 +40,6 @@ public class AsyncConfig {
         return executor;
     }
 
-    /**
-     * 消息队列任务执行器 - 高并发优化版本
-     * 专门处理RabbitMQ消息队列任务
-     */
-    @Bean(name = "messageTaskExecutor")
-    public Executor messageTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-
-        // 消息队列高并发优化
-        executor.setCorePoolSize(15);        // 核心线程数：15
-        executor.setMaxPoolSize(80);         // 最大线程数：80
-        executor.setQueueCapacity(1500);     // 队列容量：1500
-        executor.setKeepAliveSeconds(300);   // 线程空闲时间：5分钟
-
-        executor.setThreadNamePrefix("MessageTask-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(30);
-        executor.initialize();
-        return executor;
-    }
-
-    /**
-     * 文件处理任务执行器 - 高并发优化版本
-     * 专门处理文件上传、压缩、转换等IO密集型任务
-     */
-    @Bean(name = "fileProcessTaskExecutor")
-    public Executor fileProcessTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-
-        // 文件处理高并发优化（IO密集型，可以有更多线程）
-        executor.setCorePoolSize(10);        // 核心线程数：10
-        executor.setMaxPoolSize(50);         // 最大线程数：50
-        executor.setQueueCapacity(800);      // 队列容量：800
-        executor.setKeepAliveSeconds(600);   // 线程空闲时间：10分钟（文件处理可能较慢）
-
-        executor.setThreadNamePrefix("FileProcessTask-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(120);
-        executor.initialize();
-        return executor;
-    }
-
     /**
      * 系统自动审核任务执行器 - 新增
      * 专门处理系统自动审核任务
@@ -126,28 +84,6 @@ public class AsyncConfig {
         return executor;
     }
 
-    /**
-     * 活动任务执行器 - 新增
-     * 专门处理活动相关的异步任务
-     */
-    @Bean(name = "activityTaskExecutor")
-    public Executor activityTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-
-        // 活动任务优化
-        executor.setCorePoolSize(12);        // 核心线程数：12
-        executor.setMaxPoolSize(40);         // 最大线程数：40
-        executor.setQueueCapacity(1200);     // 队列容量：1200
-        executor.setKeepAliveSeconds(300);   // 线程空闲时间：5分钟
-
-        executor.setThreadNamePrefix("ActivityTask-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
-        executor.setWaitForTasksToCompleteOnShutdown(true);
-        executor.setAwaitTerminationSeconds(60);
-        executor.initialize();
-        return executor;
-    }
-
     /**
      * 数据统计任务执行器 - 新增
      * 专门处理数据统计和分析任务
@@ -191,4 +127,57 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * 批量重算任务驱动执行器
+     * 每个任务占用一个线程负责分块读取和批量写回，评分计算交给 rescoreForkJoinPool
+     */
+    @Bean(name = "rescoreJobExecutor")
+    public Executor rescoreJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(2);         // 核心线程数：2
+        executor.setMaxPoolSize(4);          // 最大线程数：4
+        executor.setQueueCapacity(50);       // 队列容量：50
+        executor.setKeepAliveSeconds(300);   // 线程空闲时间：5分钟
+
+        executor.setThreadNamePrefix("RescoreJob-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false); // 未完成的任务由游标在重启后继续
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 批量PDF导出执行器（CPU密集型）
+     * 线程数即同时渲染的申请数上限，每个线程整轮导出只借用一个已解析字体，
+     * 因此应小于 app.pdf.font-pool-size，给单份导出留出字体
+     */
+    @Bean(name = "pdfExportExecutor")
+    public Executor pdfExportExecutor(
+            @Value("${app.pdf.batch-workers:3}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(workers);   // 核心线程数：与最大线程数一致
+        executor.setMaxPoolSize(workers);    // 最大线程数：app.pdf.batch-workers
+        executor.setQueueCapacity(workers * 4); // 队列容量：允许少量导出排队
+        executor.setKeepAliveSeconds(300);   // 线程空闲时间：5分钟
+        executor.setAllowCoreThreadTimeOut(true);
+
+        executor.setThreadNamePrefix("PdfExport-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false); // 导出随连接中断，无需等待
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 批量重算评分计算池（CPU密集型）
+     */
+    @Bean(name = "rescoreForkJoinPool", destroyMethod = "shutdown")
+    public ForkJoinPool rescoreForkJoinPool(
+            @Value("${app.rescore.parallelism:0}") int parallelism) {
+        int size = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new ForkJoinPool(size);
+    }
 }
@@ -1,28 +1,52 @@
 package com.xuqinyang.xmudemo.config;
 
+import com.xuqinyang.xmudemo.mq.DeadLetterErrorHandler;
+import com.xuqinyang.xmudemo.mq.LegacyQueueMigration;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * RabbitMQ消息队列配置
  * 支持异步消息处理，提升系统并发能力
+ *
+ * 消费端不再把消息转交线程池：监听方法在容器线程上同步处理，返回后容器才确认（AUTO 模式），
+ * 未确认消息数受 prefetch 限制，消费跟不上时积压留在 broker，节点崩溃时未确认的消息由 broker 重新投递。
+ *
+ * 失败重试拓扑（每个工作队列 Q）：
+ * Q --拒绝--> 重试交换机 --Q--> Q.retry（TTL = app.mq.retry.delay）--过期--> 默认交换机 --> Q；
+ * 超过重试次数或消息本身无法处理时由 {@link DeadLetterErrorHandler} 转存到 Q.dlq 等待人工处理。
+ * 工作队列满时拒绝发布（reject-publish），发布方收到 nack 后落盘重试，而不是由 broker 丢弃最老的消息。
+ * 带这些参数的工作队列使用 .v2 名称，与旧版本声明的同名队列并存，见 {@link LegacyQueueMigration}。
  */
 @Configuration
 public class RabbitMQConfig {
 
+    // 工作队列名称的版本后缀：队列参数（死信、reject-publish）变更后 broker 不允许按原名重新声明，
+    // 改用新名称；不带后缀的 v1 队列中的积压由 LegacyQueueMigration 转移后删除
+    public static final String QUEUE_VERSION = ".v2";
+
     // 队列名称常量 - 只保留真正使用的队列
-    public static final String APPLICATION_PROCESS_QUEUE = "application.process.queue";
-    public static final String ACTIVITY_PROCESS_QUEUE = "activity.process.queue";
-    public static final String FILE_PROCESS_QUEUE = "file.process.queue";
-    public static final String NOTIFICATION_QUEUE = "notification.queue";
-    public static final String USER_AUTH_QUEUE = "user.auth.queue";
-    public static final String AUDIT_LOG_QUEUE = "audit.log.queue";
-    public static final String STATISTICS_QUEUE = "statistics.queue";
+    public static final String APPLICATION_PROCESS_QUEUE = "application.process.queue" + QUEUE_VERSION;
+    public static final String ACTIVITY_PROCESS_QUEUE = "activity.process.queue" + QUEUE_VERSION;
+    public static final String FILE_PROCESS_QUEUE = "file.process.queue" + QUEUE_VERSION;
+    public static final String NOTIFICATION_QUEUE = "notification.queue" + QUEUE_VERSION;
+    public static final String USER_AUTH_QUEUE = "user.auth.queue" + QUEUE_VERSION;
+    public static final String AUDIT_LOG_QUEUE = "audit.log.queue" + QUEUE_VERSION;
+    public static final String STATISTICS_QUEUE = "statistics.queue" + QUEUE_VERSION;
+    public static final String SYSTEM_REVIEW_QUEUE = "system.review.queue";
+    // 系统预审延迟队列：没有消费者，消息在宽限期后过期并转入 SYSTEM_REVIEW_QUEUE
+    public static final String SYSTEM_REVIEW_DELAY_QUEUE = "system.review.delay.queue";
 
     // 交换机名称
     public static final String DIRECT_EXCHANGE = "xmudemo.direct.exchange";
@@ -36,6 +60,21 @@ public class RabbitMQConfig {
     public static final String USER_AUTH_ROUTING_KEY = "user.auth";
     public static final String AUDIT_ROUTING_KEY = "audit.log";
     public static final String STATISTICS_ROUTING_KEY = "statistics.data";
+    public static final String SYSTEM_REVIEW_ROUTING_KEY = "system.review.delay";
+
+    // 重试交换机，以及重试队列、死信队列的名称后缀
+    public static final String RETRY_EXCHANGE = "xmudemo.retry.exchange";
+    public static final String RETRY_SUFFIX = ".retry";
+    public static final String DEAD_LETTER_SUFFIX = ".dlq";
+
+    public static final List<String> WORK_QUEUES = List.of(
+            APPLICATION_PROCESS_QUEUE, ACTIVITY_PROCESS_QUEUE, FILE_PROCESS_QUEUE, NOTIFICATION_QUEUE,
+            USER_AUTH_QUEUE, AUDIT_LOG_QUEUE, STATISTICS_QUEUE, SYSTEM_REVIEW_QUEUE);
+
+    // 批量消费的监听容器工厂
+    public static final String BATCH_LISTENER_FACTORY = "batchRabbitListenerContainerFactory";
+    // 慢任务（文件扫描）的监听容器工厂：每个消费者一次只取一条
+    public static final String SLOW_LISTENER_FACTORY = "slowRabbitListenerContainerFactory";
 
     @Bean
     public Jackson2JsonMessageConverter messageConverter() {
@@ -49,25 +88,66 @@ public class RabbitMQConfig {
         return template;
     }
 
+    /**
+     * 默认监听容器工厂；各监听方法在 @RabbitListener(concurrency) 上按队列单独设置并发数
+     */
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory) {
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            DeadLetterErrorHandler deadLetterErrorHandler,
+            @Value("${app.mq.listener.prefetch:20}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = baseFactory(connectionFactory, deadLetterErrorHandler);
+        factory.setConcurrentConsumers(2);
+        factory.setMaxConcurrentConsumers(8);
+        factory.setPrefetchCount(prefetch);
+        return factory;
+    }
+
+    /**
+     * 单条处理耗时长的队列：prefetch 1，避免一个消费者囤积消息而其他消费者空闲
+     */
+    @Bean(name = SLOW_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory slowRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            DeadLetterErrorHandler deadLetterErrorHandler) {
+        SimpleRabbitListenerContainerFactory factory = baseFactory(connectionFactory, deadLetterErrorHandler);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(4);
+        factory.setPrefetchCount(1);
+        return factory;
+    }
+
+    private SimpleRabbitListenerContainerFactory baseFactory(ConnectionFactory connectionFactory,
+                                                             DeadLetterErrorHandler deadLetterErrorHandler) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(messageConverter());
+        // 监听方法正常返回后才确认；抛出异常则拒绝且不重新入队，由队列的死信参数转入重试队列
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setDefaultRequeueRejected(false);
+        factory.setErrorHandler(deadLetterErrorHandler);
+        return factory;
+    }
 
-        // 高并发优化：大幅增加并发消费者数量
-        factory.setConcurrentConsumers(10);       // 初始并发消费者：10（原来是5）
-        factory.setMaxConcurrentConsumers(50);    // 最大并发消费者：50（原来是20）
-
-        // 新增：消息预取数量优化
-        factory.setPrefetchCount(20);             // 每个消费者预取20条消息
-
-        // 新增：消息确认模式
-        factory.setAcknowledgeMode(org.springframework.amqp.core.AcknowledgeMode.AUTO);
-
-        // 新增：错误处理策略
-        factory.setDefaultRequeueRejected(false); // 失败消息不重新入队
-
+    /**
+     * 批量消费：每次最多收满 batchSize 条（或等待 receiveTimeout）后整批交给监听方法，
+     * 方法在一个事务内处理完并返回后才整批确认，异常时整批拒绝
+     */
+    @Bean(name = BATCH_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            DeadLetterErrorHandler deadLetterErrorHandler,
+            @Value("${app.mq.consumer.batch-size:50}") int batchSize,
+            @Value("${app.mq.consumer.prefetch:100}") int prefetch,
+            @Value("${app.mq.consumer.batch-receive-timeout:200ms}") Duration receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = baseFactory(connectionFactory, deadLetterErrorHandler);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize)); // 预取不少于一批，否则凑不满
+        factory.setReceiveTimeout(receiveTimeout.toMillis());
+        factory.setConcurrentConsumers(2);
+        factory.setMaxConcurrentConsumers(8);
         return factory;
     }
 
@@ -83,59 +163,102 @@ public class RabbitMQConfig {
         return new TopicExchange(TOPIC_EXCHANGE, true, false);
     }
 
+    // 重试交换机
+    @Bean
+    public DirectExchange retryExchange() {
+        return new DirectExchange(RETRY_EXCHANGE, true, false);
+    }
+
+    /**
+     * 工作队列：拒绝的消息按队列名路由到重试交换机
+     */
+    private static Queue workQueue(String name, int maxLength) {
+        return QueueBuilder.durable(name)
+                .maxLength(maxLength)
+                .overflow(QueueBuilder.Overflow.rejectPublish)
+                .deadLetterExchange(RETRY_EXCHANGE)
+                .deadLetterRoutingKey(name)
+                .build();
+    }
+
+    /**
+     * 每个工作队列对应的延迟重试队列和死信队列
+     * 重试队列没有消费者，消息过期后经默认交换机直接回到原工作队列
+     */
+    @Bean
+    public Declarables retryTopology(@Value("${app.mq.retry.delay:10s}") Duration retryDelay) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (String queue : WORK_QUEUES) {
+            Queue retryQueue = QueueBuilder.durable(queue + RETRY_SUFFIX)
+                    .ttl((int) retryDelay.toMillis())
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(queue)
+                    .build();
+            declarables.add(retryQueue);
+            declarables.add(BindingBuilder.bind(retryQueue).to(retryExchange()).with(queue));
+            declarables.add(QueueBuilder.durable(queue + DEAD_LETTER_SUFFIX).build());
+        }
+        return new Declarables(declarables);
+    }
+
     // 应用处理队列
     @Bean
     public Queue applicationProcessQueue() {
-        return QueueBuilder.durable(APPLICATION_PROCESS_QUEUE)
-                .withArgument("x-max-length", 10000)
-                .build();
+        return workQueue(APPLICATION_PROCESS_QUEUE, 10000);
     }
 
     // 活动处理队列
     @Bean
     public Queue activityProcessQueue() {
-        return QueueBuilder.durable(ACTIVITY_PROCESS_QUEUE)
-                .withArgument("x-max-length", 8000)
-                .build();
+        return workQueue(ACTIVITY_PROCESS_QUEUE, 8000);
     }
 
     // 文件处理队列
     @Bean
     public Queue fileProcessQueue() {
-        return QueueBuilder.durable(FILE_PROCESS_QUEUE)
-                .withArgument("x-max-length", 5000)
-                .build();
+        return workQueue(FILE_PROCESS_QUEUE, 5000);
     }
 
     // 通知队列
     @Bean
     public Queue notificationQueue() {
-        return QueueBuilder.durable(NOTIFICATION_QUEUE)
-                .withArgument("x-max-length", 20000)
-                .build();
+        return workQueue(NOTIFICATION_QUEUE, 20000);
     }
 
     // 用户认证队列
     @Bean
     public Queue userAuthQueue() {
-        return QueueBuilder.durable(USER_AUTH_QUEUE)
-                .withArgument("x-max-length", 3000)
-                .build();
+        return workQueue(USER_AUTH_QUEUE, 3000);
     }
 
     // 审计日志队列
     @Bean
     public Queue auditLogQueue() {
-        return QueueBuilder.durable(AUDIT_LOG_QUEUE)
-                .withArgument("x-max-length", 10000)
-                .build();
+        return workQueue(AUDIT_LOG_QUEUE, 10000);
     }
 
     // 数据统计队列
     @Bean
     public Queue statisticsQueue() {
-        return QueueBuilder.durable(STATISTICS_QUEUE)
-                .withArgument("x-max-length", 5000)
+        return workQueue(STATISTICS_QUEUE, 5000);
+    }
+
+    // 系统预审队列
+    @Bean
+    public Queue systemReviewQueue() {
+        return workQueue(SYSTEM_REVIEW_QUEUE, 20000);
+    }
+
+    /**
+     * 系统预审延迟队列：提交事务登记的消息在这里等待宽限期，过期后经默认交换机进入系统预审队列
+     * 所有消息 TTL 相同，先入先过期，不会出现队头消息挡住已到期消息的问题
+     */
+    @Bean
+    public Queue systemReviewDelayQueue(@Value("${app.review.grace-period:60s}") Duration gracePeriod) {
+        return QueueBuilder.durable(SYSTEM_REVIEW_DELAY_QUEUE)
+                .ttl((int) gracePeriod.toMillis())
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(SYSTEM_REVIEW_QUEUE)
                 .build();
     }
 
@@ -193,6 +316,15 @@ public class RabbitMQConfig {
                 .with(AUDIT_ROUTING_KEY);
     }
 
+    // 绑定系统预审延迟队列到直接交换机
+    @Bean
+    public Binding systemReviewDelayBinding(@Qualifier("systemReviewDelayQueue") Queue systemReviewDelayQueue) {
+        return BindingBuilder
+                .bind(systemReviewDelayQueue)
+                .to(directExchange())
+                .with(SYSTEM_REVIEW_ROUTING_KEY);
+    }
+
     // 绑定数据统计队列到直接交换机
     @Bean
     public Binding statisticsBinding() {
@@ -6,16 +6,27 @@ import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.xuqinyang.xmudemo.cache.NearCacheManager;
+import com.xuqinyang.xmudemo.cache.TwoLevelCacheManager;
+import com.xuqinyang.xmudemo.cache.VersionedSmileRedisSerializer;
+import com.xuqinyang.xmudemo.notification.NotificationPushHub;
+import com.xuqinyang.xmudemo.service.DistributedLockService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -29,6 +40,9 @@ import java.time.Duration;
 @EnableCaching
 public class RedisConfig {
 
+    @Value("${app.cache.serializer:smile}")
+    private String cacheSerializer;
+
     /**
      * 为 HTTP API 创建标准的 ObjectMapper（不包含类型信息）
      */
@@ -138,10 +152,43 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * 缓存值专用模板（CacheService 的活动/应用/统计缓存），值序列化器由 app.cache.serializer 决定
+     * 锁、限流计数等需要 Redis 原生命令（INCR、Lua 比较）理解的值仍走上面的 JSON 模板
+     */
+    @Bean("cacheRedisTemplate")
+    public RedisTemplate<String, Object> cacheRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        RedisSerializer<Object> serializer = cacheValueSerializer();
+
+        template.setValueSerializer(serializer);
+        template.setHashValueSerializer(serializer);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setHashKeySerializer(new StringRedisSerializer());
+
+        template.setDefaultSerializer(serializer);
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * 缓存值序列化器：smile（默认，带版本头的二进制格式）或 json（带类型信息的 JSON，旧格式）
+     */
+    public RedisSerializer<Object> cacheValueSerializer() {
+        if ("json".equalsIgnoreCase(cacheSerializer)) {
+            return new GenericJackson2JsonRedisSerializer(redisObjectMapper());
+        }
+        return new VersionedSmileRedisSerializer(redisObjectMapper());
+    }
+
+    /**
+     * 两级缓存：进程内 Caffeine（L1）+ Redis（L2），L1 通过 pub/sub 跨节点失效
+     */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        // 使用专门为 Redis 配置的 ObjectMapper 创建序列化器
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(redisObjectMapper());
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, NearCacheManager nearCacheManager) {
+        RedisSerializer<Object> serializer = cacheValueSerializer();
 
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofHours(1)) // 默认1小时过期
@@ -149,8 +196,31 @@ public class RedisConfig {
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
+        // Cache.clear() 默认用 KEYS 枚举条目，改为分批 SCAN，避免阻塞 Redis
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(
+                connectionFactory, BatchStrategies.scan(1000));
+
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
                 .cacheDefaults(config)
                 .build();
+        redisCacheManager.initializeCaches();
+
+        return new TwoLevelCacheManager(redisCacheManager, nearCacheManager);
+    }
+
+    /**
+     * 订阅一级缓存失效频道、分布式锁释放频道和通知推送频道
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       NearCacheManager nearCacheManager,
+                                                                       DistributedLockService distributedLockService,
+                                                                       NotificationPushHub notificationPushHub) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(nearCacheManager, new ChannelTopic(NearCacheManager.CHANNEL));
+        container.addMessageListener(distributedLockService, new ChannelTopic(DistributedLockService.RELEASE_CHANNEL));
+        container.addMessageListener(notificationPushHub, new ChannelTopic(NotificationPushHub.CHANNEL));
+        return container;
     }
 }
@@ -1,6 +1,7 @@
 package com.xuqinyang.xmudemo.config;
 
 import com.xuqinyang.xmudemo.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -53,6 +54,8 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // 预检请求放行
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // 异步请求（SSE 推送）结束时的再次分派：原请求已通过鉴权
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // 错误页面放行
                         .requestMatchers("/error").permitAll()
                         // 静态/前端 SPA 构建资源放行（根路径 & 资源目录）
@@ -1,12 +1,19 @@
 package com.xuqinyang.xmudemo.controller;
 
 import com.xuqinyang.xmudemo.model.Activity;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.pdf.ApplicationPdfZipExporter;
 import com.xuqinyang.xmudemo.service.ActivityService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +24,9 @@ public class ActivityController {
     @Autowired
     private ActivityService activityService;
 
+    @Autowired
+    private ApplicationPdfZipExporter pdfZipExporter;
+
     // Return only active activities for student-facing pages
     @GetMapping("/active")
     public List<Activity> active(){ return activityService.listActive(); }
@@ -56,4 +66,30 @@ public class ActivityController {
         try { return ResponseEntity.ok(activityService.toggle(id)); }
         catch (Exception e){ return ResponseEntity.badRequest().body(Map.of("error", e.getMessage())); }
     }
+
+    // 批量导出活动下申请材料：并行渲染，每份完成即写入 ZIP 响应流
+    @PreAuthorize("hasAuthority('ADMIN')")
+    @GetMapping("/{id}/export/pdf-zip")
+    public ResponseEntity<?> exportPdfZip(@PathVariable Long id,
+                                          @RequestParam(required = false) List<ApplicationStatus> statuses,
+                                          @RequestParam(required = false) List<Long> ids){
+        if (activityService.find(id).isEmpty()) return ResponseEntity.notFound().build();
+        List<ApplicationStatus> selected = statuses == null || statuses.isEmpty() ? List.of(ApplicationStatus.APPROVED) : statuses;
+        List<Long> appIds = pdfZipExporter.select(id, selected, ids);
+        if (appIds.isEmpty()) return ResponseEntity.badRequest().body(Map.of("error", "没有符合条件的申请"));
+        // 拿到第一份结果后才提交响应：线程池繁忙或数据库不可用时仍能返回错误状态
+        ApplicationPdfZipExporter.Export export;
+        try { export = pdfZipExporter.open(appIds); }
+        catch (IllegalStateException e){ return ResponseEntity.status(503).body(Map.of("error", e.getMessage())); }
+        catch (Exception e){ return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage())); }
+        // 之后出错时异常抛出，容器直接断开连接，客户端不会把截断的 ZIP 当作完整文件
+        StreamingResponseBody body = out -> {
+            try (ApplicationPdfZipExporter.Export running = export) { running.writeTo(out); }
+        };
+        String filename = URLEncoder.encode("activity-"+id+"-applications.zip", StandardCharsets.UTF_8).replace("+","%20");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''"+filename)
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
 }
@@ -3,10 +3,12 @@ package com.xuqinyang.xmudemo.controller;
 import com.xuqinyang.xmudemo.model.Application;
 import com.xuqinyang.xmudemo.model.ApplicationStatus;
 import com.xuqinyang.xmudemo.repository.UserRepository;
+import com.xuqinyang.xmudemo.review.BulkAdminReviewService;
 import com.xuqinyang.xmudemo.service.ApplicationService;
 import com.xuqinyang.xmudemo.service.CacheService;
 import com.xuqinyang.xmudemo.service.MessageQueueService;
 import com.xuqinyang.xmudemo.service.PerformanceMonitorService;
+import com.xuqinyang.xmudemo.service.UserNotificationService;
 import com.xuqinyang.xmudemo.service.DistributedLockService;  // 添加这个依赖
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
@@ -18,6 +20,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -27,8 +30,12 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -52,12 +59,18 @@ public class ApplicationController {
     @Autowired
     private PerformanceMonitorService performanceMonitorService;
 
+    @Autowired
+    private UserNotificationService userNotificationService;
+
     @Autowired
     private DistributedLockService distributedLockService;  // 添加分布式锁服务
 
     @Autowired
     private UserRepository userRepository;  // 添加UserRepository依赖
 
+    @Autowired
+    private BulkAdminReviewService bulkAdminReviewService;
+
     @Autowired
     private com.xuqinyang.xmudemo.repository.ApplicationRepository applicationRepository;  // 添加ApplicationRepository依赖
 
@@ -312,6 +325,7 @@ public class ApplicationController {
     @GetMapping("/{id}/export/pdf")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> exportPdf(@PathVariable Long id){
+        FileChannel pdf = null;
         try {
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
             boolean isAdmin = auth.getAuthorities().stream().anyMatch(a-> a.getAuthority().equals("ADMIN"));
@@ -394,14 +408,33 @@ public class ApplicationController {
             // Send async message for PDF generation
             messageQueueService.sendApplicationProcessMessage(id, "EXPORT");
 
-            byte[] pdf = applicationService.exportPdf(id);
+            // 按版本缓存在本地磁盘，内容未变时不重新渲染；在缓存锁定期间打开文件通道，之后被淘汰删除也不影响本次发送
+            pdf = applicationService.exportPdfFile(id, FileChannel::open);
+            FileChannel channel = pdf;
+            long size = channel.size();
+            // 由文件通道直接传输到响应，传输结束（或失败）后关闭通道
+            StreamingResponseBody body = out -> {
+                try (channel) {
+                    WritableByteChannel target = Channels.newChannel(out);
+                    for (long position = 0; position < size; ) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                }
+            };
             String filename = URLEncoder.encode("application-"+id+".pdf", StandardCharsets.UTF_8).replace("+","%20");
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename*=UTF-8''"+filename)
                     .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(pdf.length)
-                    .body(pdf);
+                    .contentLength(size)
+                    .body(body);
         } catch (Exception e){
+            if (pdf != null) {
+                try {
+                    pdf.close();
+                } catch (IOException closeException) {
+                    log.warn("Failed to close PDF channel for application {}: {}", id, closeException.getMessage());
+                }
+            }
             log.error("Error exporting PDF for application {}", id, e);
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
         }
@@ -425,7 +458,7 @@ public class ApplicationController {
                 // Send async notification - use user object to get ID
                 messageQueueService.sendApplicationProcessMessage(created.getId(), "CREATE");
                 if (created.getUser() != null) {
-                    messageQueueService.sendNotificationMessage(
+                    userNotificationService.createNotificationAsync(
                         created.getUser().getId(),
                         "Application Created",
                         "Your application has been created successfully",
@@ -532,62 +565,58 @@ public class ApplicationController {
     @PreAuthorize("hasAuthority('STUDENT')")
     @PostMapping("/{id}/submit")
     public ResponseEntity<?> submit(@PathVariable Long id, @RequestBody(required = false) JsonNode maybeContent, HttpServletRequest request){
-        String lockKey = "application:submit:" + id;
-
-        return distributedLockService.executeWithLockAndRetry(lockKey, () -> {
-            long startTime = System.currentTimeMillis();
-            String clientIp = getClientIp(request);
-            String userId = SecurityContextHolder.getContext().getAuthentication().getName();
-
-            try {
-                if(maybeContent!=null){
-                    // 前端直接携带最终内容，先合并一次
-                    applicationService.updateDraft(id, maybeContent.toString());
-                }
-                var app = applicationService.submit(id);
-
-                // 异步处理申请提交事件
-                messageQueueService.sendApplicationProcessMessage(id, "SUBMIT");
-
-                // 发送审计日志
-                messageQueueService.sendAuditLogMessage(
-                    userId,
-                    "APPLICATION_SUBMIT",
-                    "APPLICATION",
-                    String.format("Application %d submitted from IP: %s", id, clientIp)
-                );
+        long startTime = System.currentTimeMillis();
+        String clientIp = getClientIp(request);
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
 
-                // 发送数据统计
-                messageQueueService.sendDataStatisticsMessage(
-                    "APPLICATION",
-                    "SUBMIT",
-                    Map.of("applicationId", id, "userId", userId, "ip", clientIp)
+        try {
+            if(maybeContent!=null){
+                // 前端直接携带最终内容，先合并一次
+                applicationService.updateDraft(id, maybeContent.toString());
+            }
+            var app = applicationService.submit(id);
+
+            // 异步处理申请提交事件
+            messageQueueService.sendApplicationProcessMessage(id, "SUBMIT");
+
+            // 发送审计日志
+            messageQueueService.sendAuditLogMessage(
+                userId,
+                "APPLICATION_SUBMIT",
+                "APPLICATION",
+                String.format("Application %d submitted from IP: %s", id, clientIp)
+            );
+
+            // 发送数据统计
+            messageQueueService.sendDataStatisticsMessage(
+                "APPLICATION",
+                "SUBMIT",
+                Map.of("applicationId", id, "userId", userId, "ip", clientIp)
+            );
+
+            // 发送通知
+            if (app.getUser() != null) {
+                userNotificationService.createNotificationAsync(
+                    app.getUser().getId(),
+                    "申请已提交",
+                    "您的申请已成功提交，正在等待系统审核",
+                    "APPLICATION_SUBMIT"
                 );
+            }
 
-                // 发送通知
-                if (app.getUser() != null) {
-                    messageQueueService.sendNotificationMessage(
-                        app.getUser().getId(),
-                        "申请已提交",
-                        "您的申请已成功提交，正在等待系统审核",
-                        "APPLICATION_SUBMIT"
-                    );
-                }
+            long duration = System.currentTimeMillis() - startTime;
+            performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/submit", 200, duration);
 
-                long duration = System.currentTimeMillis() - startTime;
-                performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/submit", 200, duration);
+            log.info("[SUBMIT] Success applicationId={}, userId={}, duration={}ms", id, userId, duration);
+            return ResponseEntity.ok(app);
 
-                log.info("[SUBMIT] Success applicationId={}, userId={}, duration={}ms", id, userId, duration);
-                return ResponseEntity.ok(app);
-
-            } catch (Exception e) {
-                long duration = System.currentTimeMillis() - startTime;
-                performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/submit", 400, duration);
+        } catch (Exception e) {
+            long duration = System.currentTimeMillis() - startTime;
+            performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/submit", 400, duration);
 
-                log.error("[SUBMIT] Error applicationId={}, userId={}, duration={}ms", id, userId, duration, e);
-                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-            }
-        }, 5);
+            log.error("[SUBMIT] Error applicationId={}, userId={}, duration={}ms", id, userId, duration, e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     // 已废弃：手动系统审核功能已被自动系统审核取代
@@ -644,52 +673,95 @@ public class ApplicationController {
     @PreAuthorize("hasAnyAuthority('ADMIN','REVIEWER')")
     @PostMapping("/{id}/admin-review")
     public ResponseEntity<?> adminReview(@PathVariable Long id, @RequestBody AdminDecision decision, HttpServletRequest request){
-        String lockKey = "application:adminReview:" + id;
+        long startTime = System.currentTimeMillis();
+        String clientIp = getClientIp(request);
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
 
-        return distributedLockService.executeWithLockAndRetry(lockKey, () -> {
-            long startTime = System.currentTimeMillis();
-            String clientIp = getClientIp(request);
-            String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            var app = applicationService.adminReview(id, decision.approve(), decision.comment());
 
-            try {
-                var app = applicationService.adminReview(id, decision.approve(), decision.comment());
+            // 异步处理管理员审核事件
+            String action = decision.approve() ? "APPROVE" : "REJECT";
+            messageQueueService.sendApplicationProcessMessage(id, action);
 
-                // 异步处理管理员审核事件
-                String action = decision.approve() ? "APPROVE" : "REJECT";
-                messageQueueService.sendApplicationProcessMessage(id, action);
+            // 发送审计日志
+            messageQueueService.sendAuditLogMessage(
+                userId,
+                "ADMIN_REVIEW_" + action,
+                "APPLICATION",
+                String.format("Admin %s application %d from IP: %s, comment: %s",
+                    action.toLowerCase(), id, clientIp, decision.comment())
+            );
 
-                // 发送审计日志
-                messageQueueService.sendAuditLogMessage(
-                    userId,
-                    "ADMIN_REVIEW_" + action,
-                    "APPLICATION",
-                    String.format("Admin %s application %d from IP: %s, comment: %s",
-                        action.toLowerCase(), id, clientIp, decision.comment())
-                );
+            // 发送数据统计
+            messageQueueService.sendDataStatisticsMessage(
+                "APPLICATION",
+                action,
+                Map.of("applicationId", id, "reviewerId", userId, "approved", decision.approve())
+            );
 
-                // 发送数据统计
-                messageQueueService.sendDataStatisticsMessage(
-                    "APPLICATION",
-                    action,
-                    Map.of("applicationId", id, "reviewerId", userId, "approved", decision.approve())
-                );
 
+            long duration = System.currentTimeMillis() - startTime;
+            performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/admin-review", 200, duration);
 
-                long duration = System.currentTimeMillis() - startTime;
-                performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/admin-review", 200, duration);
+            log.info("[ADMIN_REVIEW] Success applicationId={}, action={}, reviewerId={}, duration={}ms",
+                id, action, userId, duration);
+            return ResponseEntity.ok(app);
 
-                log.info("[ADMIN_REVIEW] Success applicationId={}, action={}, reviewerId={}, duration={}ms",
-                    id, action, userId, duration);
-                return ResponseEntity.ok(app);
+        } catch (Exception e) {
+            long duration = System.currentTimeMillis() - startTime;
+            performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/admin-review", 400, duration);
 
-            } catch (Exception e) {
-                long duration = System.currentTimeMillis() - startTime;
-                performanceMonitorService.recordRequest("POST", "/api/applications/" + id + "/admin-review", 400, duration);
+            log.error("[ADMIN_REVIEW] Error applicationId={}, reviewerId={}, duration={}ms", id, userId, duration, e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-                log.error("[ADMIN_REVIEW] Error applicationId={}, reviewerId={}, duration={}ms", id, userId, duration, e);
-                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
-            }
-        }, 5);
+    /**
+     * 批量人工审核：一次提交多条结论，逐条返回成功或失败原因
+     */
+    @PreAuthorize("hasAnyAuthority('ADMIN','REVIEWER')")
+    @PostMapping("/admin-review/batch")
+    public ResponseEntity<?> bulkAdminReview(@RequestBody BulkAdminDecision body, HttpServletRequest request){
+        long startTime = System.currentTimeMillis();
+        String clientIp = getClientIp(request);
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        try {
+            var result = bulkAdminReviewService.review(body.decisions());
+
+            // 审计日志和统计各发一条汇总消息
+            List<Long> reviewedIds = result.items().stream()
+                .filter(BulkAdminReviewService.ItemResult::success)
+                .map(BulkAdminReviewService.ItemResult::id)
+                .toList();
+            messageQueueService.sendAuditLogMessage(
+                userId,
+                "ADMIN_REVIEW_BATCH",
+                "APPLICATION",
+                String.format("Admin batch review from IP: %s, approved=%d, rejected=%d, failed=%d, applications=%s",
+                    clientIp, result.approved(), result.rejected(), result.failed(), reviewedIds)
+            );
+            messageQueueService.sendDataStatisticsMessage(
+                "APPLICATION",
+                "BATCH_REVIEW",
+                Map.of("reviewerId", userId, "approved", result.approved(), "rejected", result.rejected(), "failed", result.failed())
+            );
+
+            long duration = System.currentTimeMillis() - startTime;
+            performanceMonitorService.recordRequest("POST", "/api/applications/admin-review/batch", 200, duration);
+
+            log.info("[ADMIN_REVIEW_BATCH] Success items={}, approved={}, rejected={}, failed={}, reviewerId={}, duration={}ms",
+                result.items().size(), result.approved(), result.rejected(), result.failed(), userId, duration);
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            long duration = System.currentTimeMillis() - startTime;
+            performanceMonitorService.recordRequest("POST", "/api/applications/admin-review/batch", 400, duration);
+
+            log.error("[ADMIN_REVIEW_BATCH] Error reviewerId={}, duration={}ms", userId, duration, e);
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PreAuthorize("hasAnyAuthority('ADMIN','REVIEWER')")
@@ -936,6 +1008,7 @@ public class ApplicationController {
 
     // 记录类定义
     public record AdminDecision(boolean approve, String comment){}
+    public record BulkAdminDecision(List<BulkAdminReviewService.Decision> decisions){}
     public record ReopenRequest(String reason){}
 
     private String getClientIp(HttpServletRequest request) {
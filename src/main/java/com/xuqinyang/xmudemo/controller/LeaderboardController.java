@@ -0,0 +1,73 @@
+package com.xuqinyang.xmudemo.controller;
+
+import com.xuqinyang.xmudemo.service.LeaderboardService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 活动排行榜控制器
+ */
+@RestController
+@RequestMapping("/api/leaderboard")
+@RequiredArgsConstructor
+@Slf4j
+public class LeaderboardController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final LeaderboardService leaderboardService;
+
+    /**
+     * 排行榜前 N 名（支持分页偏移）
+     */
+    @GetMapping("/activity/{activityId}")
+    @PreAuthorize("hasAnyAuthority('ADMIN','REVIEWER')")
+    public ResponseEntity<List<Map<String, Object>>> top(@PathVariable Long activityId,
+                                                         @RequestParam(defaultValue = "0") int offset,
+                                                         @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(leaderboardService.top(activityId, Math.max(0, offset), Math.min(limit, MAX_LIMIT)));
+    }
+
+    /**
+     * 申请的名次与百分位
+     */
+    @GetMapping("/activity/{activityId}/applications/{applicationId}")
+    @PreAuthorize("hasAnyAuthority('ADMIN','REVIEWER')")
+    public ResponseEntity<Map<String, Object>> standing(@PathVariable Long activityId, @PathVariable Long applicationId) {
+        return leaderboardService.standing(activityId, applicationId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * 与数据库全量重算结果比对
+     */
+    @GetMapping("/activity/{activityId}/verify")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> verify(@PathVariable Long activityId) {
+        try {
+            return ResponseEntity.ok(leaderboardService.verify(activityId));
+        } catch (Exception e) {
+            log.error("Error verifying leaderboard of activity {}", activityId, e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to verify leaderboard"));
+        }
+    }
+
+    @PostMapping("/activity/{activityId}/rebuild")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuild(@PathVariable Long activityId) {
+        try {
+            int size = leaderboardService.rebuild(activityId);
+            return ResponseEntity.ok(Map.of("activityId", activityId, "size", size));
+        } catch (Exception e) {
+            log.error("Error rebuilding leaderboard of activity {}", activityId, e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to rebuild leaderboard"));
+        }
+    }
+}
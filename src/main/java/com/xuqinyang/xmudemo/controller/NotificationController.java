@@ -1,12 +1,15 @@
 package com.xuqinyang.xmudemo.controller;
 
+import com.xuqinyang.xmudemo.notification.NotificationPushHub;
 import com.xuqinyang.xmudemo.service.UserNotificationService;
 import com.xuqinyang.xmudemo.service.PerformanceMonitorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,6 +30,25 @@ public class NotificationController {
     private UserNotificationService notificationService;
     @Autowired
     private PerformanceMonitorService performanceMonitorService;
+    @Autowired
+    private NotificationPushHub pushHub;
+
+    /**
+     * 通知推送流（Server-Sent Events）
+     * 连接后先收到未读总数，之后收到新通知和未读数增量；客户端断线后由 EventSource 自动重连
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> stream() {
+        String studentId = SecurityContextHolder.getContext().getAuthentication().getName();
+        Long userId = notificationService.getUserIdByStudentId(studentId);
+        if (userId == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "用户不存在"));
+        }
+        SseEmitter emitter = pushHub.connect(userId, notificationService.getUnreadCount(userId));
+        log.debug("[NOTIFICATION_STREAM] User {} connected", studentId);
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
 
     /**
      * 获取并消费用户的最新消息
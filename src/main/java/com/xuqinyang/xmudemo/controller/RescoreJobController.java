@@ -0,0 +1,93 @@
+package com.xuqinyang.xmudemo.controller;
+
+import com.xuqinyang.xmudemo.model.RescoreJob;
+import com.xuqinyang.xmudemo.service.RescoreJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 批量重算成绩任务控制器
+ */
+@RestController
+@RequestMapping("/api/admin/rescore-jobs")
+@RequiredArgsConstructor
+@Slf4j
+public class RescoreJobController {
+
+    private final RescoreJobService rescoreJobService;
+
+    /**
+     * 启动重算任务，不指定活动时重算全部申请
+     */
+    @PostMapping
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> start(@RequestParam(required = false) Long activityId) {
+        try {
+            String operator = SecurityContextHolder.getContext().getAuthentication().getName();
+            RescoreJob job = rescoreJobService.start(activityId, operator);
+            return ResponseEntity.ok(rescoreJobService.progress(job));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error starting rescore job", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to start rescore job"));
+        }
+    }
+
+    /**
+     * 查询任务进度
+     */
+    @GetMapping("/{id}")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> progress(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(rescoreJobService.progress(rescoreJobService.getJob(id)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 最近的任务列表
+     */
+    @GetMapping
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> recent() {
+        return ResponseEntity.ok(rescoreJobService.recentJobs().stream()
+            .map(rescoreJobService::progress)
+            .collect(Collectors.toList()));
+    }
+
+    @PostMapping("/{id}/cancel")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(rescoreJobService.progress(rescoreJobService.cancel(id)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * 从上次处理位置继续已取消或失败的任务
+     */
+    @PostMapping("/{id}/resume")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Map<String, Object>> resume(@PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(rescoreJobService.progress(rescoreJobService.resume(id)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -44,8 +44,8 @@ public class SystemAutoReviewController {
                 "systemRejected", systemRejected,
                 "totalPending", systemReviewing,
                 "autoReviewEnabled", true,
-                "scheduleInterval", "30 seconds",
-                "batchSize", 50
+                "trigger", "submit event + 60s grace period",
+                "sweepInterval", "5 minutes"
             );
 
             log.info("Auto review status requested - pending: {}", systemReviewing);
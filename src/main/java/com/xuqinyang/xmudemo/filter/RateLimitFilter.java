@@ -1,92 +1,72 @@
 package com.xuqinyang.xmudemo.filter;
 
-import com.xuqinyang.xmudemo.service.CacheService;
+import com.xuqinyang.xmudemo.ratelimit.RateLimitProperties;
+import com.xuqinyang.xmudemo.ratelimit.RouteTemplateResolver;
+import com.xuqinyang.xmudemo.ratelimit.SlidingWindowRateLimiter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 限流过滤器
- * 基于Redis实现分布式限流
+ * 基于Redis实现分布式滑动窗口限流：已登录用户按用户名、匿名请求按IP计数，
+ * 桶按“请求方法 + 路由模板”划分，上限见 app.rate-limit.*
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    private final CacheService cacheService;
-
-    // 限流配置
-    private static final int DEFAULT_LIMIT = 100; // 默认每分钟100次请求
-    private static final int LOGIN_LIMIT = 60;    // 登录接口每分钟30次（从10次放宽到30次）
-    private static final int FILE_LIMIT = 30;     // 文件上传每分钟20次
-    private static final int ADMIN_LIMIT = 200;   // 管理员接口每分钟200次
-
-    // 开发环境特殊配置
-    private static final boolean IS_DEV_MODE = true; // 可以通过配置文件控制
+    private final SlidingWindowRateLimiter rateLimiter;
+    private final RouteTemplateResolver routeTemplateResolver;
+    private final RateLimitProperties properties;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        String uri = request.getRequestURI();
-        String clientIp = getClientIp(request);
-        String userAgent = request.getHeader("User-Agent");
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        // 构建限流键
-        String rateLimitKey = buildRateLimitKey(uri, clientIp, userAgent);
+        String route = routeTemplateResolver.resolve(request);
 
-        // 获取当前限流配置
-        int limit = getRateLimitForUri(uri);
+        // 安全过滤链先于本过滤器执行，此时已能拿到 JWT 解析出的用户
+        String user = currentUser();
+        String clientIp = getClientIp(request);
+        String rateLimitKey = (user != null ? "user:" + user : "ip:" + clientIp) + ":" + request.getMethod() + ":" + route;
+        int limit = properties.limitFor(user != null, route);
 
         // 检查是否超过限流
-        if (isRateLimited(rateLimitKey, limit)) {
-            log.warn("Rate limit exceeded for IP: {}, URI: {}", clientIp, uri);
+        if (!rateLimiter.tryAcquire(rateLimitKey, limit)) {
+            log.warn("Rate limit exceeded for {}, route: {} {}", user != null ? "user " + user : "IP " + clientIp,
+                request.getMethod(), route);
             response.setStatus(429); // Too Many Requests
             response.setContentType("application/json;charset=UTF-8");
             response.getWriter().write("{\"error\":\"Rate limit exceeded\",\"message\":\"Too many requests, please try again later\"}");
             return;
         }
 
-        // 增加计数
-        cacheService.incrementRateLimit(rateLimitKey);
-
         filterChain.doFilter(request, response);
     }
 
-    private String buildRateLimitKey(String uri, String clientIp, String userAgent) {
-        // 使用IP、URI和User-Agent的组合作为限流键
-        return String.format("%s:%s:%d", clientIp, uri, Math.abs(userAgent.hashCode()) % 1000);
-    }
-
-    private int getRateLimitForUri(String uri) {
-        if (uri.contains("/api/auth/login") || uri.contains("/api/auth/register")) {
-            return LOGIN_LIMIT;
-        } else if (uri.contains("/api/files/upload")) {
-            return FILE_LIMIT;
-        } else if (uri.contains("/api/admin/")) {
-            return ADMIN_LIMIT;
-        } else {
-            return DEFAULT_LIMIT;
-        }
-    }
-
-    private boolean isRateLimited(String key, int limit) {
-        Integer currentCount = cacheService.getRateLimitCount(key);
-        if (currentCount == null) {
-            // 第一次请求，设置过期时间为1分钟
-            cacheService.cacheRateLimit(key, 1, 1, TimeUnit.MINUTES);
-            return false;
+    private String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || auth instanceof AnonymousAuthenticationToken) {
+            return null;
         }
-        return currentCount >= limit;
+        return auth.getName();
     }
 
     private String getClientIp(HttpServletRequest request) {
@@ -1,7 +1,9 @@
 package com.xuqinyang.xmudemo.interceptor;
 
+import com.xuqinyang.xmudemo.ratelimit.RouteTemplateResolver;
 import com.xuqinyang.xmudemo.service.MessageQueueService;
 import com.xuqinyang.xmudemo.service.PerformanceMonitorService;
+import com.xuqinyang.xmudemo.stats.ApiStatsAggregator;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -10,12 +12,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
-
-import java.util.Map;
+import org.springframework.web.servlet.HandlerMapping;
 
 /**
  * API请求拦截器
  * 为所有API请求自动添加异步处理和性能监控
+ * 调用统计交给 {@link ApiStatsAggregator} 在内存中按分钟汇总，不再每个请求发送一条统计消息
  */
 @Component
 @RequiredArgsConstructor
@@ -24,6 +26,7 @@ public class ApiRequestInterceptor implements HandlerInterceptor {
 
     private final MessageQueueService messageQueueService;
     private final PerformanceMonitorService performanceMonitorService;
+    private final ApiStatsAggregator apiStatsAggregator;
 
     private static final String REQUEST_START_TIME = "requestStartTime";
 
@@ -35,7 +38,6 @@ public class ApiRequestInterceptor implements HandlerInterceptor {
         String uri = request.getRequestURI();
         String method = request.getMethod();
         String clientIp = getClientIp(request);
-        String userAgent = request.getHeader("User-Agent");
 
         // 获取当前用户信息
         String userId = "anonymous";
@@ -44,20 +46,7 @@ public class ApiRequestInterceptor implements HandlerInterceptor {
             userId = auth.getName();
         }
 
-        // 异步发送API调用统计
         if (isBusinessApi(uri)) {
-            messageQueueService.sendDataStatisticsMessage(
-                "SYSTEM",
-                "API_CALL",
-                Map.of(
-                    "uri", uri,
-                    "method", method,
-                    "userId", userId,
-                    "ip", clientIp,
-                    "userAgent", userAgent != null ? userAgent : "unknown"
-                )
-            );
-
             // 发送审计日志（仅对重要操作）
             if (isImportantOperation(uri, method)) {
                 messageQueueService.sendAuditLogMessage(
@@ -85,19 +74,11 @@ public class ApiRequestInterceptor implements HandlerInterceptor {
             // 记录性能指标
             performanceMonitorService.recordRequest(method, uri, statusCode, duration);
 
-            // 只在真正的错误情况下发送错误统计（不包括权限检查失败但最终成功的情况）
-            if (ex != null || (statusCode >= 400 && statusCode != 401 && statusCode != 403)) {
-                messageQueueService.sendDataStatisticsMessage(
-                    "SYSTEM",
-                    "ERROR",
-                    Map.of(
-                        "uri", uri,
-                        "method", method,
-                        "statusCode", statusCode,
-                        "duration", duration,
-                        "error", ex != null ? ex.getMessage() : "HTTP " + statusCode
-                    )
-                );
+            // 按路由模板聚合调用次数、状态码和延迟；未处理的异常按 500 计
+            if (isBusinessApi(uri)) {
+                Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                apiStatsAggregator.record(method, route != null ? route.toString() : RouteTemplateResolver.UNMATCHED,
+                    ex != null && statusCode < 400 ? 500 : statusCode, duration);
             }
 
             log.debug("API Response: {} {} - Status: {} - Duration: {}ms",
@@ -0,0 +1,87 @@
+package com.xuqinyang.xmudemo.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内按 key 排队的公平可重入锁
+ * 同一 JVM 内争用同一 key 的线程在这里排队（park/unpark 交接，不轮询），
+ * 只有拿到本地锁的线程才去 Redis 抢分布式锁。
+ * 条目按引用计数创建和回收，空闲 key 不占内存；按精确 key 而非哈希分段加锁，
+ * 避免嵌套加锁时不同 key 落入同一分段造成的交叉死锁。
+ */
+public class KeyedLocalLocks {
+
+    private static final class Entry {
+        final ReentrantLock lock = new ReentrantLock(true);
+        volatile int users; // 持有或等待该锁的线程数，仅在 map.compute 内修改
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * 已获得的本地锁，close 时释放
+     */
+    public final class Handle implements AutoCloseable {
+        private final String key;
+        private final Entry entry;
+        private boolean closed;
+
+        private Handle(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            entry.lock.unlock();
+            release(key, entry);
+        }
+    }
+
+    /**
+     * 在超时时间内获取 key 的本地锁，超时返回 null
+     */
+    public Handle tryAcquire(String key, long timeout, TimeUnit unit) throws InterruptedException {
+        Entry entry = entries.compute(key, (k, e) -> {
+            Entry v = e == null ? new Entry() : e;
+            v.users++;
+            return v;
+        });
+        boolean locked = false;
+        try {
+            locked = entry.lock.tryLock(timeout, unit);
+        } finally {
+            if (!locked) {
+                release(key, entry);
+            }
+        }
+        return locked ? new Handle(key, entry) : null;
+    }
+
+    /**
+     * 当前持有或等待该 key 的线程数
+     */
+    public int users(String key) {
+        Entry e = entries.get(key);
+        return e == null ? 0 : e.users;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void release(String key, Entry entry) {
+        entries.computeIfPresent(key, (k, e) -> {
+            if (e != entry) {
+                return e;
+            }
+            return --e.users == 0 ? null : e;
+        });
+    }
+}
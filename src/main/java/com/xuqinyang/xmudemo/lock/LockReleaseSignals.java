@@ -0,0 +1,89 @@
+package com.xuqinyang.xmudemo.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 锁释放通知的进程内分发
+ * 每个有线程在等待 Redis 锁的 key 对应一个信号，收到释放消息时唤醒该 key 上的所有等待线程。
+ * 等待方先读序号再去 Redis 尝试加锁，失败后仅在序号未变时睡眠，不会错过两步之间到达的通知。
+ */
+public class LockReleaseSignals {
+
+    private final ConcurrentHashMap<String, Signal> signals = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public static final class Signal {
+        private int users; // 仅在 ConcurrentHashMap.compute 内修改
+        private long sequence;
+
+        public synchronized long sequence() {
+            return sequence;
+        }
+
+        synchronized void fire() {
+            sequence++;
+            notifyAll();
+        }
+
+        /**
+         * 等待序号离开 seen，或超时
+         *
+         * @return 是否收到了新的通知
+         */
+        public synchronized boolean awaitAfter(long seen, long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (sequence == seen) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+
+    public Signal register(String key) {
+        waiting.incrementAndGet();
+        return signals.compute(key, (k, s) -> {
+            if (s == null) {
+                s = new Signal();
+            }
+            s.users++;
+            return s;
+        });
+    }
+
+    public void unregister(String key, Signal signal) {
+        waiting.decrementAndGet();
+        signals.computeIfPresent(key, (k, s) -> {
+            if (s != signal) {
+                return s;
+            }
+            return --s.users == 0 ? null : s;
+        });
+    }
+
+    /**
+     * 唤醒该 key 上的等待线程；没有等待者时忽略
+     */
+    public void signal(String key) {
+        Signal s = signals.get(key);
+        if (s != null) {
+            s.fire();
+        }
+    }
+
+    /**
+     * 当前正在等待的线程数
+     */
+    public int waiting() {
+        return waiting.get();
+    }
+
+    int size() {
+        return signals.size();
+    }
+}
@@ -1,11 +1,14 @@
 package com.xuqinyang.xmudemo.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.xuqinyang.xmudemo.service.ApplicationLeaderboardListener;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "application", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id","activity_id"}))
+@Table(name = "application", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id","activity_id"}),
+       indexes = @Index(name = "idx_application_status_submitted", columnList = "status, submitted_at")) // 系统预审兜底扫描按状态和提交时间查询
+@EntityListeners(ApplicationLeaderboardListener.class) // 成绩/状态变化后同步排行榜
 public class Application {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,50 @@
+package com.xuqinyang.xmudemo.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static com.xuqinyang.xmudemo.model.ApplicationStatus.*;
+
+/**
+ * 申请状态机：每个状态迁移允许的起始状态、目标状态和起始状态不符时的提示
+ * 由 ApplicationTransitionEngine 以条件 UPDATE（id + status + version）执行
+ */
+public enum ApplicationTransition {
+
+    SUBMIT(EnumSet.of(DRAFT), EnumSet.of(SYSTEM_REVIEWING), "当前状态不能提交"),
+    SYSTEM_PRE_REVIEW(EnumSet.of(SYSTEM_REVIEWING), EnumSet.of(ADMIN_REVIEWING), "申请状态不是系统审核中"),
+    START_ADMIN_REVIEW(EnumSet.of(SYSTEM_APPROVED), EnumSet.of(ADMIN_REVIEWING), "必须是系统通过状态"),
+    ADMIN_REVIEW(EnumSet.of(ADMIN_REVIEWING), EnumSet.of(APPROVED, REJECTED), "非人工审核中"),
+    REOPEN_ADMIN_REVIEW(EnumSet.of(APPROVED, REJECTED), EnumSet.of(ADMIN_REVIEWING), "仅已通过或已拒绝的申请可重新审核"),
+    // 已取消的申请再次取消视为成功（幂等）
+    CANCEL(EnumSet.complementOf(EnumSet.of(APPROVED, CANCELLED)), EnumSet.of(CANCELLED), "已通过的申请不能取消");
+
+    private final Set<ApplicationStatus> from;
+    private final Set<ApplicationStatus> to;
+    private final String rejection;
+
+    ApplicationTransition(Set<ApplicationStatus> from, Set<ApplicationStatus> to, String rejection) {
+        this.from = from;
+        this.to = to;
+        this.rejection = rejection;
+    }
+
+    public boolean allowsFrom(ApplicationStatus status) {
+        return from.contains(status);
+    }
+
+    public boolean allowsTo(ApplicationStatus status) {
+        return to.contains(status);
+    }
+
+    /**
+     * 当前已处于唯一目标状态时是否直接返回（不写库）
+     */
+    public boolean isNoOp(ApplicationStatus status) {
+        return this == CANCEL && status == CANCELLED;
+    }
+
+    public String rejection() {
+        return rejection;
+    }
+}
@@ -0,0 +1,53 @@
+package com.xuqinyang.xmudemo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 事务发件箱中的一条待发送消息
+ * 与业务数据在同一事务中写入，由发件箱中继按ID顺序发送到 RabbitMQ 后记录 sent_at
+ */
+@Entity
+@Table(name = "outbox_event", indexes = @Index(name = "idx_outbox_pending", columnList = "sent_at, id"))
+@Data
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "exchange", length = 100, nullable = false)
+    private String exchange;
+
+    @Column(name = "routing_key", length = 100, nullable = false)
+    private String routingKey;
+
+    // 消息体 JSON
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // 为空表示尚未发送
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    // 中继租约：认领该消息的节点及租约到期时间，发送期间其他节点跳过
+    @Column(name = "claimed_by", length = 64)
+    private String claimedBy;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.xuqinyang.xmudemo.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批量重算成绩任务
+ * 以申请ID为游标按块推进，进度与游标随每块提交持久化，节点崩溃后可从游标处继续
+ */
+@Entity
+@Table(name = "rescore_job", indexes = @Index(name = "idx_rescore_job_status", columnList = "status"))
+@Data
+@NoArgsConstructor
+public class RescoreJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 为空表示重算所有活动的申请
+    @Column(name = "activity_id")
+    private Long activityId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20, nullable = false)
+    private RescoreJobStatus status = RescoreJobStatus.RUNNING;
+
+    // 已处理的最大申请ID（keyset游标）
+    @Column(name = "last_processed_id", nullable = false)
+    private Long lastProcessedId = 0L;
+
+    @Column(name = "total_count", nullable = false)
+    private Long totalCount = 0L;
+
+    @Column(name = "processed_count", nullable = false)
+    private Long processedCount = 0L;
+
+    @Column(name = "updated_count", nullable = false)
+    private Long updatedCount = 0L;
+
+    @Column(name = "unchanged_count", nullable = false)
+    private Long unchangedCount = 0L;
+
+    // 多次重试后仍因版本冲突未写入的数量（已被其他操作更新，通常已是最新成绩）
+    @Column(name = "conflict_count", nullable = false)
+    private Long conflictCount = 0L;
+
+    @Column(name = "failed_count", nullable = false)
+    private Long failedCount = 0L;
+
+    // 累计处理耗时（不含停机时间），用于计算吞吐量
+    @Column(name = "elapsed_millis", nullable = false)
+    private Long elapsedMillis = 0L;
+
+    @Column(name = "created_by", length = 64)
+    private String createdBy;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        heartbeatAt = createdAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.xuqinyang.xmudemo.model;
+
+public enum RescoreJobStatus {
+    RUNNING,    // 运行中（节点崩溃后由其他节点或重启后接管）
+    COMPLETED,  // 已完成
+    CANCELLED,  // 已取消
+    FAILED      // 失败（可手动恢复）
+}
@@ -0,0 +1,317 @@
+package com.xuqinyang.xmudemo.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步消息发布器
+ * 请求线程只做一次非阻塞入队；专用发布线程从有界缓冲区批量取出消息，在同一个 channel 上连续发送，
+ * 整批只等待一次 publisher confirm。
+ *
+ * Broker 不可用、确认超时或缓冲区积压超过 3/4 时，整批追加写入本地溢出文件（JSON Lines）；
+ * 存在溢出文件期间新消息也写入文件以保持顺序，每隔 retry-interval 按文件顺序重放，全部重放成功后恢复直接发送。
+ * 重放中途失败的文件会整体重发，因此是至少一次投递。缓冲区满且来不及溢出时丢弃并计数。
+ */
+@Component
+@Slf4j
+public class AsyncMessagePublisher {
+
+    static final String SPILL_SUFFIX = ".jsonl";
+
+    /**
+     * 待发送的消息；也是溢出文件中每一行的格式
+     */
+    record Outbound(String exchange, String routingKey, Object payload, long enqueuedAt) {
+    }
+
+    private final RabbitTemplate rabbitTemplate;
+    private final BlockingQueue<Outbound> buffer;
+    private final int capacity;
+    private final int batchSize;
+    private final long confirmTimeoutMillis;
+    private final long retryIntervalMillis;
+    private final Path spillDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 以下字段只由发布线程访问
+    private final TreeSet<Path> spillFiles = new TreeSet<>();
+    private Path currentSpill;
+    private BufferedWriter spillWriter;
+    private long spillSequence;
+    private long nextReplayAt;
+
+    private final AtomicLong spillBacklog = new AtomicLong();
+    private volatile boolean running;
+    private Thread publisherThread;
+
+    private final Timer publishLatency;
+    private final DistributionSummary batchSizes;
+    private final Counter confirmed;
+    private final Counter spilled;
+    private final Counter dropped;
+
+    public AsyncMessagePublisher(RabbitTemplate rabbitTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.mq.publisher.buffer-size:16384}") int bufferSize,
+                                 @Value("${app.mq.publisher.batch-size:256}") int batchSize,
+                                 @Value("${app.mq.publisher.confirm-timeout:5s}") Duration confirmTimeout,
+                                 @Value("${app.mq.publisher.retry-interval:5s}") Duration retryInterval,
+                                 @Value("${app.mq.publisher.spill-dir:${java.io.tmpdir}/xmudemo-mq-spill}") String spillDir) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.capacity = Math.max(16, bufferSize);
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.confirmTimeoutMillis = confirmTimeout.toMillis();
+        this.retryIntervalMillis = retryInterval.toMillis();
+        this.spillDir = Paths.get(spillDir).toAbsolutePath();
+
+        this.publishLatency = Timer.builder("mq_publish_latency")
+            .description("Time from enqueue to broker confirm")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("mq_publish_batch_size").register(meterRegistry);
+        this.confirmed = messages(meterRegistry, "confirmed");
+        this.spilled = messages(meterRegistry, "spilled");
+        this.dropped = messages(meterRegistry, "dropped");
+        Gauge.builder("mq_publish_backlog", buffer, BlockingQueue::size)
+            .description("Messages waiting in the in-memory publish buffer")
+            .register(meterRegistry);
+        Gauge.builder("mq_spill_backlog", spillBacklog, AtomicLong::get)
+            .description("Messages spilled to disk and not yet replayed")
+            .register(meterRegistry);
+    }
+
+    private static Counter messages(MeterRegistry registry, String result) {
+        return Counter.builder("mq_publish_messages_total").tag("result", result).register(registry);
+    }
+
+    /**
+     * 恢复上次进程留下的溢出文件并启动发布线程
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(spillDir);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spillDir, "*" + SPILL_SUFFIX)) {
+            for (Path p : stream) {
+                spillFiles.add(p);
+                spillBacklog.addAndGet(countLines(p));
+            }
+        }
+        if (!spillFiles.isEmpty()) {
+            log.info("Found {} spilled messages in {}, will replay", spillBacklog.get(), spillDir);
+        }
+        running = true;
+        publisherThread = new Thread(this::run, "mq-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+    }
+
+    /**
+     * 停止接收新消息，把缓冲区中剩余消息发送或溢出后退出
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (publisherThread != null) {
+            publisherThread.join(confirmTimeoutMillis * 2 + 1000);
+        }
+    }
+
+    /**
+     * 非阻塞入队
+     *
+     * @return 缓冲区已满、消息被丢弃时返回 false
+     */
+    public boolean enqueue(String exchange, String routingKey, Object payload) {
+        if (running && buffer.offer(new Outbound(exchange, routingKey, payload, System.nanoTime()))) {
+            return true;
+        }
+        dropped.increment();
+        if ((long) dropped.count() % 1000 == 1) {
+            log.warn("Publish buffer full or stopped, dropped message to {}/{} ({} dropped so far)",
+                exchange, routingKey, (long) dropped.count());
+        }
+        return false;
+    }
+
+    public int backlog() {
+        return buffer.size();
+    }
+
+    public long spillBacklog() {
+        return spillBacklog.get();
+    }
+
+    private void run() {
+        List<Outbound> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                if (!spillFiles.isEmpty() && System.currentTimeMillis() >= nextReplayAt) {
+                    replaySpill();
+                }
+                Outbound first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                batchSizes.record(batch.size());
+                if (!spillFiles.isEmpty() || buffer.size() > capacity * 3 / 4) {
+                    // 保持顺序；或者 broker 太慢，先落盘腾出缓冲区
+                    spill(batch);
+                } else if (!publish(batch)) {
+                    spill(batch);
+                    nextReplayAt = System.currentTimeMillis() + retryIntervalMillis;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Unexpected error in publisher loop", e);
+            } finally {
+                batch.clear();
+            }
+        }
+        closeSpillWriter();
+    }
+
+    /**
+     * 在一个 channel 上发送整批并等待确认
+     *
+     * @return 全部确认返回 true；失败时整批视为未发送
+     */
+    boolean publish(List<Outbound> batch) {
+        try {
+            rabbitTemplate.invoke(ops -> {
+                for (Outbound m : batch) {
+                    ops.convertAndSend(m.exchange(), m.routingKey(), m.payload());
+                }
+                ops.waitForConfirmsOrDie(confirmTimeoutMillis);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Failed to publish batch of {} messages, spilling to disk: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        long now = System.nanoTime();
+        for (Outbound m : batch) {
+            publishLatency.record(now - m.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+        confirmed.increment(batch.size());
+        return true;
+    }
+
+    private void spill(List<Outbound> batch) {
+        try {
+            if (spillWriter == null) {
+                currentSpill = spillDir.resolve(String.format("%d-%06d%s", System.currentTimeMillis(), spillSequence++, SPILL_SUFFIX));
+                spillWriter = Files.newBufferedWriter(currentSpill, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                spillFiles.add(currentSpill);
+            }
+            for (Outbound m : batch) {
+                spillWriter.write(objectMapper.writeValueAsString(m));
+                spillWriter.newLine();
+            }
+            spillWriter.flush();
+            spillBacklog.addAndGet(batch.size());
+            spilled.increment(batch.size());
+        } catch (IOException e) {
+            log.error("Failed to spill {} messages to {}, dropping them", batch.size(), spillDir, e);
+            dropped.increment(batch.size());
+        }
+    }
+
+    /**
+     * 按文件顺序重放溢出消息；任一批失败则停止，等下一个重试间隔
+     */
+    private void replaySpill() {
+        closeSpillWriter(); // 之后的新消息写入新文件
+        while (!spillFiles.isEmpty()) {
+            Path file = spillFiles.first();
+            List<Outbound> messages;
+            try {
+                messages = readSpill(file);
+            } catch (IOException e) {
+                log.error("Unreadable spill file {}, skipping it", file, e);
+                spillFiles.remove(file);
+                continue;
+            }
+            for (int from = 0; from < messages.size(); from += batchSize) {
+                if (!publish(messages.subList(from, Math.min(messages.size(), from + batchSize)))) {
+                    nextReplayAt = System.currentTimeMillis() + retryIntervalMillis;
+                    return;
+                }
+            }
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete replayed spill file {}: {}", file, e.getMessage());
+            }
+            spillFiles.remove(file);
+            spillBacklog.addAndGet(-messages.size());
+            log.info("Replayed {} spilled messages from {}", messages.size(), file.getFileName());
+        }
+    }
+
+    private List<Outbound> readSpill(Path file) throws IOException {
+        List<Outbound> out = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    Outbound m = objectMapper.readValue(line, Outbound.class);
+                    // 延迟从重放时刻算起，溢出期间的等待单独体现在 mq_spill_backlog
+                    out.add(new Outbound(m.exchange(), m.routingKey(), m.payload(), System.nanoTime()));
+                }
+            }
+        }
+        return out;
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter != null) {
+            try {
+                spillWriter.close();
+            } catch (IOException e) {
+                log.warn("Failed to close spill file {}: {}", currentSpill, e.getMessage());
+            }
+            spillWriter = null;
+            currentSpill = null;
+        }
+    }
+
+    private static long countLines(Path file) throws IOException {
+        try (var lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            return lines.filter(l -> !l.isBlank()).count();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.xuqinyang.xmudemo.mq;
+
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.ImmediateAcknowledgeAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.ConditionalRejectingErrorHandler;
+import org.springframework.amqp.rabbit.listener.FatalExceptionStrategy;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ErrorHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 监听失败处理
+ * 重试次数取自 broker 写入的 x-death 头中该消息经过 Q.retry 的次数：
+ * - 未超过 max-attempts：拒绝且不重新入队，由工作队列的死信参数转入 Q.retry，延迟后回到原队列；
+ * - 已超过，或异常属于消息本身无法处理（转换失败、类型错误等）：带上异常信息转存到 Q.dlq 后确认原消息；
+ *   转存失败时仍走重试，不会因此丢消息。
+ * 批量监听整批失败时无法区分具体消息，按每条消息各自的重试次数处理：都未超过时整批拒绝进入重试队列；
+ * 有消息已超过（或整批无法处理）时，超过的转存死信队列、其余直接发布到各自的重试队列，确认后再确认整批，
+ * 避免一直失败的批次在工作队列和重试队列之间无限循环。
+ */
+@Component
+@Slf4j
+public class DeadLetterErrorHandler implements ErrorHandler {
+
+    static final String EXCEPTION_HEADER = "x-exception-message";
+    static final String ORIGINAL_QUEUE_HEADER = "x-original-queue";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final int maxAttempts;
+    private final long confirmTimeoutMillis;
+    private final FatalExceptionStrategy fatalExceptionStrategy = new ConditionalRejectingErrorHandler.DefaultExceptionStrategy();
+
+    private final Counter retried;
+    private final Counter parked;
+
+    public DeadLetterErrorHandler(RabbitTemplate rabbitTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.mq.retry.max-attempts:3}") int maxAttempts,
+                                  @Value("${app.mq.publisher.confirm-timeout:5s}") Duration confirmTimeout) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.maxAttempts = Math.max(0, maxAttempts);
+        this.confirmTimeoutMillis = confirmTimeout.toMillis();
+        this.retried = outcomes(meterRegistry, "retried");
+        this.parked = outcomes(meterRegistry, "dead_lettered");
+    }
+
+    private static Counter outcomes(MeterRegistry registry, String result) {
+        return Counter.builder("mq_consume_failures_total").tag("result", result).register(registry);
+    }
+
+    @Override
+    public void handleError(Throwable t) {
+        // 批量监听失败时异常携带整批消息，不能只转存其中一条
+        if (t instanceof ListenerExecutionFailedException e && e.getFailedMessages().size() > 1) {
+            handleBatchError(e.getFailedMessages(), t);
+            return;
+        }
+        Message failed = t instanceof ListenerExecutionFailedException e && e.getFailedMessages().size() == 1
+            ? e.getFailedMessage() : null;
+        String queue = failed == null ? null : failed.getMessageProperties().getConsumerQueue();
+        if (queue == null) {
+            retried.increment();
+            throw new AmqpRejectAndDontRequeueException("Listener failed, sending to retry queue", t);
+        }
+
+        long attempts = retryCount(failed.getMessageProperties(), queue);
+        boolean fatal = fatalExceptionStrategy.isFatal(t);
+        if (!fatal && attempts < maxAttempts) {
+            retried.increment();
+            log.warn("Message on {} failed (attempt {} of {}), retrying after delay: {}",
+                queue, attempts + 1, maxAttempts + 1, rootMessage(t));
+            throw new AmqpRejectAndDontRequeueException("Listener failed, sending to retry queue", t);
+        }
+
+        try {
+            park(failed, queue, t);
+        } catch (Exception e) {
+            retried.increment();
+            log.error("Failed to move message from {} to dead letter queue, retrying it instead", queue, e);
+            throw new AmqpRejectAndDontRequeueException("Dead letter publish failed", t);
+        }
+        parked.increment();
+        log.error("Message on {} moved to {} after {} retries{}: {}", queue, queue + RabbitMQConfig.DEAD_LETTER_SUFFIX,
+            attempts, fatal ? " (unprocessable)" : "", rootMessage(t));
+        // 已转存，确认原消息
+        throw new ImmediateAcknowledgeAmqpException("Moved to dead letter queue");
+    }
+
+    private void handleBatchError(Collection<Message> batch, Throwable t) {
+        boolean fatal = fatalExceptionStrategy.isFatal(t);
+        List<Message> exhausted = new ArrayList<>();
+        boolean routable = true;
+        for (Message message : batch) {
+            String queue = message.getMessageProperties().getConsumerQueue();
+            if (queue == null) {
+                routable = false;
+            } else if (fatal || retryCount(message.getMessageProperties(), queue) >= maxAttempts) {
+                exhausted.add(message);
+            }
+        }
+        if (exhausted.isEmpty() || !routable) {
+            retried.increment(batch.size());
+            log.warn("Batch of {} messages failed, retrying after delay: {}", batch.size(), rootMessage(t));
+            throw new AmqpRejectAndDontRequeueException("Batch listener failed, sending to retry queue", t);
+        }
+
+        try {
+            rabbitTemplate.invoke(ops -> {
+                for (Message message : batch) {
+                    String queue = message.getMessageProperties().getConsumerQueue();
+                    if (exhausted.contains(message)) {
+                        stamp(message, queue, t);
+                        ops.send("", queue + RabbitMQConfig.DEAD_LETTER_SUFFIX, message);
+                    } else {
+                        // 直接进入重试队列，过期回到工作队列时 broker 照常累加 x-death 次数
+                        ops.send("", queue + RabbitMQConfig.RETRY_SUFFIX, message);
+                    }
+                }
+                ops.waitForConfirmsOrDie(confirmTimeoutMillis);
+                return null;
+            });
+        } catch (Exception e) {
+            retried.increment(batch.size());
+            log.error("Failed to split failed batch of {} messages, retrying it instead", batch.size(), e);
+            throw new AmqpRejectAndDontRequeueException("Dead letter publish failed", t);
+        }
+        parked.increment(exhausted.size());
+        retried.increment(batch.size() - exhausted.size());
+        log.error("Batch of {} messages failed{}: {} moved to dead letter queues, {} sent to retry queues: {}",
+            batch.size(), fatal ? " (unprocessable)" : "", exhausted.size(), batch.size() - exhausted.size(), rootMessage(t));
+        // 已全部转存，确认整批
+        throw new ImmediateAcknowledgeAmqpException("Batch moved to retry and dead letter queues");
+    }
+
+    /**
+     * 消息经过 queue 对应重试队列的次数
+     */
+    @SuppressWarnings("unchecked")
+    static long retryCount(MessageProperties properties, String queue) {
+        List<Map<String, ?>> deaths = properties.getXDeathHeader();
+        if (deaths == null && properties.getHeader("x-death") instanceof List<?> header) {
+            deaths = (List<Map<String, ?>>) header;
+        }
+        if (deaths == null) {
+            return 0;
+        }
+        String retryQueue = queue + RabbitMQConfig.RETRY_SUFFIX;
+        long count = 0;
+        for (Map<String, ?> death : deaths) {
+            if (retryQueue.equals(death.get("queue")) && death.get("count") instanceof Number n) {
+                count += n.longValue();
+            }
+        }
+        return count;
+    }
+
+    private void park(Message failed, String queue, Throwable t) {
+        stamp(failed, queue, t);
+        rabbitTemplate.invoke(ops -> {
+            ops.send("", queue + RabbitMQConfig.DEAD_LETTER_SUFFIX, failed);
+            ops.waitForConfirmsOrDie(confirmTimeoutMillis);
+            return null;
+        });
+    }
+
+    private static void stamp(Message failed, String queue, Throwable t) {
+        MessageProperties properties = failed.getMessageProperties();
+        properties.setHeader(EXCEPTION_HEADER, rootMessage(t));
+        properties.setHeader(ORIGINAL_QUEUE_HEADER, queue);
+    }
+
+    private static String rootMessage(Throwable t) {
+        Throwable root = t;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName() + ": " + root.getMessage();
+    }
+}
@@ -0,0 +1,146 @@
+package com.xuqinyang.xmudemo.mq;
+
+import com.rabbitmq.client.GetResponse;
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * v1 工作队列迁移
+ * 工作队列加上死信和 reject-publish 参数后改用 .v2 名称，旧版本按原名声明的队列（只有 x-max-length）仍留在 broker 上。
+ * 本节点定期处理每个旧队列：
+ * - 解除旧队列与交换机的绑定，新消息只进入 .v2 队列（滚动发布期间旧版本节点重连时可能重新绑定，下一轮再解除）；
+ * - 把积压逐批转存到对应的 .v2 队列，整批收到 broker 确认后才确认原消息，失败时原消息回到旧队列（至少一次）；
+ * - 旧队列已空且没有消费者（旧版本节点都已下线）时删除，此后不再检查。
+ * 旧队列不存在（全新部署）时什么也不做。
+ */
+@Component
+@Slf4j
+public class LegacyQueueMigration {
+
+    /**
+     * 旧队列及其原绑定、迁移目标
+     */
+    record LegacyQueue(String name, String exchange, String routingKey, String target) {
+    }
+
+    static final List<LegacyQueue> LEGACY_QUEUES = List.of(
+        legacy(RabbitMQConfig.APPLICATION_PROCESS_QUEUE, RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.APPLICATION_ROUTING_KEY),
+        legacy(RabbitMQConfig.ACTIVITY_PROCESS_QUEUE, RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.ACTIVITY_ROUTING_KEY),
+        legacy(RabbitMQConfig.FILE_PROCESS_QUEUE, RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.FILE_ROUTING_KEY),
+        legacy(RabbitMQConfig.NOTIFICATION_QUEUE, RabbitMQConfig.TOPIC_EXCHANGE, RabbitMQConfig.NOTIFICATION_ROUTING_KEY),
+        legacy(RabbitMQConfig.USER_AUTH_QUEUE, RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.USER_AUTH_ROUTING_KEY),
+        legacy(RabbitMQConfig.AUDIT_LOG_QUEUE, RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.AUDIT_ROUTING_KEY),
+        legacy(RabbitMQConfig.STATISTICS_QUEUE, RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.STATISTICS_ROUTING_KEY));
+
+    // 每批转存的消息数：一批只等待一次确认
+    static final int BATCH_SIZE = 500;
+
+    private final AmqpAdmin amqpAdmin;
+    private final RabbitTemplate rabbitTemplate;
+    private final long confirmTimeoutMillis;
+    private final Set<String> finished = ConcurrentHashMap.newKeySet();
+    private final Counter moved;
+
+    public LegacyQueueMigration(AmqpAdmin amqpAdmin,
+                                RabbitTemplate rabbitTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.mq.publisher.confirm-timeout:5s}") Duration confirmTimeout) {
+        this.amqpAdmin = amqpAdmin;
+        this.rabbitTemplate = rabbitTemplate;
+        this.confirmTimeoutMillis = confirmTimeout.toMillis();
+        this.moved = Counter.builder("mq_legacy_messages_moved_total")
+            .description("Messages moved from v1 work queues to their .v2 replacements")
+            .register(meterRegistry);
+    }
+
+    private static LegacyQueue legacy(String queue, String exchange, String routingKey) {
+        String name = queue.substring(0, queue.length() - RabbitMQConfig.QUEUE_VERSION.length());
+        return new LegacyQueue(name, exchange, routingKey, queue);
+    }
+
+    @Scheduled(initialDelayString = "${app.mq.legacy-migration.initial-delay:30s}",
+               fixedDelayString = "${app.mq.legacy-migration.interval:5m}")
+    public void migrate() {
+        for (LegacyQueue legacy : LEGACY_QUEUES) {
+            if (finished.contains(legacy.name())) {
+                continue;
+            }
+            try {
+                migrate(legacy);
+            } catch (Exception e) {
+                log.warn("Failed to migrate legacy queue {} to {}, will retry: {}", legacy.name(), legacy.target(), e.getMessage());
+            }
+        }
+    }
+
+    void migrate(LegacyQueue legacy) {
+        if (amqpAdmin.getQueueInfo(legacy.name()) == null) {
+            finished.add(legacy.name());
+            return;
+        }
+        amqpAdmin.removeBinding(new Binding(legacy.name(), Binding.DestinationType.QUEUE,
+            legacy.exchange(), legacy.routingKey(), null));
+
+        long total = 0;
+        int batch;
+        while ((batch = moveBatch(legacy)) > 0) {
+            total += batch;
+        }
+        if (total > 0) {
+            moved.increment(total);
+            log.info("Moved {} messages from legacy queue {} to {}", total, legacy.name(), legacy.target());
+        }
+
+        QueueInformation info = amqpAdmin.getQueueInfo(legacy.name());
+        if (info == null) {
+            finished.add(legacy.name());
+        } else if (info.getMessageCount() == 0 && info.getConsumerCount() == 0) {
+            amqpAdmin.deleteQueue(legacy.name(), true, true);
+            finished.add(legacy.name());
+            log.info("Deleted drained legacy queue {}", legacy.name());
+        }
+    }
+
+    /**
+     * 取出一批消息原样发布到目标队列，收到确认后一次性确认这批原消息
+     *
+     * @return 转存的消息数，0 表示旧队列已空
+     */
+    private int moveBatch(LegacyQueue legacy) {
+        Integer count = rabbitTemplate.execute(channel -> {
+            channel.confirmSelect();
+            int n = 0;
+            long lastTag = -1;
+            while (n < BATCH_SIZE) {
+                GetResponse response = channel.basicGet(legacy.name(), false);
+                if (response == null) {
+                    break;
+                }
+                channel.basicPublish("", legacy.target(), response.getProps(), response.getBody());
+                lastTag = response.getEnvelope().getDeliveryTag();
+                n++;
+            }
+            if (n > 0) {
+                // 目标队列满（reject-publish）或超时会抛出异常并关闭 channel，未确认的原消息回到旧队列
+                channel.waitForConfirmsOrDie(confirmTimeoutMillis);
+                channel.basicAck(lastTag, true);
+            }
+            return n;
+        });
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,193 @@
+package com.xuqinyang.xmudemo.notification;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户通知收件箱（Redis）
+ * 每个用户两个键：未读计数（字符串）和最近未读通知（列表，最新在前，最多 size 条）。
+ * 计数和列表在同一个脚本里更新，计数不再需要 count(*)，读取未读数和预览不访问数据库。
+ *
+ * MySQL 仍是持久存储：通知写库提交后调用 {@link #add}，读取后调用 {@link #clear}。
+ * 计数键不存在（首次访问、过期、Redis 清空）时 add 不做任何事，由下一次读取从数据库重建（{@link #load}），
+ * 所以只会短暂缺失、不会重复计数；重建与写入交错导致的少计在下一次读取（清零）时自然对齐。
+ */
+@Component
+@Slf4j
+public class NotificationInbox {
+
+    static final String UNREAD_KEY_PREFIX = "notification:unread:";
+    static final String INBOX_KEY_PREFIX = "notification:inbox:";
+
+    // KEYS[1]=计数 KEYS[2]=列表 ARGV[1]=容量 ARGV[2]=过期毫秒 ARGV[3..]=通知（旧到新）；未初始化返回 -1
+    private static final DefaultRedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('exists', KEYS[1]) == 0 then return -1 end " +
+        "for i = 3, #ARGV do redis.call('lpush', KEYS[2], ARGV[i]) end " +
+        "redis.call('ltrim', KEYS[2], 0, tonumber(ARGV[1]) - 1) " +
+        "local n = redis.call('incrby', KEYS[1], #ARGV - 2) " +
+        "redis.call('pexpire', KEYS[1], ARGV[2]) " +
+        "redis.call('pexpire', KEYS[2], ARGV[2]) " +
+        "return n",
+        Long.class);
+
+    // KEYS[1]=计数 KEYS[2]=列表 ARGV[1]=未读数 ARGV[2]=过期毫秒 ARGV[3..]=通知（新到旧）；已被并发初始化时不覆盖
+    private static final DefaultRedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+        "redis.call('del', KEYS[2]) " +
+        "for i = 3, #ARGV do redis.call('rpush', KEYS[2], ARGV[i]) end " +
+        "redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) " +
+        "if #ARGV > 2 then redis.call('pexpire', KEYS[2], ARGV[2]) end " +
+        "return 1",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int size;
+    private final Duration ttl;
+    private final Counter hits;
+    private final Counter misses;
+
+    public NotificationInbox(StringRedisTemplate redisTemplate,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.notification.inbox.size:50}") int size,
+                             @Value("${app.notification.inbox.ttl:7d}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.size = Math.max(1, size);
+        this.ttl = ttl;
+        this.hits = Counter.builder("notification_inbox_reads_total").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("notification_inbox_reads_total").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * 收件箱容量（预览最多返回的条数）
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 未读数；收件箱未初始化或 Redis 不可用时返回 null
+     */
+    public Long unreadCount(Long userId) {
+        try {
+            String value = redisTemplate.opsForValue().get(UNREAD_KEY_PREFIX + userId);
+            if (value == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return Math.max(0, Long.parseLong(value));
+        } catch (Exception e) {
+            log.warn("Failed to read unread count of user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return 最近的未读通知（最新在前）；收件箱未初始化或 Redis 不可用时返回 null
+     */
+    public List<Map<String, Object>> preview(Long userId) {
+        try {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(UNREAD_KEY_PREFIX + userId))) {
+                misses.increment();
+                return null;
+            }
+            List<String> raw = redisTemplate.opsForList().range(INBOX_KEY_PREFIX + userId, 0, -1);
+            hits.increment();
+            List<Map<String, Object>> result = new ArrayList<>(raw != null ? raw.size() : 0);
+            if (raw != null) {
+                for (String json : raw) {
+                    result.add(objectMapper.readValue(json, new TypeReference<Map<String, Object>>() { }));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            log.warn("Failed to read notification inbox of user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 新通知已写库：追加到收件箱并增加未读数（收件箱未初始化时跳过）
+     *
+     * @param notifications 按时间从旧到新
+     */
+    public void add(Long userId, List<Map<String, Object>> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        try {
+            List<String> args = new ArrayList<>(notifications.size() + 2);
+            args.add(String.valueOf(size));
+            args.add(String.valueOf(ttl.toMillis()));
+            for (Map<String, Object> n : notifications) {
+                args.add(objectMapper.writeValueAsString(n));
+            }
+            redisTemplate.execute(ADD_SCRIPT, keys(userId), args.toArray());
+        } catch (Exception e) {
+            invalidate(userId, e);
+        }
+    }
+
+    /**
+     * 用数据库中的未读通知初始化收件箱
+     *
+     * @param unread 全部未读数
+     * @param latest 最近的未读通知，最新在前，超出容量的部分被忽略
+     */
+    public void load(Long userId, long unread, List<Map<String, Object>> latest) {
+        try {
+            List<String> args = new ArrayList<>(Math.min(latest.size(), size) + 2);
+            args.add(String.valueOf(unread));
+            args.add(String.valueOf(ttl.toMillis()));
+            for (Map<String, Object> n : latest.subList(0, Math.min(latest.size(), size))) {
+                args.add(objectMapper.writeValueAsString(n));
+            }
+            redisTemplate.execute(LOAD_SCRIPT, keys(userId), args.toArray());
+        } catch (Exception e) {
+            invalidate(userId, e);
+        }
+    }
+
+    /**
+     * 通知已全部读取：未读数归零并清空列表
+     */
+    public void clear(Long userId) {
+        try {
+            redisTemplate.opsForValue().set(UNREAD_KEY_PREFIX + userId, "0", ttl);
+            redisTemplate.delete(INBOX_KEY_PREFIX + userId);
+        } catch (Exception e) {
+            invalidate(userId, e);
+        }
+    }
+
+    /**
+     * 更新失败时尽量删掉计数键，下次读取从数据库重建，避免留下错误的计数
+     */
+    private void invalidate(Long userId, Exception cause) {
+        log.warn("Failed to update notification inbox of user {}: {}", userId, cause.getMessage());
+        try {
+            redisTemplate.delete(UNREAD_KEY_PREFIX + userId);
+        } catch (Exception ignored) {
+            // Redis 不可用时读取同样会回退到数据库
+        }
+    }
+
+    private static List<String> keys(Long userId) {
+        return List.of(UNREAD_KEY_PREFIX + userId, INBOX_KEY_PREFIX + userId);
+    }
+}
@@ -0,0 +1,207 @@
+package com.xuqinyang.xmudemo.notification;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 通知推送（Server-Sent Events）
+ * 每个节点只登记连到本节点的用户连接；通知写入或被读取后向 Redis 频道发布一条消息，
+ * 各节点收到后推给本地连接：新通知推 "notification" 事件，未读数以 "unread" 事件推送增量。
+ * 连接建立时先推一次未读总数，之后只推 {"delta": n}。
+ *
+ * 连接走 Servlet 异步请求，空闲时不占用任何线程；心跳用于让代理保持连接并及时发现断开的客户端。
+ * pub/sub 不保证送达，客户端重连时以未读总数对齐。
+ */
+@Component
+@Slf4j
+public class NotificationPushHub implements MessageListener {
+
+    public static final String CHANNEL = "notification:push";
+
+    // 事件内容按 UTF-8 写出，响应头显式声明，避免客户端按 ISO-8859-1 解码中文
+    static final MediaType EVENT_STREAM_UTF8 = new MediaType(MediaType.TEXT_EVENT_STREAM, StandardCharsets.UTF_8);
+
+    /**
+     * 一条推送：userId 的未读数变化 delta，新通知时带上通知内容
+     */
+    public record PushEvent(Long userId, int delta, Map<String, Object> notification) {
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration connectionTimeout;
+    private final int maxConnectionsPerUser;
+    private final Map<Long, Deque<SseEmitter>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final Counter delivered;
+    private final Counter dropped;
+
+    public NotificationPushHub(StringRedisTemplate stringRedisTemplate,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.notification.push.timeout:30m}") Duration connectionTimeout,
+                               @Value("${app.notification.push.max-connections-per-user:5}") int maxConnectionsPerUser) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.connectionTimeout = connectionTimeout;
+        this.maxConnectionsPerUser = Math.max(1, maxConnectionsPerUser);
+        Gauge.builder("notification_push_connections", connectionCount, AtomicInteger::get)
+            .description("SSE notification connections on this node")
+            .register(meterRegistry);
+        this.delivered = Counter.builder("notification_push_events_total").tag("result", "delivered").register(meterRegistry);
+        this.dropped = Counter.builder("notification_push_events_total").tag("result", "dropped").register(meterRegistry);
+    }
+
+    /**
+     * 登记一个连接并推送当前未读总数；同一用户连接过多时关闭最早的
+     */
+    public SseEmitter connect(Long userId, long unreadCount) {
+        SseEmitter emitter = new SseEmitter(connectionTimeout.toMillis()) {
+            @Override
+            protected void extendResponse(ServerHttpResponse outputMessage) {
+                super.extendResponse(outputMessage);
+                outputMessage.getHeaders().setContentType(EVENT_STREAM_UTF8);
+            }
+        };
+        Deque<SseEmitter> userConnections = connections.compute(userId, (id, existing) -> {
+            Deque<SseEmitter> deque = existing != null ? existing : new ConcurrentLinkedDeque<>();
+            deque.addLast(emitter);
+            return deque;
+        });
+        connectionCount.incrementAndGet();
+        Runnable remove = () -> remove(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        while (userConnections.size() > maxConnectionsPerUser) {
+            SseEmitter oldest = userConnections.pollFirst();
+            if (oldest != null) {
+                connectionCount.decrementAndGet();
+                oldest.complete();
+            }
+        }
+        send(userId, emitter, SseEmitter.event().name("unread").data(Map.of("count", unreadCount), MediaType.APPLICATION_JSON));
+        log.debug("User {} connected for notification push ({} connections on this node)", userId, connectionCount.get());
+        return emitter;
+    }
+
+    /**
+     * 事务提交后（无事务时立即）广播推送；推送失败不影响业务
+     */
+    public void publish(List<PushEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(events);
+                }
+            });
+        } else {
+            broadcast(events);
+        }
+    }
+
+    private void broadcast(List<PushEvent> events) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(events));
+        } catch (Exception e) {
+            log.warn("Failed to publish {} notification push events: {}", events.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        List<PushEvent> events;
+        try {
+            events = objectMapper.readValue(message.getBody(), new TypeReference<List<PushEvent>>() { });
+        } catch (IOException e) {
+            log.warn("Ignoring malformed notification push message: {}", e.getMessage());
+            return;
+        }
+        for (PushEvent event : events) {
+            Deque<SseEmitter> userConnections = event.userId() != null ? connections.get(event.userId()) : null;
+            if (userConnections == null) {
+                continue;
+            }
+            for (SseEmitter emitter : userConnections) {
+                if (event.notification() != null) {
+                    send(event.userId(), emitter,
+                        SseEmitter.event().name("notification").data(event.notification(), MediaType.APPLICATION_JSON));
+                }
+                if (event.delta() != 0) {
+                    send(event.userId(), emitter,
+                        SseEmitter.event().name("unread").data(Map.of("delta", event.delta()), MediaType.APPLICATION_JSON));
+                }
+            }
+        }
+    }
+
+    /**
+     * 心跳：SSE 注释行，客户端不可见
+     */
+    @Scheduled(fixedDelayString = "${app.notification.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        connections.forEach((userId, userConnections) -> {
+            for (SseEmitter emitter : userConnections) {
+                send(userId, emitter, SseEmitter.event().comment("ping"));
+            }
+        });
+    }
+
+    public int connectionCount() {
+        return connectionCount.get();
+    }
+
+    private void send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            delivered.increment();
+        } catch (Exception e) {
+            // 客户端已断开
+            dropped.increment();
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        // 与 connect 中的 compute 互斥，不会删掉刚加入新连接的队列
+        connections.computeIfPresent(userId, (id, userConnections) -> {
+            if (userConnections.remove(emitter)) {
+                connectionCount.decrementAndGet();
+            }
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+    }
+}
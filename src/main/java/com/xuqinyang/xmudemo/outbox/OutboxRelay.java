@@ -0,0 +1,319 @@
+package com.xuqinyang.xmudemo.outbox;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发件箱中继
+ * 专用线程按ID游标（keyset）读取未发送的消息，每批分三步，数据库事务都很短，不跨越 broker 调用：
+ * - 认领：一个事务内 SELECT ... FOR UPDATE SKIP LOCKED 选出未发送且无有效租约的行，写入本节点标识和租约到期时间后提交；
+ * - 发送：事务外在一个 channel 上发送并等待 publisher confirm，broker 慢或不可用时不占用行锁和连接；
+ * - 标记：另一个事务按本节点仍持有的租约批量写 sent_at。
+ * 发送失败时释放本批租约，消息保持未发送，退避后重试；节点在发送中途崩溃时租约到期后由其他节点重新认领。
+ *
+ * 投递语义为至少一次（确认后、标记前崩溃或租约过期被重新认领都会重发），每条消息带 messageId = outbox-{id}，消费方可据此去重；
+ * 现有活动消息的处理都是幂等的缓存失效，重复投递没有副作用。
+ *
+ * 自增ID按分配顺序而非提交顺序可见，游标可能越过晚提交的小ID，因此每隔 rescan-interval 把游标归零重扫一次。
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private static final String CLAIM_SQL =
+        "SELECT id, exchange, routing_key, payload, created_at FROM outbox_event " +
+        "WHERE sent_at IS NULL AND id > ? AND (claimed_until IS NULL OR claimed_until < ?) " +
+        "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String LEASE_SQL = "UPDATE outbox_event SET claimed_by = ?, claimed_until = ? WHERE id = ?";
+    private static final String MARK_SENT_SQL =
+        "UPDATE outbox_event SET sent_at = ?, claimed_by = NULL, claimed_until = NULL WHERE id = ? AND claimed_by = ?";
+    private static final String RELEASE_SQL =
+        "UPDATE outbox_event SET claimed_by = NULL, claimed_until = NULL WHERE id = ? AND claimed_by = ? AND sent_at IS NULL";
+    private static final String PURGE_SQL = "DELETE FROM outbox_event WHERE sent_at IS NOT NULL AND sent_at < ? LIMIT 1000";
+    private static final long PURGE_INTERVAL_MILLIS = 3_600_000;
+
+    record Row(long id, String exchange, String routingKey, String payload, LocalDateTime createdAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long rescanIntervalMillis;
+    private final long confirmTimeoutMillis;
+    private final Duration lease;
+    private final Duration retention;
+    // 租约持有者标识，区分本节点与其他节点（以及重启前的本节点）认领的行
+    private final String owner = UUID.randomUUID().toString();
+
+    private final Semaphore wakeUps = new Semaphore(0);
+    private volatile boolean running;
+    private Thread relayThread;
+
+    // 以下字段只由中继线程访问
+    private long cursor;
+    private long lastRescanAt;
+    private long lastPurgeAt;
+    private long backoffMillis;
+
+    private final Counter published;
+    private final Counter failures;
+    private final Timer batchTimer;
+    private final Timer deliveryLag;
+    private final DistributionSummary batchSizes;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       RabbitTemplate rabbitTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.outbox.batch-size:200}") int batchSize,
+                       @Value("${app.outbox.poll-interval:500ms}") Duration pollInterval,
+                       @Value("${app.outbox.rescan-interval:30s}") Duration rescanInterval,
+                       @Value("${app.outbox.confirm-timeout:5s}") Duration confirmTimeout,
+                       @Value("${app.outbox.lease:30s}") Duration lease,
+                       @Value("${app.outbox.retention:24h}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rabbitTemplate = rabbitTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.rescanIntervalMillis = rescanInterval.toMillis();
+        this.confirmTimeoutMillis = confirmTimeout.toMillis();
+        // 租约至少覆盖两倍确认超时，正常发送不会在标记前被其他节点重新认领
+        this.lease = lease.compareTo(confirmTimeout.multipliedBy(2)) > 0 ? lease : confirmTimeout.multipliedBy(2);
+        this.retention = retention;
+
+        this.published = Counter.builder("outbox_relay_published_total")
+            .description("Outbox messages published and confirmed by the broker")
+            .register(meterRegistry);
+        this.failures = Counter.builder("outbox_relay_failures_total")
+            .description("Outbox relay batches that failed to publish or mark sent")
+            .register(meterRegistry);
+        this.batchTimer = Timer.builder("outbox_relay_batch_duration")
+            .description("Claim, publish and mark-sent duration of one relay batch")
+            .register(meterRegistry);
+        this.deliveryLag = Timer.builder("outbox_relay_lag")
+            .description("Time from outbox insert to broker confirm")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("outbox_relay_batch_size").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        relayThread = new Thread(this::run, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        wakeUp();
+        if (relayThread != null) {
+            relayThread.join(confirmTimeoutMillis + 1000);
+        }
+    }
+
+    /**
+     * 有新消息提交，立即轮询而不是等到下一个间隔
+     */
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                drain();
+                purgeIfDue();
+                long wait = backoffMillis > 0 ? backoffMillis : pollIntervalMillis;
+                if (wakeUps.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+                    wakeUps.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in outbox relay", e);
+            }
+        }
+    }
+
+    /**
+     * 连续发送直到追上最新消息或发送失败
+     */
+    void drain() {
+        long now = System.currentTimeMillis();
+        if (now - lastRescanAt >= rescanIntervalMillis) {
+            cursor = 0;
+            lastRescanAt = now;
+        }
+        while (running) {
+            int sent;
+            try {
+                sent = relayBatch();
+            } catch (Exception e) {
+                failures.increment();
+                backoffMillis = Math.min(30_000, Math.max(pollIntervalMillis, backoffMillis * 2));
+                log.warn("Outbox relay batch failed, retrying in {} ms: {}", backoffMillis, e.getMessage());
+                return;
+            }
+            backoffMillis = 0;
+            if (sent < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 认领、发送并标记一批消息
+     *
+     * @return 本批发送的条数
+     */
+    int relayBatch() {
+        Timer.Sample sample = Timer.start();
+        List<Row> rows = claim();
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        try {
+            publish(rows);
+        } catch (RuntimeException e) {
+            release(rows);
+            throw e;
+        }
+        Timestamp sentAt = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status ->
+            jdbcTemplate.batchUpdate(MARK_SENT_SQL, rows, rows.size(), (ps, row) -> {
+                ps.setTimestamp(1, sentAt);
+                ps.setLong(2, row.id());
+                ps.setString(3, owner);
+            }));
+        // 标记提交后才推进游标
+        cursor = rows.get(rows.size() - 1).id();
+        sample.stop(batchTimer);
+        batchSizes.record(rows.size());
+        published.increment(rows.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (Row row : rows) {
+            deliveryLag.record(Duration.between(row.createdAt(), now));
+        }
+        return rows.size();
+    }
+
+    /**
+     * 短事务内选出一批可认领的行并写入本节点的租约
+     */
+    private List<Row> claim() {
+        List<Row> rows = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Row> claimed = jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new Row(
+                rs.getLong("id"),
+                rs.getString("exchange"),
+                rs.getString("routing_key"),
+                rs.getString("payload"),
+                rs.getTimestamp("created_at").toLocalDateTime()), cursor, Timestamp.valueOf(now), batchSize);
+            if (!claimed.isEmpty()) {
+                Timestamp until = Timestamp.valueOf(now.plus(lease));
+                jdbcTemplate.batchUpdate(LEASE_SQL, claimed, claimed.size(), (ps, row) -> {
+                    ps.setString(1, owner);
+                    ps.setTimestamp(2, until);
+                    ps.setLong(3, row.id());
+                });
+            }
+            return claimed;
+        });
+        return rows != null ? rows : List.of();
+    }
+
+    /**
+     * 发送失败后立即释放租约，退避结束即可重试；释放失败时等租约到期
+     */
+    private void release(List<Row> rows) {
+        try {
+            jdbcTemplate.batchUpdate(RELEASE_SQL, rows, rows.size(), (ps, row) -> {
+                ps.setLong(1, row.id());
+                ps.setString(2, owner);
+            });
+        } catch (Exception e) {
+            log.warn("Failed to release outbox lease of {} events, they will be retried after {}: {}",
+                rows.size(), lease, e.getMessage());
+        }
+    }
+
+    private void publish(List<Row> rows) {
+        rabbitTemplate.invoke(ops -> {
+            for (Row row : rows) {
+                Map<String, Object> payload = parse(row);
+                if (payload == null) {
+                    continue; // 无法解析的消息不发送，随本批一起标记，避免阻塞后续消息
+                }
+                ops.convertAndSend(row.exchange(), row.routingKey(), payload, m -> {
+                    m.getMessageProperties().setMessageId("outbox-" + row.id());
+                    return m;
+                });
+            }
+            ops.waitForConfirmsOrDie(confirmTimeoutMillis);
+            return null;
+        });
+    }
+
+    private Map<String, Object> parse(Row row) {
+        try {
+            return objectMapper.readValue(row.payload(), new TypeReference<>() {
+            });
+        } catch (Exception e) {
+            log.error("Dropping corrupt outbox event {}: {}", row.id(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 定期分批删除保留期之外的已发送消息
+     */
+    private void purgeIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeAt < PURGE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPurgeAt = now;
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, before);
+            total += deleted;
+        } while (deleted > 0 && running);
+        if (total > 0) {
+            log.info("Purged {} sent outbox events older than {}", total, retention);
+        }
+    }
+}
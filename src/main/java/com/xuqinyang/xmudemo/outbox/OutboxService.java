@@ -0,0 +1,51 @@
+package com.xuqinyang.xmudemo.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xuqinyang.xmudemo.model.OutboxEvent;
+import com.xuqinyang.xmudemo.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+/**
+ * 事务发件箱
+ * 业务事务中调用 {@link #record}，消息与业务数据一起提交或一起回滚；
+ * 事务提交后唤醒中继立即发送，写路径上不再等待 broker。
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxRelay outboxRelay;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 在当前事务中登记一条消息；必须在事务内调用
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String exchange, String routingKey, Map<String, Object> payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setExchange(exchange);
+        event.setRoutingKey(routingKey);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable: " + payload, e);
+        }
+        outboxEventRepository.save(event);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+}
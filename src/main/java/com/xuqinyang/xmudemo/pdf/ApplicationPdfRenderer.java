@@ -0,0 +1,198 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.service.FileService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 申请材料 PDF 渲染器
+ * 文档直接写入输出流；PDFBox 的流数据超过内存阈值后落盘到临时文件，单次导出的内存占用有上限。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ApplicationPdfRenderer {
+
+    /**
+     * 版式版本：修改输出内容或排版时加一，使磁盘缓存中的旧文件失效
+     */
+    public static final int LAYOUT_VERSION = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final float LINE_HEIGHT = 16f;
+
+    private final FileService fileService;
+    private final PdfFontProvider fontProvider;
+
+    @Value("${app.pdf.max-main-memory-mb:16}")
+    private long maxMainMemoryMb = 16;
+
+    /**
+     * 渲染并写入输出流（不关闭输出流）
+     */
+    public void render(Application app, OutputStream out) throws IOException {
+        try (PdfFontProvider.Lease lease = fontProvider.acquire()) {
+            render(app, out, lease);
+        }
+    }
+
+    /**
+     * 使用调用方已借出的字体渲染，批量导出时同一工作线程可连续复用
+     */
+    public void render(Application app, OutputStream out, PdfFontProvider.Lease lease) throws IOException {
+        try (PDDocument doc = new PDDocument(MemoryUsageSetting.setupMixed(maxMainMemoryMb * 1024 * 1024))) {
+            PdfPageWriter w = new PdfPageWriter(doc, lease.load(doc), lease.widths());
+            write(app, w);
+            w.finish();
+            doc.save(out);
+        }
+    }
+
+    private void write(Application app, PdfPageWriter w) throws IOException {
+        w.wrap(14, "推免申请导出 - " + (app.getActivityName() == null ? "活动" : app.getActivityName()), LINE_HEIGHT);
+        JsonNode root = parseContent(app.getContent());
+        JsonNode basic = root.path("basicInfo");
+        w.line(12, String.format("姓名: %s 学号: %s", basic.path("name").asText("-"), basic.path("studentId").asText("-")));
+        w.down(LINE_HEIGHT);
+        w.line(12, String.format("系别: %s 专业: %s", basic.path("department").asText("-"), basic.path("major").asText("-")));
+        w.down(LINE_HEIGHT);
+        w.line(12, String.format("GPA: %s 排名: %s/%s", basic.path("gpa").asText(""), basic.path("academicRanking").asText(""), basic.path("totalStudents").asText("")));
+        w.down(LINE_HEIGHT);
+        if (basic.has("convertedScore") && !basic.path("convertedScore").asText("").isEmpty()) {
+            w.line(12, String.format("换算后的成绩: %s", basic.path("convertedScore").asText("-")));
+            w.down(LINE_HEIGHT);
+        }
+        w.down(LINE_HEIGHT * 0.5f);
+        section(w, "个人陈述", root.path("personalStatement").asText("(未填写)"));
+
+        JsonNode uploaded = root.path("uploadedFiles");
+        JsonNode acad = root.path("academicAchievements");
+        proofSection(w, "论文发表", acad.path("publications"), uploaded.path("publicationProofs"), (node, i) ->
+            String.format("%d. %s / %s / 作者 %d/%d%s", i + 1, opt(node, "title"), opt(node, "type"), node.path("authorRank").asInt(0), node.path("totalAuthors").asInt(0), node.path("isCoFirst").asBoolean(false) ? " (共同一作)" : ""));
+        proofSection(w, "学科竞赛", acad.path("competitions"), uploaded.path("competitionProofs"), (node, i) ->
+            String.format("%d. %s / %s / %s%s", i + 1, opt(node, "name"), opt(node, "level"), opt(node, "award"), node.path("isTeam").asBoolean(false) ? String.format(" 团队(%d/%d)", node.path("teamRank").asInt(0), node.path("totalTeamMembers").asInt(0)) : ""));
+        proofSection(w, "专利/软著", acad.path("patents"), uploaded.path("patentProofs"), (node, i) ->
+            String.format("%d. %s / %s / 排名%d", i + 1, opt(node, "title"), opt(node, "patentNumber"), node.path("authorRank").asInt(0)));
+        proofSection(w, "科创项目", acad.path("innovationProjects"), uploaded.path("innovationProofs"), (node, i) ->
+            String.format("%d. %s / %s / %s / %s", i + 1, opt(node, "name"), opt(node, "level"), opt(node, "role"), opt(node, "status")));
+        proofSection(w, "荣誉称号", root.path("comprehensivePerformance").path("honors"), uploaded.path("honorProofs"), (node, i) ->
+            String.format("%d. %s / %s / %s%s", i + 1, opt(node, "title"), opt(node, "level"), opt(node, "year"), node.path("isCollective").asBoolean(false) ? " 集体" : ""));
+
+        JsonNode perf = root.path("comprehensivePerformance");
+        listSection(w, "社会工作", perf.path("socialWork"), (p, i) ->
+            String.format("%d. %s / %s / %s / 评分%s", i + 1, opt(p, "position"), opt(p, "level"), opt(p, "year"), opt(p, "rating")));
+        JsonNode vs = perf.path("volunteerService");
+        section(w, "志愿服务", String.format("总时长: %s 小时; 分段: %d", vs.path("hours").asText(""), vs.path("segments").isArray() ? vs.path("segments").size() : 0));
+        listSection(w, "体育比赛", perf.path("sports"), (p, i) ->
+            String.format("%d. %s / %s / %s%s", i + 1, opt(p, "name"), opt(p, "scope"), opt(p, "result"), p.path("isTeam").asBoolean(false) ? " 团队" : ""));
+        JsonNode talent = root.path("specialAcademicTalent");
+        if (talent.path("isApplying").asBoolean(false)) {
+            section(w, "特殊学术专长申请", "简介:" + talent.path("description").asText("(未填)") + "\n成果:" + talent.path("achievements").asText("(未填)"));
+        }
+        w.ensureSpace(0);
+        w.down(LINE_HEIGHT);
+        w.line(10, String.format("学业: %.2f 学术专长: %.2f 综合表现: %.2f 总分: %.2f",
+            nz(app.getAcademicScore()), nz(app.getAchievementScore()), nz(app.getPerformanceScore()), nz(app.getTotalScore())));
+    }
+
+    @FunctionalInterface
+    private interface ItemFormatter {
+        String format(JsonNode node, int index);
+    }
+
+    private void section(PdfPageWriter w, String title, String body) throws IOException {
+        w.wrap(12, "【" + title + "】", LINE_HEIGHT);
+        w.wrap(12, body == null ? "" : body, LINE_HEIGHT);
+    }
+
+    private void listSection(PdfPageWriter w, String title, JsonNode arr, ItemFormatter f) throws IOException {
+        if (arr == null || !arr.isArray() || arr.size() == 0) return;
+        w.wrap(12, "【" + title + "】", LINE_HEIGHT);
+        for (int i = 0; i < arr.size(); i++) {
+            w.wrap(12, f.format(arr.get(i), i), LINE_HEIGHT);
+        }
+    }
+
+    /**
+     * 带证明材料的条目：逐条输出后紧跟对应的证明图片
+     */
+    private void proofSection(PdfPageWriter w, String title, JsonNode arr, JsonNode proofs, ItemFormatter f) throws IOException {
+        if (arr == null || !arr.isArray() || arr.size() == 0) return;
+        w.ensureSpace(30f);
+        w.wrap(12, "【" + title + "】", LINE_HEIGHT);
+        for (int i = 0; i < arr.size(); i++) {
+            JsonNode node = arr.get(i);
+            w.ensureSpace(40f);
+            w.wrap(11, f.format(node, i), 14);
+            List<JsonNode> matched = matchProofs(node, proofs);
+            if (matched.isEmpty() && proofs.isArray() && proofs.size() == arr.size()) {
+                matched = List.of(proofs.get(i)); // 未关联ID时按下标对应
+            }
+            for (JsonNode pf : matched) {
+                long fid = pf.path("id").asLong(-1);
+                if (fid <= 0) continue;
+                fileService.find(fid).ifPresent(meta -> {
+                    String caption = "  证明: " + meta.getOriginalFilename();
+                    try {
+                        w.image(fileService.read(meta), caption);
+                    } catch (Exception e) {
+                        log.debug("Failed to read proof file {}: {}", fid, e.getMessage());
+                    }
+                });
+            }
+        }
+    }
+
+    private static List<JsonNode> matchProofs(JsonNode item, JsonNode proofs) {
+        List<JsonNode> list = new ArrayList<>();
+        if (proofs == null || !proofs.isArray() || proofs.size() == 0 || item == null) return list;
+        if (item.has("proofFileIds") && item.get("proofFileIds").isArray()) {
+            for (JsonNode idNode : item.get("proofFileIds")) {
+                JsonNode p = findProof(proofs, idNode.asLong(-1));
+                if (p != null) list.add(p);
+            }
+        } else if (item.has("proofFileId")) {
+            JsonNode p = findProof(proofs, item.path("proofFileId").asLong(-1));
+            if (p != null) list.add(p);
+        }
+        return list;
+    }
+
+    private static JsonNode findProof(JsonNode proofs, long fid) {
+        for (JsonNode p : proofs) {
+            if (p.path("id").asLong(-2) == fid) return p;
+        }
+        return null;
+    }
+
+    private static JsonNode parseContent(String content) {
+        try {
+            return (content == null || content.isBlank()) ? MAPPER.createObjectNode() : MAPPER.readTree(content);
+        } catch (Exception e) {
+            return MAPPER.createObjectNode();
+        }
+    }
+
+    private static String opt(JsonNode node, String field) {
+        if (node == null) return "";
+        JsonNode v = node.get(field);
+        if (v == null || v.isNull()) return "";
+        return v.asText("");
+    }
+
+    private static double nz(Double d) {
+        return d == null ? 0d : d;
+    }
+}
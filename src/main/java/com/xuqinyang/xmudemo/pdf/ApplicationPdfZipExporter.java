@@ -0,0 +1,336 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.model.User;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 活动申请材料批量导出（ZIP）
+ * - 工作线程在 pdfExportExecutor 上并行渲染，每个线程整轮只借用一个已解析字体
+ * - 每份 PDF 先写入临时文件，完成后由响应线程立即追加到 ZIP 并删除，内存中不保留已渲染的 PDF
+ * - 完成队列有界：客户端读得慢时工作线程等待，磁盘上的临时文件最多约为 3 × 并行线程数
+ * - 客户端断开时写入抛出 IOException，停止分发剩余申请并清理临时文件
+ * - {@link #open} 在提交响应前等到第一份结果，数据库不可用时调用方仍可返回错误状态；
+ *   写出过程中数据库出错则抛出异常中止响应，不以正常结束的 ZIP 交付缺少条目的文件
+ */
+@Component
+@Slf4j
+public class ApplicationPdfZipExporter {
+
+    static final String ERRORS_ENTRY = "errors.txt";
+    private static final long POLL_MILLIS = 200;
+
+    private final ApplicationRepository applicationRepository;
+    private final ApplicationPdfRenderer renderer;
+    private final PdfFontProvider fontProvider;
+    private final Executor executor;
+    private final int workers;
+
+    public ApplicationPdfZipExporter(ApplicationRepository applicationRepository,
+                                     ApplicationPdfRenderer renderer,
+                                     PdfFontProvider fontProvider,
+                                     @Qualifier("pdfExportExecutor") Executor executor,
+                                     @Value("${app.pdf.batch-workers:3}") int workers) {
+        this.applicationRepository = applicationRepository;
+        this.renderer = renderer;
+        this.fontProvider = fontProvider;
+        this.executor = executor;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * 选出要导出的申请ID：活动下指定状态的申请，ids 非空时再取交集
+     */
+    public List<Long> select(Long activityId, List<ApplicationStatus> statuses, Collection<Long> ids) {
+        List<Long> all = applicationRepository.findIdsByActivityIdAndStatusIn(activityId, statuses);
+        if (ids == null || ids.isEmpty()) return all;
+        Set<Long> wanted = new HashSet<>(ids);
+        List<Long> result = new ArrayList<>();
+        for (Long id : all) {
+            if (wanted.contains(id)) result.add(id);
+        }
+        return result;
+    }
+
+    /**
+     * 已开始的导出；writeTo 之后或不再写出时必须 close
+     */
+    public interface Export extends AutoCloseable {
+        /**
+         * 以 ZIP 写入输出流（不关闭输出流）；条目按完成顺序写入，单份渲染失败的申请记录在 errors.txt
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+        @Override
+        void close();
+    }
+
+    /**
+     * 开始渲染并等到第一份结果（或数据库错误），在提交响应之前调用
+     *
+     * @throws IOException 读取申请时数据库出错
+     * @throws IllegalStateException 导出线程池繁忙
+     */
+    public Export open(List<Long> ids) throws IOException {
+        Job job = new Job(ids);
+        job.start();
+        try {
+            job.awaitFirst();
+        } catch (IOException | RuntimeException e) {
+            job.close();
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * 渲染并以 ZIP 写入输出流（不关闭输出流）
+     */
+    public void export(List<Long> ids, OutputStream out) throws IOException {
+        try (Export export = open(ids)) {
+            export.writeTo(out);
+        }
+    }
+
+    private record Rendered(Long id, String entryName, Path file, String error) {
+    }
+
+    private final class Job implements Export {
+        private final int total;
+        private final Queue<Long> pending;
+        private final BlockingQueue<Rendered> done;
+        private final List<FutureTask<Void>> tasks = new ArrayList<>();
+        private final CountDownLatch exited;
+        // 第一份结果交出、数据库出错或工作线程全部退出时打开
+        private final CountDownLatch settled = new CountDownLatch(1);
+        private volatile Exception fatal;
+        private volatile boolean cancelled;
+        private boolean completed;
+        private boolean closed;
+
+        Job(List<Long> ids) {
+            int parallelism = Math.max(1, Math.min(workers, ids.size()));
+            this.total = ids.size();
+            this.pending = new ConcurrentLinkedQueue<>(ids);
+            this.done = new ArrayBlockingQueue<>(parallelism * 2);
+            this.exited = new CountDownLatch(parallelism);
+        }
+
+        void start() {
+            int n = (int) exited.getCount();
+            for (int i = 0; i < n; i++) {
+                FutureTask<Void> task = new FutureTask<>(this::work, null);
+                try {
+                    executor.execute(task);
+                    tasks.add(task);
+                } catch (RejectedExecutionException e) {
+                    exited.countDown();
+                }
+            }
+            if (tasks.isEmpty()) {
+                throw new IllegalStateException("PDF导出任务繁忙，请稍后重试");
+            }
+        }
+
+        private void work() {
+            try (PdfFontProvider.Lease lease = fontProvider.acquire()) {
+                Long id;
+                while (!cancelled && fatal == null && (id = pending.poll()) != null) {
+                    Rendered r = renderOne(id, lease);
+                    if (r == null || !hand(r)) return;
+                }
+            } catch (Exception e) {
+                // 借不到字体时本线程退出，剩余申请由其他线程继续处理
+                log.warn("PDF export worker stopped: {}", e.getMessage());
+            } finally {
+                exited.countDown();
+                if (exited.getCount() == 0) settled.countDown();
+            }
+        }
+
+        /**
+         * @return 渲染结果；数据库出错时记录为整个导出失败并返回 null
+         */
+        private Rendered renderOne(Long id, PdfFontProvider.Lease lease) {
+            Path file = null;
+            try {
+                Application app = applicationRepository.findByIdWithUserAndActivity(id).orElse(null);
+                if (app == null) return new Rendered(id, null, null, "申请不存在");
+                file = Files.createTempFile("app-" + id + "-", ".pdf");
+                try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+                    renderer.render(app, os, lease);
+                }
+                return new Rendered(id, entryName(app), file, null);
+            } catch (DataAccessException | TransactionException e) {
+                deleteQuietly(file);
+                if (fatal == null) log.error("Database error while exporting application {}, aborting export", id, e);
+                fatal = e;
+                settled.countDown();
+                return null;
+            } catch (Exception e) {
+                deleteQuietly(file);
+                if (!cancelled) log.warn("Failed to render application {}: {}", id, e.getMessage());
+                return new Rendered(id, null, null, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+            }
+        }
+
+        /**
+         * 交给响应线程；已取消时删除临时文件并返回 false
+         */
+        private boolean hand(Rendered r) {
+            try {
+                while (!cancelled) {
+                    if (done.offer(r, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        settled.countDown();
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            deleteQuietly(r.file());
+            return false;
+        }
+
+        void awaitFirst() throws IOException {
+            try {
+                settled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("PDF批量导出被中断", e);
+            }
+            checkFatal();
+        }
+
+        private void checkFatal() throws IOException {
+            Exception e = fatal;
+            if (e != null) throw new IOException("读取申请数据失败，导出中止: " + e.getMessage(), e);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 64 * 1024), StandardCharsets.UTF_8);
+            // PDF 内部的流和图片已压缩，用最快级别避免重复消耗 CPU
+            zip.setLevel(Deflater.BEST_SPEED);
+            StringBuilder errors = new StringBuilder();
+            int received = 0;
+            try {
+                while (received < total) {
+                    checkFatal();
+                    Rendered r = done.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (r == null) {
+                        if (exited.getCount() == 0 && done.isEmpty()) break;
+                        continue;
+                    }
+                    received++;
+                    if (r.error() != null) {
+                        errors.append(r.id()).append('\t').append(r.error()).append('\n');
+                        continue;
+                    }
+                    try {
+                        zip.putNextEntry(new ZipEntry(r.entryName()));
+                        Files.copy(r.file(), zip);
+                        zip.closeEntry();
+                        zip.flush();
+                    } finally {
+                        deleteQuietly(r.file());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("PDF批量导出被中断", e);
+            }
+            checkFatal();
+            // 所有工作线程提前退出（如字体不可用）时不交付缺少条目的文件
+            if (!pending.isEmpty()) {
+                throw new IOException("PDF导出线程提前退出，" + pending.size() + " 份申请未能渲染");
+            }
+            if (errors.length() > 0) {
+                zip.putNextEntry(new ZipEntry(ERRORS_ENTRY));
+                zip.write(errors.toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+            completed = true;
+        }
+
+        /**
+         * 正常结束、出错或客户端断开后调用：停止分发、中断渲染并清理尚未写出的临时文件
+         */
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            if (!completed) {
+                cancelled = true;
+                log.info("PDF batch export aborted, {} of {} applications not sent", pending.size() + done.size(), total);
+                for (FutureTask<Void> task : tasks) task.cancel(true);
+            }
+            try {
+                while (!exited.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    drain();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            drain();
+        }
+
+        private void drain() {
+            Rendered r;
+            while ((r = done.poll()) != null) deleteQuietly(r.file());
+        }
+    }
+
+    static String entryName(Application app) {
+        User user = app.getUser();
+        StringBuilder sb = new StringBuilder();
+        if (user != null) {
+            if (user.getStudentId() != null) sb.append(user.getStudentId()).append('_');
+            if (user.getName() != null) sb.append(user.getName()).append('_');
+        }
+        sb.append(app.getId()).append(".pdf");
+        return sb.toString().replaceAll("[\\\\/:*?\"<>|\\s]+", "_");
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete temp file {}: {}", file, e.getMessage());
+        }
+    }
+}
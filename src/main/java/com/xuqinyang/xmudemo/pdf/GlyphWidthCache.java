@@ -0,0 +1,106 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字形宽度缓存（单位：千分之一字号，与 PDFont#getStringWidth 一致）
+ * 同一份字体数据的所有 PDType0Font 实例宽度相同，缓存跨文档、跨请求共享。
+ * BMP 字符用数组直接索引，其余码点用 Map；并发写入同一位置写的是同一个值，不需要加锁。
+ */
+public final class GlyphWidthCache {
+
+    private static final float UNKNOWN = -1f;
+    private static final float UNSUPPORTED = -2f;
+    private static final int REPLACEMENT = '?';
+
+    private final float[] bmp = new float[0x10000];
+    private final Map<Integer, Float> supplementary = new ConcurrentHashMap<>();
+
+    public GlyphWidthCache() {
+        Arrays.fill(bmp, UNKNOWN);
+    }
+
+    /**
+     * 码点宽度，字体中没有该字形时返回负数
+     */
+    public float width(PDFont font, int codePoint) {
+        if (codePoint < bmp.length) {
+            float w = bmp[codePoint];
+            if (w == UNKNOWN) {
+                w = measure(font, codePoint);
+                bmp[codePoint] = w;
+            }
+            return w;
+        }
+        return supplementary.computeIfAbsent(codePoint, cp -> measure(font, cp));
+    }
+
+    public boolean supports(PDFont font, int codePoint) {
+        return width(font, codePoint) >= 0;
+    }
+
+    /**
+     * 按宽度折行，逐字累加缓存宽度，每行 O(n)；不支持的字符替换为 '?'
+     */
+    public List<String> wrap(PDFont font, String line, float fontSize, float maxWidth) {
+        List<String> out = new ArrayList<>();
+        if (line == null || line.isEmpty()) {
+            out.add("");
+            return out;
+        }
+        StringBuilder cur = new StringBuilder();
+        float curWidth = 0;
+        for (int i = 0; i < line.length(); ) {
+            int cp = line.codePointAt(i);
+            i += Character.charCount(cp);
+            float w = width(font, cp);
+            if (w < 0) {
+                cp = REPLACEMENT;
+                w = Math.max(0, width(font, cp));
+            }
+            if ((curWidth + w) / 1000 * fontSize > maxWidth && cur.length() > 0) {
+                out.add(cur.toString());
+                cur.setLength(0);
+                curWidth = 0;
+            }
+            cur.appendCodePoint(cp);
+            curWidth += w;
+        }
+        if (cur.length() > 0) out.add(cur.toString());
+        return out;
+    }
+
+    /**
+     * 把字体不支持的字符替换为 '?'，避免 showText 抛异常
+     */
+    public String sanitize(PDFont font, String text) {
+        if (text == null) return "";
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            int len = Character.charCount(cp);
+            if (!supports(font, cp)) {
+                if (sb == null) sb = new StringBuilder(text.length()).append(text, 0, i);
+                sb.append((char) REPLACEMENT);
+            } else if (sb != null) {
+                sb.appendCodePoint(cp);
+            }
+            i += len;
+        }
+        return sb == null ? text : sb.toString();
+    }
+
+    private static float measure(PDFont font, int codePoint) {
+        try {
+            return font.getStringWidth(new String(Character.toChars(codePoint)));
+        } catch (Exception e) {
+            return UNSUPPORTED;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已导出 PDF 的本地磁盘缓存
+ * - 文件名即内容地址：申请ID + 版本号 + 最后更新时间 + 版式版本，内容变化后自然换一个文件
+ * - 按文件总大小做 LRU 淘汰；同一申请写入新版本时删除旧版本文件
+ * - 同一 key 并发未命中时只渲染一次
+ * - 通过 {@link #read}/{@link #readOrCreate} 读取时文件被引用计数锁定，期间被淘汰的文件等最后一个读者结束后才删除；
+ *   读者在回调中打开文件通道后，之后的删除不影响已打开的通道继续读取
+ * 启动时扫描目录恢复索引，重启后已有文件仍可命中。
+ */
+@Component
+@Slf4j
+public class PdfDiskCache {
+
+    private static final String SUFFIX = ".pdf";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * 把内容写入给定输出流
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 读取缓存文件；回调执行期间文件不会被删除
+     */
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(Path file) throws IOException;
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+    // key -> 文件大小，访问顺序即 LRU 顺序
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Object> inflight = new ConcurrentHashMap<>();
+    // 以下均由 entries 的锁保护：正在读取的 key -> 读者数；已移出索引、等读者结束后删除的 key
+    private final Map<String, Integer> readers = new HashMap<>();
+    private final Set<String> deferredDeletes = new HashSet<>();
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public PdfDiskCache(@Value("${app.pdf.cache-dir:${java.io.tmpdir}/xmudemo-pdf-cache}") String dir,
+                        @Value("${app.pdf.cache-max-mb:512}") long maxMb,
+                        MeterRegistry meterRegistry) {
+        this.dir = Paths.get(dir).toAbsolutePath();
+        this.maxBytes = Math.max(1, maxMb) * 1024 * 1024;
+        this.hits = Counter.builder("pdf_cache_requests_total").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("pdf_cache_requests_total").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("pdf_cache_evictions_total").register(meterRegistry);
+        Gauge.builder("pdf_cache_bytes", this, PdfDiskCache::totalBytes).register(meterRegistry);
+    }
+
+    /**
+     * 申请的内容地址：任何一次保存都会改变 version 和 lastUpdateDate
+     */
+    public static String key(Long applicationId, Long version, LocalDateTime lastUpdateDate) {
+        long ts = lastUpdateDate == null ? 0
+            : lastUpdateDate.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + lastUpdateDate.getNano();
+        return "app-" + applicationId + "-v" + (version == null ? 0 : version) + "-" + ts
+            + "-r" + ApplicationPdfRenderer.LAYOUT_VERSION;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) Files.deleteIfExists(p); // 上次进程中断留下的半成品
+                else if (name.endsWith(SUFFIX)) files.add(p);
+            }
+        }
+        files.sort(Comparator.comparingLong(PdfDiskCache::lastModified));
+        synchronized (entries) {
+            for (Path p : files) {
+                String name = p.getFileName().toString();
+                long size = Files.size(p);
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                totalBytes += size;
+            }
+            evict();
+        }
+        log.info("PDF cache at {}: {} files, {} KB", dir, files.size(), totalBytes / 1024);
+    }
+
+    /**
+     * 查找缓存文件，命中时计入命中次数；返回后文件可能随时被淘汰，需要读取内容时使用 {@link #read}
+     */
+    public Optional<Path> get(String key) throws IOException {
+        return read(key, file -> file);
+    }
+
+    /**
+     * 命中时在文件锁定期间执行 reader，并计入命中次数；未命中由随后的 readOrCreate 计数
+     */
+    public <T> Optional<T> read(String key, Reader<T> reader) throws IOException {
+        Path file = acquire(key);
+        if (file == null) return Optional.empty();
+        try {
+            hits.increment();
+            return Optional.of(reader.read(file));
+        } finally {
+            release(key);
+        }
+    }
+
+    /**
+     * 命中则直接返回缓存文件；返回后文件可能随时被淘汰，需要读取内容时使用 {@link #readOrCreate}
+     */
+    public Path getOrCreate(String key, Writer writer) throws IOException {
+        return readOrCreate(key, writer, file -> file);
+    }
+
+    /**
+     * 命中则读取缓存文件；否则写入临时文件后原子改名登记，同一 key 并发时只写一次。reader 在文件锁定期间执行
+     */
+    public <T> T readOrCreate(String key, Writer writer, Reader<T> reader) throws IOException {
+        Optional<T> hit = read(key, reader);
+        if (hit.isPresent()) return hit.get();
+        Object lock = inflight.computeIfAbsent(key, k -> new Object());
+        synchronized (lock) {
+            try {
+                hit = read(key, reader);
+                if (hit.isPresent()) return hit.get();
+                misses.increment();
+                Path tmp = Files.createTempFile(dir, key + "-", TEMP_SUFFIX);
+                Path target = dir.resolve(key + SUFFIX);
+                try {
+                    try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                        writer.write(os);
+                    }
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    register(key, Files.size(target)); // 登记时即已锁定，淘汰不会删掉刚写入的文件
+                } finally {
+                    Files.deleteIfExists(tmp);
+                }
+                try {
+                    return reader.read(target);
+                } finally {
+                    release(key);
+                }
+            } finally {
+                inflight.remove(key, lock);
+            }
+        }
+    }
+
+    /**
+     * 锁定并返回缓存文件；未命中返回 null
+     */
+    private Path acquire(String key) {
+        synchronized (entries) {
+            if (entries.get(key) == null) return null;
+            readers.merge(key, 1, Integer::sum);
+        }
+        Path file = dir.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) { // 被外部清理
+            release(key);
+            remove(key);
+            return null;
+        }
+        return file;
+    }
+
+    private void release(String key) {
+        synchronized (entries) {
+            Integer n = readers.get(key);
+            if (n == null) return;
+            if (n > 1) {
+                readers.put(key, n - 1);
+                return;
+            }
+            readers.remove(key);
+            if (deferredDeletes.remove(key)) delete(key);
+        }
+    }
+
+    public long totalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void register(String key, long size) {
+        String owner = key.substring(0, key.indexOf("-v") + 1);
+        synchronized (entries) {
+            // 同一申请的旧版本不会再被请求，直接删除
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Long> e = it.next();
+                if (e.getKey().startsWith(owner) && !e.getKey().equals(key)) {
+                    it.remove();
+                    totalBytes -= e.getValue();
+                    discard(e.getKey());
+                }
+            }
+            // 调用方随后读取，先锁定；同名文件已被新写入替换，不再推迟删除
+            deferredDeletes.remove(key);
+            readers.merge(key, 1, Integer::sum);
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    /**
+     * 淘汰最久未访问的文件直到总大小不超过上限；至少保留刚写入的一个
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1 && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.getValue();
+            discard(eldest.getKey());
+            evictions.increment();
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) totalBytes -= size;
+        }
+    }
+
+    /**
+     * 删除已移出索引的文件；仍有读者时推迟到最后一个读者结束（调用方持有 entries 锁）
+     */
+    private void discard(String key) {
+        if (readers.containsKey(key)) deferredDeletes.add(key);
+        else delete(key);
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(dir.resolve(key + SUFFIX));
+        } catch (IOException e) {
+            log.debug("Failed to delete cached PDF {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeCollection;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PDF 字体提供者
+ * 字体文件只查找、读取一次；解析后的 TrueTypeFont 放入有界池中复用，
+ * 每次导出借出一个（解析结果不是线程安全的），导出结束后归还。
+ * 未找到字体时退化为 Helvetica。
+ */
+@Component
+@Slf4j
+public class PdfFontProvider {
+
+    private static final String[] RESOURCE_FONTS = {"/fonts/NotoSansSC-Regular.ttf", "/fonts/DejaVuSans.ttf"};
+    private static final String[] SYSTEM_FONTS = {
+        "C:/Windows/Fonts/msyh.ttc", "C:/Windows/Fonts/msyh.ttf", "C:/Windows/Fonts/msyhbd.ttc", "C:/Windows/Fonts/simsun.ttc", "C:/Windows/Fonts/simhei.ttf",
+        "/usr/share/fonts/truetype/noto/NotoSansCJK-Regular.ttc", "/usr/share/fonts/opentype/noto/NotoSansCJK-Regular.ttc",
+        "/usr/share/fonts/truetype/wqy/wqy-zenhei.ttc", "/usr/share/fonts/truetype/arphic/ukai.ttc"
+    };
+
+    private static final GlyphWidthCache STANDARD_WIDTHS = new GlyphWidthCache();
+
+    private final String configuredPath;
+    private final int poolSize;
+    private final long acquireTimeoutSeconds;
+
+    private final BlockingQueue<ParsedFont> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+    private final GlyphWidthCache widths = new GlyphWidthCache();
+
+    private volatile boolean resolved;
+    private byte[] fontData;        // 为 null 表示没有可用字体
+    private boolean collection;
+    private String fontName;
+
+    public PdfFontProvider(@Value("${app.pdf.font-path:}") String configuredPath,
+                           @Value("${app.pdf.font-pool-size:4}") int poolSize,
+                           @Value("${app.pdf.font-acquire-timeout-seconds:30}") long acquireTimeoutSeconds) {
+        this.configuredPath = configuredPath;
+        this.poolSize = Math.max(1, poolSize);
+        this.acquireTimeoutSeconds = acquireTimeoutSeconds;
+    }
+
+    /**
+     * 借出一个字体，使用完毕必须 close 归还
+     */
+    public Lease acquire() throws IOException {
+        resolve();
+        if (fontData == null) return new Lease(null);
+        ParsedFont font = idle.poll();
+        if (font == null) {
+            if (created.incrementAndGet() <= poolSize) {
+                try {
+                    font = parse();
+                } catch (IOException | RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+            } else {
+                created.decrementAndGet();
+                try {
+                    font = idle.poll(acquireTimeoutSeconds, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("等待PDF字体被中断", e);
+                }
+                if (font == null) throw new IllegalStateException("PDF字体资源繁忙，请稍后重试");
+            }
+        }
+        return new Lease(font);
+    }
+
+    public String fontName() {
+        resolve();
+        return fontName;
+    }
+
+    @PreDestroy
+    public void close() {
+        ParsedFont font;
+        while ((font = idle.poll()) != null) {
+            font.close();
+        }
+    }
+
+    private synchronized void resolve() {
+        if (resolved) return;
+        // 查找顺序：配置路径 -> resources/fonts -> 系统常见中文字体
+        if (configuredPath != null && !configuredPath.isBlank()) {
+            tryFile(configuredPath);
+        }
+        for (int i = 0; fontData == null && i < RESOURCE_FONTS.length; i++) {
+            try (InputStream is = PdfFontProvider.class.getResourceAsStream(RESOURCE_FONTS[i])) {
+                if (is != null) accept(is.readAllBytes(), RESOURCE_FONTS[i]);
+            } catch (Exception ignored) {
+            }
+        }
+        for (int i = 0; fontData == null && i < SYSTEM_FONTS.length; i++) {
+            tryFile(SYSTEM_FONTS[i]);
+        }
+        if (fontData == null) {
+            log.warn("No embeddable font found for PDF export, falling back to Helvetica");
+        } else {
+            log.info("PDF export font: {}", fontName);
+        }
+        resolved = true;
+    }
+
+    private void tryFile(String path) {
+        Path p = Paths.get(path);
+        if (!Files.isRegularFile(p)) return;
+        try {
+            accept(Files.readAllBytes(p), path);
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * 校验字体可以解析，成功则作为导出字体并放入池中
+     */
+    private boolean accept(byte[] data, String name) {
+        boolean isCollection = name.toLowerCase().endsWith(".ttc");
+        try {
+            ParsedFont font = parse(data, isCollection);
+            fontData = data;
+            collection = isCollection;
+            fontName = name;
+            created.incrementAndGet();
+            idle.offer(font);
+            return true;
+        } catch (Exception e) {
+            log.debug("Font {} is not usable: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    private ParsedFont parse() throws IOException {
+        return parse(fontData, collection);
+    }
+
+    private static ParsedFont parse(byte[] data, boolean collection) throws IOException {
+        if (!collection) {
+            TrueTypeFont ttf = new TTFParser().parse(new ByteArrayInputStream(data));
+            return new ParsedFont(ttf, ttf);
+        }
+        TrueTypeCollection ttc = new TrueTypeCollection(new ByteArrayInputStream(data));
+        TrueTypeFont[] first = new TrueTypeFont[1];
+        ttc.processAllFonts(ttf -> {
+            if (first[0] == null) first[0] = ttf;
+        });
+        if (first[0] == null) {
+            ttc.close();
+            throw new IOException("字体集合为空");
+        }
+        return new ParsedFont(first[0], ttc);
+    }
+
+    private void release(ParsedFont font) {
+        if (font != null) idle.offer(font);
+    }
+
+    private record ParsedFont(TrueTypeFont ttf, Closeable owner) {
+        void close() {
+            try {
+                owner.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 借出的字体：在每个文档中以子集方式嵌入，字形宽度使用共享缓存
+     */
+    public final class Lease implements AutoCloseable {
+        private final ParsedFont font;
+        private boolean closed;
+
+        private Lease(ParsedFont font) {
+            this.font = font;
+        }
+
+        public PDFont load(PDDocument doc) throws IOException {
+            if (font == null) return PDType1Font.HELVETICA;
+            return PDType0Font.load(doc, font.ttf(), true);
+        }
+
+        public GlyphWidthCache widths() {
+            return font == null ? STANDARD_WIDTHS : widths;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            release(font);
+        }
+    }
+}
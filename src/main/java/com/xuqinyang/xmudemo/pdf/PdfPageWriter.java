@@ -0,0 +1,159 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 分页写入器：维护当前页、内容流和纵向位置，空间不足时自动换页
+ */
+final class PdfPageWriter {
+
+    static final float MARGIN = 40f;
+    private static final float TOP_OFFSET = 50f;
+    private static final float BOTTOM = 60f;
+    private static final float IMAGE_MAX_HEIGHT = 200f;
+    // 图片像素超过显示尺寸该倍数时降采样后再嵌入（约 144 DPI）
+    private static final int IMAGE_OVERSAMPLE = 2;
+
+    private final PDDocument doc;
+    private final PDFont font;
+    private final GlyphWidthCache widths;
+    private final float contentWidth;
+
+    private PDPage page;
+    private PDPageContentStream cs;
+    private float y;
+
+    PdfPageWriter(PDDocument doc, PDFont font, GlyphWidthCache widths) throws IOException {
+        this.doc = doc;
+        this.font = font;
+        this.widths = widths;
+        this.contentWidth = PDRectangle.A4.getWidth() - MARGIN * 2;
+        newPage();
+    }
+
+    void ensureSpace(float need) throws IOException {
+        if (y - need < BOTTOM) newPage();
+    }
+
+    void down(float dy) {
+        y -= dy;
+    }
+
+    /**
+     * 在当前位置输出单行文本（不折行、不移动位置）
+     */
+    void line(int size, String text) throws IOException {
+        cs.setFont(font, size);
+        show(widths.sanitize(font, text), MARGIN, y);
+    }
+
+    /**
+     * 按宽度折行输出，每行下移 lineHeight
+     */
+    void wrap(int size, String text, float lineHeight) throws IOException {
+        for (String line : text.replace("\r", "\n").split("\n")) {
+            for (String segment : widths.wrap(font, line, size, contentWidth)) {
+                if (y < BOTTOM) newPage();
+                cs.setFont(font, size);
+                show(segment, MARGIN, y);
+                y -= lineHeight;
+            }
+        }
+    }
+
+    /**
+     * 输出图片及标题；加载失败时只输出标题和提示
+     */
+    void image(byte[] bytes, String caption) throws IOException {
+        try {
+            float[] size = new float[2];
+            PDImageXObject img = loadImage(bytes, caption, size);
+            float scale = Math.min(Math.min(contentWidth * 0.8f / size[0], IMAGE_MAX_HEIGHT / size[1]), 1f);
+            float drawW = size[0] * scale;
+            float drawH = size[1] * scale;
+            float captionHeight = 15f, spacingBefore = 8f, spacingAfter = 12f;
+            ensureSpace(captionHeight + spacingBefore + drawH + spacingAfter);
+            wrap(10, caption, 12);
+            y -= spacingBefore;
+            cs.drawImage(img, MARGIN, y - drawH, drawW, drawH);
+            y -= drawH + spacingAfter;
+        } catch (Exception e) {
+            wrap(10, caption + " (图片加载失败)", 12);
+            y -= 4;
+        }
+    }
+
+    void finish() throws IOException {
+        cs.close();
+    }
+
+    private void newPage() throws IOException {
+        if (cs != null) cs.close();
+        page = new PDPage(PDRectangle.A4);
+        doc.addPage(page);
+        cs = new PDPageContentStream(doc, page);
+        y = page.getMediaBox().getHeight() - TOP_OFFSET;
+    }
+
+    private void show(String text, float x, float atY) throws IOException {
+        cs.beginText();
+        cs.newLineAtOffset(x, atY);
+        cs.showText(text);
+        cs.endText();
+    }
+
+    /**
+     * 加载图片，size 返回原始像素尺寸（用于计算显示大小）。
+     * 远大于显示尺寸的图片按整数倍子采样解码后重新编码，只解码需要的像素，
+     * 避免把数千万像素的照片原样解码、嵌入。
+     */
+    private PDImageXObject loadImage(byte[] bytes, String name, float[] size) throws IOException {
+        try (ImageInputStream iis = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(iis, true, true);
+                    int w = reader.getWidth(0), h = reader.getHeight(0);
+                    size[0] = w;
+                    size[1] = h;
+                    float scale = Math.min(Math.min(contentWidth * 0.8f / w, IMAGE_MAX_HEIGHT / h), 1f);
+                    int factor = (int) Math.floor(1 / (scale * IMAGE_OVERSAMPLE));
+                    if (factor >= 2) {
+                        ImageReadParam param = reader.getDefaultReadParam();
+                        param.setSourceSubsampling(factor, factor, 0, 0);
+                        BufferedImage image = reader.read(0, param);
+                        return image.getColorModel().hasAlpha()
+                            ? LosslessFactory.createFromImage(doc, image)
+                            : JPEGFactory.createFromImage(doc, image, 0.85f);
+                    }
+                } catch (Exception ignored) {
+                    // 解码失败（如 CMYK JPEG）时交给 PDFBox 原样嵌入
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+        PDImageXObject img = PDImageXObject.createFromByteArray(doc, bytes, name);
+        size[0] = img.getWidth();
+        size[1] = img.getHeight();
+        return img;
+    }
+}
@@ -0,0 +1,281 @@
+package com.xuqinyang.xmudemo.ranking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 带跨度的跳表排名索引（与 Redis ZSET 的实现思路一致）
+ * 按分数降序、申请ID升序排列；更新、名次、区间计数和按名次定位均为 O(log n)。
+ * Redis 不可用时作为本地排行榜使用。
+ */
+public final class ScoreSkipList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double P = 0.25;
+
+    public record Entry(long id, double score) {
+    }
+
+    private static final class Node {
+        final long id;
+        final double score;
+        final Node[] next;
+        final int[] span; // 当前层到 next 节点跨过的底层节点数
+
+        Node(long id, double score, int level) {
+            this.id = id;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+
+    private final Node head = new Node(0, 0, MAX_LEVEL);
+    private final Map<Long, Double> scores = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int level = 1;
+    private int size;
+
+    /**
+     * 插入或更新分数，分数未变化时返回 false
+     */
+    public boolean put(long id, double score) {
+        lock.writeLock().lock();
+        try {
+            Double old = scores.get(id);
+            if (old != null) {
+                if (Double.compare(old, score) == 0) return false;
+                deleteNode(id, old);
+            }
+            insertNode(id, score);
+            scores.put(id, score);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Double old = scores.remove(id);
+            if (old == null) return false;
+            deleteNode(id, old);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 整体替换为给定数据（全量重建）
+     */
+    public void reset(Map<Long, Double> entries) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < MAX_LEVEL; i++) {
+                head.next[i] = null;
+                head.span[i] = 0;
+            }
+            level = 1;
+            size = 0;
+            scores.clear();
+            entries.forEach((id, score) -> {
+                insertNode(id, score);
+                scores.put(id, score);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Double score(long id) {
+        lock.readLock().lock();
+        try {
+            return scores.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 排在该申请之前的条目数（0 起始的位置），不存在时返回 -1
+     */
+    public int position(long id) {
+        lock.readLock().lock();
+        try {
+            Double score = scores.get(id);
+            if (score == null) return -1;
+            int traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && before(x.next[i], score, id)) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+            }
+            return traversed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 分数严格高于给定值的条目数
+     */
+    public int countGreater(double score) {
+        lock.readLock().lock();
+        try {
+            int traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && Double.compare(x.next[i].score, score) > 0) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+            }
+            return traversed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 分数严格低于给定值的条目数
+     */
+    public int countLess(double score) {
+        lock.readLock().lock();
+        try {
+            int traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && Double.compare(x.next[i].score, score) >= 0) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+            }
+            return size - traversed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按位置取一段（0 起始），先按跨度定位起点再沿底层遍历
+     */
+    public List<Entry> range(int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            if (offset < 0 || limit <= 0 || offset >= size) return Collections.emptyList();
+            int target = offset + 1;
+            int traversed = 0;
+            Node x = head;
+            for (int i = level - 1; i >= 0; i--) {
+                while (x.next[i] != null && traversed + x.span[i] <= target) {
+                    traversed += x.span[i];
+                    x = x.next[i];
+                }
+                if (traversed == target) break;
+            }
+            List<Entry> result = new ArrayList<>(Math.min(limit, size - offset));
+            while (x != null && result.size() < limit) {
+                result.add(new Entry(x.id, x.score));
+                x = x.next[0];
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Entry> top(int n) {
+        return range(0, n);
+    }
+
+    private static boolean before(Node node, double score, long id) {
+        int c = Double.compare(node.score, score);
+        return c > 0 || (c == 0 && node.id < id);
+    }
+
+    private void insertNode(long id, double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && before(x.next[i], score, id)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int lvl = randomLevel();
+        if (lvl > level) {
+            for (int i = level; i < lvl; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = lvl;
+        }
+        Node node = new Node(id, score, lvl);
+        for (int i = 0; i < lvl; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = lvl; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    private void deleteNode(long id, double score) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && before(x.next[i], score, id)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        x = x.next[0];
+        if (x == null || x.id != id) return;
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+    }
+
+    private static int randomLevel() {
+        int lvl = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (lvl < MAX_LEVEL && random.nextDouble() < P) {
+            lvl++;
+        }
+        return lvl;
+    }
+}
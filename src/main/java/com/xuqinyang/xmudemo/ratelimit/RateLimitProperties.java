@@ -0,0 +1,78 @@
+package com.xuqinyang.xmudemo.ratelimit;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限流配置（app.rate-limit.*）
+ * 已登录请求按用户限流，匿名请求按 IP 限流；每一档有默认上限，并可按路由模板（Ant 风格）单独配置，
+ * 按配置顺序取第一个匹配项。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // 滑动窗口长度，上限均为每个窗口内的请求数
+    private Duration window = Duration.ofMinutes(1);
+
+    private Tier ip = new Tier(100);
+    private Tier user = new Tier(200);
+
+    // 明显低于上限的客户端在本地计数放行，定期批量同步到 Redis
+    private boolean localFastPath = true;
+    private Duration syncInterval = Duration.ofMillis(100);
+
+    // 本地放行只用到 (1 - headroom) * limit，剩余部分用于吸收各节点尚未同步的计数
+    private double headroom = 0.1;
+
+    // 预期节点数，每个节点每个 key 未同步的本地放行数不超过 headroom / expectedNodes
+    private int expectedNodes = 4;
+
+    @Data
+    public static class Tier {
+        private int defaultLimit;
+        private Map<String, Integer> routes = new LinkedHashMap<>();
+
+        public Tier() {
+        }
+
+        Tier(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+    }
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final Map<String, Integer> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * 某一档在某个路由模板上的上限；结果按模板缓存（模板数量有限）
+     */
+    public int limitFor(boolean authenticated, String route) {
+        Tier tier = authenticated ? user : ip;
+        return resolved.computeIfAbsent((authenticated ? "user " : "ip ") + route, k -> {
+            for (Map.Entry<String, Integer> e : tier.getRoutes().entrySet()) {
+                if (MATCHER.match(e.getKey(), route)) {
+                    return e.getValue();
+                }
+            }
+            return tier.getDefaultLimit();
+        });
+    }
+}
@@ -0,0 +1,68 @@
+package com.xuqinyang.xmudemo.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+/**
+ * 把请求路径解析为控制器上声明的路由模板（如 /api/applications/{id}/submit）
+ * 让 /api/applications/123 与 /124 共用一个限流桶；没有匹配的控制器时归入 {@link #UNMATCHED}，
+ * 避免随机路径制造无限多的 key。
+ *
+ * 过滤器在 DispatcherServlet 之前执行，这里借用 Spring MVC 的 handler mapping 做一次匹配，
+ * 结束后清除匹配过程写入的请求属性，不影响后续正常分发。
+ */
+@Component
+public class RouteTemplateResolver {
+
+    public static final String UNMATCHED = "unmatched";
+
+    // handler mapping 依赖 WebMvcConfigurer，而 WebConfig 又依赖限流过滤器，延迟获取以避免循环依赖
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMapping;
+    private final Cache<String, String> templates = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    public RouteTemplateResolver(@Qualifier("requestMappingHandlerMapping")
+                                 ObjectProvider<RequestMappingHandlerMapping> handlerMapping) {
+        this.handlerMapping = handlerMapping;
+    }
+
+    public String resolve(HttpServletRequest request) {
+        return templates.get(request.getMethod() + " " + request.getRequestURI(), k -> lookup(request));
+    }
+
+    private String lookup(HttpServletRequest request) {
+        RequestMappingHandlerMapping mapping = handlerMapping.getIfAvailable();
+        if (mapping == null) {
+            return UNMATCHED;
+        }
+        boolean parsed = ServletRequestPathUtils.hasParsedRequestPath(request);
+        try {
+            if (!parsed) {
+                ServletRequestPathUtils.parseAndCache(request);
+            }
+            HandlerExecutionChain chain = mapping.getHandler(request);
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return chain != null && pattern != null ? pattern.toString() : UNMATCHED;
+        } catch (Exception e) {
+            // 方法不支持、媒体类型不匹配等，交给 DispatcherServlet 正常报错
+            return UNMATCHED;
+        } finally {
+            request.removeAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            request.removeAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            request.removeAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+            request.removeAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            request.removeAttribute(HandlerMapping.MATRIX_VARIABLES_ATTRIBUTE);
+            request.removeAttribute(HandlerMapping.PRODUCIBLE_MEDIA_TYPES_ATTRIBUTE);
+            if (!parsed) {
+                ServletRequestPathUtils.clearParsedRequestPath(request);
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.xuqinyang.xmudemo.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式滑动窗口限流
+ * Redis 中每个 key 按固定窗口计数，判定时用“上一窗口计数 × 剩余比例 + 当前窗口计数”近似滑动窗口；
+ * 判定与计数在同一个 Lua 脚本中完成，不存在先查后增的竞态。
+ *
+ * 开启本地快速路径时：
+ * - 每个 key 在本地用 LongAdder 分片计数，估计值 = 上次同步得到的全局计数 + 本地未同步计数；
+ * - 估计值低于 (1 - headroom) * limit 且本地未同步数低于 headroom / expectedNodes 时直接放行，不访问 Redis；
+ * - 其余请求走 Redis 脚本精确判定；
+ * - 后台每 syncInterval 用一次脚本调用把所有 key 的增量写入 Redis 并取回全局计数。
+ * 误差上界：节点数不超过 expectedNodes 时，窗口内放行数最多超出 headroom * limit（另加同一时刻并发通过检查的线程数）。
+ */
+@Component
+@Slf4j
+public class SlidingWindowRateLimiter {
+
+    static final String KEY_PREFIX = "rate_limit:";
+    private static final int SYNC_BATCH_SIZE = 500;
+
+    // KEYS: 每个限流 key 依次为当前窗口、上一窗口
+    // ARGV[1]: 上一窗口权重（千分比），ARGV[2]: 计数过期毫秒；之后每个 key 三个参数：本地增量、本次请求数（0 或 1）、上限
+    // 返回：每个 key 依次为是否放行（1/0）、计入本次后的滑动窗口计数
+    private static final String SCRIPT =
+        "local weight = tonumber(ARGV[1]) " +
+        "local ttl = tonumber(ARGV[2]) " +
+        "local out = {} " +
+        "for i = 1, #KEYS / 2 do " +
+        "    local cur = KEYS[2 * i - 1] " +
+        "    local delta = tonumber(ARGV[3 * i]) " +
+        "    local want = tonumber(ARGV[3 * i + 1]) " +
+        "    local limit = tonumber(ARGV[3 * i + 2]) " +
+        "    local prev = math.floor(tonumber(redis.call('get', KEYS[2 * i]) or '0') * weight / 1000) " +
+        "    local count = tonumber(redis.call('get', cur) or '0') + delta " +
+        "    local allowed = 1 " +
+        "    if want > 0 then " +
+        "        if prev + count + want > limit then " +
+        "            allowed = 0 " +
+        "        else " +
+        "            count = count + want " +
+        "        end " +
+        "    end " +
+        "    local add = delta + allowed * want " +
+        "    if add > 0 then " +
+        "        redis.call('incrby', cur, add) " +
+        "        redis.call('pexpire', cur, ttl) " +
+        "    end " +
+        "    out[2 * i - 1] = allowed " +
+        "    out[2 * i] = prev + count " +
+        "end " +
+        "return out";
+
+    static final class WindowCounter {
+        final LongAdder admitted = new LongAdder(); // 本地快速路径放行总数，只增不减
+        volatile long flushed;                      // 已同步到 Redis 的部分，只由同步线程写
+        volatile long global;                       // 最近一次从 Redis 得到的滑动窗口计数
+        volatile long lastSeen;
+        volatile int limit;
+
+        long pending() {
+            return admitted.sum() - flushed;
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final RateLimitProperties properties;
+    @SuppressWarnings("rawtypes")
+    private final DefaultRedisScript<List> script = new DefaultRedisScript<>(SCRIPT, List.class);
+    private final Map<String, WindowCounter> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncExecutor;
+
+    private final Counter localAllowed;
+    private final Counter redisAllowed;
+    private final Counter redisRejected;
+    private final Counter redisErrors;
+    private final Timer syncTimer;
+
+    public SlidingWindowRateLimiter(StringRedisTemplate redisTemplate, RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.localAllowed = decisions(meterRegistry, "local", "allowed");
+        this.redisAllowed = decisions(meterRegistry, "redis", "allowed");
+        this.redisRejected = decisions(meterRegistry, "redis", "rejected");
+        this.redisErrors = Counter.builder("rate_limit_redis_errors_total")
+            .description("Rate limit evaluations that failed open because Redis was unavailable")
+            .register(meterRegistry);
+        this.syncTimer = Timer.builder("rate_limit_sync_duration")
+            .description("Duration of one batched local-to-Redis counter sync")
+            .register(meterRegistry);
+        meterRegistry.gauge("rate_limit_local_keys", counters, Map::size);
+
+        this.syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limit-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(10, properties.getSyncInterval().toMillis());
+        syncExecutor.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter decisions(MeterRegistry registry, String path, String result) {
+        return Counter.builder("rate_limit_decisions_total")
+            .tag("path", path)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
+    }
+
+    /**
+     * 尝试为 key 计入一次请求
+     *
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String key, int limit) {
+        if (!properties.isLocalFastPath()) {
+            return acquireRemote(key, limit, null);
+        }
+        WindowCounter counter = counters.computeIfAbsent(key, k -> new WindowCounter());
+        counter.lastSeen = System.currentTimeMillis();
+        counter.limit = limit;
+
+        long headroom = (long) Math.ceil(limit * properties.getHeadroom());
+        long burst = Math.max(1, headroom / Math.max(1, properties.getExpectedNodes()));
+        long pending = counter.pending();
+        if (pending < burst && counter.global + pending + 1 <= limit - headroom) {
+            counter.admitted.increment();
+            localAllowed.increment();
+            return true;
+        }
+        return acquireRemote(key, limit, counter);
+    }
+
+    /**
+     * 在 Redis 中原子地判定并计数；本地未同步的增量留给同步线程写入，避免重复计数
+     */
+    @SuppressWarnings("unchecked")
+    private boolean acquireRemote(String key, int limit, WindowCounter counter) {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>(2);
+        List<String> args = new ArrayList<>(5);
+        windowArgs(now, args);
+        addEntry(key, now, 0, 1, limit, keys, args);
+        try {
+            List<Long> out = redisTemplate.execute(script, keys, args.toArray());
+            boolean allowed = out != null && out.size() >= 2 && out.get(0) == 1;
+            if (counter != null && out != null && out.size() >= 2) {
+                counter.global = out.get(1);
+            }
+            (allowed ? redisAllowed : redisRejected).increment();
+            return allowed;
+        } catch (Exception e) {
+            // Redis 不可用时放行，不让限流拖垮全部接口
+            redisErrors.increment();
+            log.warn("Rate limit check failed for {}, allowing request: {}", key, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 同步：把各 key 的本地增量批量写入 Redis，并取回全局计数；长时间无请求的 key 从本地移除
+     */
+    void sync() {
+        long start = System.nanoTime();
+        try {
+            long now = System.currentTimeMillis();
+            long windowMillis = properties.getWindow().toMillis();
+            List<String> batchKeys = new ArrayList<>();
+            List<WindowCounter> batch = new ArrayList<>();
+            List<Long> snapshots = new ArrayList<>();
+
+            for (Map.Entry<String, WindowCounter> e : counters.entrySet()) {
+                WindowCounter c = e.getValue();
+                long admitted = c.admitted.sum();
+                long delta = admitted - c.flushed;
+                if (delta == 0 && now - c.lastSeen > 2 * windowMillis) {
+                    counters.remove(e.getKey(), c);
+                    continue;
+                }
+                if (delta == 0 && now - c.lastSeen > windowMillis) {
+                    continue;
+                }
+                batchKeys.add(e.getKey());
+                batch.add(c);
+                snapshots.add(admitted);
+                if (batch.size() == SYNC_BATCH_SIZE) {
+                    flush(now, batchKeys, batch, snapshots);
+                    batchKeys.clear();
+                    batch.clear();
+                    snapshots.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                flush(now, batchKeys, batch, snapshots);
+            }
+        } catch (Exception e) {
+            log.warn("Rate limit sync failed, will retry: {}", e.getMessage());
+        } finally {
+            syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void flush(long now, List<String> batchKeys, List<WindowCounter> batch, List<Long> snapshots) {
+        List<String> keys = new ArrayList<>(batch.size() * 2);
+        List<String> args = new ArrayList<>(2 + batch.size() * 3);
+        windowArgs(now, args);
+        for (int i = 0; i < batch.size(); i++) {
+            WindowCounter c = batch.get(i);
+            addEntry(batchKeys.get(i), now, snapshots.get(i) - c.flushed, 0, c.limit, keys, args);
+        }
+        List<Long> out = redisTemplate.execute(script, keys, args.toArray());
+        if (out == null) {
+            return;
+        }
+        for (int i = 0; i < batch.size() && 2 * i + 1 < out.size(); i++) {
+            WindowCounter c = batch.get(i);
+            c.flushed = snapshots.get(i);
+            c.global = out.get(2 * i + 1);
+        }
+    }
+
+    private void windowArgs(long now, List<String> args) {
+        long windowMillis = properties.getWindow().toMillis();
+        long elapsed = now % windowMillis;
+        args.add(String.valueOf(1000 - elapsed * 1000 / windowMillis));
+        args.add(String.valueOf(2 * windowMillis));
+    }
+
+    private void addEntry(String key, long now, long delta, int want, int limit, List<String> keys, List<String> args) {
+        long index = now / properties.getWindow().toMillis();
+        keys.add(KEY_PREFIX + key + ":" + index);
+        keys.add(KEY_PREFIX + key + ":" + (index - 1));
+        args.add(String.valueOf(delta));
+        args.add(String.valueOf(want));
+        args.add(String.valueOf(limit));
+    }
+
+    int localKeys() {
+        return counters.size();
+    }
+}
@@ -28,6 +28,10 @@ public interface ApplicationRepository extends JpaRepository<Application, Long>
     @Query("SELECT a FROM Application a JOIN FETCH a.user u JOIN FETCH a.activity ac WHERE a.id = :id")
     Optional<Application> findByIdWithUserAndActivity(@Param("id") Long id);
 
+    // PDF 缓存：只取版本号和最后更新时间判断缓存是否仍有效，不加载整行
+    @Query("SELECT a.version, a.lastUpdateDate FROM Application a WHERE a.id = :id")
+    List<Object[]> findVersionStampById(@Param("id") Long id);
+
     // 新增：查找所有Application并预加载user和activity关系（用于统计等场景）
     @Query("SELECT a FROM Application a JOIN FETCH a.user u JOIN FETCH a.activity ac")
     List<Application> findAllWithUserAndActivity();
@@ -52,6 +56,11 @@ public interface ApplicationRepository extends JpaRepository<Application, Long>
     @Query("SELECT a FROM Application a JOIN FETCH a.user u JOIN FETCH a.activity ac WHERE a.status IN :statuses")
     Page<Application> findByStatusInWithUserAndActivity(@Param("statuses") List<ApplicationStatus> statuses, Pageable pageable);
 
+    // 批量导出：只取某活动下指定状态的申请ID，逐个加载渲染
+    @Query("SELECT a.id FROM Application a WHERE a.activity.id = :activityId AND a.status IN :statuses ORDER BY a.id")
+    List<Long> findIdsByActivityIdAndStatusIn(@Param("activityId") Long activityId,
+                                              @Param("statuses") List<ApplicationStatus> statuses);
+
     // 搜索申请（根据学号、姓名、活动名称）
     @Query("SELECT a FROM Application a JOIN FETCH a.user u JOIN FETCH a.activity ac WHERE " +
            "LOWER(u.studentId) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
@@ -0,0 +1,7 @@
+package com.xuqinyang.xmudemo.repository;
+
+import com.xuqinyang.xmudemo.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
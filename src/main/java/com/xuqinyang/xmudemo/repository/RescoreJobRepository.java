@@ -0,0 +1,12 @@
+package com.xuqinyang.xmudemo.repository;
+
+import com.xuqinyang.xmudemo.model.RescoreJob;
+import com.xuqinyang.xmudemo.model.RescoreJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface RescoreJobRepository extends JpaRepository<RescoreJob, Long> {
+    List<RescoreJob> findByStatus(RescoreJobStatus status);
+    List<RescoreJob> findTop50ByOrderByCreatedAtDesc();
+}
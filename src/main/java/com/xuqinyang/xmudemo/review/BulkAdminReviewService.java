@@ -0,0 +1,245 @@
+package com.xuqinyang.xmudemo.review;
+
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.model.ApplicationTransition;
+import com.xuqinyang.xmudemo.service.CacheService;
+import com.xuqinyang.xmudemo.service.LeaderboardService;
+import com.xuqinyang.xmudemo.service.UserNotificationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量人工审核：ADMIN_REVIEWING -> APPROVED / REJECTED
+ * 在一个事务中：SELECT ... FOR UPDATE 锁定并校验全部申请 -> 通过和拒绝各一次批量条件 UPDATE -> 一次批量写入通知。
+ * 提交后清一次申请缓存和待审核计数缓存，逐条返回成功或失败原因；不合法的条目不影响其他条目。
+ *
+ * 与单条审核（{@link com.xuqinyang.xmudemo.service.ApplicationTransitionEngine}）并发时，
+ * 被锁定的行会让单条审核的条件 UPDATE 落空，重新读取后得到“非人工审核中”，同一申请只有一个结论生效。
+ * 成绩在提交和更新时已经计算，这里不再重算。
+ */
+@Service
+@Slf4j
+public class BulkAdminReviewService {
+
+    private static final String REVIEW_SQL =
+        "UPDATE application SET status = ?, admin_review_comment = ?, admin_reviewed_at = ?, last_update_date = ?, " +
+        "version = COALESCE(version, 0) + 1 WHERE id = ? AND status = 'ADMIN_REVIEWING'";
+
+    /**
+     * 一条审核结论
+     */
+    public record Decision(Long id, boolean approve, String comment) {
+    }
+
+    /**
+     * 一条结论的处理结果；失败时 status 为 null
+     */
+    public record ItemResult(Long id, boolean success, ApplicationStatus status, String error) {
+
+        static ItemResult ok(Long id, ApplicationStatus status) {
+            return new ItemResult(id, true, status, null);
+        }
+
+        static ItemResult failed(Long id, String error) {
+            return new ItemResult(id, false, null, error);
+        }
+    }
+
+    /**
+     * 批量审核结果，items 与请求顺序一致
+     */
+    public record Result(int approved, int rejected, int failed, List<ItemResult> items) {
+    }
+
+    /**
+     * 锁定时读到的申请
+     */
+    private record Row(Long id, ApplicationStatus status, Long userId, Long activityId, Double totalScore) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserNotificationService userNotificationService;
+    private final CacheService cacheService;
+    private final LeaderboardService leaderboardService;
+    private final MeterRegistry meterRegistry;
+    private final int maxItems;
+
+    public BulkAdminReviewService(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  UserNotificationService userNotificationService,
+                                  CacheService cacheService,
+                                  LeaderboardService leaderboardService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.review.bulk-max-items:500}") int maxItems) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userNotificationService = userNotificationService;
+        this.cacheService = cacheService;
+        this.leaderboardService = leaderboardService;
+        this.meterRegistry = meterRegistry;
+        this.maxItems = maxItems;
+    }
+
+    public Result review(List<Decision> decisions) {
+        if (decisions == null || decisions.isEmpty()) {
+            throw new IllegalArgumentException("审核列表不能为空");
+        }
+        if (decisions.size() > maxItems) {
+            throw new IllegalArgumentException("单次最多审核 " + maxItems + " 条申请");
+        }
+
+        // 下标 -> 结果；先做不需要查库的校验
+        Map<Integer, ItemResult> results = new HashMap<>();
+        Map<Long, Integer> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            Decision d = decisions.get(i);
+            if (d == null || d.id() == null) {
+                results.put(i, ItemResult.failed(null, "缺少申请ID"));
+            } else if (!d.approve() && (d.comment() == null || d.comment().isBlank())) {
+                results.put(i, ItemResult.failed(d.id(), "拒绝操作必须填写审核意见"));
+            } else if (accepted.putIfAbsent(d.id(), i) != null) {
+                results.put(i, ItemResult.failed(d.id(), "同一申请重复提交"));
+            }
+        }
+
+        List<Row> applied = accepted.isEmpty() ? List.of()
+            : transactionTemplate.execute(status -> apply(decisions, accepted, results));
+        afterCommit(applied);
+
+        int approved = 0, rejected = 0, failed = 0;
+        List<ItemResult> items = new ArrayList<>(decisions.size());
+        for (int i = 0; i < decisions.size(); i++) {
+            ItemResult r = results.get(i);
+            items.add(r);
+            if (!r.success()) failed++;
+            else if (r.status() == ApplicationStatus.APPROVED) approved++;
+            else rejected++;
+        }
+        count("approved", approved);
+        count("rejected", rejected);
+        count("failed", failed);
+        log.info("Bulk admin review: {} approved, {} rejected, {} failed", approved, rejected, failed);
+        return new Result(approved, rejected, failed, items);
+    }
+
+    /**
+     * @return 状态已改变的申请（新状态），提交后用于同步排行榜
+     */
+    private List<Row> apply(List<Decision> decisions, Map<Long, Integer> accepted, Map<Integer, ItemResult> results) {
+        Map<Long, Row> rows = lockRows(accepted.keySet());
+        List<Decision> approvals = new ArrayList<>();
+        List<Decision> rejections = new ArrayList<>();
+        List<Row> applied = new ArrayList<>();
+        List<UserNotificationService.PendingNotification> notifications = new ArrayList<>();
+
+        for (Map.Entry<Long, Integer> entry : accepted.entrySet()) {
+            Decision d = decisions.get(entry.getValue());
+            Row row = rows.get(d.id());
+            if (row == null) {
+                results.put(entry.getValue(), ItemResult.failed(d.id(), "申请不存在"));
+                continue;
+            }
+            if (!ApplicationTransition.ADMIN_REVIEW.allowsFrom(row.status())) {
+                results.put(entry.getValue(), ItemResult.failed(d.id(), ApplicationTransition.ADMIN_REVIEW.rejection()));
+                continue;
+            }
+            ApplicationStatus target = d.approve() ? ApplicationStatus.APPROVED : ApplicationStatus.REJECTED;
+            (d.approve() ? approvals : rejections).add(d);
+            applied.add(new Row(row.id(), target, row.userId(), row.activityId(), row.totalScore()));
+            results.put(entry.getValue(), ItemResult.ok(d.id(), target));
+            if (row.userId() != null) {
+                notifications.add(new UserNotificationService.PendingNotification(row.userId(),
+                    d.approve() ? "申请通过" : "申请未通过",
+                    d.approve() ? "恭喜！您的申请已被批准" : "很遗憾，您的申请未能通过审核",
+                    d.approve() ? "APPLICATION_APPROVED" : "APPLICATION_REJECTED"));
+            }
+        }
+
+        // 行已锁定且状态已校验，条件 UPDATE 必然命中；条件只是防御直接改库等意外情况
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        update(ApplicationStatus.APPROVED, approvals, now);
+        update(ApplicationStatus.REJECTED, rejections, now);
+        userNotificationService.insertBatch(notifications);
+        return applied;
+    }
+
+    private Map<Long, Row> lockRows(Set<Long> ids) {
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Row> rows = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT id, status, user_id, activity_id, total_score FROM application WHERE id IN (" + placeholders + ") FOR UPDATE",
+            rs -> {
+                Long id = rs.getLong("id");
+                rows.put(id, new Row(id, ApplicationStatus.valueOf(rs.getString("status")),
+                    rs.getObject("user_id", Long.class), rs.getObject("activity_id", Long.class),
+                    rs.getObject("total_score", Double.class)));
+            },
+            ids.toArray());
+        return rows;
+    }
+
+    private void update(ApplicationStatus target, List<Decision> decisions, Timestamp now) {
+        if (decisions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(REVIEW_SQL, decisions, decisions.size(), (ps, d) -> {
+            ps.setString(1, target.name());
+            ps.setString(2, d.comment());
+            ps.setTimestamp(3, now);
+            ps.setTimestamp(4, now);
+            ps.setLong(5, d.id());
+        });
+    }
+
+    /**
+     * 事务已提交：每一步失败只记录日志，不影响其余步骤和返回给调用方的结果
+     */
+    private void afterCommit(List<Row> applied) {
+        if (applied == null || applied.isEmpty()) {
+            return;
+        }
+        for (Row row : applied) {
+            try {
+                leaderboardService.onApplicationChanged(row.id(), row.activityId(), row.status(), row.totalScore());
+            } catch (Exception e) {
+                log.warn("Failed to sync leaderboard for application {}: {}", row.id(), e.getMessage());
+            }
+        }
+        try {
+            cacheService.clearApplicationCachesSafely();
+        } catch (Exception e) {
+            log.warn("Failed to clear application caches after bulk review: {}", e.getMessage());
+        }
+        try {
+            userNotificationService.evictAllPendingReviewCache();
+        } catch (Exception e) {
+            log.warn("Failed to evict pending review caches after bulk review: {}", e.getMessage());
+        }
+    }
+
+    private void count(String result, int amount) {
+        if (amount > 0) {
+            Counter.builder("application_bulk_review_items_total")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(amount);
+        }
+    }
+}
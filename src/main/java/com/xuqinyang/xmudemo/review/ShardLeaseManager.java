@@ -0,0 +1,170 @@
+package com.xuqinyang.xmudemo.review;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 系统预审分片租约
+ * 申请按 id % shards 分成固定数量的分片，每个分片在 Redis 中有一个带过期时间的租约键，值为持有节点。
+ * 每个节点定期：
+ * - 在节点集合中写入心跳，剔除超过租约时长没有心跳的节点，得到存活节点数 n；
+ * - 续期自己持有的租约（已被别人接管的不再续期）；
+ * - 持有数超过 ceil(shards / n) 时释放多余的，少于时尝试获取空闲分片。
+ * 节点加入时其他节点在下一轮让出多余分片，节点正常退出时主动释放，崩溃时租约过期后被其他节点接管。
+ *
+ * 租约只用于分配工作：短暂的重叠持有不影响正确性，同一申请由 SKIP LOCKED 认领和条件 UPDATE 保证只处理一次。
+ */
+@Component
+@Slf4j
+public class ShardLeaseManager {
+
+    static final String NODES_KEY = "systemReview:nodes";
+    static final String SHARD_KEY_PREFIX = "systemReview:shard:";
+
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+        Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final int shards;
+    private final Duration leaseTtl;
+    private final Duration renewInterval;
+    private final String nodeId;
+
+    private volatile Set<Integer> owned = Collections.emptySet();
+    private ScheduledExecutorService renewExecutor;
+
+    public ShardLeaseManager(StringRedisTemplate redisTemplate,
+                             @Value("${app.review.shards:16}") int shards,
+                             @Value("${app.review.lease-ttl:30s}") Duration leaseTtl,
+                             @Value("${app.review.lease-renew-interval:10s}") Duration renewInterval) {
+        this.redisTemplate = redisTemplate;
+        this.shards = Math.max(1, shards);
+        this.leaseTtl = leaseTtl;
+        this.renewInterval = renewInterval;
+        this.nodeId = ManagementFactory.getRuntimeMXBean().getName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @PostConstruct
+    public void start() {
+        renewExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "review-shard-lease");
+            t.setDaemon(true);
+            return t;
+        });
+        renewExecutor.scheduleWithFixedDelay(this::rebalanceQuietly, 0, renewInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 正常退出：释放全部租约并移出节点集合，其他节点下一轮即可接管
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (renewExecutor != null) {
+            renewExecutor.shutdownNow();
+        }
+        try {
+            for (int shard : owned) {
+                release(shard);
+            }
+            redisTemplate.opsForZSet().remove(NODES_KEY, nodeId);
+        } catch (Exception e) {
+            log.warn("Failed to release review shard leases on shutdown: {}", e.getMessage());
+        }
+        owned = Collections.emptySet();
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 本节点当前持有的分片
+     */
+    public Set<Integer> ownedShards() {
+        return owned;
+    }
+
+    private void rebalanceQuietly() {
+        try {
+            rebalance();
+        } catch (Exception e) {
+            // Redis 不可用时不再认为持有任何分片，兜底扫描暂停，由事件路径继续工作
+            owned = Collections.emptySet();
+            log.warn("Review shard rebalance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 心跳、续期、按公平份额释放或获取分片
+     */
+    void rebalance() {
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(NODES_KEY, nodeId, now);
+        redisTemplate.opsForZSet().removeRangeByScore(NODES_KEY, Double.NEGATIVE_INFINITY, now - leaseTtl.toMillis());
+        Long live = redisTemplate.opsForZSet().zCard(NODES_KEY);
+        int fairShare = (int) Math.ceil((double) shards / Math.max(1, live == null ? 1 : live));
+
+        TreeSet<Integer> held = new TreeSet<>();
+        for (int shard : owned) {
+            if (renew(shard)) {
+                held.add(shard);
+            }
+        }
+        while (held.size() > fairShare) {
+            int extra = held.pollLast();
+            release(extra);
+        }
+        if (held.size() < fairShare) {
+            // 从节点相关的位置开始找空闲分片，减少多个节点同时争抢同一分片
+            int start = Math.floorMod(nodeId.hashCode(), shards);
+            for (int i = 0; i < shards && held.size() < fairShare; i++) {
+                int shard = (start + i) % shards;
+                if (!held.contains(shard) && acquire(shard)) {
+                    held.add(shard);
+                }
+            }
+        }
+        if (!held.equals(owned)) {
+            log.info("Review shards on {} now {} ({} live nodes)", nodeId, held, live);
+        }
+        owned = Collections.unmodifiableSet(held);
+    }
+
+    private boolean acquire(int shard) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(SHARD_KEY_PREFIX + shard, nodeId, leaseTtl));
+    }
+
+    private boolean renew(int shard) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(SHARD_KEY_PREFIX + shard),
+            nodeId, String.valueOf(leaseTtl.toMillis()));
+        return renewed != null && renewed == 1;
+    }
+
+    private void release(int shard) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(SHARD_KEY_PREFIX + shard), nodeId);
+    }
+}
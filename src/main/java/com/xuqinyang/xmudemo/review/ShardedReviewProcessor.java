@@ -0,0 +1,124 @@
+package com.xuqinyang.xmudemo.review;
+
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.service.CacheService;
+import com.xuqinyang.xmudemo.service.LeaderboardService;
+import com.xuqinyang.xmudemo.service.UserNotificationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 按分片批量执行系统预审
+ * 每块在一个事务中：SELECT ... FOR UPDATE SKIP LOCKED 认领最多 chunk-size 条到期申请 ->
+ * 批量条件 UPDATE（仍为 SYSTEM_REVIEWING 才改为 ADMIN_REVIEWING）-> 提交。
+ * 被其他节点或事件消费者锁住的行直接跳过，同一申请不会被处理两次。
+ *
+ * 每块提交后与单条预审一样逐条清申请缓存、同步排行榜，并清一次待审核计数缓存；
+ * 这些步骤失败只记录日志，不影响已提交的预审。
+ */
+@Component
+@Slf4j
+public class ShardedReviewProcessor {
+
+    public static final String PRE_REVIEW_COMMENT = "系统预审核通过，等待人工审核";
+
+    private static final String CLAIM_SQL =
+        "SELECT id, activity_id, total_score FROM application WHERE status = 'SYSTEM_REVIEWING' " +
+        "AND (submitted_at IS NULL OR submitted_at < ?) AND MOD(id, ?) = ? " +
+        "ORDER BY submitted_at LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String REVIEW_SQL =
+        "UPDATE application SET status = 'ADMIN_REVIEWING', system_review_comment = ?, system_reviewed_at = ?, " +
+        "last_update_date = ?, version = COALESCE(version, 0) + 1 WHERE id = ? AND status = 'SYSTEM_REVIEWING'";
+
+    /**
+     * 认领到的申请，提交后用于清缓存和同步排行榜
+     */
+    private record Claimed(Long id, Long activityId, Double totalScore) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheService cacheService;
+    private final LeaderboardService leaderboardService;
+    private final UserNotificationService userNotificationService;
+    private final int chunkSize;
+
+    public ShardedReviewProcessor(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  CacheService cacheService,
+                                  LeaderboardService leaderboardService,
+                                  UserNotificationService userNotificationService,
+                                  @Value("${app.review.chunk-size:50}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheService = cacheService;
+        this.leaderboardService = leaderboardService;
+        this.userNotificationService = userNotificationService;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * 处理一个分片中提交时间早于 cutoff 的申请，直到没有可认领的或达到 limit
+     *
+     * @return 完成预审的数量
+     */
+    public int reviewShard(int shard, int shards, LocalDateTime cutoff, int limit) {
+        int reviewed = 0;
+        while (reviewed < limit) {
+            int want = Math.min(chunkSize, limit - reviewed);
+            List<Claimed> done = transactionTemplate.execute(status -> reviewChunk(shard, shards, cutoff, want));
+            int n = done != null ? done.size() : 0;
+            if (n > 0) {
+                afterCommit(done);
+            }
+            reviewed += n;
+            if (n < want) {
+                break;
+            }
+        }
+        return reviewed;
+    }
+
+    private List<Claimed> reviewChunk(int shard, int shards, LocalDateTime cutoff, int want) {
+        List<Claimed> claimed = jdbcTemplate.query(CLAIM_SQL,
+            (rs, i) -> new Claimed(rs.getLong("id"), rs.getObject("activity_id", Long.class), rs.getObject("total_score", Double.class)),
+            Timestamp.valueOf(cutoff), shards, shard, want);
+        if (claimed.isEmpty()) {
+            return claimed;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // 认领的行已加锁且状态已校验，条件 UPDATE 必然命中；条件只是防御直接改库等意外情况
+        jdbcTemplate.batchUpdate(REVIEW_SQL, claimed, claimed.size(), (ps, app) -> {
+            ps.setString(1, PRE_REVIEW_COMMENT);
+            ps.setTimestamp(2, now);
+            ps.setTimestamp(3, now);
+            ps.setLong(4, app.id());
+        });
+        log.debug("Pre-reviewed {} applications in shard {}", claimed.size(), shard);
+        return claimed;
+    }
+
+    private void afterCommit(List<Claimed> reviewed) {
+        for (Claimed app : reviewed) {
+            try {
+                cacheService.evictApplication(app.id());
+            } catch (Exception e) {
+                log.warn("Failed to evict cache for application {}: {}", app.id(), e.getMessage());
+            }
+            try {
+                leaderboardService.onApplicationChanged(app.id(), app.activityId(), ApplicationStatus.ADMIN_REVIEWING, app.totalScore());
+            } catch (Exception e) {
+                log.warn("Failed to sync leaderboard for application {}: {}", app.id(), e.getMessage());
+            }
+        }
+        userNotificationService.evictAllPendingReviewCache();
+    }
+}
@@ -0,0 +1,206 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * 计算详情回写
+ * 将评分结果写入申请内容的 calculatedRaw / calculatedScores，其余内容流式原样复制。
+ * 输出与“读成树 -> with(..).put(..) -> 序列化”完全一致：已有字段保持原位置，新增字段追加在末尾；
+ * 若 calculatedRaw 或 calculatedScores 已存在但不是对象，则保持内容不变。
+ */
+public final class ContentScoreWriter {
+
+    private static final String RAW = "calculatedRaw";
+    private static final String SCORES = "calculatedScores";
+
+    private ContentScoreWriter() {
+    }
+
+    /**
+     * 返回写入计算详情后的内容；内容不是合法JSON时原样返回
+     */
+    public static String write(String content, ScoreCard card) {
+        if (!card.contentValid()) return content;
+        if (content == null) return freshObject(card);
+        try {
+            return writeStrict(content, card);
+        } catch (IOException | RuntimeException strictFailure) {
+            // 包含重复字段等情况：先规范化再写
+            String normalized = ScoringInputReader.normalize(content);
+            if (normalized == null) return content;
+            try {
+                return writeStrict(normalized, card);
+            } catch (IOException | RuntimeException e) {
+                return content;
+            }
+        }
+    }
+
+    private static String writeStrict(String content, ScoreCard card) throws IOException {
+        StringWriter out = new StringWriter(content.length() + 640);
+        try (JsonParser p = ScoringInputReader.STRICT_MAPPER.createParser(content);
+             JsonGenerator g = ScoringInputReader.MAPPER.createGenerator(out)) {
+            JsonToken t = p.nextToken();
+            if (t != JsonToken.START_OBJECT) {
+                // 根节点不是对象：校验后以新对象替换
+                if (t != null) p.skipChildren();
+                return freshObject(card);
+            }
+            boolean rawSeen = false, scoresSeen = false;
+            g.writeStartObject();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken value = p.nextToken();
+                if (RAW.equals(name) || SCORES.equals(name)) {
+                    if (value != JsonToken.START_OBJECT) return content; // 与 ObjectNode.with(..) 抛异常时的行为一致
+                    ObjectNode existing = p.readValueAsTree();
+                    if (RAW.equals(name)) { putRaw(existing, card); rawSeen = true; }
+                    else { putScores(existing, card); scoresSeen = true; }
+                    g.writeFieldName(name);
+                    g.writeTree(existing);
+                } else {
+                    g.writeFieldName(name);
+                    copyValue(p, g);
+                }
+            }
+            if (!rawSeen) {
+                g.writeFieldName(RAW);
+                writeRaw(g, card);
+            }
+            if (!scoresSeen) {
+                g.writeFieldName(SCORES);
+                writeScores(g, card);
+            }
+            g.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    private static String freshObject(ScoreCard card) {
+        StringWriter out = new StringWriter(640);
+        try (JsonGenerator g = ScoringInputReader.MAPPER.createGenerator(out)) {
+            g.writeStartObject();
+            g.writeFieldName(RAW);
+            writeRaw(g, card);
+            g.writeFieldName(SCORES);
+            writeScores(g, card);
+            g.writeEndObject();
+        } catch (IOException e) {
+            throw new IllegalStateException("写入计算详情失败: " + e.getMessage(), e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * 复制当前值；数字按 JsonNode 的节点类型重新输出，保证与树序列化结果一致
+     */
+    private static void copyValue(JsonParser p, JsonGenerator g) throws IOException {
+        switch (p.currentToken()) {
+            case START_OBJECT -> {
+                g.writeStartObject();
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    g.writeFieldName(p.currentName());
+                    p.nextToken();
+                    copyValue(p, g);
+                }
+                g.writeEndObject();
+            }
+            case START_ARRAY -> {
+                g.writeStartArray();
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    copyValue(p, g);
+                }
+                g.writeEndArray();
+            }
+            case VALUE_STRING -> g.writeString(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            case VALUE_NUMBER_INT -> {
+                switch (p.getNumberType()) {
+                    case INT -> g.writeNumber(p.getIntValue());
+                    case LONG -> g.writeNumber(p.getLongValue());
+                    default -> g.writeNumber(p.getBigIntegerValue());
+                }
+            }
+            case VALUE_NUMBER_FLOAT -> g.writeNumber(p.getDoubleValue());
+            case VALUE_TRUE -> g.writeBoolean(true);
+            case VALUE_FALSE -> g.writeBoolean(false);
+            case VALUE_NULL -> g.writeNull();
+            default -> throw new IllegalStateException("Unexpected token: " + p.currentToken());
+        }
+    }
+
+    private static void putRaw(ObjectNode raw, ScoreCard c) {
+        raw.put("publicationScore", c.publicationScore());
+        raw.put("patentScore", c.patentScore());
+        raw.put("competitionScore", c.competitionScore());
+        raw.put("innovationScore", c.innovationScore());
+        raw.put("specRaw", c.specRaw());
+        raw.put("volunteerHoursScore", c.volunteerHoursScore());
+        raw.put("volunteerAwardScore", c.volunteerAwardScore());
+        raw.put("volunteerScore", c.volunteerScore());
+        raw.put("honorScore", c.honorScore());
+        raw.put("socialScore", c.socialScore());
+        raw.put("sportsScore", c.sportsScore());
+        raw.put("perfRaw", c.perfRaw());
+        raw.put("internshipScore", c.internshipScore());
+        raw.put("militaryScore", c.militaryScore());
+        if (c.academicRankScore() != null) raw.put("academicRankScore", c.academicRankScore());
+        if (c.academicGpaScore() != null) raw.put("academicGpaScore", c.academicGpaScore());
+        if (c.academicConvertedScore() != null) raw.put("academicConvertedScore", c.academicConvertedScore());
+        raw.put("academicBaseUsed", c.academicBase());
+        // 未提供百分制成绩且之前也没有时，按学业分反推估算值
+        if (!raw.has("academicConvertedScore")) raw.put("academicConvertedScore", estimatedConverted(c));
+    }
+
+    private static void writeRaw(JsonGenerator g, ScoreCard c) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("publicationScore", c.publicationScore());
+        g.writeNumberField("patentScore", c.patentScore());
+        g.writeNumberField("competitionScore", c.competitionScore());
+        g.writeNumberField("innovationScore", c.innovationScore());
+        g.writeNumberField("specRaw", c.specRaw());
+        g.writeNumberField("volunteerHoursScore", c.volunteerHoursScore());
+        g.writeNumberField("volunteerAwardScore", c.volunteerAwardScore());
+        g.writeNumberField("volunteerScore", c.volunteerScore());
+        g.writeNumberField("honorScore", c.honorScore());
+        g.writeNumberField("socialScore", c.socialScore());
+        g.writeNumberField("sportsScore", c.sportsScore());
+        g.writeNumberField("perfRaw", c.perfRaw());
+        g.writeNumberField("internshipScore", c.internshipScore());
+        g.writeNumberField("militaryScore", c.militaryScore());
+        if (c.academicRankScore() != null) g.writeNumberField("academicRankScore", c.academicRankScore());
+        if (c.academicGpaScore() != null) g.writeNumberField("academicGpaScore", c.academicGpaScore());
+        if (c.academicConvertedScore() != null) g.writeNumberField("academicConvertedScore", c.academicConvertedScore());
+        g.writeNumberField("academicBaseUsed", c.academicBase());
+        if (c.academicConvertedScore() == null) g.writeNumberField("academicConvertedScore", estimatedConverted(c));
+        g.writeEndObject();
+    }
+
+    private static double estimatedConverted(ScoreCard c) {
+        double est = c.academicBase() / 0.8;
+        if (est < 0) est = 0;
+        if (est > 100) est = 100;
+        return est;
+    }
+
+    private static void putScores(ObjectNode scores, ScoreCard c) {
+        scores.put("academicScore", c.academicBase());
+        scores.put("academicAchievementScore", c.specRaw());
+        scores.put("performanceScore", c.perfRaw());
+        scores.put("totalScore", c.totalScore());
+    }
+
+    private static void writeScores(JsonGenerator g, ScoreCard c) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("academicScore", c.academicBase());
+        g.writeNumberField("academicAchievementScore", c.specRaw());
+        g.writeNumberField("performanceScore", c.perfRaw());
+        g.writeNumberField("totalScore", c.totalScore());
+        g.writeEndObject();
+    }
+}
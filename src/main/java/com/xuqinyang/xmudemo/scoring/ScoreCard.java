@@ -0,0 +1,42 @@
+package com.xuqinyang.xmudemo.scoring;
+
+/**
+ * 评分结果
+ * 包含各分项明细（写入申请内容的 calculatedRaw）以及最终成绩
+ *
+ * @param contentValid         申请内容是否为合法JSON，非法时不回写计算详情
+ * @param academicRankScore    由排名推导的学业分详情，仅在未提供百分制成绩时存在
+ * @param academicGpaScore     由GPA推导的学业分详情，仅在未提供百分制成绩时存在
+ * @param academicConvertedScore 申请内容中提供的百分制成绩
+ * @param academicBase         学业综合成绩×80%（0-80分）
+ * @param specRaw              学术专长成绩（0-15分）
+ * @param perfRaw              综合表现成绩（0-5分）
+ */
+public record ScoreCard(
+        boolean contentValid,
+        double publicationScore,
+        double patentScore,
+        double competitionScore,
+        double innovationScore,
+        double specRaw,
+        double volunteerHoursScore,
+        double volunteerAwardScore,
+        double volunteerScore,
+        double honorScore,
+        double socialScore,
+        double sportsScore,
+        double perfRaw,
+        double internshipScore,
+        double militaryScore,
+        Double academicRankScore,
+        Double academicGpaScore,
+        Double academicConvertedScore,
+        double academicBase) {
+
+    /**
+     * 推免综合成绩（满分100）
+     */
+    public double totalScore() {
+        return academicBase + specRaw + perfRaw;
+    }
+}
@@ -0,0 +1,275 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import com.xuqinyang.xmudemo.model.User;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 推免成绩计算引擎
+ * 推免综合成绩 = 学业综合成绩×80% + 学术专长成绩(15分) + 综合表现成绩(5分)
+ *
+ * 引擎无状态、线程安全：输入由 {@link ScoringInputReader} 流式提取，规则来自预构建的 {@link ScoringRules}
+ */
+@Component
+public class ScoringEngine {
+
+    private final ScoringRules rules;
+
+    public ScoringEngine() {
+        this(ScoringRules.DEFAULT);
+    }
+
+    public ScoringEngine(ScoringRules rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * 解析申请内容并计算成绩
+     */
+    public ScoreCard score(String content, User user) {
+        return score(ScoringInputReader.read(content), user);
+    }
+
+    public ScoreCard score(ScoringInput in, User user) {
+        ScoringInput.BasicInfo basic = in.basicInfo();
+        double academicBase = academicBase(basic, user); // 学业综合成绩×80% = 0-80分
+        if (!in.valid()) {
+            return new ScoreCard(false, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                    null, null, null, academicBase);
+        }
+
+        // 学业成绩详情：优先换算后成绩，否则由GPA和排名推导
+        Double convertedDetail = basic.converted();
+        Double rankScoreDetail = null, gpaScoreDetail = null;
+        if (convertedDetail == null) {
+            Integer rank = basic.academicRanking(), total = basic.totalStudents();
+            if (rank != null && total != null && total > 0) rankScoreDetail = ((double) (total - rank + 1) / total) * 80.0;
+            if (basic.gpa() != null) gpaScoreDetail = Math.min(basic.gpa() / 4.0, 1.0) * 80.0;
+        }
+
+        // ========== 学术专长成绩 (满分15分) ==========
+        double publicationScore = publicationScore(in.publications());
+        double patentScore = 0.0;
+        for (ScoringInput.Patent pt : in.patents()) {
+            if (pt.hasTitle()) patentScore += rules.patentScore(pt.authorRank(), pt.totalAuthors());
+        }
+        double competitionScore = competitionScore(in.competitions());
+        double innovationScore = 0.0;
+        for (ScoringInput.InnovationProject ip : in.innovationProjects()) {
+            if (!ip.concluded()) continue; // 必须结项
+            innovationScore += rules.innovationScore(ip.level(), ip.role());
+        }
+        if (innovationScore > 2) innovationScore = 2; // 创新创业最多2分
+
+        // 特殊学术专长答辩通过给满分15分，否则累加各项(上限15分)
+        double specRaw = in.defensePassed() ? 15
+                : Math.min(15, publicationScore + patentScore + competitionScore + innovationScore);
+
+        // ========== 综合表现成绩 (满分5分) ==========
+        double volunteerHours = in.volunteerHours();
+        if (in.volunteerSegments() != null) {
+            double effective = 0;
+            for (ScoringInput.VolunteerSegment seg : in.volunteerSegments()) {
+                effective += ("normal".equals(seg.type()) ? seg.hours() : seg.hours() / 2.0); // 大型赛会/支教减半
+            }
+            volunteerHours = effective;
+        }
+        // 工时积分：≥200小时后，每2小时0.05分
+        double hoursScore = 0;
+        if (volunteerHours >= 200) hoursScore = Math.min(1, ((volunteerHours - 200) / 2.0) * 0.05);
+
+        double awardScore = 0;
+        for (ScoringInput.VolunteerAward aw : in.volunteerAwards()) {
+            awardScore = Math.max(awardScore, rules.volunteerAwardScore(aw.level(), aw.role())); // 多个表彰取最高
+        }
+        if (awardScore > 1) awardScore = 1;
+        double volunteerScore = Math.min(1, hoursScore + awardScore);
+
+        // 荣誉称号：同一学年取最高，不同学年累加（上限2分）
+        HashMap<Integer, Double> honorYear = new HashMap<>();
+        for (ScoringInput.Honor h : in.honors()) {
+            honorYear.merge(h.year(), rules.honorScore(h.level(), h.collective()), Math::max);
+        }
+        double honorScore = honorYear.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (honorScore > 2) honorScore = 2;
+
+        // 社会工作：同一学年取最高，不同学年累加（上限2分）
+        HashMap<Integer, Double> swYear = new HashMap<>();
+        for (ScoringInput.SocialWork sw : in.socialWork()) {
+            double val = rules.socialWorkCoefficient(sw.level()) * (sw.rating() / 100.0);
+            swYear.merge(sw.year(), val, Math::max);
+        }
+        double socialScore = swYear.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (socialScore > 2) socialScore = 2;
+
+        // 体育比赛：团队项目按人数平均，个人或二人项目 ÷ 3
+        double sportsScore = 0;
+        for (ScoringInput.Sport sp : in.sports()) {
+            double base = rules.sportsBase(sp.scope(), sp.result());
+            if (sp.team()) {
+                if (sp.teamSize() > 0) base /= sp.teamSize();
+            } else {
+                base /= 3.0;
+            }
+            sportsScore += base;
+        }
+
+        double perfTotal = volunteerScore + honorScore + socialScore + sportsScore;
+
+        // 国际组织实习 (最多1分)
+        double internshipScore = 0;
+        if (in.internshipMonths() != null) {
+            double m = in.internshipMonths();
+            if (m >= 12) internshipScore = 1;
+            else if (m > 6) internshipScore = 0.5;
+        } else {
+            String flag = in.military().toUpperCase(Locale.ROOT);
+            if (flag.contains("FULL") || flag.contains("YEAR")) internshipScore = 1;
+            else if (flag.contains("HALF") || flag.contains("SEMESTER")) internshipScore = 0.5;
+        }
+
+        // 参军入伍服兵役 (最多2分)
+        double militaryScore = 0;
+        if (in.militaryYears() >= 2) militaryScore = 2;
+        else if (in.militaryYears() >= 1) militaryScore = 1;
+
+        perfTotal += internshipScore + militaryScore;
+        if (perfTotal > 5) perfTotal = 5;
+
+        return new ScoreCard(true, publicationScore, patentScore, competitionScore, innovationScore, specRaw,
+                hoursScore, awardScore, volunteerScore, honorScore, socialScore, sportsScore, perfTotal,
+                internshipScore, militaryScore, rankScoreDetail, gpaScoreDetail, convertedDetail, academicBase);
+    }
+
+    /**
+     * 学业综合成绩×80%：用户换算成绩 > 申请内容百分制成绩 > GPA与排名兜底
+     */
+    double academicBase(ScoringInput.BasicInfo basic, User u) {
+        if (u != null && u.getConvertedScore() != null) {
+            return Math.min(80, Math.max(0, u.getConvertedScore() * 0.8));
+        }
+        Double converted = basic.converted();
+        if (converted != null) {
+            return Math.min(80, Math.max(0, Math.min(100, converted)) * 0.8);
+        }
+        Double gpa = u != null ? u.getGpa() : null;
+        Integer rank = u != null ? u.getAcademicRank() : null;
+        Integer total = u != null ? u.getMajorTotal() : null;
+        if (gpa == null || rank == null || total == null) {
+            if (gpa == null) gpa = basic.gpa();
+            if (rank == null) rank = basic.academicRanking();
+            if (total == null) total = basic.totalStudents();
+        }
+        double rankScore = 0;
+        if (rank != null && total != null && total > 0) rankScore = ((double) (total - rank + 1) / total) * 80.0;
+        double gpaScore = 0;
+        if (gpa != null) gpaScore = Math.min(gpa / 4.0, 1.0) * 80.0;
+        double base = (rankScore > 0 && gpaScore > 0) ? (rankScore + gpaScore) / 2.0 : (rankScore > 0 ? rankScore : gpaScore);
+        if (base > 80) base = 80;
+        if (base < 0) base = 0;
+        return base;
+    }
+
+    private double publicationScore(List<ScoringInput.Publication> publications) {
+        int cCount = 0;
+        double score = 0.0;
+        for (ScoringInput.Publication p : publications) {
+            if (!p.hasTitle()) continue;
+            double base;
+            if (rules.isTopJournal(p.journal(), p.title())) {
+                base = rules.topJournalBase();
+            } else if (rules.isCappedPublicationType(p.type())) {
+                base = 0;
+                if (cCount < rules.cappedPublicationLimit()) { // C类最多2篇
+                    base = rules.cappedPublicationBase();
+                    cCount++;
+                }
+            } else {
+                base = rules.publicationBase(p.type());
+            }
+            if (base == 0) continue;
+            score += base * rules.authorRatio(p.totalAuthors(), p.authorRank(), p.coFirst());
+        }
+        return score;
+    }
+
+    /**
+     * 学业竞赛：同一作品只取最高，最多取3项且校外竞赛至多1项
+     */
+    private double competitionScore(List<ScoringInput.Competition> competitions) {
+        int n = competitions.size();
+        if (n == 0) return 0d;
+
+        // 同一作品（workKey相同）只保留基础分最高的一项，分数相同时保留先出现的
+        List<ScoringInput.Competition> reduced = new ArrayList<>(n);
+        double[] reducedBase = new double[n];
+        Map<String, Integer> workIndex = new HashMap<>();
+        for (ScoringInput.Competition c : competitions) {
+            double b = rules.competitionBase(c.level(), c.award());
+            if (c.workKey().isEmpty()) {
+                reducedBase[reduced.size()] = b;
+                reduced.add(c);
+                continue;
+            }
+            Integer idx = workIndex.putIfAbsent(c.workKey(), reduced.size());
+            if (idx == null) {
+                reducedBase[reduced.size()] = b;
+                reduced.add(c);
+            } else if (b > reducedBase[idx]) {
+                reducedBase[idx] = b;
+                reduced.set(idx, c);
+            }
+        }
+
+        // 按规则分配得分，候选项按得分降序（稳定）插入
+        double[] raw = new double[reduced.size()];
+        boolean[] external = new boolean[reduced.size()];
+        int count = 0;
+        for (int i = 0; i < reduced.size(); i++) {
+            double base = reducedBase[i];
+            if (base <= 0) continue;
+            double val = teamShare(reduced.get(i), base);
+            int j = count++;
+            while (j > 0 && Double.compare(raw[j - 1], val) < 0) {
+                raw[j] = raw[j - 1];
+                external[j] = external[j - 1];
+                j--;
+            }
+            raw[j] = val;
+            external[j] = reduced.get(i).external();
+        }
+
+        double sum = 0d;
+        boolean externalUsed = false;
+        int picked = 0;
+        for (int i = 0; i < count && picked < 3; i++) {
+            if (external[i]) {
+                if (externalUsed) continue;
+                externalUsed = true;
+            }
+            sum += raw[i];
+            picked++;
+        }
+        return sum;
+    }
+
+    private double teamShare(ScoringInput.Competition c, double base) {
+        if (!c.team()) return base / 3d; // 个人项目
+        int size = c.totalTeamMembers();
+        int pos = c.teamRank();
+        if (rules.isSpecialCompetition(c.name())) {
+            if (pos == 1) return base / 3d;
+            if (pos == 2 || pos == 3) return base / 4d;
+            if (pos == 4 || pos == 5) return base / 5d;
+            return 0d;
+        }
+        if (size <= 2) return base / 3d;
+        if (size <= 5) return base / size;
+        return (pos >= 1 && pos <= 5) ? base / 5d : 0d;
+    }
+}
@@ -0,0 +1,93 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import java.util.List;
+
+/**
+ * 评分输入
+ * 由 {@link ScoringInputReader} 从申请内容中流式提取，字段均已按 JsonNode 的 asXxx 语义完成类型转换
+ *
+ * @param valid               申请内容是否为合法JSON（非法时学术专长和综合表现均按0分处理）
+ * @param volunteerSegments   志愿服务分段工时，仅当 segments 为非空数组时不为null
+ * @param internshipMonths    国际组织实习月数，仅当字段存在时不为null
+ */
+public record ScoringInput(
+        boolean valid,
+        BasicInfo basicInfo,
+        boolean defensePassed,
+        List<Publication> publications,
+        List<Patent> patents,
+        List<Competition> competitions,
+        List<InnovationProject> innovationProjects,
+        double volunteerHours,
+        List<VolunteerSegment> volunteerSegments,
+        List<VolunteerAward> volunteerAwards,
+        List<Honor> honors,
+        List<SocialWork> socialWork,
+        List<Sport> sports,
+        Double internshipMonths,
+        String military,
+        int militaryYears) {
+
+    public static final ScoringInput EMPTY = new ScoringInput(true, BasicInfo.EMPTY, false,
+            List.of(), List.of(), List.of(), List.of(), 0, null, List.of(),
+            List.of(), List.of(), List.of(), null, "", 0);
+
+    public static final ScoringInput INVALID = new ScoringInput(false, BasicInfo.EMPTY, false,
+            List.of(), List.of(), List.of(), List.of(), 0, null, List.of(),
+            List.of(), List.of(), List.of(), null, "", 0);
+
+    /**
+     * 基本信息中与学业成绩相关的字段，缺失或为null时为null
+     */
+    public record BasicInfo(Double convertedScore, Double percentageScore, Double averageScore100,
+                            Double gpa, Integer academicRanking, Integer totalStudents) {
+        public static final BasicInfo EMPTY = new BasicInfo(null, null, null, null, null, null);
+
+        /**
+         * 换算后百分制成绩，按 convertedScore > percentageScore > averageScore100 的优先级取值
+         */
+        public Double converted() {
+            if (convertedScore != null) return convertedScore;
+            if (percentageScore != null) return percentageScore;
+            return averageScore100;
+        }
+    }
+
+    public record Publication(boolean hasTitle, String type, String journal, String title,
+                              int totalAuthors, int authorRank, boolean coFirst) {
+        static final Publication DEFAULT = new Publication(false, "", "", "", 1, 1, false);
+    }
+
+    public record Patent(boolean hasTitle, int authorRank, int totalAuthors) {
+        static final Patent DEFAULT = new Patent(false, 1, 1);
+    }
+
+    public record Competition(String workKey, String level, String award, String name,
+                              boolean team, boolean external, int totalTeamMembers, int teamRank) {
+        static final Competition DEFAULT = new Competition("", "", "", "", false, false, 0, 0);
+    }
+
+    public record InnovationProject(boolean concluded, String level, String role) {
+        static final InnovationProject DEFAULT = new InnovationProject(false, "", "");
+    }
+
+    public record VolunteerSegment(double hours, String type) {
+        static final VolunteerSegment DEFAULT = new VolunteerSegment(0, "normal");
+    }
+
+    public record VolunteerAward(String level, String role) {
+        static final VolunteerAward DEFAULT = new VolunteerAward("", "PERSONAL");
+    }
+
+    public record Honor(String level, int year, boolean collective) {
+        static final Honor DEFAULT = new Honor("", 0, false);
+    }
+
+    public record SocialWork(String level, double rating, int year) {
+        static final SocialWork DEFAULT = new SocialWork("MEMBER", 0, 0);
+    }
+
+    public record Sport(String scope, String result, boolean team, int teamSize) {
+        static final Sport DEFAULT = new Sport("", "", false, 0);
+    }
+}
@@ -0,0 +1,458 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.io.NumberInput;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 评分输入读取器
+ * 使用流式解析器只提取评分需要的字段，其余内容直接跳过，不构建完整的JSON树。
+ * 字段取值与 JsonNode.path(..).asXxx(..) 的转换语义保持一致；
+ * 遇到重复字段等流式解析无法等价处理的内容时，退回一次树解析并规范化后再读取。
+ */
+public final class ScoringInputReader {
+
+    static final ObjectMapper MAPPER = new ObjectMapper();
+    // 开启重复字段检测：JsonNode 对重复字段是“后者覆盖前者但保留前者位置”，流式读取无法等价处理
+    static final ObjectMapper STRICT_MAPPER = new ObjectMapper(JsonFactory.builder()
+            .enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION)
+            .build());
+
+    @FunctionalInterface
+    private interface ItemReader<T> {
+        T read(JsonParser p) throws IOException;
+    }
+
+    private ScoringInputReader() {
+    }
+
+    public static ScoringInput read(String content) {
+        if (content == null) return ScoringInput.EMPTY;
+        try {
+            return readStrict(content);
+        } catch (IOException | RuntimeException strictFailure) {
+            // 非法JSON或包含重复字段：按原树解析的结果规范化后重读
+            String normalized = normalize(content);
+            if (normalized == null) return ScoringInput.INVALID;
+            try {
+                return readStrict(normalized);
+            } catch (IOException | RuntimeException e) {
+                return ScoringInput.INVALID;
+            }
+        }
+    }
+
+    /**
+     * 使用树解析后重新序列化，得到与 JsonNode 视图一致且无重复字段的内容；非法JSON返回null
+     */
+    static String normalize(String content) {
+        try {
+            return MAPPER.writeValueAsString(MAPPER.readTree(content));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static ScoringInput readStrict(String content) throws IOException {
+        try (JsonParser p = STRICT_MAPPER.createParser(content)) {
+            JsonToken t = p.nextToken();
+            if (t != JsonToken.START_OBJECT) {
+                // 空内容、数组或标量：按空对象处理，但仍需完整校验第一个值
+                if (t != null) p.skipChildren();
+                return ScoringInput.EMPTY;
+            }
+            Builder b = new Builder();
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "basicInfo" -> readBasicInfo(p, b);
+                    case "specialAcademicTalent" -> readTalent(p, b);
+                    case "academicAchievements" -> readAchievements(p, b);
+                    case "comprehensivePerformance" -> readPerformance(p, b);
+                    default -> p.skipChildren();
+                }
+            }
+            return b.build();
+        }
+    }
+
+    // ========== 各区块 ==========
+
+    private static void readBasicInfo(JsonParser p, Builder b) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) { p.skipChildren(); return; }
+        Double converted = null, percentage = null, average = null, gpa = null;
+        Integer ranking = null, total = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            boolean nonNull = t != JsonToken.VALUE_NULL;
+            switch (name) {
+                case "convertedScore" -> converted = nonNull ? asDouble(p, 0) : null;
+                case "percentageScore" -> percentage = nonNull ? asDouble(p, 0) : null;
+                case "averageScore100" -> average = nonNull ? asDouble(p, 0) : null;
+                case "gpa" -> gpa = nonNull ? asDouble(p, 0) : null;
+                case "academicRanking" -> ranking = nonNull ? asInt(p, 0) : null;
+                case "totalStudents" -> total = nonNull ? asInt(p, 0) : null;
+                default -> p.skipChildren();
+            }
+        }
+        b.basicInfo = new ScoringInput.BasicInfo(converted, percentage, average, gpa, ranking, total);
+    }
+
+    private static void readTalent(JsonParser p, Builder b) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) { p.skipChildren(); return; }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            if ("defensePassed".equals(name)) b.defensePassed = asBoolean(p, false);
+            else p.skipChildren();
+        }
+    }
+
+    private static void readAchievements(JsonParser p, Builder b) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) { p.skipChildren(); return; }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "publications" -> b.publications = readItems(p, ScoringInputReader::readPublication, ScoringInput.Publication.DEFAULT, true);
+                case "patents" -> b.patents = readItems(p, ScoringInputReader::readPatent, ScoringInput.Patent.DEFAULT, true);
+                // 竞赛仅接受数组形式
+                case "competitions" -> b.competitions = readItems(p, ScoringInputReader::readCompetition, ScoringInput.Competition.DEFAULT, false);
+                case "innovationProjects" -> b.innovationProjects = readItems(p, ScoringInputReader::readInnovation, ScoringInput.InnovationProject.DEFAULT, true);
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    private static void readPerformance(JsonParser p, Builder b) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) { p.skipChildren(); return; }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "volunteerService" -> readVolunteer(p, b);
+                case "honors" -> b.honors = readItems(p, ScoringInputReader::readHonor, ScoringInput.Honor.DEFAULT, true);
+                case "socialWork" -> b.socialWork = readItems(p, ScoringInputReader::readSocialWork, ScoringInput.SocialWork.DEFAULT, true);
+                case "sports" -> b.sports = readItems(p, ScoringInputReader::readSport, ScoringInput.Sport.DEFAULT, true);
+                case "internshipMonths" -> b.internshipMonths = asDouble(p, 0);
+                case "military" -> b.military = asText(p, "");
+                case "militaryYears" -> b.militaryYears = asInt(p, 0);
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    private static void readVolunteer(JsonParser p, Builder b) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) { p.skipChildren(); return; }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "hours" -> b.volunteerHours = asDouble(p, 0);
+                case "segments" -> {
+                    // 分段工时仅在为非空数组时生效
+                    List<ScoringInput.VolunteerSegment> segments =
+                            readItems(p, ScoringInputReader::readSegment, ScoringInput.VolunteerSegment.DEFAULT, false);
+                    b.volunteerSegments = segments.isEmpty() ? null : segments;
+                }
+                case "awards" -> b.volunteerAwards = readItems(p, ScoringInputReader::readVolunteerAward, ScoringInput.VolunteerAward.DEFAULT, true);
+                default -> p.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * 读取集合：数组逐个元素、对象逐个字段值（与遍历 JsonNode 的行为一致），标量视为空集合。
+     * 非对象元素按所有字段缺失处理。
+     */
+    private static <T> List<T> readItems(JsonParser p, ItemReader<T> reader, T missing, boolean objectAsCollection)
+            throws IOException {
+        JsonToken t = p.currentToken();
+        boolean array = t == JsonToken.START_ARRAY;
+        if (!array && !(objectAsCollection && t == JsonToken.START_OBJECT)) {
+            p.skipChildren();
+            return List.of();
+        }
+        List<T> items = new ArrayList<>();
+        while (true) {
+            JsonToken next = p.nextToken();
+            if (next == JsonToken.END_ARRAY || next == JsonToken.END_OBJECT) break;
+            if (!array) next = p.nextToken(); // 跳过字段名
+            if (next == JsonToken.START_OBJECT) {
+                items.add(reader.read(p));
+            } else {
+                p.skipChildren();
+                items.add(missing);
+            }
+        }
+        return items;
+    }
+
+    // ========== 各条目 ==========
+
+    private static ScoringInput.Publication readPublication(JsonParser p) throws IOException {
+        boolean hasTitle = false, coFirst = false;
+        String type = "", journal = "", title = "";
+        int totalAuthors = 1, authorRank = 1;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (name) {
+                case "title" -> { hasTitle = t != JsonToken.VALUE_NULL; title = asText(p, ""); }
+                case "type" -> type = asText(p, "");
+                case "journal" -> journal = asText(p, "");
+                case "totalAuthors" -> totalAuthors = asInt(p, 1);
+                case "authorRank" -> authorRank = asInt(p, 1);
+                case "isCoFirst" -> coFirst = asBoolean(p, false);
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.Publication(hasTitle, type, journal, title, totalAuthors, authorRank, coFirst);
+    }
+
+    private static ScoringInput.Patent readPatent(JsonParser p) throws IOException {
+        boolean hasTitle = false;
+        int rank = 1, total = 1;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (name) {
+                case "title" -> { hasTitle = t != JsonToken.VALUE_NULL; p.skipChildren(); }
+                case "authorRank" -> rank = asInt(p, 1);
+                case "totalAuthors" -> total = asInt(p, 1);
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.Patent(hasTitle, rank, total);
+    }
+
+    private static ScoringInput.Competition readCompetition(JsonParser p) throws IOException {
+        String workKey = "", level = "", award = "", name = "";
+        boolean team = false, external = false;
+        int members = 0, rank = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "workKey" -> workKey = asText(p, "").trim();
+                case "level" -> level = asText(p, "");
+                case "award" -> award = asText(p, "");
+                case "name" -> name = asText(p, "");
+                case "isTeam" -> team = asBoolean(p, false);
+                case "isExternal" -> external = asBoolean(p, false);
+                case "totalTeamMembers" -> members = asInt(p, 0);
+                case "teamRank" -> rank = asInt(p, 0);
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.Competition(workKey, level, award, name, team, external, members, rank);
+    }
+
+    private static ScoringInput.InnovationProject readInnovation(JsonParser p) throws IOException {
+        boolean concluded = false;
+        String level = "", role = "";
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "status" -> concluded = "已结项".equals(asText(p, ""));
+                case "level" -> level = asText(p, "");
+                case "role" -> role = asText(p, "");
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.InnovationProject(concluded, level, role);
+    }
+
+    private static ScoringInput.VolunteerSegment readSegment(JsonParser p) throws IOException {
+        double hours = 0;
+        String type = "normal";
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "hours" -> hours = asDouble(p, 0);
+                case "type" -> type = asText(p, "normal");
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.VolunteerSegment(hours, type);
+    }
+
+    private static ScoringInput.VolunteerAward readVolunteerAward(JsonParser p) throws IOException {
+        String level = "", role = "PERSONAL";
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "level" -> level = asText(p, "");
+                case "role" -> role = asText(p, "PERSONAL");
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.VolunteerAward(level, role);
+    }
+
+    private static ScoringInput.Honor readHonor(JsonParser p) throws IOException {
+        String level = "";
+        int year = 0;
+        boolean collective = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "level" -> level = asText(p, "");
+                case "year" -> year = asInt(p, 0);
+                case "isCollective" -> collective = asBoolean(p, false);
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.Honor(level, year, collective);
+    }
+
+    private static ScoringInput.SocialWork readSocialWork(JsonParser p) throws IOException {
+        String level = "MEMBER";
+        double rating = 0;
+        int year = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "level" -> level = asText(p, "MEMBER");
+                case "rating" -> rating = asDouble(p, 0);
+                case "year" -> year = asInt(p, 0);
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.SocialWork(level, rating, year);
+    }
+
+    private static ScoringInput.Sport readSport(JsonParser p) throws IOException {
+        String scope = "", result = "";
+        boolean team = false;
+        int size = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            switch (name) {
+                case "scope" -> scope = asText(p, "");
+                case "result" -> result = asText(p, "");
+                case "isTeam" -> team = asBoolean(p, false);
+                case "teamSize" -> size = asInt(p, 0);
+                default -> p.skipChildren();
+            }
+        }
+        return new ScoringInput.Sport(scope, result, team, size);
+    }
+
+    // ========== 与 JsonNode.asXxx 一致的类型转换（消费当前值） ==========
+
+    static String asText(JsonParser p, String def) throws IOException {
+        switch (p.currentToken()) {
+            case START_OBJECT, START_ARRAY -> { p.skipChildren(); return ""; }
+            case VALUE_STRING -> { return p.getText(); }
+            case VALUE_TRUE -> { return "true"; }
+            case VALUE_FALSE -> { return "false"; }
+            case VALUE_NUMBER_INT -> {
+                return switch (p.getNumberType()) {
+                    case INT -> Integer.toString(p.getIntValue());
+                    case LONG -> Long.toString(p.getLongValue());
+                    default -> p.getBigIntegerValue().toString();
+                };
+            }
+            case VALUE_NUMBER_FLOAT -> { return Double.toString(p.getDoubleValue()); }
+            default -> { return def; }
+        }
+    }
+
+    static int asInt(JsonParser p, int def) throws IOException {
+        switch (p.currentToken()) {
+            case START_OBJECT, START_ARRAY -> { p.skipChildren(); return def; }
+            case VALUE_STRING -> { return NumberInput.parseAsInt(p.getText(), def); }
+            case VALUE_TRUE -> { return 1; }
+            case VALUE_FALSE -> { return 0; }
+            case VALUE_NUMBER_INT -> {
+                return switch (p.getNumberType()) {
+                    case INT -> p.getIntValue();
+                    case LONG -> (int) p.getLongValue();
+                    default -> p.getBigIntegerValue().intValue();
+                };
+            }
+            case VALUE_NUMBER_FLOAT -> { return (int) p.getDoubleValue(); }
+            default -> { return def; }
+        }
+    }
+
+    static double asDouble(JsonParser p, double def) throws IOException {
+        switch (p.currentToken()) {
+            case START_OBJECT, START_ARRAY -> { p.skipChildren(); return def; }
+            case VALUE_STRING -> { return NumberInput.parseAsDouble(p.getText(), def); }
+            case VALUE_TRUE -> { return 1.0; }
+            case VALUE_FALSE -> { return 0.0; }
+            case VALUE_NUMBER_INT -> {
+                return switch (p.getNumberType()) {
+                    case INT -> p.getIntValue();
+                    case LONG -> (double) p.getLongValue();
+                    default -> p.getBigIntegerValue().doubleValue();
+                };
+            }
+            case VALUE_NUMBER_FLOAT -> { return p.getDoubleValue(); }
+            default -> { return def; }
+        }
+    }
+
+    static boolean asBoolean(JsonParser p, boolean def) throws IOException {
+        switch (p.currentToken()) {
+            case START_OBJECT, START_ARRAY -> { p.skipChildren(); return def; }
+            case VALUE_STRING -> {
+                String s = p.getText().trim();
+                if ("true".equals(s)) return true;
+                if ("false".equals(s)) return false;
+                return def;
+            }
+            case VALUE_TRUE -> { return true; }
+            case VALUE_FALSE -> { return false; }
+            case VALUE_NUMBER_INT -> {
+                return switch (p.getNumberType()) {
+                    case INT -> p.getIntValue() != 0;
+                    case LONG -> p.getLongValue() != 0L;
+                    default -> def;
+                };
+            }
+            default -> { return def; }
+        }
+    }
+
+    private static final class Builder {
+        ScoringInput.BasicInfo basicInfo = ScoringInput.BasicInfo.EMPTY;
+        boolean defensePassed;
+        List<ScoringInput.Publication> publications = List.of();
+        List<ScoringInput.Patent> patents = List.of();
+        List<ScoringInput.Competition> competitions = List.of();
+        List<ScoringInput.InnovationProject> innovationProjects = List.of();
+        double volunteerHours;
+        List<ScoringInput.VolunteerSegment> volunteerSegments;
+        List<ScoringInput.VolunteerAward> volunteerAwards = List.of();
+        List<ScoringInput.Honor> honors = List.of();
+        List<ScoringInput.SocialWork> socialWork = List.of();
+        List<ScoringInput.Sport> sports = List.of();
+        Double internshipMonths;
+        String military = "";
+        int militaryYears;
+
+        ScoringInput build() {
+            return new ScoringInput(true, basicInfo, defensePassed, publications, patents, competitions,
+                    innovationProjects, volunteerHours, volunteerSegments, volunteerAwards, honors,
+                    socialWork, sports, internshipMonths, military, militaryYears);
+        }
+    }
+}
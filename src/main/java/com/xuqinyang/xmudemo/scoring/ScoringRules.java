@@ -0,0 +1,139 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 推免评分规则表
+ * 所有查表数据在类加载时一次性构建为不可变结构，计算时只做查找不再分配
+ */
+public final class ScoringRules {
+
+    public static final ScoringRules DEFAULT = new ScoringRules();
+
+    // 学业竞赛：级别 -> 奖项 -> 基础分
+    private final Map<String, Map<String, Double>> competitionBase = Map.of(
+            "A+类", Map.of("国家级一等奖及以上", 30d, "国家级二等奖", 15d, "国家级三等奖", 10d, "省级一等奖及以上", 5d, "省级二等奖", 2d),
+            "A类", Map.of("国家级一等奖及以上", 15d, "国家级二等奖", 10d, "国家级三等奖", 5d, "省级一等奖及以上", 2d, "省级二等奖", 1d),
+            "A-类", Map.of("国家级一等奖及以上", 10d, "国家级二等奖", 5d, "国家级三等奖", 2d, "省级一等奖及以上", 1d, "省级二等奖", 0.5d));
+    private final Set<String> specialCompetitionNames = Set.of("中国国际大学生创新大赛", "挑战杯");
+
+    // 论文：类型 -> 基础分（C类单独限量）
+    private final Map<String, Double> publicationBase = Map.of(
+            "A类", 10d, "B类", 6d, "高水平中文", 6d, "信息通信工程", 10d);
+
+    // 体育比赛：级别 -> 名次 -> 基础分
+    private final Map<String, Map<String, Double>> sportsBase = Map.of(
+            "国际级", Map.of("冠军", 8d, "亚军", 6.5d, "季军", 5d, "四至八名", 3.5d),
+            "国家级", Map.of("冠军", 5d, "亚军", 3.5d, "季军", 2d, "四至八名", 1d));
+
+    // 社会工作：职务等级 -> 系数
+    private final Map<String, Double> socialWorkCoefficient = Map.of(
+            "EXEC", 2d, "PRESIDIUM", 1.5d, "HEAD", 1d, "DEPUTY", 0.75d);
+
+    private ScoringRules() {
+    }
+
+    public double competitionBase(String level, String award) {
+        Map<String, Double> awards = competitionBase.get(level);
+        if (awards == null) return 0d;
+        Double base = awards.get(award);
+        return base == null ? 0d : base;
+    }
+
+    public boolean isSpecialCompetition(String name) {
+        for (String special : specialCompetitionNames) {
+            if (name.contains(special)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 顶级期刊（Nature/Science/Cell及子刊）
+     */
+    public boolean isTopJournal(String journal, String title) {
+        String full = (journal + " " + title).toLowerCase();
+        return full.contains("nature") || full.contains("science") ||
+               full.contains("cell ") || full.equals("cell") || journal.equalsIgnoreCase("Cell");
+    }
+
+    public double topJournalBase() {
+        return 20d;
+    }
+
+    public boolean isCappedPublicationType(String type) {
+        return "C类".equals(type);
+    }
+
+    public double cappedPublicationBase() {
+        return 1d;
+    }
+
+    public int cappedPublicationLimit() {
+        return 2;
+    }
+
+    public double publicationBase(String type) {
+        Double base = publicationBase.get(type);
+        return base == null ? 0d : base;
+    }
+
+    /**
+     * 论文作者排名系数
+     */
+    public double authorRatio(int totalAuthors, int authorRank, boolean coFirst) {
+        if (totalAuthors <= 1) return 1;            // 独立作者100%
+        if (coFirst && (authorRank == 1 || authorRank == 2)) return 0.5; // 共同第一各50%
+        if (authorRank == 1) return 0.8;            // 除导师外第一作者80%
+        if (authorRank == 2) return 0.2;            // 除导师外第二作者20%
+        return 0;
+    }
+
+    /**
+     * 专利：仅第一作者计分，独立2分，否则1.6分
+     */
+    public double patentScore(int authorRank, int totalAuthors) {
+        if (authorRank != 1) return 0;
+        return totalAuthors <= 1 ? 2 : 1.6;
+    }
+
+    public double innovationScore(String level, String role) {
+        boolean leader = "组长".equals(role);
+        switch (level) {
+            case "国家级": return leader ? 1 : 0.3;
+            case "省级": return leader ? 0.5 : 0.2;
+            case "校级": return leader ? 0.1 : 0.05;
+            default: return 0;
+        }
+    }
+
+    public double volunteerAwardScore(String level, String role) {
+        double val = 0;
+        if ("国家级".equals(level)) val = 1;
+        else if ("省级".equals(level)) val = 0.5;
+        else if ("校级".equals(level)) val = 0.25;
+        if ("TEAM_MEMBER".equals(role)) val = val / 2; // 队员减半
+        return val;
+    }
+
+    public double honorScore(String level, boolean collective) {
+        double v = 0;
+        if ("国家级".equals(level)) v = 2;
+        else if ("省级".equals(level)) v = 1;
+        else if ("校级".equals(level)) v = 0.2;
+        if (collective) v /= 2; // 集体荣誉减半
+        return v;
+    }
+
+    public double socialWorkCoefficient(String level) {
+        Double coef = socialWorkCoefficient.get(level);
+        return coef == null ? 0.5 : coef; // 委员、班委等
+    }
+
+    public double sportsBase(String scope, String result) {
+        Map<String, Double> results = sportsBase.get(scope);
+        if (results == null) return 0;
+        Double base = results.get(result);
+        return base == null ? 0 : base;
+    }
+}
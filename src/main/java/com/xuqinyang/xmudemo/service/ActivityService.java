@@ -1,6 +1,8 @@
 package com.xuqinyang.xmudemo.service;
 
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
 import com.xuqinyang.xmudemo.model.Activity;
+import com.xuqinyang.xmudemo.outbox.OutboxService;
 import com.xuqinyang.xmudemo.repository.ActivityRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -25,35 +28,29 @@ public class ActivityService {
     private DistributedLockService distributedLockService;
 
     @Autowired
-    private MessageQueueService messageQueueService;
+    private OutboxService outboxService;
 
     @Autowired
     private CacheService cacheService;
 
-    // 尝试从redis获取活动列表，未命中或redis异常时从DB读取并回写缓存
+    // 从redis获取活动列表；未命中时同一时刻只有一个请求查DB并回写，过期后先返回旧值再后台刷新
     public List<Activity> listActive() {
-        Object cached = cacheService.getActivitiesListFromCache("active");
-        if (cached instanceof List) {
-            //noinspection unchecked
-            return (List<Activity>) cached;
-        }
-
-        List<Activity> fromDb = activityRepository.findByIsActiveTrue();
-        // 回写缓存（降级写：失败仅记录）
-        cacheService.putActivitiesListToCache("active", fromDb, 60, TimeUnit.SECONDS);
-        return fromDb;
+        return cacheService.getOrLoadList("active", 60, TimeUnit.SECONDS, activityRepository::findByIsActiveTrue);
     }
 
     public List<Activity> listAll() {
-        Object cached = cacheService.getActivitiesListFromCache("all");
-        if (cached instanceof List) {
-            //noinspection unchecked
-            return (List<Activity>) cached;
-        }
+        return cacheService.getOrLoadList("all", 60, TimeUnit.SECONDS, activityRepository::findAll);
+    }
 
-        List<Activity> fromDb = activityRepository.findAll();
-        cacheService.putActivitiesListToCache("all", fromDb, 60, TimeUnit.SECONDS);
-        return fromDb;
+    /**
+     * 登记活动处理消息（格式同 MessageQueueService.sendActivityProcessMessage）
+     */
+    private void recordEvent(Long activityId, String action) {
+        outboxService.record(RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.ACTIVITY_ROUTING_KEY, Map.of(
+            "activityId", activityId,
+            "action", action,
+            "timestamp", System.currentTimeMillis()
+        ));
     }
 
     public Optional<Activity> find(Long id){
@@ -62,8 +59,10 @@ public class ActivityService {
             return Optional.of((Activity) cached);
         }
 
+        // 查库前取代际：查库期间活动被修改并失效缓存时，这次读到的旧值不回写
+        long generation = cacheService.activityCacheGeneration();
         Optional<Activity> fromDb = activityRepository.findById(id);
-        fromDb.ifPresent(a -> cacheService.putActivityToCache(id, a, 300, TimeUnit.SECONDS));
+        fromDb.ifPresent(a -> cacheService.putActivityToCache(id, a, generation, 300, TimeUnit.SECONDS));
         return fromDb;
     }
 
@@ -79,12 +78,8 @@ public class ActivityService {
                 a.setUpdatedAt(LocalDateTime.now());
                 Activity s = activityRepository.saveAndFlush(a);
                 log.debug("Activity saved (flushed): id={}", s.getId());
-                // 异步发送消息队列通知
-                try {
-                    messageQueueService.sendActivityProcessMessage(s.getId(), "CREATE");
-                } catch (Exception me) {
-                    log.warn("Failed to send activity CREATE message for id {}: {}", s.getId(), me.getMessage());
-                }
+                // 与数据变更同一事务写入发件箱，提交后由中继发送
+                recordEvent(s.getId(), "CREATE");
                 return s;
             }, 15); // 增加重试次数到15次
 
@@ -126,11 +121,8 @@ public class ActivityService {
 
                 Activity s = activityRepository.saveAndFlush(a);
                 log.debug("Activity updated (flushed): id={}", s.getId());
-                try {
-                    messageQueueService.sendActivityProcessMessage(s.getId(), "UPDATE");
-                } catch (Exception me) {
-                    log.warn("Failed to send activity UPDATE message for id {}: {}", s.getId(), me.getMessage());
-                }
+                // 与数据变更同一事务写入发件箱，提交后由中继发送
+                recordEvent(s.getId(), "UPDATE");
                 return s;
             }, 3);
 
@@ -163,11 +155,8 @@ public class ActivityService {
                     activityRepository.deleteById(id);
                     activityRepository.flush();
                     log.debug("Activity deleted and flushed: id={}", id);
-                    try {
-                        messageQueueService.sendActivityProcessMessage(id, "DELETE");
-                    } catch (Exception me) {
-                        log.warn("Failed to send activity DELETE message for id {}: {}", id, me.getMessage());
-                    }
+                    // 与数据变更同一事务写入发件箱，提交后由中继发送
+                    recordEvent(id, "DELETE");
                 } else {
                     log.debug("Delete requested but activity not found: id={}", id);
                 }
@@ -202,11 +191,8 @@ public class ActivityService {
 
                 Activity s = activityRepository.saveAndFlush(a);
                 log.debug("Activity toggled (flushed): id={}, active={}", s.getId(), s.isActive());
-                try {
-                    messageQueueService.sendActivityProcessMessage(s.getId(), "TOGGLE");
-                } catch (Exception me) {
-                    log.warn("Failed to send activity TOGGLE message for id {}: {}", s.getId(), me.getMessage());
-                }
+                // 与数据变更同一事务写入发件箱，提交后由中继发送
+                recordEvent(s.getId(), "TOGGLE");
                 return s;
             }, 3);
 
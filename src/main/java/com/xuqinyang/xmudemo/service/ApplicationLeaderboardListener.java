@@ -0,0 +1,66 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 申请实体监听器：成绩或状态写入数据库后同步排行榜
+ * 在事务提交后才更新，回滚的修改不会进入排行榜
+ */
+@Component
+@Slf4j
+public class ApplicationLeaderboardListener {
+
+    // 监听器随 EntityManagerFactory 创建，延迟获取以避免循环依赖
+    private final ObjectProvider<LeaderboardService> leaderboardService;
+
+    public ApplicationLeaderboardListener(ObjectProvider<LeaderboardService> leaderboardService) {
+        this.leaderboardService = leaderboardService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Application app) {
+        Long activityId = app.getActivity() != null ? app.getActivity().getId() : null;
+        Long id = app.getId();
+        ApplicationStatus status = app.getStatus();
+        Double totalScore = app.getTotalScore();
+        afterCommit(() -> leaderboardService.getObject().onApplicationChanged(id, activityId, status, totalScore));
+    }
+
+    @PostRemove
+    public void onRemoved(Application app) {
+        Long activityId = app.getActivity() != null ? app.getActivity().getId() : null;
+        Long id = app.getId();
+        afterCommit(() -> leaderboardService.getObject().onApplicationRemoved(id, activityId));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    run(action);
+                }
+            });
+        } else {
+            run(action);
+        }
+    }
+
+    private void run(Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.warn("Failed to sync leaderboard: {}", e.getMessage());
+        }
+    }
+}
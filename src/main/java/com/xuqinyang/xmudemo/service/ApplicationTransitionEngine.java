@@ -0,0 +1,183 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.model.ApplicationTransition;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * 申请状态迁移引擎（无分布式锁）
+ * 每次尝试在独立事务中读取申请、校验状态机、在内存中修改，再以
+ * UPDATE ... WHERE id = ? AND status = ? AND version = ? 写回；影响 0 行说明被并发修改，
+ * 短暂退避后重新读取并重试。重新读取后若起始状态已不允许（如另一位审核员已给出结论），直接抛出状态异常。
+ */
+@Service
+@Slf4j
+public class ApplicationTransitionEngine {
+
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final String UPDATE_SQL =
+        "UPDATE application SET status = ?, content = ?, academic_score = ?, achievement_score = ?, performance_score = ?, " +
+        "total_score = ?, submitted_at = ?, system_reviewed_at = ?, system_review_comment = ?, admin_reviewed_at = ?, " +
+        "admin_review_comment = ?, last_update_date = ?, version = COALESCE(version, 0) + 1 " +
+        "WHERE id = ? AND status = ? AND COALESCE(version, -1) = ?";
+
+    private final ApplicationRepository applicationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate attemptTemplate;
+    private final LeaderboardService leaderboardService;
+    private final MeterRegistry meterRegistry;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ApplicationTransitionEngine(ApplicationRepository applicationRepository,
+                                       JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       LeaderboardService leaderboardService,
+                                       MeterRegistry meterRegistry) {
+        this.applicationRepository = applicationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // 每次尝试都开启新事务，保证重试时读到的是最新提交的数据而不是旧快照
+        this.attemptTemplate = new TransactionTemplate(transactionManager);
+        this.attemptTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.leaderboardService = leaderboardService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 执行一次状态迁移
+     *
+     * @param mutation 在读到的申请上做的修改（权限校验、设置状态和审核信息），须把状态改为迁移允许的目标状态；
+     *                 可能因冲突被执行多次，不应有外部副作用
+     * @return 写回后的申请（已脱离持久化上下文，user 和 activity 已加载）
+     */
+    public Application apply(Long id, ApplicationTransition transition, Consumer<Application> mutation) {
+        return apply(id, transition, mutation, app -> { });
+    }
+
+    /**
+     * 执行一次状态迁移，并在写回成功的同一事务内执行 onApplied（如登记发件箱消息），与迁移一起提交或回滚
+     */
+    public Application apply(Long id, ApplicationTransition transition, Consumer<Application> mutation,
+                             Consumer<Application> onApplied) {
+        return apply(id, transition, app -> { }, mutation, onApplied);
+    }
+
+    /**
+     * 执行一次状态迁移，读到申请后先执行 guard（如归属校验），再校验状态机
+     * 无权操作时报权限错误，而不是暴露申请当前所处状态的状态异常
+     */
+    public Application apply(Long id, ApplicationTransition transition, Consumer<Application> guard,
+                             Consumer<Application> mutation, Consumer<Application> onApplied) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Application result = attemptTemplate.execute(status -> attempt(id, transition, guard, mutation, onApplied));
+            if (result != null) {
+                count(transition, "applied");
+                syncLeaderboard(result);
+                return result;
+            }
+            count(transition, "conflict");
+            log.debug("Transition {} on application {} lost a race (attempt {}/{})", transition, id, attempt, MAX_ATTEMPTS);
+            if (attempt < MAX_ATTEMPTS) {
+                backoff(attempt);
+            }
+        }
+        throw new ObjectOptimisticLockingFailureException(Application.class, id);
+    }
+
+    /**
+     * @return 写回成功的申请；版本或状态已被并发修改时返回 null
+     */
+    private Application attempt(Long id, ApplicationTransition transition, Consumer<Application> guard,
+                                Consumer<Application> mutation, Consumer<Application> onApplied) {
+        Application app = applicationRepository.findByIdWithUserAndActivity(id)
+            .orElseThrow(() -> new RuntimeException("Application not found"));
+        // 内存中的修改只通过条件 UPDATE 写回，不能被 JPA 脏检查刷出
+        entityManager.detach(app);
+        guard.accept(app);
+
+        ApplicationStatus from = app.getStatus();
+        if (transition.isNoOp(from)) {
+            // 已处于目标状态：仍执行 mutation 中的权限校验，但不写库
+            mutation.accept(app);
+            return app;
+        }
+        if (!transition.allowsFrom(from)) {
+            count(transition, "rejected");
+            throw new IllegalStateException(transition.rejection());
+        }
+        Long version = app.getVersion();
+
+        mutation.accept(app);
+        if (!transition.allowsTo(app.getStatus())) {
+            throw new IllegalStateException("非法状态迁移: " + transition + " " + from + " -> " + app.getStatus());
+        }
+
+        // 条件 UPDATE 不经过 @PreUpdate，更新时间在这里写入
+        LocalDateTime now = LocalDateTime.now();
+        int updated = jdbcTemplate.update(UPDATE_SQL,
+            app.getStatus().name(), app.getContent(),
+            app.getAcademicScore(), app.getAchievementScore(), app.getPerformanceScore(), app.getTotalScore(),
+            timestamp(app.getSubmittedAt()), timestamp(app.getSystemReviewedAt()), app.getSystemReviewComment(),
+            timestamp(app.getAdminReviewedAt()), app.getAdminReviewComment(), timestamp(now),
+            id, from.name(), version != null ? version : -1L);
+        if (updated == 0) {
+            return null;
+        }
+        app.setVersion(version != null ? version + 1 : 1L);
+        app.setLastUpdateDate(now);
+        onApplied.accept(app);
+        return app;
+    }
+
+    /**
+     * 条件 UPDATE 绕过了实体监听器，这里直接同步排行榜（事务已提交）
+     */
+    private void syncLeaderboard(Application app) {
+        try {
+            Long activityId = app.getActivity() != null ? app.getActivity().getId() : null;
+            leaderboardService.onApplicationChanged(app.getId(), activityId, app.getStatus(), app.getTotalScore());
+        } catch (Exception e) {
+            log.warn("Failed to sync leaderboard for application {}: {}", app.getId(), e.getMessage());
+        }
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    private static void backoff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(5, 20L * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying transition", e);
+        }
+    }
+
+    private void count(ApplicationTransition transition, String result) {
+        Counter.builder("application_transition_total")
+            .tag("transition", transition.name())
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -1,34 +1,112 @@
 package com.xuqinyang.xmudemo.service;
 
-import lombok.RequiredArgsConstructor;
+import com.xuqinyang.xmudemo.cache.CacheEnvelope;
+import com.xuqinyang.xmudemo.cache.NearCache;
+import com.xuqinyang.xmudemo.cache.NearCacheManager;
+import com.xuqinyang.xmudemo.cache.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
+import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * 缓存服务
  * 提供Redis缓存操作和管理
+ *
+ * 活动/应用缓存按命名空间分代：批量失效只需 INCR 代际计数器，不再使用 KEYS 枚举；
+ * 旧代际的键依赖 TTL 自然过期，并由后台 SCAN 提前清理。
+ * 活动、应用列表与统计读取前置进程内 L1（{@link NearCacheManager}），命中时不访问 Redis。
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CacheService {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisTemplate<String, Object> cacheRedisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
     private final CacheManager cacheManager;
-
-    // 缓存键前缀
-    private static final String USER_CACHE_PREFIX = "user:";
-    private static final String APPLICATION_CACHE_PREFIX = "application:";
-    private static final String ACTIVITY_CACHE_PREFIX = "activity:";
-    private static final String STATS_CACHE_PREFIX = "stats:";
+    private final TaskScheduler taskScheduler;
+    private final NearCacheManager nearCacheManager;
+
+    // 统计缓存命名空间（键为 stats:{key}，不分代）
+    static final String STATS_NAMESPACE = "stats";
+
+    // 带代际的缓存命名空间：键为 {namespace}:g{generation}:{suffix}，“全部失效”即递增代际
+    static final String ACTIVITY_NAMESPACE = "activity";
+    static final String APPLICATION_NAMESPACE = "application";
+    static final String GENERATION_KEY_PREFIX = "cache:gen:";
+
+    // 代际未变才写入：KEYS[1] 代际计数器，KEYS[2] 缓存键；ARGV 为加载前的代际、序列化后的值、TTL 毫秒
+    private static final DefaultRedisScript<Long> SET_IF_GENERATION_SCRIPT = new DefaultRedisScript<>(
+        "if (redis.call('get', KEYS[1]) or '0') ~= ARGV[1] then return 0 end " +
+        "redis.call('set', KEYS[2], ARGV[2], 'PX', ARGV[3]) return 1",
+        Long.class);
+    private static final RedisSerializer<Long> SCRIPT_RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    // 旧代际键的后台清理：失效后延迟执行以合并批量审核，每批 SCAN/DEL 的键数
+    private static final Duration SWEEP_DELAY = Duration.ofSeconds(30);
+    private static final int SWEEP_BATCH = 500;
+
+    private final Map<String, AtomicBoolean> sweepPending = new ConcurrentHashMap<>();
+
+    // 未命中合并：跨节点租约键前缀、租约时长、等待其他节点写回时的轮询间隔
+    private static final String LEASE_KEY_PREFIX = "cache:lease:";
+    private static final long LEASE_POLL_MILLIS = 50;
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
+
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Value("${app.cache.single-flight.distributed:false}")
+    private boolean distributedSingleFlight;
+
+    @Value("${app.cache.single-flight.lease:3s}")
+    private Duration singleFlightLease = Duration.ofSeconds(3);
+
+    @Value("${app.cache.stale-while-revalidate:30s}")
+    private Duration staleWhileRevalidate = Duration.ofSeconds(30);
+
+    public CacheService(RedisTemplate<String, Object> redisTemplate,
+                        @Qualifier("cacheRedisTemplate") RedisTemplate<String, Object> cacheRedisTemplate,
+                        StringRedisTemplate stringRedisTemplate,
+                        CacheManager cacheManager,
+                        TaskScheduler taskScheduler,
+                        NearCacheManager nearCacheManager) {
+        this.redisTemplate = redisTemplate;
+        this.cacheRedisTemplate = cacheRedisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheManager = cacheManager;
+        this.taskScheduler = taskScheduler;
+        this.nearCacheManager = nearCacheManager;
+    }
 
     /**
      * 缓存用户信息
@@ -84,32 +162,12 @@ public class CacheService {
 
     /**
      * 清除所有应用缓存 - 用于解决序列化兼容性问题
+     * Redis 侧只递增 application 代际（一次 INCR），旧代际的键由后台 SCAN 清理
      */
     @CacheEvict(value = "applications", allEntries = true)
     public void evictAllApplications() {
-        log.info("Evicting all application caches due to serialization compatibility issues");
-
-        // 也清除Redis中的应用相关缓存
-        try {
-            Set<String> keys = redisTemplate.keys(APPLICATION_CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("Deleted {} application-related Redis keys", keys.size());
-            }
-        } catch (Exception e) {
-            log.warn("Failed to delete application Redis keys: {}", e.getMessage());
-        }
-
-        // 清除应用列表缓存
-        try {
-            Set<String> listKeys = redisTemplate.keys(ACTIVITY_CACHE_PREFIX + "list:applications*");
-            if (listKeys != null && !listKeys.isEmpty()) {
-                redisTemplate.delete(listKeys);
-                log.info("Deleted {} application list Redis keys", listKeys.size());
-            }
-        } catch (Exception e) {
-            log.warn("Failed to delete application list Redis keys: {}", e.getMessage());
-        }
+        log.debug("Evicting all application caches");
+        bumpGenerations(APPLICATION_NAMESPACE);
     }
 
     /**
@@ -129,27 +187,7 @@ public class CacheService {
             log.warn("Failed to clear Spring cache applications: {}", e.getMessage());
         }
 
-        // 清除Redis中以application:开头的所有键
-        try {
-            Set<String> keys = redisTemplate.keys(APPLICATION_CACHE_PREFIX + "*");
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("Deleted {} application-related Redis keys", keys.size());
-            }
-        } catch (Exception e) {
-            log.warn("Failed to delete application Redis keys: {}", e.getMessage());
-        }
-
-        // 清除应用列表缓存
-        try {
-            Set<String> listKeys = redisTemplate.keys(ACTIVITY_CACHE_PREFIX + "list:applications*");
-            if (listKeys != null && !listKeys.isEmpty()) {
-                redisTemplate.delete(listKeys);
-                log.info("Deleted {} application list cache keys", listKeys.size());
-            }
-        } catch (Exception e) {
-            log.warn("Failed to delete application list cache keys: {}", e.getMessage());
-        }
+        bumpGenerations(APPLICATION_NAMESPACE);
     }
 
     /**
@@ -165,13 +203,14 @@ public class CacheService {
      * 可靠地删除单条活动缓存（同时清理 Spring Cache 的 activities 条目）
      */
     public void evictActivity(Long activityId) {
-        String cacheKey = ACTIVITY_CACHE_PREFIX + activityId;
         try {
-            redisTemplate.delete(cacheKey);
+            String cacheKey = versionedKey(ACTIVITY_NAMESPACE, String.valueOf(activityId));
+            cacheRedisTemplate.delete(cacheKey);
             log.debug("Deleted redis activity cache key: {}", cacheKey);
         } catch (Exception e) {
-            log.warn("Failed to delete redis key {}: {}", cacheKey, e.getMessage());
+            log.warn("Failed to delete redis activity cache {}: {}", activityId, e.getMessage());
         }
+        nearCacheManager.evict(ACTIVITY_NAMESPACE, String.valueOf(activityId));
 
         // 也尝试移除 Spring Cache 中对应的条目（cache name = "activities", key = id 或 'all' 等）
         try {
@@ -189,50 +228,225 @@ public class CacheService {
 
     /**
      * 可靠地删除活动列表缓存（清空与活动相关的 list 缓存与 Spring cache）
+     * 活动单条/列表缓存与应用列表缓存都随之失效，Redis 侧为一次流水线 INCR
      */
     public void evictAllActivities() {
-        // 删除 Redis 中以 activity:list: 开头的缓存，以及 activity:<id> 的短期缓存（谨慎）
+        bumpGenerations(ACTIVITY_NAMESPACE, APPLICATION_NAMESPACE);
+
+        // 清理 Spring Cache 'activities' 的所有条目
         try {
-            Set<String> keys = redisTemplate.keys(ACTIVITY_CACHE_PREFIX + "list:*");
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.debug("Deleted redis activity list keys: {}", keys);
+            if (cacheManager != null) {
+                var cache = cacheManager.getCache("activities");
+                if (cache != null) {
+                    cache.clear();
+                    log.debug("Cleared Spring cache 'activities'");
+                }
             }
         } catch (Exception e) {
-            log.warn("Failed to delete activity list keys from redis: {}", e.getMessage());
+            log.warn("Failed to clear Spring cache activities: {}", e.getMessage());
         }
+    }
+
+    /**
+     * 读取命名空间当前代际；计数器不存在视为第 0 代
+     */
+    long currentGeneration(String namespace) {
+        String v = stringRedisTemplate.opsForValue().get(GENERATION_KEY_PREFIX + namespace);
+        return v == null ? 0L : Long.parseLong(v);
+    }
 
-        // 也可以选择清理所有 activity:* 键（谨慎使用）
+    /**
+     * 读取代际，Redis 异常时返回 -1（此后按该代际写入会被跳过）
+     */
+    private long generationQuietly(String namespace) {
         try {
-            Set<String> keysAll = redisTemplate.keys(ACTIVITY_CACHE_PREFIX + "*");
-            if (keysAll != null && !keysAll.isEmpty()) {
-                redisTemplate.delete(keysAll);
-                log.debug("Deleted redis activity keys (all): {}", keysAll);
-            }
+            return currentGeneration(namespace);
         } catch (Exception e) {
-            log.warn("Failed to delete activity keys from redis: {}", e.getMessage());
+            log.debug("Failed to read cache generation {}: {}", namespace, e.getMessage());
+            return -1L;
         }
+    }
 
-        // 清理 Spring Cache 'activities' 的所有条目
+    /**
+     * 活动命名空间当前代际；先取代际再查库，回写时传给
+     * {@link #putActivityToCache(Long, Object, long, long, TimeUnit)}，查库期间发生的失效会让回写作废
+     */
+    public long activityCacheGeneration() {
+        return generationQuietly(ACTIVITY_NAMESPACE);
+    }
+
+    /**
+     * 生成带代际的缓存键：{namespace}:g{generation}:{suffix}
+     */
+    String versionedKey(String namespace, String suffix) {
+        return versionedKey(namespace, currentGeneration(namespace), suffix);
+    }
+
+    private static String versionedKey(String namespace, long generation, String suffix) {
+        return namespace + ":g" + generation + ":" + suffix;
+    }
+
+    /**
+     * 活动列表缓存键；applications 开头的列表（应用列表）归属 application 命名空间
+     */
+    private static String listNamespace(String key) {
+        return key.startsWith("applications") ? APPLICATION_NAMESPACE : ACTIVITY_NAMESPACE;
+    }
+
+    /**
+     * 先查 L1，未命中再读 Redis 并回填；Redis 异常向上抛出，由调用方降级
+     */
+    private Object readThrough(String namespace, String suffix, boolean versioned) {
+        NearCache near = nearCacheManager.getCache(namespace);
+        Object local = near.get(suffix);
+        if (local != null) {
+            return local;
+        }
+        long stamp = near.stamp();
+        String cacheKey = versioned ? versionedKey(namespace, suffix) : namespace + ":" + suffix;
+        Object v = cacheRedisTemplate.opsForValue().get(cacheKey);
+        near.putIfUnchanged(suffix, v, stamp);
+        return v;
+    }
+
+    /**
+     * 写入 Redis 和本节点 L1，并让其他节点丢弃该键的 L1；带代际的键按写入时的当前代际写
+     */
+    private void writeThrough(String namespace, String suffix, boolean versioned, Object value, long timeout, TimeUnit unit) {
+        if (versioned) {
+            writeIfGeneration(namespace, suffix, currentGeneration(namespace), value, timeout, unit);
+            return;
+        }
+        cacheRedisTemplate.opsForValue().set(namespace + ":" + suffix, value, timeout, unit);
+        nearCacheManager.getCache(namespace).put(suffix, value, Duration.ofMillis(unit.toMillis(timeout)));
+        nearCacheManager.evictRemote(namespace, suffix);
+    }
+
+    /**
+     * 仅当命名空间代际仍为 generation 时写入（比较与 SET 在同一个 Lua 脚本内完成）
+     * 调用方在加载数据之前取代际：加载期间发生的失效递增了代际，旧数据不会写进新代际
+     *
+     * @return 是否写入
+     */
+    @SuppressWarnings("unchecked")
+    private boolean writeIfGeneration(String namespace, String suffix, long generation, Object value, long timeout, TimeUnit unit) {
+        if (generation < 0) {
+            return false;
+        }
+        NearCache near = nearCacheManager.getCache(namespace);
+        long stamp = near.stamp();
+        byte[] payload = ((RedisSerializer<Object>) cacheRedisTemplate.getValueSerializer()).serialize(value);
+        Long written = cacheRedisTemplate.execute(SET_IF_GENERATION_SCRIPT, RedisSerializer.byteArray(), SCRIPT_RESULT_SERIALIZER,
+            List.of(GENERATION_KEY_PREFIX + namespace, versionedKey(namespace, generation, suffix)),
+            utf8(generation), payload, utf8(unit.toMillis(timeout)));
+        if (written == null || written == 0) {
+            log.debug("Cache generation of {} moved past {}, dropping write of {}", namespace, generation, suffix);
+            return false;
+        }
+        // 写入后本节点又收到失效时，不再回填 L1
+        if (near.stamp() == stamp) {
+            near.put(suffix, value, Duration.ofMillis(unit.toMillis(timeout)));
+        }
+        nearCacheManager.evictRemote(namespace, suffix);
+        return true;
+    }
+
+    private static byte[] utf8(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 递增命名空间代际，使其下所有缓存键立即失效（不枚举键），并安排一次后台清理
+     */
+    private void bumpGenerations(String... namespaces) {
         try {
-            if (cacheManager != null) {
-                var cache = cacheManager.getCache("activities");
-                if (cache != null) {
-                    cache.clear();
-                    log.debug("Cleared Spring cache 'activities'");
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    for (String namespace : namespaces) {
+                        operations.opsForValue().increment(GENERATION_KEY_PREFIX + namespace);
+                    }
+                    return null;
                 }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to bump cache generation {}: {}", String.join(",", namespaces), e.getMessage());
+            return;
+        }
+        for (String namespace : namespaces) {
+            nearCacheManager.evictPrefix(namespace, "");
+            scheduleSweep(namespace);
+        }
+    }
+
+    /**
+     * 合并短时间内的多次失效，每个命名空间同一时刻最多排队一次清理
+     */
+    private void scheduleSweep(String namespace) {
+        AtomicBoolean pending = sweepPending.computeIfAbsent(namespace, n -> new AtomicBoolean());
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskScheduler.schedule(() -> {
+                pending.set(false);
+                sweepStaleKeys(namespace);
+            }, Instant.now().plus(SWEEP_DELAY));
+        } catch (Exception e) {
+            pending.set(false);
+            log.warn("Failed to schedule cache sweep for {}: {}", namespace, e.getMessage());
+        }
+    }
+
+    /**
+     * 用 SCAN 分批删除命名空间中非当前代际的键（包括升级前不带代际的旧格式键）
+     * 只在后台运行；旧键本身带 TTL，清理只是提前释放内存
+     *
+     * @return 删除的键数量
+     */
+    long sweepStaleKeys(String namespace) {
+        long deleted = 0;
+        try {
+            String current = namespace + ":g" + currentGeneration(namespace) + ":";
+            ScanOptions options = ScanOptions.scanOptions().match(namespace + ":*").count(SWEEP_BATCH).build();
+            List<String> batch = new ArrayList<>(SWEEP_BATCH);
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                while (cursor.hasNext()) {
+                    String key = cursor.next();
+                    if (key.startsWith(current)) {
+                        continue;
+                    }
+                    batch.add(key);
+                    if (batch.size() >= SWEEP_BATCH) {
+                        deleted += deleteBatch(batch);
+                    }
+                }
+            }
+            deleted += deleteBatch(batch);
+            if (deleted > 0) {
+                log.info("Swept {} stale cache keys from namespace {}", deleted, namespace);
             }
         } catch (Exception e) {
-            log.warn("Failed to clear Spring cache activities: {}", e.getMessage());
+            log.warn("Cache sweep for {} failed after {} keys: {}", namespace, deleted, e.getMessage());
+        }
+        return deleted;
+    }
+
+    private long deleteBatch(List<String> batch) {
+        if (batch.isEmpty()) {
+            return 0;
         }
+        Long n = stringRedisTemplate.delete(batch);
+        batch.clear();
+        return n == null ? 0 : n;
     }
 
     /**
      * 缓存统计数据
      */
     public void cacheStats(String key, Object value, long timeout, TimeUnit unit) {
-        String cacheKey = STATS_CACHE_PREFIX + key;
-        redisTemplate.opsForValue().set(cacheKey, value, timeout, unit);
+        writeThrough(STATS_NAMESPACE, key, false, value, timeout, unit);
         log.debug("Cached statistics: {}", key);
     }
 
@@ -240,8 +454,7 @@ public class CacheService {
      * 获取缓存的统计数据
      */
     public Object getStats(String key) {
-        String cacheKey = STATS_CACHE_PREFIX + key;
-        return redisTemplate.opsForValue().get(cacheKey);
+        return readThrough(STATS_NAMESPACE, key, false);
     }
 
     /**
@@ -303,32 +516,6 @@ public class CacheService {
         return redisTemplate.hasKey(cacheKey);
     }
 
-    /**
-     * 缓存限流计数
-     */
-    public void cacheRateLimit(String key, int count, long timeout, TimeUnit unit) {
-        String cacheKey = "rate_limit:" + key;
-        redisTemplate.opsForValue().set(cacheKey, count, timeout, unit);
-        log.debug("Cached rate limit: {}", key);
-    }
-
-    /**
-     * 增加限流计数
-     */
-    public void incrementRateLimit(String key) {
-        String cacheKey = "rate_limit:" + key;
-        redisTemplate.opsForValue().increment(cacheKey);
-    }
-
-    /**
-     * 获取限流计数
-     */
-    public Integer getRateLimitCount(String key) {
-        String cacheKey = "rate_limit:" + key;
-        Object count = redisTemplate.opsForValue().get(cacheKey);
-        return count != null ? (Integer) count : null;
-    }
-
     /**
      * 清除所有缓存
      */
@@ -341,9 +528,8 @@ public class CacheService {
      * 从 Redis 中获取单个活动缓存（安全的降级：Redis 异常或未命中时返回 null）
      */
     public Object getActivityFromCache(Long activityId) {
-        String cacheKey = ACTIVITY_CACHE_PREFIX + activityId;
         try {
-            Object v = redisTemplate.opsForValue().get(cacheKey);
+            Object v = readThrough(ACTIVITY_NAMESPACE, String.valueOf(activityId), true);
             if (v == null) {
                 log.debug("Activity cache miss: {}", activityId);
             } else {
@@ -360,22 +546,34 @@ public class CacheService {
      * 将单个活动写入 Redis（发生异常则记录但不抛出）
      */
     public void putActivityToCache(Long activityId, Object activity, long timeout, TimeUnit unit) {
-        String cacheKey = ACTIVITY_CACHE_PREFIX + activityId;
         try {
-            redisTemplate.opsForValue().set(cacheKey, activity, timeout, unit);
+            writeThrough(ACTIVITY_NAMESPACE, String.valueOf(activityId), true, activity, timeout, unit);
             log.debug("Wrote activity to cache: {}", activityId);
         } catch (Exception e) {
             log.warn("Failed to write activity cache {}, ignoring: {}", activityId, e.getMessage());
         }
     }
 
+    /**
+     * 将查库得到的单个活动写入 Redis；generation 为查库前取得的 {@link #activityCacheGeneration()}，
+     * 期间缓存被失效则放弃写入（异常时记录但不抛出）
+     */
+    public void putActivityToCache(Long activityId, Object activity, long generation, long timeout, TimeUnit unit) {
+        try {
+            if (writeIfGeneration(ACTIVITY_NAMESPACE, String.valueOf(activityId), generation, activity, timeout, unit)) {
+                log.debug("Wrote activity to cache: {}", activityId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to write activity cache {}, ignoring: {}", activityId, e.getMessage());
+        }
+    }
+
     /**
      * 从 Redis 中获取活动列表缓存（key 可为 'active' 或 'all' 等标识），降级为 null
      */
     public Object getActivitiesListFromCache(String key) {
-        String cacheKey = ACTIVITY_CACHE_PREFIX + "list:" + key;
         try {
-            Object v = redisTemplate.opsForValue().get(cacheKey);
+            Object v = unwrap(readThrough(listNamespace(key), "list:" + key, true));
             if (v == null) {
                 log.debug("Activities list cache miss: {}", key);
             } else {
@@ -392,12 +590,164 @@ public class CacheService {
      * 将活动列表写入 Redis（异常时记录但不抛出）
      */
     public void putActivitiesListToCache(String key, Object listObj, long timeout, TimeUnit unit) {
-        String cacheKey = ACTIVITY_CACHE_PREFIX + "list:" + key;
         try {
-            redisTemplate.opsForValue().set(cacheKey, listObj, timeout, unit);
+            writeThrough(listNamespace(key), "list:" + key, true, listObj, timeout, unit);
             log.debug("Wrote activities list to cache: {}", key);
         } catch (Exception e) {
             log.warn("Failed to write activities list cache {}, ignoring: {}", key, e.getMessage());
         }
     }
+
+    /**
+     * 读取活动列表缓存，未命中时合并加载（single-flight）
+     * - 同一节点同一 key 只有一个线程执行 loader，其余线程等待同一结果；
+     * - 开启跨节点合并时，先用短租约抢加载权，抢不到的节点等待其他节点写回；
+     * - 值过了 timeout 但仍在陈旧窗口内时直接返回旧值，并在后台刷新一次。
+     * Redis 异常时退化为直接调用 loader；loader 的异常抛给所有等待者。
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoadList(String key, long timeout, TimeUnit unit, Supplier<T> loader) {
+        String namespace = listNamespace(key);
+        String suffix = "list:" + key;
+        String flightKey = namespace + ":" + suffix;
+        long ttlMillis = unit.toMillis(timeout);
+
+        Object cached = readQuietly(namespace, suffix);
+        if (cached instanceof CacheEnvelope envelope) {
+            if (envelope.isStale(System.currentTimeMillis())) {
+                refreshInBackground(namespace, suffix, flightKey, ttlMillis, loader, envelope.getValue());
+            }
+            return (T) envelope.getValue();
+        }
+        if (cached != null) {
+            // put* 方法直接写入的值，没有新鲜期信息，视为新鲜
+            return (T) cached;
+        }
+        return singleFlight.execute(flightKey, () -> loadOnMiss(namespace, suffix, flightKey, ttlMillis, loader));
+    }
+
+    private <T> T loadOnMiss(String namespace, String suffix, String flightKey, long ttlMillis, Supplier<T> loader) {
+        // 排队期间前一个加载可能刚写回
+        T current = unwrap(readQuietly(namespace, suffix));
+        if (current != null) {
+            return current;
+        }
+        String leaseToken = null;
+        if (distributedSingleFlight) {
+            leaseToken = tryLease(flightKey);
+            if (leaseToken == null) {
+                T loadedElsewhere = awaitOtherNode(namespace, suffix);
+                if (loadedElsewhere != null) {
+                    return loadedElsewhere;
+                }
+                log.debug("Load of {} by another node did not finish within lease, loading locally", flightKey);
+            }
+        }
+        try {
+            long generation = generationQuietly(namespace);
+            T value = loader.get();
+            storeEnvelope(namespace, suffix, generation, value, ttlMillis);
+            return value;
+        } finally {
+            releaseLease(flightKey, leaseToken);
+        }
+    }
+
+    private <T> void refreshInBackground(String namespace, String suffix, String flightKey, long ttlMillis,
+                                         Supplier<T> loader, Object staleValue) {
+        singleFlight.executeAsync(flightKey, () -> {
+            String leaseToken = distributedSingleFlight ? tryLease(flightKey) : "";
+            if (leaseToken == null) {
+                return staleValue; // 其他节点正在刷新
+            }
+            try {
+                long generation = generationQuietly(namespace);
+                T value = loader.get();
+                storeEnvelope(namespace, suffix, generation, value, ttlMillis);
+                log.debug("Refreshed stale cache entry {}", flightKey);
+                return value;
+            } catch (RuntimeException e) {
+                log.warn("Background refresh of {} failed, keeping stale value: {}", flightKey, e.getMessage());
+                return staleValue;
+            } finally {
+                releaseLease(flightKey, leaseToken);
+            }
+        }, task -> taskScheduler.schedule(task, Instant.now()));
+    }
+
+    /**
+     * 写入带新鲜期的值：Redis TTL = 新鲜期 + 陈旧窗口；加载前的代际已被递增时放弃写入
+     */
+    private void storeEnvelope(String namespace, String suffix, long generation, Object value, long ttlMillis) {
+        if (value == null) {
+            return;
+        }
+        try {
+            CacheEnvelope envelope = new CacheEnvelope(value, System.currentTimeMillis() + ttlMillis);
+            writeIfGeneration(namespace, suffix, generation, envelope, ttlMillis + staleWhileRevalidate.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Failed to write cache {}:{}, ignoring: {}", namespace, suffix, e.getMessage());
+        }
+    }
+
+    private Object readQuietly(String namespace, String suffix) {
+        try {
+            return readThrough(namespace, suffix, true);
+        } catch (Exception e) {
+            log.warn("Failed to read cache {}:{}, loading from source: {}", namespace, suffix, e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unwrap(Object cached) {
+        return (T) (cached instanceof CacheEnvelope envelope ? envelope.getValue() : cached);
+    }
+
+    /**
+     * 抢加载租约（SET NX PX），成功返回令牌；Redis 异常时视为抢到，退化为本地加载
+     */
+    private String tryLease(String flightKey) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean ok = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LEASE_KEY_PREFIX + flightKey, token, singleFlightLease);
+            return Boolean.TRUE.equals(ok) ? token : null;
+        } catch (Exception e) {
+            log.debug("Failed to acquire load lease for {}: {}", flightKey, e.getMessage());
+            return token;
+        }
+    }
+
+    private void releaseLease(String flightKey, String token) {
+        if (token == null || token.isEmpty() || !distributedSingleFlight) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT,
+                Collections.singletonList(LEASE_KEY_PREFIX + flightKey), token);
+        } catch (Exception e) {
+            log.debug("Failed to release load lease for {}: {}", flightKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 等待持有租约的节点写回，最长一个租约时长
+     */
+    private <T> T awaitOtherNode(String namespace, String suffix) {
+        long deadline = System.nanoTime() + singleFlightLease.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            T value = unwrap(readQuietly(namespace, suffix));
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
 }
@@ -1,72 +1,200 @@
 package com.xuqinyang.xmudemo.service;
 
-import lombok.RequiredArgsConstructor;
+import com.xuqinyang.xmudemo.lock.KeyedLocalLocks;
+import com.xuqinyang.xmudemo.lock.LockReleaseSignals;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.*;
 
 /**
  * 分布式锁服务
  * 解决高并发场景下的数据一致性问题，支持watch-dog机制和重入锁
+ *
+ * 阻塞加锁（{@link #lock}）是公平的：等待者在 Redis 列表中按到达顺序排队，只有队首能拿到锁；
+ * 释放时通过 pub/sub 通知各节点，等待线程被唤醒后再尝试，不再按固定间隔轮询。
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-public class DistributedLockService {
+public class DistributedLockService implements MessageListener {
 
     private final RedisTemplate<String, Object> redisTemplate;
 
     private static final String LOCK_PREFIX = "lock:";
+    public static final String RELEASE_CHANNEL = "lock:released";
+    private static final long WAITER_HEARTBEAT_MILLIS = 1000; // 等待者最长睡眠间隔，醒来时刷新排队心跳
+    private static final long WAITER_TTL_MILLIS = 3000; // 心跳超时的等待者（如节点宕机）会被移出队列
     private static final long DEFAULT_EXPIRE_TIME = 60; // 增加到60秒过期时间，应对高并发
-    private static final long WATCH_DOG_INTERVAL = 15; // watch-dog续租间隔15秒
+    private static final long WATCH_DOG_INTERVAL = 15; // watch-dog续租间隔上限15秒
+    private static final long WATCH_DOG_TICK_MILLIS = 1000; // 续租循环的检查间隔
+    private static final int RENEW_BATCH_SIZE = 200; // 每次续租脚本最多携带的锁数
 
     // 用于存储锁信息，支持watch-dog
     private final Map<String, LockInfo> activeLocks = new ConcurrentHashMap<>();
     // 用于跟踪重入锁计数
     private final ThreadLocal<Map<String, Integer>> threadLockCounts = ThreadLocal.withInitial(ConcurrentHashMap::new);
-    private final ScheduledExecutorService watchDogExecutor = Executors.newScheduledThreadPool(2);
+    // 每个节点一个续租循环，按到期时间批量续租 activeLocks 中的全部租约
+    private final ScheduledExecutorService watchDogExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "lock-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
 
     // 锁竞争统计，用于动态调整重试策略
     private final Map<String, Integer> lockContentionStats = new ConcurrentHashMap<>();
 
-    // Lua脚本：原子性释放锁
+    // 进程内按 key 排队，只有排到的线程访问 Redis
+    private final KeyedLocalLocks localLocks = new KeyedLocalLocks();
+
+    @Value("${app.lock.local-first:true}")
+    private boolean localFirst = true;
+
+    // 阻塞加锁的总等待上限（本地排队 + Redis 排队）
+    @Value("${app.lock.wait-timeout:5s}")
+    private Duration waitTimeout = Duration.ofSeconds(5);
+
+    // 本节点上等待 Redis 锁的线程，按 key 接收释放通知
+    private final LockReleaseSignals releaseSignals = new LockReleaseSignals();
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary queueDepth;
+    private final Timer renewalLag;
+
+    // Lua脚本：原子性释放锁，并通知等待者
     private static final String UNLOCK_SCRIPT =
         "if redis.call('get', KEYS[1]) == ARGV[1] then " +
-        "    return redis.call('del', KEYS[1]) " +
+        "    redis.call('del', KEYS[1]) " +
+        "    redis.call('publish', '" + RELEASE_CHANNEL + "', KEYS[1]) " +
+        "    return 1 " +
         "else " +
         "    return 0 " +
         "end";
 
-    // Lua脚本：原子性续租锁 - 修复整数转换问题
-    private static final String RENEW_SCRIPT =
-        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
-        "    return redis.call('expire', KEYS[1], tonumber(ARGV[2])) " +
-        "else " +
-        "    return 0 " +
-        "end";
+    // Lua脚本：公平加锁
+    // KEYS: 锁、等待队列（列表）、等待者心跳（有序集合，score 为过期时间）
+    // ARGV: 锁值、锁过期毫秒、心跳超时毫秒、当前时间毫秒
+    // 先清理队首已失联的等待者；锁空闲且自己是队首（或队列为空）时加锁并出队，返回 -1；
+    // 否则入队（已在队中则只刷新心跳），返回当前队列长度
+    private static final String ACQUIRE_SCRIPT =
+        "local now = tonumber(ARGV[4]) " +
+        "while true do " +
+        "    local first = redis.call('lindex', KEYS[2], 0) " +
+        "    if not first then break end " +
+        "    local expiry = redis.call('zscore', KEYS[3], first) " +
+        "    if expiry and tonumber(expiry) >= now then break end " +
+        "    redis.call('lpop', KEYS[2]) " +
+        "    redis.call('zrem', KEYS[3], first) " +
+        "end " +
+        "if redis.call('exists', KEYS[1]) == 0 then " +
+        "    local first = redis.call('lindex', KEYS[2], 0) " +
+        "    if (not first) or first == ARGV[1] then " +
+        "        redis.call('set', KEYS[1], ARGV[1], 'PX', tonumber(ARGV[2])) " +
+        "        if first then " +
+        "            redis.call('lpop', KEYS[2]) " +
+        "            redis.call('zrem', KEYS[3], ARGV[1]) " +
+        "        end " +
+        "        return -1 " +
+        "    end " +
+        "end " +
+        "if not redis.call('zscore', KEYS[3], ARGV[1]) then " +
+        "    redis.call('rpush', KEYS[2], ARGV[1]) " +
+        "end " +
+        "redis.call('zadd', KEYS[3], now + tonumber(ARGV[3]), ARGV[1]) " +
+        "redis.call('pexpire', KEYS[2], tonumber(ARGV[3]) * 2) " +
+        "redis.call('pexpire', KEYS[3], tonumber(ARGV[3]) * 2) " +
+        "return redis.call('llen', KEYS[2])";
+
+    // Lua脚本：等待超时后离开队列；锁空闲时通知下一个等待者，避免它一直睡到心跳间隔
+    private static final String LEAVE_SCRIPT =
+        "redis.call('lrem', KEYS[2], 0, ARGV[1]) " +
+        "redis.call('zrem', KEYS[3], ARGV[1]) " +
+        "if redis.call('exists', KEYS[1]) == 0 and redis.call('llen', KEYS[2]) > 0 then " +
+        "    redis.call('publish', '" + RELEASE_CHANNEL + "', KEYS[1]) " +
+        "end " +
+        "return 1";
+
+    // Lua脚本：批量续租，KEYS[i] 对应 ARGV[2i-1]（锁值）与 ARGV[2i]（租期毫秒），逐个返回 1/0
+    private static final String RENEW_BATCH_SCRIPT =
+        "local renewed = {} " +
+        "for i = 1, #KEYS do " +
+        "    if redis.call('get', KEYS[i]) == ARGV[2 * i - 1] then " +
+        "        redis.call('pexpire', KEYS[i], tonumber(ARGV[2 * i])) " +
+        "        renewed[i] = 1 " +
+        "    else " +
+        "        renewed[i] = 0 " +
+        "    end " +
+        "end " +
+        "return renewed";
 
     private static class LockInfo {
         final String lockKey;
         final String lockValue;
-        final long expireTime;
-        final TimeUnit timeUnit;
+        final long leaseMillis;
+        final long renewIntervalMillis;
         final String threadName;
-        ScheduledFuture<?> watchDogTask;
+        // 下次应续租的时间与本地估计的租约到期时间，只由续租线程更新
+        volatile long renewAt;
+        volatile long expiresAt;
 
         LockInfo(String lockKey, String lockValue, long expireTime, TimeUnit timeUnit, String threadName) {
             this.lockKey = lockKey;
             this.lockValue = lockValue;
-            this.expireTime = expireTime;
-            this.timeUnit = timeUnit;
+            this.leaseMillis = timeUnit.toMillis(expireTime);
+            this.renewIntervalMillis = Math.max(WATCH_DOG_TICK_MILLIS,
+                Math.min(TimeUnit.SECONDS.toMillis(WATCH_DOG_INTERVAL), leaseMillis / 3));
             this.threadName = threadName;
+            long now = System.currentTimeMillis();
+            this.renewAt = now + renewIntervalMillis;
+            this.expiresAt = now + leaseMillis;
         }
     }
 
+    public DistributedLockService(RedisTemplate<String, Object> redisTemplate, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.queueDepth = DistributionSummary.builder("distributed_lock_queue_depth")
+            .description("Redis waiter queue length observed when a thread starts waiting for a lock")
+            .register(meterRegistry);
+        Gauge.builder("distributed_lock_waiting_threads", releaseSignals, LockReleaseSignals::waiting)
+            .description("Threads on this node currently waiting for a Redis lock")
+            .register(meterRegistry);
+        this.renewalLag = Timer.builder("distributed_lock_renewal_lag")
+            .description("Delay between a lease becoming due for renewal and the renewal completing")
+            .register(meterRegistry);
+        Gauge.builder("distributed_lock_lease_headroom_seconds", this, DistributedLockService::minLeaseHeadroomSeconds)
+            .description("Smallest remaining lease time among locks held by this node; alert well above zero")
+            .register(meterRegistry);
+        Gauge.builder("distributed_lock_held", activeLocks, Map::size)
+            .description("Locks held by this node with watch-dog renewal")
+            .register(meterRegistry);
+        watchDogExecutor.scheduleWithFixedDelay(this::renewDueLeases,
+            WATCH_DOG_TICK_MILLIS, WATCH_DOG_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchDogExecutor.shutdownNow();
+    }
+
     /**
      * 尝试获取分布式锁（支持watch-dog和重入锁）
      */
@@ -75,6 +203,27 @@ public class DistributedLockService {
         String currentThreadName = Thread.currentThread().getName();
 
         // 检查是否为重入锁
+        if (reenter(lockKey, currentThreadName)) {
+            return true;
+        }
+
+        String lockValue = currentThreadName + ":" + System.currentTimeMillis();
+        Boolean success = redisTemplate.opsForValue().setIfAbsent(lockKey, lockValue, expireTime, timeUnit);
+
+        if (Boolean.TRUE.equals(success)) {
+            log.debug("Acquired distributed lock: {}", lockKey);
+            registerAcquired(lockKey, lockValue, expireTime, timeUnit, currentThreadName, enableWatchDog);
+            return true;
+        } else {
+            log.debug("Failed to acquire distributed lock: {}", lockKey);
+            return false;
+        }
+    }
+
+    /**
+     * 当前线程已持有该锁时增加重入计数
+     */
+    private boolean reenter(String lockKey, String currentThreadName) {
         Map<String, Integer> lockCounts = threadLockCounts.get();
         Integer currentCount = lockCounts.get(lockKey);
 
@@ -87,26 +236,17 @@ public class DistributedLockService {
                 return true;
             }
         }
+        return false;
+    }
 
-        String lockValue = currentThreadName + ":" + System.currentTimeMillis();
-        Boolean success = redisTemplate.opsForValue().setIfAbsent(lockKey, lockValue, expireTime, timeUnit);
-
-        if (Boolean.TRUE.equals(success)) {
-            log.debug("Acquired distributed lock: {}", lockKey);
-
-            // 记录锁计数
-            lockCounts.put(lockKey, 1);
-
-            if (enableWatchDog) {
-                LockInfo lockInfo = new LockInfo(lockKey, lockValue, expireTime, timeUnit, currentThreadName);
-                activeLocks.put(lockKey, lockInfo);
-                startWatchDog(lockInfo);
-            }
+    private void registerAcquired(String lockKey, String lockValue, long expireTime, TimeUnit timeUnit,
+                                  String currentThreadName, boolean enableWatchDog) {
+        // 记录锁计数
+        threadLockCounts.get().put(lockKey, 1);
 
-            return true;
-        } else {
-            log.debug("Failed to acquire distributed lock: {}", lockKey);
-            return false;
+        if (enableWatchDog) {
+            LockInfo lockInfo = new LockInfo(lockKey, lockValue, expireTime, timeUnit, currentThreadName);
+            activeLocks.put(lockKey, lockInfo);
         }
     }
 
@@ -125,59 +265,166 @@ public class DistributedLockService {
     }
 
     /**
-     * 启动watch-dog定时续租 - 改进错误处理
+     * 公平地阻塞获取分布式锁（启用watch-dog）
+     * 锁被占用时在 Redis 等待队列中排队，按到达顺序授予；等待期间由释放通知唤醒，
+     * 最长每 {@value #WAITER_HEARTBEAT_MILLIS}ms 醒来一次刷新心跳（也用于发现过期而未通知的锁）。
+     *
+     * @param waitMillis 最长等待时间，超时后离开队列并返回 false
      */
-    private void startWatchDog(LockInfo lockInfo) {
-        long intervalSeconds = Math.min(WATCH_DOG_INTERVAL, lockInfo.timeUnit.toSeconds(lockInfo.expireTime) / 3);
+    public boolean lock(String key, long expireTime, TimeUnit timeUnit, long waitMillis) throws InterruptedException {
+        String lockKey = LOCK_PREFIX + key;
+        String currentThreadName = Thread.currentThread().getName();
+        if (reenter(lockKey, currentThreadName)) {
+            return true;
+        }
 
-        lockInfo.watchDogTask = watchDogExecutor.scheduleAtFixedRate(() -> {
-            try {
-                // 检查锁是否仍在活跃映射中
-                if (!activeLocks.containsKey(lockInfo.lockKey)) {
-                    log.debug("Lock no longer active, stopping watch-dog: {}", lockInfo.lockKey);
-                    if (lockInfo.watchDogTask != null) {
-                        lockInfo.watchDogTask.cancel(false);
-                    }
-                    return;
-                }
+        String lockValue = currentThreadName + ":" + UUID.randomUUID();
+        List<String> keys = Arrays.asList(lockKey, lockKey + ":queue", lockKey + ":waiters");
+        DefaultRedisScript<Long> acquire = new DefaultRedisScript<>(ACQUIRE_SCRIPT, Long.class);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        boolean queued = false;
 
-                if (renewLock(lockInfo)) {
-                    log.debug("Watch-dog renewed lock: {}", lockInfo.lockKey);
-                } else {
-                    log.warn("Watch-dog failed to renew lock: {}, removing from active locks", lockInfo.lockKey);
-                    activeLocks.remove(lockInfo.lockKey);
-                    if (lockInfo.watchDogTask != null) {
-                        lockInfo.watchDogTask.cancel(false);
-                    }
+        LockReleaseSignals.Signal signal = releaseSignals.register(lockKey);
+        try {
+            while (true) {
+                long seen = signal.sequence();
+                Long result = redisTemplate.execute(acquire, keys,
+                    lockValue, timeUnit.toMillis(expireTime), WAITER_TTL_MILLIS, System.currentTimeMillis());
+                if (result != null && result == -1) {
+                    recordWait(start, "acquired");
+                    log.debug("Acquired distributed lock: {} (waited {}ms)", lockKey,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    registerAcquired(lockKey, lockValue, expireTime, timeUnit, currentThreadName, true);
+                    return true;
                 }
-            } catch (Exception e) {
-                log.error("Watch-dog error for lock: {}", lockInfo.lockKey, e);
-                // 出错时也移除锁，避免泄漏
-                activeLocks.remove(lockInfo.lockKey);
-                if (lockInfo.watchDogTask != null) {
-                    lockInfo.watchDogTask.cancel(false);
+                if (!queued && result != null) {
+                    queued = true;
+                    queueDepth.record(result);
+                    log.debug("Queued for distributed lock: {}, queue length: {}", lockKey, result);
                 }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    break;
+                }
+                signal.awaitAfter(seen, Math.min(remaining, WAITER_HEARTBEAT_MILLIS));
             }
-        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException | RuntimeException e) {
+            leaveQueue(keys, lockValue);
+            recordWait(start, "failed");
+            throw e;
+        } finally {
+            releaseSignals.unregister(lockKey, signal);
+        }
+
+        leaveQueue(keys, lockValue);
+        recordWait(start, "timeout");
+        log.debug("Timed out waiting for distributed lock: {}", lockKey);
+        return false;
+    }
+
+    private void leaveQueue(List<String> keys, String lockValue) {
+        try {
+            redisTemplate.execute(new DefaultRedisScript<>(LEAVE_SCRIPT, Long.class), keys, lockValue);
+        } catch (Exception e) {
+            // 离队失败时由心跳超时清理
+            log.warn("Failed to leave lock queue: {}", keys.get(0), e);
+        }
+    }
+
+    private void recordWait(long startNanos, String result) {
+        Timer.builder("distributed_lock_wait_duration")
+            .description("Time spent waiting for a distributed lock")
+            .tag("result", result)
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 
     /**
-     * 续租锁 - 改进错误处理
+     * 收到锁释放通知，唤醒本节点上等待该锁的线程
      */
-    private boolean renewLock(LockInfo lockInfo) {
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        releaseSignals.signal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void publishRelease(String lockKey) {
         try {
-            DefaultRedisScript<Long> script = new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
-            Long result = redisTemplate.execute(script,
-                Collections.singletonList(lockInfo.lockKey),
-                lockInfo.lockValue,
-                lockInfo.timeUnit.toSeconds(lockInfo.expireTime)); // 直接传递Long类型，避免序列化问题
-            return result != null && result == 1;
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.publish(RELEASE_CHANNEL.getBytes(StandardCharsets.UTF_8), lockKey.getBytes(StandardCharsets.UTF_8)));
         } catch (Exception e) {
-            log.error("Failed to renew lock: {}", lockInfo.lockKey, e);
-            return false;
+            log.debug("Failed to publish lock release: {}", lockKey, e);
         }
     }
 
+    /**
+     * 续租循环：每个 tick 取出已到续租时间的租约，按批用一个脚本续租
+     * Redis 中锁值已不匹配（过期或被删除）的租约从 activeLocks 移除；
+     * 调用出错时保留租约，下个 tick 重试（租期通常远大于 tick）。
+     */
+    void renewDueLeases() {
+        try {
+            long now = System.currentTimeMillis();
+            List<LockInfo> due = new ArrayList<>();
+            for (LockInfo info : activeLocks.values()) {
+                if (info.renewAt <= now) {
+                    due.add(info);
+                }
+            }
+            for (int from = 0; from < due.size(); from += RENEW_BATCH_SIZE) {
+                renewBatch(due.subList(from, Math.min(due.size(), from + RENEW_BATCH_SIZE)));
+            }
+        } catch (Exception e) {
+            log.error("Watch-dog renewal tick failed", e);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void renewBatch(List<LockInfo> batch) {
+        List<String> keys = new ArrayList<>(batch.size());
+        Object[] args = new Object[batch.size() * 2];
+        for (int i = 0; i < batch.size(); i++) {
+            LockInfo info = batch.get(i);
+            keys.add(info.lockKey);
+            args[2 * i] = info.lockValue;
+            args[2 * i + 1] = info.leaseMillis; // 直接传递Long类型，避免序列化问题
+        }
+
+        long sentAt = System.currentTimeMillis();
+        List<Long> renewed;
+        try {
+            renewed = (List<Long>) redisTemplate.execute(new DefaultRedisScript<>(RENEW_BATCH_SCRIPT, List.class), keys, args);
+        } catch (Exception e) {
+            log.error("Failed to renew {} lock(s), will retry next tick", batch.size(), e);
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < batch.size(); i++) {
+            LockInfo info = batch.get(i);
+            if (renewed != null && i < renewed.size() && renewed.get(i) != null && renewed.get(i) == 1) {
+                renewalLag.record(Math.max(0, now - info.renewAt), TimeUnit.MILLISECONDS);
+                info.expiresAt = sentAt + info.leaseMillis;
+                info.renewAt = now + info.renewIntervalMillis;
+            } else if (activeLocks.remove(info.lockKey, info)) {
+                log.warn("Watch-dog failed to renew lock: {}, removing from active locks", info.lockKey);
+            }
+        }
+        log.debug("Watch-dog renewed {} lock(s) in one call", batch.size());
+    }
+
+    /**
+     * 本节点持有的租约中最小的剩余时间（秒）；没有持有锁时为 NaN
+     */
+    private double minLeaseHeadroomSeconds() {
+        long now = System.currentTimeMillis();
+        long min = Long.MAX_VALUE;
+        for (LockInfo info : activeLocks.values()) {
+            min = Math.min(min, info.expiresAt - now);
+        }
+        return min == Long.MAX_VALUE ? Double.NaN : min / 1000.0;
+    }
+
     /**
      * 释放分布式锁（支持重入锁） - 改进线程安全
      */
@@ -211,11 +458,6 @@ public class DistributedLockService {
                 return;
             }
 
-            // 停止watch-dog
-            if (lockInfo.watchDogTask != null) {
-                lockInfo.watchDogTask.cancel(false);
-            }
-
             // 原子性释放锁
             try {
                 DefaultRedisScript<Long> script = new DefaultRedisScript<>(UNLOCK_SCRIPT, Long.class);
@@ -233,6 +475,7 @@ public class DistributedLockService {
                 // 即使失败也尝试直接删除
                 try {
                     redisTemplate.delete(lockKey);
+                    publishRelease(lockKey);
                 } catch (Exception ex) {
                     log.error("Failed to delete lock key: {}", lockKey, ex);
                 }
@@ -241,6 +484,7 @@ public class DistributedLockService {
             // 简单删除
             try {
                 redisTemplate.delete(lockKey);
+                publishRelease(lockKey);
                 log.debug("Released distributed lock (no watch-dog): {}", lockKey);
             } catch (Exception e) {
                 log.error("Error deleting lock: {}", lockKey, e);
@@ -249,9 +493,40 @@ public class DistributedLockService {
     }
 
     /**
-     * 带锁执行操作（支持乐观锁重试） - 改进重试策略
+     * 带锁执行操作（支持乐观锁重试） - 本地优先
+     * 同一 JVM 内的竞争者先在本地按 key 排队，只有排到的线程去 Redis 公平排队；
+     * 本地与 Redis 的等待共用 app.lock.wait-timeout，maxRetries 只用于乐观锁冲突重试。
      */
     public <T> T executeWithLock(String key, long expireTime, TimeUnit timeUnit, LockCallback<T> callback, int maxRetries) {
+        long deadline = System.currentTimeMillis() + waitTimeout.toMillis();
+        if (!localFirst) {
+            return executeWithRedisLock(key, expireTime, timeUnit, callback, maxRetries, deadline);
+        }
+        long startTime = System.currentTimeMillis();
+        KeyedLocalLocks.Handle local;
+        try {
+            local = localLocks.tryAcquire(key, waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for lock: " + key, ie);
+        }
+        if (local == null) {
+            throw new RuntimeException(String.format(
+                "Failed to execute operation with lock: %s after waiting %dms in local queue - Unable to acquire lock",
+                key, System.currentTimeMillis() - startTime));
+        }
+        try {
+            return executeWithRedisLock(key, expireTime, timeUnit, callback, maxRetries, deadline);
+        } finally {
+            local.close();
+        }
+    }
+
+    /**
+     * 在 Redis 等待队列中排队取锁并执行；乐观锁冲突时释放锁后重新排队
+     */
+    private <T> T executeWithRedisLock(String key, long expireTime, TimeUnit timeUnit, LockCallback<T> callback,
+                                       int maxRetries, long deadline) {
         int attempts = 0;
         Exception lastException = null;
         long startTime = System.currentTimeMillis();
@@ -261,53 +536,43 @@ public class DistributedLockService {
 
             boolean lockAcquired = false;
             try {
-                lockAcquired = tryLock(key, expireTime, timeUnit);
+                lockAcquired = lock(key, expireTime, timeUnit, Math.max(0, deadline - System.currentTimeMillis()));
 
-                if (lockAcquired) {
-                    log.debug("Lock acquired successfully: {} (attempt {}/{})", key, attempts, maxRetries);
-                    try {
-                        T result = callback.execute();
-                        log.debug("Operation completed successfully with lock: {} (total time: {}ms)",
-                            key, System.currentTimeMillis() - startTime);
-                        return result;
-                    } catch (org.springframework.orm.ObjectOptimisticLockingFailureException e) {
-                        lastException = e;
-                        log.warn("Optimistic lock failure for key: {}, attempt {}/{}: {}",
-                            key, attempts, maxRetries, e.getMessage());
-
-                        if (attempts < maxRetries) {
-                            // 乐观锁失败，随机延迟后重试
-                            long delay = 50 + (long)(Math.random() * 100);
-                            log.debug("Retrying after optimistic lock failure, delay: {}ms", delay);
-                            Thread.sleep(delay);
-                        }
-                    } catch (IllegalArgumentException | IllegalStateException e) {
-                        // 业务逻辑异常，不应该重试，直接抛出
-                        log.debug("Business logic exception with lock: {} - {}", key, e.getMessage());
-                        throw e;
-                    } catch (org.springframework.dao.DataIntegrityViolationException e) {
-                        // 数据完整性约束异常，不应该重试
-                        log.debug("Data integrity violation with lock: {} - {}", key, e.getMessage());
-                        throw e;
-                    } catch (Exception e) {
-                        // 其他异常直接抛出，不重试
-                        log.error("Unexpected error during operation with lock: {}", key, e);
-                        throw new RuntimeException("Operation failed with lock: " + key + " - " + e.getMessage(), e);
-                    }
-                } else {
-                    // 获取锁失败
+                if (!lockAcquired) {
                     lastException = new RuntimeException("Failed to acquire distributed lock: " + key);
-                    log.debug("Failed to acquire lock: {} (attempt {}/{})", key, attempts, maxRetries);
+                    log.debug("Timed out waiting for lock: {} (attempt {}/{})", key, attempts, maxRetries);
+                    break;
+                }
 
-                    if (attempts < maxRetries) {
-                        // 改进的退避策略：更短的初始延迟，更快的重试
-                        long baseDelay = Math.min(500, 50 * attempts); // 线性增长，最大500ms
-                        long jitter = (long)(Math.random() * 50); // 随机抖动
-                        long delay = baseDelay + jitter;
+                log.debug("Lock acquired successfully: {} (attempt {}/{})", key, attempts, maxRetries);
+                try {
+                    T result = callback.execute();
+                    log.debug("Operation completed successfully with lock: {} (total time: {}ms)",
+                        key, System.currentTimeMillis() - startTime);
+                    return result;
+                } catch (org.springframework.orm.ObjectOptimisticLockingFailureException e) {
+                    lastException = e;
+                    log.warn("Optimistic lock failure for key: {}, attempt {}/{}: {}",
+                        key, attempts, maxRetries, e.getMessage());
 
-                        log.debug("Retrying lock acquisition for: {}, delay: {}ms", key, delay);
+                    if (attempts < maxRetries) {
+                        // 乐观锁失败，随机延迟后重试
+                        long delay = 50 + (long)(Math.random() * 100);
+                        log.debug("Retrying after optimistic lock failure, delay: {}ms", delay);
                         Thread.sleep(delay);
                     }
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    // 业务逻辑异常，不应该重试，直接抛出
+                    log.debug("Business logic exception with lock: {} - {}", key, e.getMessage());
+                    throw e;
+                } catch (org.springframework.dao.DataIntegrityViolationException e) {
+                    // 数据完整性约束异常，不应该重试
+                    log.debug("Data integrity violation with lock: {} - {}", key, e.getMessage());
+                    throw e;
+                } catch (Exception e) {
+                    // 其他异常直接抛出，不重试
+                    log.error("Unexpected error during operation with lock: {}", key, e);
+                    throw new RuntimeException("Operation failed with lock: " + key + " - " + e.getMessage(), e);
                 }
             } catch (InterruptedException ie) {
                 Thread.currentThread().interrupt();
@@ -324,7 +589,7 @@ public class DistributedLockService {
             }
         }
 
-        // 所有重试都失败了
+        // 等待超时或乐观锁重试用尽
         String errorMsg = String.format("Failed to execute operation with lock: %s after %d attempts (total time: %dms)",
             key, attempts, System.currentTimeMillis() - startTime);
 
@@ -18,6 +18,7 @@ public class DraftService {
     @Autowired private UserRepository userRepository;
     @Autowired private ApplicationRepository applicationRepository;
     @Autowired private DistributedLockService distributedLockService;
+    @Autowired private SystemAutoReviewScheduler systemAutoReviewScheduler;
 
     private User me(){
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -72,6 +73,7 @@ public class DraftService {
             applicationRepository.save(app);
             // delete draft after submit
             draftRepository.delete(draft);
+            systemAutoReviewScheduler.scheduleReview(app.getId());
             return app;
         }, 5);
     }
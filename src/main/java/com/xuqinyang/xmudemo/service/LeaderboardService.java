@@ -0,0 +1,442 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.ranking.ScoreSkipList;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 活动排行榜服务
+ * 每个活动一个 Redis ZSET（member=申请ID，score=总分），在成绩或状态变化提交后增量维护；
+ * Redis 不可用时退化为进程内跳表。名次采用并列排名：名次 = 分数更高的人数 + 1。
+ *
+ * 全量重建期间（从读库快照到替换上线之间）的增量更新同时记入重建日志，替换前在新榜单上重放，不会被快照覆盖。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LeaderboardService {
+
+    private static final String KEY_PREFIX = "leaderboard:activity:";
+    private static final String READY_SUFFIX = ":ready";
+    private static final String REBUILDING_SUFFIX = ":rebuilding";
+    private static final String JOURNAL_SUFFIX = ":journal";
+    private static final long REBUILD_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+    private static final int REBUILD_BATCH = 1000;
+    private static final int VERIFY_SAMPLE = 100;
+    // 移出排名时写入的分数（也记入重建日志）；不用空串，部分 Redis 实现的 Lua hgetall 遇到空值会截断结果
+    private static final String REMOVED = "-";
+
+    /**
+     * 参与排名的状态：已提交且未被驳回/撤销
+     */
+    public static final Set<ApplicationStatus> RANKED_STATUSES = Collections.unmodifiableSet(EnumSet.of(
+        ApplicationStatus.SYSTEM_REVIEWING,
+        ApplicationStatus.SYSTEM_APPROVED,
+        ApplicationStatus.ADMIN_REVIEWING,
+        ApplicationStatus.APPROVED));
+
+    // KEYS[1]=排行榜 KEYS[2]=就绪标记 ARGV[1]=申请ID；返回 {分数, 更高人数, 更低人数, 总人数}，未就绪返回 nil
+    private static final DefaultRedisScript<List> STANDING_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('exists', KEYS[2]) == 0 then return false end " +
+        "local n = redis.call('zcard', KEYS[1]) " +
+        "local s = redis.call('zscore', KEYS[1], ARGV[1]) " +
+        "if not s then return {'', '0', '0', tostring(n)} end " +
+        "return {s, tostring(redis.call('zcount', KEYS[1], '(' .. s, '+inf')), " +
+        "tostring(redis.call('zcount', KEYS[1], '-inf', '(' .. s)), tostring(n)}",
+        List.class);
+
+    // KEYS[1]=排行榜 KEYS[2]=就绪标记 ARGV[1]=起始位置 ARGV[2]=结束位置；返回 {首条之前更高人数, id1, score1, ...}
+    private static final DefaultRedisScript<List> RANGE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('exists', KEYS[2]) == 0 then return false end " +
+        "local r = redis.call('zrevrange', KEYS[1], ARGV[1], ARGV[2], 'WITHSCORES') " +
+        "local greater = 0 " +
+        "if #r > 0 then greater = redis.call('zcount', KEYS[1], '(' .. r[2], '+inf') end " +
+        "table.insert(r, 1, tostring(greater)) " +
+        "return r",
+        List.class);
+
+    // KEYS[1]=排行榜 KEYS[2]=重建日志 KEYS[3]=重建标记 ARGV[1]=申请ID ARGV[2]=分数（'-' 表示移出） ARGV[3]=日志过期毫秒
+    private static final DefaultRedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+        "if ARGV[2] == '-' then redis.call('zrem', KEYS[1], ARGV[1]) " +
+        "else redis.call('zadd', KEYS[1], ARGV[2], ARGV[1]) end " +
+        "if redis.call('exists', KEYS[3]) == 1 then " +
+        "redis.call('hset', KEYS[2], ARGV[1], ARGV[2]) " +
+        "redis.call('pexpire', KEYS[2], ARGV[3]) " +
+        "return 1 end " +
+        "return 0",
+        Long.class);
+
+    // KEYS[1]=新榜单 KEYS[2]=排行榜 KEYS[3]=重建日志 KEYS[4]=重建标记 KEYS[5]=就绪标记 ARGV[1]=本次重建标识
+    // 重放日志后原子替换；标记仍属于本次重建时结束日志（期间又开始的重建继续使用同一日志）
+    private static final DefaultRedisScript<Long> FINISH_REBUILD_SCRIPT = new DefaultRedisScript<>(
+        "local journal = redis.call('hgetall', KEYS[3]) " +
+        "for i = 1, #journal, 2 do " +
+        "if journal[i + 1] == '-' then redis.call('zrem', KEYS[1], journal[i]) " +
+        "else redis.call('zadd', KEYS[1], journal[i + 1], journal[i]) end end " +
+        "if redis.call('exists', KEYS[1]) == 1 then redis.call('rename', KEYS[1], KEYS[2]) " +
+        "else redis.call('del', KEYS[2]) end " +
+        "redis.call('set', KEYS[5], '1') " +
+        "if redis.call('get', KEYS[4]) == ARGV[1] then redis.call('del', KEYS[4], KEYS[3]) end " +
+        "return #journal / 2",
+        Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    // 本地跳表（Redis 不可用时使用）及其加载时间
+    private final Map<Long, ScoreSkipList> localBoards = new ConcurrentHashMap<>();
+    private final Map<Long, Long> localLoadedAt = new ConcurrentHashMap<>();
+    // 本地跳表重建期间的变化（申请ID -> 分数，NaN 表示移出），重建后重放
+    private final Map<Long, Map<Long, Double>> localJournals = new ConcurrentHashMap<>();
+    // Redis 写失败的活动，恢复后读取前先全量重建
+    private final Set<Long> dirtyActivities = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.leaderboard.local-ttl-seconds:300}")
+    private long localTtlSeconds;
+
+    // ========== 增量维护 ==========
+
+    /**
+     * 申请成绩或状态变化后调用（事务提交后）
+     */
+    public void onApplicationChanged(Long applicationId, Long activityId, ApplicationStatus status, Double totalScore) {
+        if (applicationId == null || activityId == null) return;
+        boolean ranked = status != null && RANKED_STATUSES.contains(status);
+        double score = totalScore != null ? totalScore : 0d;
+        try {
+            String key = key(activityId);
+            stringRedisTemplate.execute(UPDATE_SCRIPT, List.of(key, key + JOURNAL_SUFFIX, key + REBUILDING_SUFFIX),
+                applicationId.toString(), ranked ? Double.toString(score) : REMOVED, String.valueOf(REBUILD_TIMEOUT_MILLIS));
+        } catch (Exception e) {
+            dirtyActivities.add(activityId);
+            log.warn("Failed to update leaderboard of activity {} for application {}: {}", activityId, applicationId, e.getMessage());
+        }
+        Map<Long, Double> journal = localJournals.get(activityId);
+        if (journal != null) {
+            journal.put(applicationId, ranked ? score : Double.NaN);
+        }
+        ScoreSkipList local = localBoards.get(activityId);
+        if (local != null) {
+            if (ranked) local.put(applicationId, score);
+            else local.remove(applicationId);
+        }
+    }
+
+    public void onApplicationRemoved(Long applicationId, Long activityId) {
+        onApplicationChanged(applicationId, activityId, null, null);
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * 排行榜分页（按总分降序），每条包含并列名次
+     */
+    public List<Map<String, Object>> top(Long activityId, int offset, int limit) {
+        if (offset < 0 || limit <= 0) return Collections.emptyList();
+        try {
+            List<String> r = rangeFromRedis(activityId, offset, limit);
+            List<Map<String, Object>> result = new ArrayList<>(r.size() / 2);
+            int greater = Integer.parseInt(r.get(0));
+            double prevScore = Double.NaN;
+            int prevRank = 0;
+            for (int i = 1; i + 1 < r.size(); i += 2) {
+                double score = Double.parseDouble(r.get(i + 1));
+                int position = offset + (i - 1) / 2;
+                int rank = i == 1 ? greater + 1 : (score == prevScore ? prevRank : position + 1);
+                result.add(entry(Long.parseLong(r.get(i)), score, rank));
+                prevScore = score;
+                prevRank = rank;
+            }
+            return result;
+        } catch (Exception e) {
+            log.warn("Redis leaderboard unavailable for activity {}, using local index: {}", activityId, e.getMessage());
+        }
+        ScoreSkipList local = localBoard(activityId);
+        List<ScoreSkipList.Entry> entries = local.range(offset, limit);
+        List<Map<String, Object>> result = new ArrayList<>(entries.size());
+        double prevScore = Double.NaN;
+        int prevRank = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            ScoreSkipList.Entry e = entries.get(i);
+            int rank = i == 0 ? local.countGreater(e.score()) + 1 : (e.score() == prevScore ? prevRank : offset + i + 1);
+            result.add(entry(e.id(), e.score(), rank));
+            prevScore = e.score();
+            prevRank = rank;
+        }
+        return result;
+    }
+
+    /**
+     * 申请在活动中的名次、总人数和百分位（低于该分数的其他申请所占比例）
+     */
+    public Optional<Map<String, Object>> standing(Long activityId, Long applicationId) {
+        double score;
+        long greater, lower, total;
+        String source = "redis";
+        try {
+            List<String> r = standingFromRedis(activityId, applicationId);
+            if (r.get(0).isEmpty()) return Optional.empty();
+            score = Double.parseDouble(r.get(0));
+            greater = Long.parseLong(r.get(1));
+            lower = Long.parseLong(r.get(2));
+            total = Long.parseLong(r.get(3));
+        } catch (Exception e) {
+            log.warn("Redis leaderboard unavailable for activity {}, using local index: {}", activityId, e.getMessage());
+            ScoreSkipList local = localBoard(activityId);
+            Double s = local.score(applicationId);
+            if (s == null) return Optional.empty();
+            score = s;
+            greater = local.countGreater(s);
+            lower = local.countLess(s);
+            total = local.size();
+            source = "local";
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("activityId", activityId);
+        m.put("applicationId", applicationId);
+        m.put("totalScore", score);
+        m.put("rank", greater + 1);
+        m.put("total", total);
+        m.put("percentile", total <= 1 ? 100.0 : Math.round(lower * 1000.0 / (total - 1)) / 10.0);
+        m.put("source", source);
+        return Optional.of(m);
+    }
+
+    // ========== 重建与校验 ==========
+
+    /**
+     * 从数据库全量重建 Redis 排行榜和本地跳表，返回条目数
+     */
+    public int rebuild(Long activityId) {
+        // 先打开重建日志再读库：快照之后提交的变化都会在替换前重放
+        String tmp = key(activityId) + ":rebuild:" + UUID.randomUUID();
+        startJournal(activityId, tmp);
+        localJournals.put(activityId, new ConcurrentHashMap<>());
+        Map<Long, Double> rows = loadFromDatabase(activityId);
+        rebuildLocal(activityId, rows);
+        rebuildRedis(activityId, tmp, rows);
+        log.info("Leaderboard of activity {} rebuilt with {} applications", activityId, rows.size());
+        return rows.size();
+    }
+
+    /**
+     * 与数据库全量重算结果比对：成员和分数逐一比较，并抽样校验名次查询
+     */
+    public Map<String, Object> verify(Long activityId) {
+        Map<Long, Double> expected = loadFromDatabase(activityId);
+        Map<Long, Double> actual;
+        String source = "redis";
+        try {
+            ensureRedisReady(activityId);
+            actual = new HashMap<>();
+            Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet().rangeWithScores(key(activityId), 0, -1);
+            if (tuples != null) {
+                for (ZSetOperations.TypedTuple<String> t : tuples) {
+                    actual.put(Long.parseLong(t.getValue()), t.getScore());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Redis leaderboard unavailable for activity {}, verifying local index: {}", activityId, e.getMessage());
+            source = "local";
+            ScoreSkipList local = localBoard(activityId);
+            actual = local.range(0, Integer.MAX_VALUE).stream()
+                .collect(Collectors.toMap(ScoreSkipList.Entry::id, ScoreSkipList.Entry::score));
+        }
+
+        List<String> mismatches = new ArrayList<>();
+        Set<Long> ids = new HashSet<>(expected.keySet());
+        ids.addAll(actual.keySet());
+        for (Long id : ids) {
+            Double e = expected.get(id), a = actual.get(id);
+            if (e == null || a == null || Double.compare(e, a) != 0) {
+                mismatches.add("application " + id + ": expected " + e + ", indexed " + a);
+            }
+        }
+
+        // 全量排序得到期望名次，抽样对比名次查询结果
+        List<Double> sortedScores = expected.values().stream().sorted(Collections.reverseOrder()).collect(Collectors.toList());
+        int sampled = 0;
+        for (Map.Entry<Long, Double> e : expected.entrySet()) {
+            if (sampled++ >= VERIFY_SAMPLE) break;
+            long expectedRank = firstIndexOf(sortedScores, e.getValue()) + 1;
+            Object rank = standing(activityId, e.getKey()).map(m -> m.get("rank")).orElse(null);
+            if (rank == null || ((Number) rank).longValue() != expectedRank) {
+                mismatches.add("application " + e.getKey() + ": expected rank " + expectedRank + ", indexed " + rank);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("activityId", activityId);
+        result.put("source", source);
+        result.put("expectedSize", expected.size());
+        result.put("indexedSize", actual.size());
+        result.put("rankSamples", Math.min(sampled, VERIFY_SAMPLE));
+        result.put("mismatchCount", mismatches.size());
+        result.put("mismatches", mismatches.size() > 20 ? mismatches.subList(0, 20) : mismatches);
+        result.put("consistent", mismatches.isEmpty());
+        return result;
+    }
+
+    // ========== 内部实现 ==========
+
+    private List<String> standingFromRedis(Long activityId, Long applicationId) {
+        ensureRedisReady(activityId);
+        List<String> keys = List.of(key(activityId), key(activityId) + READY_SUFFIX);
+        List r = stringRedisTemplate.execute(STANDING_SCRIPT, keys, applicationId.toString());
+        if (r == null) {
+            rebuild(activityId);
+            r = stringRedisTemplate.execute(STANDING_SCRIPT, keys, applicationId.toString());
+        }
+        return castList(r);
+    }
+
+    private List<String> rangeFromRedis(Long activityId, int offset, int limit) {
+        ensureRedisReady(activityId);
+        List<String> keys = List.of(key(activityId), key(activityId) + READY_SUFFIX);
+        String start = String.valueOf(offset), stop = String.valueOf((long) offset + limit - 1);
+        List r = stringRedisTemplate.execute(RANGE_SCRIPT, keys, start, stop);
+        if (r == null) {
+            rebuild(activityId);
+            r = stringRedisTemplate.execute(RANGE_SCRIPT, keys, start, stop);
+        }
+        return castList(r);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> castList(List r) {
+        if (r == null) throw new IllegalStateException("排行榜未就绪");
+        return (List<String>) r;
+    }
+
+    private void ensureRedisReady(Long activityId) {
+        if (dirtyActivities.remove(activityId)) {
+            try {
+                rebuild(activityId);
+            } catch (RuntimeException e) {
+                dirtyActivities.add(activityId);
+                throw e;
+            }
+        }
+    }
+
+    private void startJournal(Long activityId, String tmp) {
+        try {
+            stringRedisTemplate.opsForValue().set(key(activityId) + REBUILDING_SUFFIX, tmp,
+                Duration.ofMillis(REBUILD_TIMEOUT_MILLIS));
+        } catch (Exception e) {
+            // Redis 不可用：随后的 rebuildRedis 同样会失败并标记为待重建
+            log.warn("Failed to start leaderboard rebuild journal of activity {}: {}", activityId, e.getMessage());
+        }
+    }
+
+    private void rebuildRedis(Long activityId, String tmp, Map<Long, Double> rows) {
+        String key = key(activityId);
+        try {
+            Set<ZSetOperations.TypedTuple<String>> batch = new HashSet<>();
+            for (Map.Entry<Long, Double> e : rows.entrySet()) {
+                batch.add(ZSetOperations.TypedTuple.of(e.getKey().toString(), e.getValue()));
+                if (batch.size() >= REBUILD_BATCH) {
+                    stringRedisTemplate.opsForZSet().add(tmp, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) stringRedisTemplate.opsForZSet().add(tmp, batch);
+            // 重放日志并原子替换，读者看不到半成品
+            Long replayed = stringRedisTemplate.execute(FINISH_REBUILD_SCRIPT,
+                List.of(tmp, key, key + JOURNAL_SUFFIX, key + REBUILDING_SUFFIX, key + READY_SUFFIX), tmp);
+            if (replayed != null && replayed > 0) {
+                log.info("Replayed {} leaderboard changes of activity {} made during rebuild", replayed, activityId);
+            }
+        } catch (RuntimeException e) {
+            dirtyActivities.add(activityId);
+            try {
+                stringRedisTemplate.delete(tmp);
+            } catch (Exception ignored) {
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 调用前需已在 localJournals 中打开日志（早于读库）
+     */
+    private void rebuildLocal(Long activityId, Map<Long, Double> rows) {
+        ScoreSkipList board = localBoards.computeIfAbsent(activityId, id -> new ScoreSkipList());
+        board.reset(rows);
+        Map<Long, Double> journal = localJournals.remove(activityId);
+        if (journal != null) {
+            journal.forEach((id, score) -> {
+                if (score.isNaN()) board.remove(id);
+                else board.put(id, score);
+            });
+        }
+        localLoadedAt.put(activityId, System.currentTimeMillis());
+    }
+
+    private ScoreSkipList localBoard(Long activityId) {
+        ScoreSkipList board = localBoards.get(activityId);
+        Long loadedAt = localLoadedAt.get(activityId);
+        if (board == null || loadedAt == null || System.currentTimeMillis() - loadedAt > localTtlSeconds * 1000) {
+            // 本地跳表只反映本节点的更新，超过有效期从数据库刷新以纳入其他节点的变化
+            localJournals.put(activityId, new ConcurrentHashMap<>());
+            rebuildLocal(activityId, loadFromDatabase(activityId));
+            board = localBoards.get(activityId);
+        }
+        return board;
+    }
+
+    private Map<Long, Double> loadFromDatabase(Long activityId) {
+        String statuses = RANKED_STATUSES.stream().map(s -> "'" + s.name() + "'").collect(Collectors.joining(","));
+        Map<Long, Double> rows = new HashMap<>();
+        jdbcTemplate.query("SELECT id, total_score FROM application WHERE activity_id = ? AND status IN (" + statuses + ")",
+            rs -> {
+                double score = rs.getDouble("total_score"); // NULL 记为 0 分
+                rows.put(rs.getLong("id"), score);
+            }, activityId);
+        return rows;
+    }
+
+    private static int firstIndexOf(List<Double> descending, double score) {
+        int lo = 0, hi = descending.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (descending.get(mid) > score) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static Map<String, Object> entry(long applicationId, double score, int rank) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("applicationId", applicationId);
+        m.put("totalScore", score);
+        m.put("rank", rank);
+        return m;
+    }
+
+    private static String key(Long activityId) {
+        return KEY_PREFIX + activityId;
+    }
+}
@@ -9,16 +9,32 @@ import com.xuqinyang.xmudemo.repository.ActivityRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 消息队列监听器
  * 只处理系统基本功能相关的异步消息
+ *
+ * 申请、通知、审计三类消息按批消费：一批消息在一个事务内处理（批量查询、批量保存、JDBC 批量插入通知），
+ * 事务提交、方法返回后容器才整批确认。整批处理失败时退回逐条处理，单条坏消息不会连累整批；
+ * 逐条处理时遇到数据库或事务异常（数据库不可用等）说明不是消息本身的问题，异常抛给容器，整批进入重试。
+ *
+ * 所有监听方法都在容器线程上同步处理，不再转交 @Async 线程池：方法返回后才确认，积压留在 broker 而不是进程内存，
+ * 节点崩溃时未确认的消息会重新投递。单条消息处理失败时异常抛给容器，按重试拓扑延迟重试或转入死信队列。
  */
 @Service
 @RequiredArgsConstructor
@@ -30,13 +46,118 @@ public class MessageQueueListener {
     private final PerformanceMonitorService performanceMonitorService;
     private final CacheService cacheService;
     private final UserNotificationService userNotificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final SystemAutoReviewScheduler systemAutoReviewScheduler;
 
     /**
-     * 处理应用相关消息 - ApplicationController发送
+     * 一批申请消息在事务中产生的、需要提交后处理的副作用
      */
-    @RabbitListener(queues = RabbitMQConfig.APPLICATION_PROCESS_QUEUE)
-    @Async("messageTaskExecutor")
-    public void handleApplicationProcessMessage(Map<String, Object> message) {
+    private static final class ApplicationBatch {
+        final Set<Long> evictedApplications = new HashSet<>();
+        boolean evictApplicationList;
+        boolean evictReviewerCaches;
+    }
+
+    /**
+     * 批量处理申请消息
+     */
+    @RabbitListener(queues = RabbitMQConfig.APPLICATION_PROCESS_QUEUE, containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void handleApplicationProcessMessages(List<Map<String, Object>> messages) {
+        long startTime = System.currentTimeMillis();
+        try {
+            ApplicationBatch batch = transactionTemplate.execute(status -> processApplicationBatch(messages));
+            afterApplicationBatch(batch);
+            for (Map<String, Object> message : messages) {
+                performanceMonitorService.recordMessageQueueMetrics(
+                    RabbitMQConfig.APPLICATION_PROCESS_QUEUE, String.valueOf(message.get("action")), true
+                );
+            }
+        } catch (Exception e) {
+            log.warn("Batch of {} application messages failed, processing one by one: {}", messages.size(), e.getMessage());
+            messages.forEach(this::handleApplicationProcessMessage);
+        } finally {
+            log.debug("Application batch of {} messages took {} ms", messages.size(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private ApplicationBatch processApplicationBatch(List<Map<String, Object>> messages) {
+        ApplicationBatch batch = new ApplicationBatch();
+        Set<Long> ids = new HashSet<>();
+        for (Map<String, Object> message : messages) {
+            ids.add(((Number) message.get("applicationId")).longValue());
+        }
+        Map<Long, Application> apps = applicationRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Application::getId, Function.identity()));
+        Map<Long, Application> changed = new LinkedHashMap<>();
+        List<UserNotificationService.PendingNotification> notifications = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        // 按消息顺序依次应用，与逐条处理的结果一致
+        for (Map<String, Object> message : messages) {
+            Long applicationId = ((Number) message.get("applicationId")).longValue();
+            String action = (String) message.get("action");
+            if ("EXPORT".equals(action)) {
+                processApplicationExport(applicationId);
+                continue;
+            }
+            Application app = apps.get(applicationId);
+            if (app == null) {
+                continue;
+            }
+            switch (action) {
+                case "CREATE", "REVIEW" -> app.setLastUpdateDate(now);
+                case "SUBMIT" -> {
+                    app.setStatus(ApplicationStatus.SYSTEM_REVIEWING);
+                    app.setSubmittedAt(now);
+                    app.setLastUpdateDate(now);
+                }
+                case "APPROVE", "REJECT" -> {
+                    boolean approved = "APPROVE".equals(action);
+                    app.setStatus(approved ? ApplicationStatus.APPROVED : ApplicationStatus.REJECTED);
+                    app.setLastUpdateDate(now);
+                    notifications.add(new UserNotificationService.PendingNotification(app.getUserId(),
+                        approved ? "申请通过" : "申请未通过",
+                        approved ? "恭喜！您的申请已被批准" : "很遗憾，您的申请未能通过审核",
+                        approved ? "APPLICATION_APPROVED" : "APPLICATION_REJECTED"));
+                    batch.evictReviewerCaches = true;
+                }
+                case "UPDATE" -> {
+                    app.setLastUpdateDate(now);
+                    batch.evictApplicationList = true;
+                }
+                default -> {
+                    log.warn("Unknown application action: {}", action);
+                    continue;
+                }
+            }
+            changed.put(applicationId, app);
+        }
+
+        applicationRepository.saveAll(changed.values());
+        userNotificationService.insertBatch(notifications);
+        batch.evictedApplications.addAll(changed.keySet());
+        log.info("Processed batch of {} application messages: {} applications saved, {} notifications",
+            messages.size(), changed.size(), notifications.size());
+        return batch;
+    }
+
+    private void afterApplicationBatch(ApplicationBatch batch) {
+        if (batch == null) {
+            return;
+        }
+        batch.evictedApplications.forEach(id -> cacheService.evictCache("applications", id.toString()));
+        if (batch.evictApplicationList) {
+            cacheService.evictCache("applications", "all");
+        }
+        if (batch.evictReviewerCaches) {
+            evictAllReviewerCaches();
+        }
+    }
+
+    /**
+     * 逐条处理应用相关消息 - 批量处理失败时的退路
+     */
+    private void handleApplicationProcessMessage(Map<String, Object> message) {
         long startTime = System.currentTimeMillis();
         try {
             Long applicationId = ((Number) message.get("applicationId")).longValue();
@@ -79,6 +200,9 @@ public class MessageQueueListener {
             performanceMonitorService.recordMessageQueueMetrics(
                 RabbitMQConfig.APPLICATION_PROCESS_QUEUE, "error", false
             );
+            if (isInfrastructureFailure(e)) {
+                throw e; // 不是这条消息的问题，整批交给容器拒绝
+            }
         } finally {
             long duration = System.currentTimeMillis() - startTime;
             log.debug("Application message processing took {} ms", duration);
@@ -88,8 +212,7 @@ public class MessageQueueListener {
     /**
      * 处理活动相关消息 - ActivityService发送
      */
-    @RabbitListener(queues = RabbitMQConfig.ACTIVITY_PROCESS_QUEUE)
-    @Async("activityTaskExecutor")
+    @RabbitListener(queues = RabbitMQConfig.ACTIVITY_PROCESS_QUEUE, concurrency = "${app.mq.listener.activity-concurrency:2-8}")
     public void handleActivityProcessMessage(Map<String, Object> message) {
         long startTime = System.currentTimeMillis();
         try {
@@ -124,6 +247,7 @@ public class MessageQueueListener {
             performanceMonitorService.recordMessageQueueMetrics(
                 RabbitMQConfig.ACTIVITY_PROCESS_QUEUE, "error", false
             );
+            throw e; // 交给容器拒绝，进入重试队列
         } finally {
             long duration = System.currentTimeMillis() - startTime;
             log.debug("Activity message processing took {} ms", duration);
@@ -133,8 +257,8 @@ public class MessageQueueListener {
     /**
      * 处理文件相关消息 - FileController发送
      */
-    @RabbitListener(queues = RabbitMQConfig.FILE_PROCESS_QUEUE)
-    @Async("fileProcessTaskExecutor")
+    @RabbitListener(queues = RabbitMQConfig.FILE_PROCESS_QUEUE, containerFactory = RabbitMQConfig.SLOW_LISTENER_FACTORY,
+        concurrency = "${app.mq.listener.file-concurrency:1-4}")
     public void handleFileProcessMessage(Map<String, Object> message) {
         long startTime = System.currentTimeMillis();
         try {
@@ -164,6 +288,7 @@ public class MessageQueueListener {
             performanceMonitorService.recordMessageQueueMetrics(
                 RabbitMQConfig.FILE_PROCESS_QUEUE, "error", false
             );
+            throw e; // 交给容器拒绝，进入重试队列
         } finally {
             long duration = System.currentTimeMillis() - startTime;
             log.debug("File message processing took {} ms", duration);
@@ -171,42 +296,61 @@ public class MessageQueueListener {
     }
 
     /**
-     * 处理通知消息 - ApplicationController发送
+     * 批量处理通知消息：一条 JDBC 批量 INSERT 写入整批通知
      */
-    @RabbitListener(queues = RabbitMQConfig.NOTIFICATION_QUEUE)
-    @Async("messageTaskExecutor")
-    public void handleNotificationMessage(Map<String, Object> message) {
+    @RabbitListener(queues = RabbitMQConfig.NOTIFICATION_QUEUE, containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void handleNotificationMessages(List<Map<String, Object>> messages) {
         long startTime = System.currentTimeMillis();
+        List<UserNotificationService.PendingNotification> pending = new ArrayList<>(messages.size());
+        for (Map<String, Object> message : messages) {
+            try {
+                pending.add(new UserNotificationService.PendingNotification(
+                    ((Number) message.get("userId")).longValue(),
+                    (String) message.get("title"),
+                    (String) message.get("content"),
+                    (String) message.get("type")));
+            } catch (Exception e) {
+                log.error("Malformed notification message: {}", message, e);
+                performanceMonitorService.recordMessageQueueMetrics(
+                    RabbitMQConfig.NOTIFICATION_QUEUE, "error", false
+                );
+            }
+        }
         try {
-            Long userId = ((Number) message.get("userId")).longValue();
-            String title = (String) message.get("title");
-            String content = (String) message.get("content");
-            String type = (String) message.get("type");
-
-            log.info("Processing notification message: userId={}, type={}", userId, type);
-
-            processNotification(userId, title, content, type);
-
-            performanceMonitorService.recordMessageQueueMetrics(
-                RabbitMQConfig.NOTIFICATION_QUEUE, type, true
-            );
+            transactionTemplate.executeWithoutResult(status -> userNotificationService.insertBatch(pending));
+            for (UserNotificationService.PendingNotification n : pending) {
+                performanceMonitorService.recordMessageQueueMetrics(RabbitMQConfig.NOTIFICATION_QUEUE, n.type(), true);
+            }
+            performanceMonitorService.recordBusinessMetrics("notification_sent", pending.size());
+        } catch (Exception e) {
+            log.warn("Batch of {} notifications failed, processing one by one: {}", pending.size(), e.getMessage());
+            pending.forEach(this::handleNotification);
+        } finally {
+            log.debug("Notification batch of {} messages took {} ms", messages.size(), System.currentTimeMillis() - startTime);
+        }
+    }
 
+    /**
+     * 逐条写入通知 - 批量写入失败时的退路
+     */
+    private void handleNotification(UserNotificationService.PendingNotification n) {
+        try {
+            processNotification(n.userId(), n.title(), n.content(), n.type());
         } catch (Exception e) {
-            log.error("Error processing notification message: {}", message, e);
+            log.error("Error processing notification for user {}: {}", n.userId(), n.title(), e);
             performanceMonitorService.recordMessageQueueMetrics(
                 RabbitMQConfig.NOTIFICATION_QUEUE, "error", false
             );
-        } finally {
-            long duration = System.currentTimeMillis() - startTime;
-            log.debug("Notification message processing took {} ms", duration);
+            if (isInfrastructureFailure(e)) {
+                throw e; // 不是这条消息的问题，整批交给容器拒绝
+            }
         }
     }
 
     /**
      * 处理用户认证消息 - AuthController发送
      */
-    @RabbitListener(queues = RabbitMQConfig.USER_AUTH_QUEUE)
-    @Async("messageTaskExecutor")
+    @RabbitListener(queues = RabbitMQConfig.USER_AUTH_QUEUE, concurrency = "${app.mq.listener.user-auth-concurrency:2-8}")
     public void handleUserAuthMessage(Map<String, Object> message) {
         long startTime = System.currentTimeMillis();
         try {
@@ -228,18 +372,25 @@ public class MessageQueueListener {
             performanceMonitorService.recordMessageQueueMetrics(
                 RabbitMQConfig.USER_AUTH_QUEUE, "error", false
             );
+            throw e; // 交给容器拒绝，进入重试队列
         } finally {
             long duration = System.currentTimeMillis() - startTime;
             log.debug("User auth message processing took {} ms", duration);
         }
     }
 
+    /**
+     * 批量处理审计日志消息
+     */
+    @RabbitListener(queues = RabbitMQConfig.AUDIT_LOG_QUEUE, containerFactory = RabbitMQConfig.BATCH_LISTENER_FACTORY)
+    public void handleAuditLogMessages(List<Map<String, Object>> messages) {
+        messages.forEach(this::handleAuditLogMessage);
+    }
+
     /**
      * 处理审计日志消息 - FileController发送
      */
-    @RabbitListener(queues = RabbitMQConfig.AUDIT_LOG_QUEUE)
-    @Async("messageTaskExecutor")
-    public void handleAuditLogMessage(Map<String, Object> message) {
+    private void handleAuditLogMessage(Map<String, Object> message) {
         long startTime = System.currentTimeMillis();
         try {
             String userId = (String) message.get("userId");
@@ -260,6 +411,9 @@ public class MessageQueueListener {
             performanceMonitorService.recordMessageQueueMetrics(
                 RabbitMQConfig.AUDIT_LOG_QUEUE, "error", false
             );
+            if (isInfrastructureFailure(e)) {
+                throw e; // 不是这条消息的问题，整批交给容器拒绝
+            }
         } finally {
             long duration = System.currentTimeMillis() - startTime;
             log.debug("Audit log message processing took {} ms", duration);
@@ -269,8 +423,7 @@ public class MessageQueueListener {
     /**
      * 处理数据统计消息 - FileController发送
      */
-    @RabbitListener(queues = RabbitMQConfig.STATISTICS_QUEUE)
-    @Async("messageTaskExecutor")
+    @RabbitListener(queues = RabbitMQConfig.STATISTICS_QUEUE, concurrency = "${app.mq.listener.statistics-concurrency:1-2}")
     public void handleStatisticsMessage(Map<String, Object> message) {
         long startTime = System.currentTimeMillis();
         try {
@@ -292,116 +445,121 @@ public class MessageQueueListener {
             performanceMonitorService.recordMessageQueueMetrics(
                 RabbitMQConfig.STATISTICS_QUEUE, "error", false
             );
+            throw e; // 交给容器拒绝，进入重试队列
         } finally {
             long duration = System.currentTimeMillis() - startTime;
             log.debug("Statistics message processing took {} ms", duration);
         }
     }
 
+    /**
+     * 处理系统预审消息 - 提交后经延迟队列等待宽限期到达
+     */
+    @RabbitListener(queues = RabbitMQConfig.SYSTEM_REVIEW_QUEUE, concurrency = "${app.mq.listener.system-review-concurrency:1-4}")
+    public void handleSystemReviewMessage(Map<String, Object> message) {
+        Long applicationId = ((Number) message.get("applicationId")).longValue();
+        boolean reviewed = systemAutoReviewScheduler.reviewDue(applicationId, "event");
+        performanceMonitorService.recordMessageQueueMetrics(
+            RabbitMQConfig.SYSTEM_REVIEW_QUEUE, reviewed ? "REVIEWED" : "SKIPPED", true
+        );
+    }
+
+    /**
+     * 批量监听逐条处理时区分坏消息与基础设施故障：数据库、事务异常重试整批，其余只跳过这一条
+     */
+    private static boolean isInfrastructureFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof DataAccessException || t instanceof TransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     // 实现具体的业务逻辑 - 只保留真正被API使用的方法
     private void processApplicationCreate(Long applicationId) {
         log.info("Processing application creation: {}", applicationId);
-        try {
-            Optional<Application> appOpt = applicationRepository.findById(applicationId);
-            if (appOpt.isPresent()) {
-                Application app = appOpt.get();
-                app.setLastUpdateDate(LocalDateTime.now());
-                applicationRepository.save(app);
-                cacheService.evictCache("applications", applicationId.toString());
-                log.info("Application {} creation processed", applicationId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process application creation: {}", applicationId, e);
+        Optional<Application> appOpt = applicationRepository.findById(applicationId);
+        if (appOpt.isPresent()) {
+            Application app = appOpt.get();
+            app.setLastUpdateDate(LocalDateTime.now());
+            applicationRepository.save(app);
+            cacheService.evictCache("applications", applicationId.toString());
+            log.info("Application {} creation processed", applicationId);
         }
     }
 
     private void processApplicationSubmit(Long applicationId) {
         log.info("Processing application submit: {}", applicationId);
-        try {
-            Optional<Application> appOpt = applicationRepository.findById(applicationId);
-            if (appOpt.isPresent()) {
-                Application app = appOpt.get();
-                app.setStatus(ApplicationStatus.SYSTEM_REVIEWING);
-                app.setSubmittedAt(LocalDateTime.now());
-                app.setLastUpdateDate(LocalDateTime.now());
-                applicationRepository.save(app);
-                cacheService.evictCache("applications", applicationId.toString());
-
-                // 移除申请提交成功通知 - 自动审核会快速处理，不需要额外通知
-                log.info("Application {} submitted successfully", applicationId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process application submit: {}", applicationId, e);
+        Optional<Application> appOpt = applicationRepository.findById(applicationId);
+        if (appOpt.isPresent()) {
+            Application app = appOpt.get();
+            app.setStatus(ApplicationStatus.SYSTEM_REVIEWING);
+            app.setSubmittedAt(LocalDateTime.now());
+            app.setLastUpdateDate(LocalDateTime.now());
+            applicationRepository.save(app);
+            cacheService.evictCache("applications", applicationId.toString());
+
+            // 移除申请提交成功通知 - 自动审核会快速处理，不需要额外通知
+            log.info("Application {} submitted successfully", applicationId);
         }
     }
 
     private void processApplicationReview(Long applicationId) {
         log.info("Processing application review: {}", applicationId);
-        try {
-            Optional<Application> appOpt = applicationRepository.findById(applicationId);
-            if (appOpt.isPresent()) {
-                Application app = appOpt.get();
-                app.setLastUpdateDate(LocalDateTime.now());
-                applicationRepository.save(app);
-                cacheService.evictCache("applications", applicationId.toString());
-                log.info("Application {} review processed", applicationId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process application review: {}", applicationId, e);
+        Optional<Application> appOpt = applicationRepository.findById(applicationId);
+        if (appOpt.isPresent()) {
+            Application app = appOpt.get();
+            app.setLastUpdateDate(LocalDateTime.now());
+            applicationRepository.save(app);
+            cacheService.evictCache("applications", applicationId.toString());
+            log.info("Application {} review processed", applicationId);
         }
     }
 
     private void processApplicationApproval(Long applicationId) {
         log.info("Processing application approval: {}", applicationId);
-        try {
-            Optional<Application> appOpt = applicationRepository.findById(applicationId);
-            if (appOpt.isPresent()) {
-                Application app = appOpt.get();
-                app.setStatus(ApplicationStatus.APPROVED);
-                app.setLastUpdateDate(LocalDateTime.now());
-                applicationRepository.save(app);
-                cacheService.evictCache("applications", applicationId.toString());
-
-                // 清除待审核数量缓存（所有审核员）
-                evictAllReviewerCaches();
-
-                userNotificationService.createNotification(
-                    app.getUserId(),
-                    "申请通过",
-                    "恭喜！您的申请已被批准",
-                    "APPLICATION_APPROVED"
-                );
-                log.info("Application {} approved", applicationId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process application approval: {}", applicationId, e);
+        Optional<Application> appOpt = applicationRepository.findById(applicationId);
+        if (appOpt.isPresent()) {
+            Application app = appOpt.get();
+            app.setStatus(ApplicationStatus.APPROVED);
+            app.setLastUpdateDate(LocalDateTime.now());
+            applicationRepository.save(app);
+            cacheService.evictCache("applications", applicationId.toString());
+
+            // 清除待审核数量缓存（所有审核员）
+            evictAllReviewerCaches();
+
+            userNotificationService.createNotification(
+                app.getUserId(),
+                "申请通过",
+                "恭喜！您的申请已被批准",
+                "APPLICATION_APPROVED"
+            );
+            log.info("Application {} approved", applicationId);
         }
     }
 
     private void processApplicationRejection(Long applicationId) {
         log.info("Processing application rejection: {}", applicationId);
-        try {
-            Optional<Application> appOpt = applicationRepository.findById(applicationId);
-            if (appOpt.isPresent()) {
-                Application app = appOpt.get();
-                app.setStatus(ApplicationStatus.REJECTED);
-                app.setLastUpdateDate(LocalDateTime.now());
-                applicationRepository.save(app);
-                cacheService.evictCache("applications", applicationId.toString());
-
-                // 清除待审核数量缓存（所有审核员）
-                evictAllReviewerCaches();
-
-                userNotificationService.createNotification(
-                    app.getUserId(),
-                    "申请未通过",
-                    "很遗憾，您的申请未能通过审核",
-                    "APPLICATION_REJECTED"
-                );
-                log.info("Application {} rejected", applicationId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process application rejection: {}", applicationId, e);
+        Optional<Application> appOpt = applicationRepository.findById(applicationId);
+        if (appOpt.isPresent()) {
+            Application app = appOpt.get();
+            app.setStatus(ApplicationStatus.REJECTED);
+            app.setLastUpdateDate(LocalDateTime.now());
+            applicationRepository.save(app);
+            cacheService.evictCache("applications", applicationId.toString());
+
+            // 清除待审核数量缓存（所有审核员）
+            evictAllReviewerCaches();
+
+            userNotificationService.createNotification(
+                app.getUserId(),
+                "申请未通过",
+                "很遗憾，您的申请未能通过审核",
+                "APPLICATION_REJECTED"
+            );
+            log.info("Application {} rejected", applicationId);
         }
     }
 
@@ -420,107 +578,75 @@ public class MessageQueueListener {
 
     private void processApplicationUpdate(Long applicationId) {
         log.info("Processing application update: {}", applicationId);
-        try {
-            Optional<Application> appOpt = applicationRepository.findById(applicationId);
-            if (appOpt.isPresent()) {
-                Application app = appOpt.get();
-                app.setLastUpdateDate(LocalDateTime.now());
-                applicationRepository.save(app);
-                cacheService.evictCache("applications", applicationId.toString());
-                cacheService.evictCache("applications", "all");
-                log.info("Application {} updated", applicationId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process application update: {}", applicationId, e);
+        Optional<Application> appOpt = applicationRepository.findById(applicationId);
+        if (appOpt.isPresent()) {
+            Application app = appOpt.get();
+            app.setLastUpdateDate(LocalDateTime.now());
+            applicationRepository.save(app);
+            cacheService.evictCache("applications", applicationId.toString());
+            cacheService.evictCache("applications", "all");
+            log.info("Application {} updated", applicationId);
         }
     }
 
     private void processApplicationExport(Long applicationId) {
         log.info("Processing application export: {}", applicationId);
-        try {
-            performanceMonitorService.recordBusinessMetrics("export_count", 1.0);
-            log.info("Application {} export processed", applicationId);
-        } catch (Exception e) {
-            log.error("Failed to process application export: {}", applicationId, e);
-        }
+        performanceMonitorService.recordBusinessMetrics("export_count", 1.0);
+        log.info("Application {} export processed", applicationId);
     }
 
     private void processActivityCreate(Long activityId) {
         log.info("Processing activity creation: {}", activityId);
-        try {
-            Optional<Activity> activityOpt = activityRepository.findById(activityId);
-            if (activityOpt.isPresent()) {
-                cacheService.evictAllActivities();
-                performanceMonitorService.recordBusinessMetrics("activity_created", 1.0);
-                log.info("Activity {} creation processed", activityId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process activity creation: {}", activityId, e);
+        Optional<Activity> activityOpt = activityRepository.findById(activityId);
+        if (activityOpt.isPresent()) {
+            cacheService.evictAllActivities();
+            performanceMonitorService.recordBusinessMetrics("activity_created", 1.0);
+            log.info("Activity {} creation processed", activityId);
         }
     }
 
     private void processActivityUpdate(Long activityId) {
         log.info("Processing activity update: {}", activityId);
-        try {
-            Optional<Activity> activityOpt = activityRepository.findById(activityId);
-            if (activityOpt.isPresent()) {
-                cacheService.evictActivity(activityId);
-                cacheService.evictAllActivities();
-                performanceMonitorService.recordBusinessMetrics("activity_updated", 1.0);
-                log.info("Activity {} update processed", activityId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process activity update: {}", activityId, e);
+        Optional<Activity> activityOpt = activityRepository.findById(activityId);
+        if (activityOpt.isPresent()) {
+            cacheService.evictActivity(activityId);
+            cacheService.evictAllActivities();
+            performanceMonitorService.recordBusinessMetrics("activity_updated", 1.0);
+            log.info("Activity {} update processed", activityId);
         }
     }
 
     private void processActivityDelete(Long activityId) {
         log.info("Processing activity deletion: {}", activityId);
-        try {
-            cacheService.evictAllApplications();
-            cacheService.evictAllActivities();
-            performanceMonitorService.recordBusinessMetrics("activity_deleted", 1.0);
-            log.info("Activity {} deletion processed", activityId);
-        } catch (Exception e) {
-            log.error("Failed to process activity deletion: {}", activityId, e);
-        }
+        cacheService.evictAllApplications();
+        cacheService.evictAllActivities();
+        performanceMonitorService.recordBusinessMetrics("activity_deleted", 1.0);
+        log.info("Activity {} deletion processed", activityId);
     }
 
     private void processActivityToggle(Long activityId) {
         log.info("Processing activity toggle: {}", activityId);
-        try {
-            Optional<Activity> activityOpt = activityRepository.findById(activityId);
-            if (activityOpt.isPresent()) {
-                cacheService.evictActivity(activityId);
-                cacheService.evictAllActivities();
-                performanceMonitorService.recordBusinessMetrics("activity_toggled", 1.0);
-                log.info("Activity {} toggle processed", activityId);
-            }
-        } catch (Exception e) {
-            log.error("Failed to process activity toggle: {}", activityId, e);
+        Optional<Activity> activityOpt = activityRepository.findById(activityId);
+        if (activityOpt.isPresent()) {
+            cacheService.evictActivity(activityId);
+            cacheService.evictAllActivities();
+            performanceMonitorService.recordBusinessMetrics("activity_toggled", 1.0);
+            log.info("Activity {} toggle processed", activityId);
         }
     }
 
     private void processNotification(Long userId, String title, String content, String type) {
         log.info("Processing notification for user {}: {}", userId, title);
-        try {
-            // 使用同步方法直接创建通知（避免消息队列循环）
-            userNotificationService.createNotificationSync(userId, title, content, type);
-            performanceMonitorService.recordBusinessMetrics("notification_sent", 1.0);
-            log.info("Notification created for user {}: {}", userId, title);
-        } catch (Exception e) {
-            log.error("Failed to create notification for user {}: {}", userId, title, e);
-        }
+        // 使用同步方法直接创建通知（避免消息队列循环）
+        userNotificationService.createNotificationSync(userId, title, content, type);
+        performanceMonitorService.recordBusinessMetrics("notification_sent", 1.0);
+        log.info("Notification created for user {}: {}", userId, title);
     }
 
     private void processFileUpload(String fileName, String filePath) {
         log.info("Processing file upload: {} at path: {}", fileName, filePath);
-        try {
-            performanceMonitorService.recordBusinessMetrics("file_upload_completed", 1.0);
-            log.info("File upload processed: {} -> {}", fileName, filePath);
-        } catch (Exception e) {
-            log.error("Failed to process file upload: {}", fileName, e);
-        }
+        performanceMonitorService.recordBusinessMetrics("file_upload_completed", 1.0);
+        log.info("File upload processed: {} -> {}", fileName, filePath);
     }
 
     private void processVirusScan(String fileName, String filePath) {
@@ -528,87 +654,100 @@ public class MessageQueueListener {
         try {
             // 模拟病毒扫描
             Thread.sleep(1000);
-            // 这里可以添加真实的病毒扫描逻辑
-            boolean isSafe = performVirusScanCheck(filePath);
-            performanceMonitorService.recordBusinessMetrics("virus_scan_completed", 1.0);
-            if (isSafe) {
-                performanceMonitorService.recordBusinessMetrics("virus_scan_clean", 1.0);
-                log.info("Virus scan completed for file: {} - CLEAN", fileName);
-            } else {
-                performanceMonitorService.recordBusinessMetrics("virus_scan_threat", 1.0);
-                log.warn("Virus scan completed for file: {} - THREAT DETECTED", fileName);
-            }
-        } catch (Exception e) {
-            log.error("Failed to scan file: {}", fileName, e);
+        } catch (InterruptedException e) {
+            // 容器停止时中断，消息交回容器重试
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Virus scan interrupted: " + fileName, e);
+        }
+        // 这里可以添加真实的病毒扫描逻辑
+        boolean isSafe = performVirusScanCheck(filePath);
+        performanceMonitorService.recordBusinessMetrics("virus_scan_completed", 1.0);
+        if (isSafe) {
+            performanceMonitorService.recordBusinessMetrics("virus_scan_clean", 1.0);
+            log.info("Virus scan completed for file: {} - CLEAN", fileName);
+        } else {
+            performanceMonitorService.recordBusinessMetrics("virus_scan_threat", 1.0);
+            log.warn("Virus scan completed for file: {} - THREAT DETECTED", fileName);
         }
     }
 
     private void processUserAuth(String userId, String action, String ip, String userAgent) {
         log.info("Processing user auth: userId={}, action={}, ip={}, userAgent={}", userId, action, ip, userAgent);
-        try {
-            switch (action) {
-                case "LOGIN":
-                    performanceMonitorService.recordBusinessMetrics("login_count", 1.0);
-                    // 移除登录通知 - 不需要每次登录都发通知
-                    log.debug("User {} logged in from IP {}", userId, ip);
-                    break;
-                case "LOGOUT":
-                    performanceMonitorService.recordBusinessMetrics("logout_count", 1.0);
-                    break;
-                case "REFRESH_TOKEN":
-                    performanceMonitorService.recordBusinessMetrics("token_refresh_count", 1.0);
-                    break;
-                case "LOGIN_FAILED":
-                    performanceMonitorService.recordBusinessMetrics("login_failed_count", 1.0);
-                    // 保留登录失败警告（安全相关）
-                    userNotificationService.createNotificationByStudentId(
-                        userId,
-                        "登录失败警告",
-                        String.format("检测到登录失败尝试，IP地址: %s，设备: %s", ip,
-                            userAgent != null && userAgent.length() > 30 ?
-                            userAgent.substring(0, 30) + "..." : userAgent),
-                        "LOGIN_FAILED_WARNING"
-                    );
-                    break;
-            }
-            log.info("User auth processed: userId={}, action={}", userId, action);
-        } catch (Exception e) {
-            log.error("Failed to process user auth: {}", userId, e);
+        switch (action) {
+            case "LOGIN":
+                performanceMonitorService.recordBusinessMetrics("login_count", 1.0);
+                // 移除登录通知 - 不需要每次登录都发通知
+                log.debug("User {} logged in from IP {}", userId, ip);
+                break;
+            case "LOGOUT":
+                performanceMonitorService.recordBusinessMetrics("logout_count", 1.0);
+                break;
+            case "REFRESH_TOKEN":
+                performanceMonitorService.recordBusinessMetrics("token_refresh_count", 1.0);
+                break;
+            case "LOGIN_FAILED":
+                performanceMonitorService.recordBusinessMetrics("login_failed_count", 1.0);
+                // 保留登录失败警告（安全相关）
+                userNotificationService.createNotificationByStudentId(
+                    userId,
+                    "登录失败警告",
+                    String.format("检测到登录失败尝试，IP地址: %s，设备: %s", ip,
+                        userAgent != null && userAgent.length() > 30 ?
+                        userAgent.substring(0, 30) + "..." : userAgent),
+                    "LOGIN_FAILED_WARNING"
+                );
+                break;
         }
+        log.info("User auth processed: userId={}, action={}", userId, action);
     }
 
     private void processAuditLog(String userId, String action, String resourceType, String details) {
         log.info("Processing audit log: userId={}, action={}, resourceType={}", userId, action, resourceType);
-        try {
-            // 记录审计日志到数据库或文件系统
-            performanceMonitorService.recordBusinessMetrics("audit_log_processed", 1.0);
+        // 记录审计日志到数据库或文件系统
+        performanceMonitorService.recordBusinessMetrics("audit_log_processed", 1.0);
 
-            // 可以在这里添加具体的审计日志存储逻辑
-            log.debug("Audit details: {}", details);
+        // 可以在这里添加具体的审计日志存储逻辑
+        log.debug("Audit details: {}", details);
 
-            log.info("Audit log processed: userId={}, action={}", userId, action);
-        } catch (Exception e) {
-            log.error("Failed to process audit log: {}", userId, e);
-        }
+        log.info("Audit log processed: userId={}, action={}", userId, action);
     }
 
     private void processStatistics(String category, String action, Map<String, Object> data) {
         log.info("Processing statistics: category={}, action={}", category, action);
-        try {
-            // 处理统计数据
-            performanceMonitorService.recordBusinessMetrics("statistics_processed", 1.0);
-
-            // 可以在这里添加具体的统计数据处理逻辑
-            if (data != null) {
-                log.debug("Statistics data: {}", data);
-                performanceMonitorService.recordBusinessMetrics(
-                    String.format("stats_%s_%s", category.toLowerCase(), action.toLowerCase()), 1.0);
-            }
+        // 处理统计数据
+        performanceMonitorService.recordBusinessMetrics("statistics_processed", 1.0);
 
-            log.info("Statistics processed: category={}, action={}", category, action);
-        } catch (Exception e) {
-            log.error("Failed to process statistics: {}", category, e);
+        // 节点按分钟汇总的API调用统计：一条消息代表该分钟内的全部调用
+        if ("API_SUMMARY".equals(action) && data != null) {
+            processApiSummary(data);
+            return;
+        }
+
+        // 可以在这里添加具体的统计数据处理逻辑
+        if (data != null) {
+            log.debug("Statistics data: {}", data);
+            performanceMonitorService.recordBusinessMetrics(
+                String.format("stats_%s_%s", category.toLowerCase(), action.toLowerCase()), 1.0);
+        }
+
+        log.info("Statistics processed: category={}, action={}", category, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void processApiSummary(Map<String, Object> data) {
+        List<Map<String, Object>> routes = (List<Map<String, Object>>) data.getOrDefault("routes", List.of());
+        for (Map<String, Object> row : routes) {
+            performanceMonitorService.recordApiCalls(
+                (String) row.get("method"),
+                (String) row.get("route"),
+                ((Number) row.get("status")).intValue(),
+                ((Number) row.get("count")).longValue());
         }
+        long calls = ((Number) data.getOrDefault("calls", 0)).longValue();
+        long errors = ((Number) data.getOrDefault("errors", 0)).longValue();
+        performanceMonitorService.recordApiSummary(calls, errors);
+        log.info("API summary from {} for minute {}: {} calls, {} errors across {} routes",
+            data.get("node"), data.get("minute"), calls, errors, routes.size());
     }
 
     /**
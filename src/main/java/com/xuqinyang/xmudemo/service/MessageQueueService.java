@@ -1,9 +1,9 @@
 package com.xuqinyang.xmudemo.service;
 
 import com.xuqinyang.xmudemo.config.RabbitMQConfig;
+import com.xuqinyang.xmudemo.mq.AsyncMessagePublisher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
@@ -11,13 +11,14 @@ import java.util.Map;
 /**
  * 消息队列服务
  * 负责发送各种异步消息到队列
+ * 只把消息放入 {@link AsyncMessagePublisher} 的缓冲区，不在调用线程上访问 broker
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MessageQueueService {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final AsyncMessagePublisher publisher;
 
     /**
      * 发送用户认证消息
@@ -31,13 +32,13 @@ public class MessageQueueService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        rabbitTemplate.convertAndSend(
+        publisher.enqueue(
                 RabbitMQConfig.DIRECT_EXCHANGE,
                 RabbitMQConfig.USER_AUTH_ROUTING_KEY,
                 message
         );
 
-        log.info("Sent user auth message: userId={}, action={}", userId, action);
+        log.debug("Queued user auth message: userId={}, action={}", userId, action);
     }
 
     /**
@@ -50,13 +51,13 @@ public class MessageQueueService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        rabbitTemplate.convertAndSend(
+        publisher.enqueue(
                 RabbitMQConfig.DIRECT_EXCHANGE,
                 RabbitMQConfig.APPLICATION_ROUTING_KEY,
                 message
         );
 
-        log.info("Sent application process message: applicationId={}, action={}", applicationId, action);
+        log.debug("Queued application process message: applicationId={}, action={}", applicationId, action);
     }
 
     /**
@@ -69,13 +70,13 @@ public class MessageQueueService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        rabbitTemplate.convertAndSend(
+        publisher.enqueue(
                 RabbitMQConfig.DIRECT_EXCHANGE,
                 RabbitMQConfig.ACTIVITY_ROUTING_KEY,
                 message
         );
 
-        log.info("Sent activity process message: activityId={}, action={}", activityId, action);
+        log.debug("Queued activity process message: activityId={}, action={}", activityId, action);
     }
 
     /**
@@ -89,19 +90,21 @@ public class MessageQueueService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        rabbitTemplate.convertAndSend(
+        publisher.enqueue(
                 RabbitMQConfig.DIRECT_EXCHANGE,
                 RabbitMQConfig.FILE_ROUTING_KEY,
                 message
         );
 
-        log.info("Sent file process message: fileName={}, action={}", fileName, action);
+        log.debug("Queued file process message: fileName={}, action={}", fileName, action);
     }
 
     /**
-     * 发送通知消息 - ApplicationController实际调用
+     * 发送通知消息 - 由 UserNotificationService.createNotificationAsync 调用
+     *
+     * @return 是否放入发送缓冲区；缓冲区已满或发送器已停止时返回 false，由调用方降级
      */
-    public void sendNotificationMessage(Long userId, String title, String content, String type) {
+    public boolean sendNotificationMessage(Long userId, String title, String content, String type) {
         Map<String, Object> message = Map.of(
                 "userId", userId,
                 "title", title,
@@ -110,13 +113,16 @@ public class MessageQueueService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        rabbitTemplate.convertAndSend(
+        boolean queued = publisher.enqueue(
                 RabbitMQConfig.TOPIC_EXCHANGE,
                 RabbitMQConfig.NOTIFICATION_ROUTING_KEY,
                 message
         );
 
-        log.info("Sent notification message: userId={}, type={}", userId, type);
+        if (queued) {
+            log.debug("Queued notification message: userId={}, type={}", userId, type);
+        }
+        return queued;
     }
 
     /**
@@ -131,13 +137,13 @@ public class MessageQueueService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        rabbitTemplate.convertAndSend(
+        publisher.enqueue(
                 RabbitMQConfig.DIRECT_EXCHANGE,
                 RabbitMQConfig.AUDIT_ROUTING_KEY,
                 message
         );
 
-        log.info("Sent audit log message: userId={}, action={}", userId, action);
+        log.debug("Queued audit log message: userId={}, action={}", userId, action);
     }
 
     /**
@@ -151,12 +157,12 @@ public class MessageQueueService {
                 "timestamp", System.currentTimeMillis()
         );
 
-        rabbitTemplate.convertAndSend(
+        publisher.enqueue(
                 RabbitMQConfig.DIRECT_EXCHANGE,
                 RabbitMQConfig.STATISTICS_ROUTING_KEY,
                 message
         );
 
-        log.info("Sent data statistics message: category={}, action={}", category, action);
+        log.debug("Queued data statistics message: category={}, action={}", category, action);
     }
 }
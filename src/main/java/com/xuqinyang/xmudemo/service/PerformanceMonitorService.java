@@ -1,6 +1,7 @@
 package com.xuqinyang.xmudemo.service;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
@@ -82,6 +83,32 @@ public class PerformanceMonitorService {
         queueCounter.increment();
     }
 
+    /**
+     * 记录某一节点汇总上报的 API 调用次数（按路由模板与状态码）
+     */
+    public void recordApiCalls(String method, String route, int status, long count) {
+        Counter.builder("api_calls_total")
+                .tag("method", method)
+                .tag("route", route)
+                .tag("status", String.valueOf(status))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    /**
+     * 记录某一节点一分钟的 API 调用汇总，每条汇总计入一次分布，总量随汇总持续累加
+     */
+    public void recordApiSummary(long calls, long errors) {
+        DistributionSummary.builder("api_calls_per_minute")
+                .baseUnit("calls")
+                .register(meterRegistry)
+                .record(calls);
+        DistributionSummary.builder("api_errors_per_minute")
+                .baseUnit("calls")
+                .register(meterRegistry)
+                .record(errors);
+    }
+
     /**
      * 记录业务指标
      */
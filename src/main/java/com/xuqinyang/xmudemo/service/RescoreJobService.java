@@ -0,0 +1,472 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.model.RescoreJob;
+import com.xuqinyang.xmudemo.model.RescoreJobStatus;
+import com.xuqinyang.xmudemo.model.User;
+import com.xuqinyang.xmudemo.repository.RescoreJobRepository;
+import com.xuqinyang.xmudemo.scoring.ContentScoreWriter;
+import com.xuqinyang.xmudemo.scoring.ScoreCard;
+import com.xuqinyang.xmudemo.scoring.ScoringEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 批量重算成绩任务服务
+ * 按申请ID keyset 分块读取 -> ForkJoin 并行评分 -> JDBC 批量条件更新（校验 version）。
+ * 每块提交后持久化游标和计数，任务在分布式锁保护下运行，节点崩溃后由重启或其他节点从游标处继续。
+ */
+@Service
+@Slf4j
+public class RescoreJobService {
+
+    private static final String LOCK_PREFIX = "rescore:job:";
+    private static final int MAX_WRITE_ATTEMPTS = 3;          // 版本冲突时重新读取并重算的次数
+    private static final Duration ORPHAN_THRESHOLD = Duration.ofMinutes(2); // 心跳超时视为执行节点已崩溃
+
+    private static final String SELECT_COLUMNS =
+        "SELECT a.id, a.activity_id, a.status, a.version, a.content, a.academic_score, a.achievement_score, a.performance_score, a.total_score, " +
+        "u.gpa, u.academic_rank, u.major_total, u.converted_score " +
+        "FROM application a JOIN users u ON u.id = a.user_id ";
+
+    private static final String UPDATE_SQL =
+        "UPDATE application SET content = ?, academic_score = ?, achievement_score = ?, performance_score = ?, " +
+        "total_score = ?, last_update_date = ?, version = COALESCE(version, 0) + 1 " +
+        "WHERE id = ? AND COALESCE(version, -1) = ?";
+
+    private static final String PROGRESS_SQL =
+        "UPDATE rescore_job SET last_processed_id = ?, processed_count = processed_count + ?, " +
+        "updated_count = updated_count + ?, unchanged_count = unchanged_count + ?, conflict_count = conflict_count + ?, " +
+        "failed_count = failed_count + ?, elapsed_millis = elapsed_millis + ?, heartbeat_at = ? " +
+        "WHERE id = ? AND status = 'RUNNING'";
+
+    // 取消、恢复只改状态列：进度计数由执行线程用 JDBC 累加，整实体保存会用加载时的旧值覆盖
+    private static final String CANCEL_SQL =
+        "UPDATE rescore_job SET status = 'CANCELLED', finished_at = ? WHERE id = ? AND status = 'RUNNING'";
+
+    private static final String RESUME_SQL =
+        "UPDATE rescore_job SET status = 'RUNNING', error_message = NULL, finished_at = NULL, heartbeat_at = ? " +
+        "WHERE id = ? AND status = ?";
+
+    private final RescoreJobRepository jobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ScoringEngine scoringEngine;
+    private final DistributedLockService distributedLockService;
+    private final CacheService cacheService;
+    private final LeaderboardService leaderboardService;
+    private final Executor jobExecutor;
+    private final ForkJoinPool scoringPool;
+    private final MeterRegistry meterRegistry;
+    private final Timer chunkTimer;
+
+    @Value("${app.rescore.chunk-size:500}")
+    private int chunkSize;
+
+    public RescoreJobService(RescoreJobRepository jobRepository,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             ScoringEngine scoringEngine,
+                             DistributedLockService distributedLockService,
+                             CacheService cacheService,
+                             LeaderboardService leaderboardService,
+                             @Qualifier("rescoreJobExecutor") Executor jobExecutor,
+                             @Qualifier("rescoreForkJoinPool") ForkJoinPool scoringPool,
+                             MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.scoringEngine = scoringEngine;
+        this.distributedLockService = distributedLockService;
+        this.cacheService = cacheService;
+        this.leaderboardService = leaderboardService;
+        this.jobExecutor = jobExecutor;
+        this.scoringPool = scoringPool;
+        this.meterRegistry = meterRegistry;
+        this.chunkTimer = Timer.builder("rescore_chunk_duration")
+            .description("Duration of one rescore chunk (read, score, batch write)")
+            .register(meterRegistry);
+    }
+
+    /**
+     * 创建并启动重算任务
+     * @param activityId 活动ID，为空时重算所有申请
+     */
+    public RescoreJob start(Long activityId, String operator) {
+        for (RescoreJob running : jobRepository.findByStatus(RescoreJobStatus.RUNNING)) {
+            if (running.getActivityId() == null || running.getActivityId().equals(activityId) || activityId == null) {
+                throw new IllegalStateException("已有进行中的重算任务: " + running.getId());
+            }
+        }
+        Long total = activityId == null
+            ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM application", Long.class)
+            : jdbcTemplate.queryForObject("SELECT COUNT(*) FROM application WHERE activity_id = ?", Long.class, activityId);
+
+        RescoreJob job = new RescoreJob();
+        job.setActivityId(activityId);
+        job.setTotalCount(total != null ? total : 0L);
+        job.setCreatedBy(operator);
+        job = jobRepository.save(job);
+        log.info("Rescore job {} created by {} for activity {}, {} applications", job.getId(), operator,
+            activityId != null ? activityId : "ALL", job.getTotalCount());
+        launch(job.getId());
+        return job;
+    }
+
+    public RescoreJob cancel(Long jobId) {
+        RescoreJob job = getJob(jobId);
+        if (job.getStatus() == RescoreJobStatus.RUNNING
+                && jdbcTemplate.update(CANCEL_SQL, Timestamp.valueOf(LocalDateTime.now()), jobId) > 0) {
+            job = getJob(jobId);
+            log.info("Rescore job {} cancelled at cursor {}", jobId, job.getLastProcessedId());
+        }
+        return job;
+    }
+
+    /**
+     * 手动恢复已取消或失败的任务，从上次游标处继续
+     */
+    public RescoreJob resume(Long jobId) {
+        RescoreJob job = getJob(jobId);
+        if (job.getStatus() == RescoreJobStatus.COMPLETED) {
+            throw new IllegalStateException("重算任务已完成: " + jobId);
+        }
+        if (job.getStatus() != RescoreJobStatus.RUNNING) {
+            // 状态已被并发修改时不覆盖，按最新状态处理
+            jdbcTemplate.update(RESUME_SQL, Timestamp.valueOf(LocalDateTime.now()), jobId, job.getStatus().name());
+            job = getJob(jobId);
+            if (job.getStatus() == RescoreJobStatus.COMPLETED) {
+                throw new IllegalStateException("重算任务已完成: " + jobId);
+            }
+        }
+        launch(job.getId());
+        return job;
+    }
+
+    public RescoreJob getJob(Long jobId) {
+        return jobRepository.findById(jobId)
+            .orElseThrow(() -> new IllegalArgumentException("重算任务不存在: " + jobId));
+    }
+
+    public List<RescoreJob> recentJobs() {
+        return jobRepository.findTop50ByOrderByCreatedAtDesc();
+    }
+
+    /**
+     * 任务进度：完成百分比、吞吐量（条/秒，按累计处理耗时计算）和预计剩余时间
+     */
+    public Map<String, Object> progress(RescoreJob job) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", job.getId());
+        m.put("activityId", job.getActivityId());
+        m.put("status", job.getStatus());
+        m.put("totalCount", job.getTotalCount());
+        m.put("processedCount", job.getProcessedCount());
+        m.put("updatedCount", job.getUpdatedCount());
+        m.put("unchangedCount", job.getUnchangedCount());
+        m.put("conflictCount", job.getConflictCount());
+        m.put("failedCount", job.getFailedCount());
+        m.put("lastProcessedId", job.getLastProcessedId());
+        long total = job.getTotalCount(), done = job.getProcessedCount(), elapsed = job.getElapsedMillis();
+        double percent = total > 0 ? Math.min(100.0, done * 100.0 / total) : (job.getStatus() == RescoreJobStatus.COMPLETED ? 100.0 : 0.0);
+        double throughput = elapsed > 0 ? done * 1000.0 / elapsed : 0.0;
+        m.put("percent", Math.round(percent * 10) / 10.0);
+        m.put("throughputPerSecond", Math.round(throughput * 10) / 10.0);
+        m.put("etaSeconds", throughput > 0 && total > done ? Math.round((total - done) / throughput) : 0);
+        m.put("createdBy", job.getCreatedBy());
+        m.put("createdAt", job.getCreatedAt());
+        m.put("heartbeatAt", job.getHeartbeatAt());
+        m.put("finishedAt", job.getFinishedAt());
+        m.put("errorMessage", job.getErrorMessage());
+        return m;
+    }
+
+    // ========== 崩溃恢复 ==========
+
+    /**
+     * 启动时接管所有进行中的任务（分布式锁保证同一任务只在一个节点运行）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        try {
+            for (RescoreJob job : jobRepository.findByStatus(RescoreJobStatus.RUNNING)) {
+                log.info("Resuming rescore job {} from cursor {}", job.getId(), job.getLastProcessedId());
+                launch(job.getId());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to resume rescore jobs on startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期接管心跳超时的任务（执行节点崩溃、锁已过期）
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public void resumeOrphanedJobs() {
+        try {
+            LocalDateTime threshold = LocalDateTime.now().minus(ORPHAN_THRESHOLD);
+            for (RescoreJob job : jobRepository.findByStatus(RescoreJobStatus.RUNNING)) {
+                if (job.getHeartbeatAt() == null || job.getHeartbeatAt().isBefore(threshold)) {
+                    log.info("Rescore job {} heartbeat stale since {}, taking over", job.getId(), job.getHeartbeatAt());
+                    launch(job.getId());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check orphaned rescore jobs: {}", e.getMessage());
+        }
+    }
+
+    // ========== 执行 ==========
+
+    private void launch(Long jobId) {
+        jobExecutor.execute(() -> runWithLock(jobId));
+    }
+
+    private void runWithLock(Long jobId) {
+        String lockKey = LOCK_PREFIX + jobId;
+        if (!distributedLockService.tryLock(lockKey, 60, TimeUnit.SECONDS, true)) {
+            log.debug("Rescore job {} is running on another worker", jobId);
+            return;
+        }
+        try {
+            run(jobId);
+        } catch (Exception e) {
+            log.error("Rescore job {} failed", jobId, e);
+            markFinished(jobId, RescoreJobStatus.FAILED, e.getMessage());
+        } finally {
+            distributedLockService.unlock(lockKey);
+        }
+    }
+
+    private void run(Long jobId) throws InterruptedException {
+        RescoreJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != RescoreJobStatus.RUNNING) return;
+
+        Long activityId = job.getActivityId();
+        long cursor = job.getLastProcessedId();
+        long updatedInRun = 0;
+        while (true) {
+            if (currentStatus(jobId) != RescoreJobStatus.RUNNING) {
+                log.info("Rescore job {} stopped at cursor {}", jobId, cursor);
+                break;
+            }
+            long start = System.nanoTime();
+            List<Row> rows = readChunk(activityId, cursor);
+            if (rows.isEmpty()) {
+                markFinished(jobId, RescoreJobStatus.COMPLETED, null);
+                log.info("Rescore job {} completed", jobId);
+                break;
+            }
+            ChunkResult result = processChunk(rows);
+            cursor = rows.get(rows.size() - 1).id();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            chunkTimer.record(elapsedMillis, TimeUnit.MILLISECONDS);
+            saveProgress(jobId, cursor, rows.size(), result, elapsedMillis);
+            updatedInRun += result.updated;
+            log.info("Rescore job {} chunk up to id {}: {} rows in {} ms ({} updated, {} unchanged, {} conflicts, {} failed)",
+                jobId, cursor, rows.size(), elapsedMillis, result.updated, result.unchanged, result.conflicts, result.failed);
+        }
+        if (updatedInRun > 0) {
+            cacheService.evictAllApplications();
+        }
+    }
+
+    private RescoreJobStatus currentStatus(Long jobId) {
+        String status = jdbcTemplate.queryForObject("SELECT status FROM rescore_job WHERE id = ?", String.class, jobId);
+        return RescoreJobStatus.valueOf(status);
+    }
+
+    private List<Row> readChunk(Long activityId, long cursor) {
+        if (activityId == null) {
+            return jdbcTemplate.query(SELECT_COLUMNS + "WHERE a.id > ? ORDER BY a.id LIMIT ?",
+                ROW_MAPPER, cursor, chunkSize);
+        }
+        return jdbcTemplate.query(SELECT_COLUMNS + "WHERE a.activity_id = ? AND a.id > ? ORDER BY a.id LIMIT ?",
+            ROW_MAPPER, activityId, cursor, chunkSize);
+    }
+
+    private List<Row> reload(List<Long> ids) {
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(","));
+        return jdbcTemplate.query(SELECT_COLUMNS + "WHERE a.id IN (" + placeholders + ") ORDER BY a.id",
+            ROW_MAPPER, ids.toArray());
+    }
+
+    /**
+     * 评分并写回一块数据；版本冲突的行重新读取最新版本后重算，最多 MAX_WRITE_ATTEMPTS 次
+     */
+    private ChunkResult processChunk(List<Row> rows) throws InterruptedException {
+        ChunkResult result = new ChunkResult();
+        List<Row> pending = rows;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            List<Scored> scored = score(pending);
+            List<Scored> changed = new ArrayList<>(scored.size());
+            for (Scored s : scored) {
+                if (s.card == null) result.failed++;
+                else if (s.unchanged()) result.unchanged++;
+                else changed.add(s);
+            }
+            List<Long> conflicted = write(changed);
+            result.updated += changed.size() - conflicted.size();
+            syncLeaderboard(changed, conflicted);
+            if (conflicted.isEmpty()) {
+                pending = Collections.emptyList();
+            } else if (attempt < MAX_WRITE_ATTEMPTS) {
+                pending = reload(conflicted); // 已删除的申请不再出现
+            } else {
+                result.conflicts += conflicted.size();
+            }
+        }
+        count("updated", result.updated);
+        count("unchanged", result.unchanged);
+        count("conflict", result.conflicts);
+        count("failed", result.failed);
+        return result;
+    }
+
+    private List<Scored> score(List<Row> rows) throws InterruptedException {
+        try {
+            return scoringPool.submit(() -> rows.parallelStream().map(this::scoreRow).collect(Collectors.toList())).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("评分计算失败: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private Scored scoreRow(Row row) {
+        try {
+            ScoreCard card = scoringEngine.score(row.content(), row.user());
+            String content = row.content();
+            if (card.contentValid()) content = ContentScoreWriter.write(row.content(), card);
+            return new Scored(row, card, content);
+        } catch (Exception e) {
+            log.warn("Failed to score application {}: {}", row.id(), e.getMessage());
+            return new Scored(row, null, null);
+        }
+    }
+
+    /**
+     * JDBC批量条件更新，返回因版本不匹配未更新的申请ID
+     */
+    private List<Long> write(List<Scored> changed) {
+        if (changed.isEmpty()) return Collections.emptyList();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, changed, changed.size(), (ps, s) -> {
+            ScoreCard c = s.card;
+            ps.setString(1, s.content);
+            ps.setDouble(2, c.academicBase());
+            ps.setDouble(3, c.specRaw());
+            ps.setDouble(4, c.perfRaw());
+            ps.setDouble(5, c.totalScore());
+            ps.setTimestamp(6, now);
+            ps.setLong(7, s.row.id());
+            ps.setLong(8, s.row.version() != null ? s.row.version() : -1L);
+        }))[0];
+        List<Long> conflicted = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) conflicted.add(changed.get(i).row.id());
+        }
+        return conflicted;
+    }
+
+    /**
+     * JDBC 批量更新绕过了实体监听器，这里直接同步排行榜
+     */
+    private void syncLeaderboard(List<Scored> changed, List<Long> conflicted) {
+        for (Scored s : changed) {
+            if (conflicted.contains(s.row.id())) continue;
+            try {
+                leaderboardService.onApplicationChanged(s.row.id(), s.row.activityId(), s.row.status(), s.card.totalScore());
+            } catch (Exception e) {
+                log.warn("Failed to sync leaderboard for application {}: {}", s.row.id(), e.getMessage());
+            }
+        }
+    }
+
+    private void saveProgress(Long jobId, long cursor, int processed, ChunkResult r, long elapsedMillis) {
+        jdbcTemplate.update(PROGRESS_SQL, cursor, processed, r.updated, r.unchanged, r.conflicts, r.failed,
+            elapsedMillis, Timestamp.valueOf(LocalDateTime.now()), jobId);
+    }
+
+    private void markFinished(Long jobId, RescoreJobStatus status, String error) {
+        try {
+            jdbcTemplate.update("UPDATE rescore_job SET status = ?, error_message = ?, finished_at = ? WHERE id = ? AND status = 'RUNNING'",
+                status.name(), error != null && error.length() > 1000 ? error.substring(0, 1000) : error,
+                Timestamp.valueOf(LocalDateTime.now()), jobId);
+        } catch (Exception e) {
+            log.warn("Failed to mark rescore job {} as {}: {}", jobId, status, e.getMessage());
+        }
+    }
+
+    private void count(String result, long amount) {
+        if (amount <= 0) return;
+        Counter.builder("rescore_applications_total")
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment(amount);
+    }
+
+    // ========== 内部数据结构 ==========
+
+    private record Row(long id, Long activityId, ApplicationStatus status, Long version, String content,
+                       Double academicScore, Double achievementScore, Double performanceScore, Double totalScore,
+                       User user) {
+    }
+
+    private record Scored(Row row, ScoreCard card, String content) {
+        boolean unchanged() {
+            return Objects.equals(content, row.content())
+                && Objects.equals(card.academicBase(), row.academicScore())
+                && Objects.equals(card.specRaw(), row.achievementScore())
+                && Objects.equals(card.perfRaw(), row.performanceScore())
+                && Objects.equals(card.totalScore(), row.totalScore());
+        }
+    }
+
+    private static final class ChunkResult {
+        long updated, unchanged, conflicts, failed;
+    }
+
+    private static final RowMapper<Row> ROW_MAPPER = (rs, i) -> {
+        User user = new User();
+        user.setGpa(rs.getObject("gpa", Double.class));
+        user.setAcademicRank(rs.getObject("academic_rank", Integer.class));
+        user.setMajorTotal(rs.getObject("major_total", Integer.class));
+        user.setConvertedScore(rs.getObject("converted_score", Double.class));
+        return new Row(
+            rs.getLong("id"),
+            rs.getObject("activity_id", Long.class),
+            rs.getString("status") != null ? ApplicationStatus.valueOf(rs.getString("status")) : null,
+            rs.getObject("version", Long.class),
+            rs.getString("content"),
+            rs.getObject("academic_score", Double.class),
+            rs.getObject("achievement_score", Double.class),
+            rs.getObject("performance_score", Double.class),
+            rs.getObject("total_score", Double.class),
+            user);
+    };
+}
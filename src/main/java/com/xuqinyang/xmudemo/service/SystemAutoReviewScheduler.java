@@ -1,171 +1,218 @@
 package com.xuqinyang.xmudemo.service;
 
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
 import com.xuqinyang.xmudemo.model.Application;
 import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.model.ApplicationTransition;
+import com.xuqinyang.xmudemo.mq.AsyncMessagePublisher;
+import com.xuqinyang.xmudemo.outbox.OutboxService;
 import com.xuqinyang.xmudemo.repository.ApplicationRepository;
-import lombok.RequiredArgsConstructor;
+import com.xuqinyang.xmudemo.review.ShardLeaseManager;
+import com.xuqinyang.xmudemo.review.ShardedReviewProcessor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
 
 /**
- * 系统自动审核调度服务
- * 定期扫描SYSTEM_REVIEWING状态的申请并进行自动审核
+ * 系统预审调度服务
+ * 由提交事件驱动：提交事务通过发件箱登记一条延迟消息，消息在系统预审延迟队列中等待宽限期后
+ * 投递给 {@link MessageQueueListener}，再调用 {@link #reviewDue} 完成预审。预审以条件 UPDATE 执行
+ * （SYSTEM_REVIEWING -> ADMIN_REVIEWING），重复投递或并发处理时只有一次生效，不需要分布式锁。
+ *
+ * 兜底扫描每隔 sweep-interval 处理“提交超过宽限期 + sweep-slack 仍在系统审核中”的申请，
+ * 覆盖不经过事件的提交路径和消息丢失的情况；正常情况下查询结果为空，走 (status, submitted_at) 索引。
+ * 扫描按 id 分片：各节点通过 {@link ShardLeaseManager} 的 Redis 租约分摊分片，
+ * 本节点持有的分片在 autoReviewTaskExecutor 上并行处理，每片最多 sweep-limit 条，
+ * 分片内由 {@link ShardedReviewProcessor} 以 SKIP LOCKED 分块认领、批量更新。
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SystemAutoReviewScheduler {
 
+    // broker 与应用的时钟差、消息发出时间与 submittedAt 写入时间之差
+    private static final Duration DUE_TOLERANCE = Duration.ofSeconds(5);
+
     private final ApplicationRepository applicationRepository;
-    private final DistributedLockService distributedLockService;
+    private final ApplicationTransitionEngine transitionEngine;
+    private final ShardLeaseManager shardLeaseManager;
+    private final ShardedReviewProcessor shardedReviewProcessor;
+    private final Executor autoReviewTaskExecutor;
+    private final OutboxService outboxService;
+    private final AsyncMessagePublisher publisher;
+    private final MeterRegistry meterRegistry;
+    private final Duration gracePeriod;
+    private final Duration sweepSlack;
+    private final int sweepLimit;
+
+    private final Timer reviewLatency;
+
+    public SystemAutoReviewScheduler(ApplicationRepository applicationRepository,
+                                     ApplicationTransitionEngine transitionEngine,
+                                     ShardLeaseManager shardLeaseManager,
+                                     ShardedReviewProcessor shardedReviewProcessor,
+                                     @Qualifier("autoReviewTaskExecutor") Executor autoReviewTaskExecutor,
+                                     OutboxService outboxService,
+                                     AsyncMessagePublisher publisher,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.review.grace-period:60s}") Duration gracePeriod,
+                                     @Value("${app.review.sweep-slack:60s}") Duration sweepSlack,
+                                     @Value("${app.review.sweep-limit:200}") int sweepLimit) {
+        this.applicationRepository = applicationRepository;
+        this.transitionEngine = transitionEngine;
+        this.shardLeaseManager = shardLeaseManager;
+        this.shardedReviewProcessor = shardedReviewProcessor;
+        this.autoReviewTaskExecutor = autoReviewTaskExecutor;
+        this.outboxService = outboxService;
+        this.publisher = publisher;
+        this.meterRegistry = meterRegistry;
+        this.gracePeriod = gracePeriod;
+        this.sweepSlack = sweepSlack;
+        this.sweepLimit = Math.max(1, sweepLimit);
+        this.reviewLatency = Timer.builder("system_review_latency")
+            .description("Time from submit to system pre-review")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+    }
 
     /**
-     * 每15秒执行一次系统自动审核
+     * 安排一次延迟预审
+     * 在事务中调用时登记到发件箱，随提交事务一起生效；否则（提交已落库）直接异步发送
      */
-    @Scheduled(fixedRate = 15000) // 15秒
-    public void scheduleSystemReviews() {
-        String lockKey = "systemReview:scheduler";
+    public void scheduleReview(Long applicationId) {
+        Map<String, Object> message = Map.of(
+            "applicationId", applicationId,
+            "timestamp", System.currentTimeMillis()
+        );
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            outboxService.record(RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.SYSTEM_REVIEW_ROUTING_KEY, message);
+        } else {
+            publisher.enqueue(RabbitMQConfig.DIRECT_EXCHANGE, RabbitMQConfig.SYSTEM_REVIEW_ROUTING_KEY, message);
+        }
+    }
 
+    /**
+     * 宽限期已过且仍在系统审核中时执行预审
+     *
+     * @return 是否由本次调用完成预审
+     */
+    public boolean reviewDue(Long applicationId, String trigger) {
+        Application app = applicationRepository.findById(applicationId).orElse(null);
+        if (app == null || app.getStatus() != ApplicationStatus.SYSTEM_REVIEWING) {
+            count(trigger, "skipped", 1);
+            return false;
+        }
+        LocalDateTime submittedAt = app.getSubmittedAt();
+        if (submittedAt != null && submittedAt.plus(gracePeriod).isAfter(LocalDateTime.now().plus(DUE_TOLERANCE))) {
+            // 提交后又被重新提交，较新的那条延迟消息会再来
+            log.debug("Application {} is still within the grace period, skipping", applicationId);
+            count(trigger, "not_due", 1);
+            return false;
+        }
         try {
-            if (distributedLockService.tryLock(lockKey, 50, java.util.concurrent.TimeUnit.SECONDS)) {
-                try {
-                    processSystemReviews();
-                } finally {
-                    distributedLockService.unlock(lockKey);
-                }
-            } else {
-                log.debug("System review scheduler already running on another instance");
-            }
-        } catch (Exception e) {
-            log.error("Error in system review scheduler", e);
+            transitionEngine.apply(applicationId, ApplicationTransition.SYSTEM_PRE_REVIEW, this::markPreReviewed);
+        } catch (IllegalStateException e) {
+            // 已被其他节点或人工处理
+            count(trigger, "skipped", 1);
+            return false;
         }
+        if (submittedAt != null) {
+            reviewLatency.record(Duration.between(submittedAt, LocalDateTime.now()));
+        }
+        count(trigger, "reviewed", 1);
+        log.info("Application {} passed system pre-review ({}), moved to manual review queue", applicationId, trigger);
+        return true;
     }
 
     /**
-     * 处理系统审核
+     * 兜底扫描本节点持有的分片
      */
-    private void processSystemReviews() {
-        log.info("Starting system auto review processing");
-
-        // 查找所有待系统审核的申请，按提交时间排序
-        List<Application> pendingReviews = applicationRepository.findByStatusOrderByLastUpdateDateAsc(ApplicationStatus.SYSTEM_REVIEWING);
-
-        if (pendingReviews.isEmpty()) {
-            log.debug("No applications pending system review");
+    @Scheduled(fixedDelayString = "${app.review.sweep-interval-ms:300000}",
+               initialDelayString = "${app.review.sweep-interval-ms:300000}")
+    public void sweepOverdue() {
+        Collection<Integer> shards = shardLeaseManager.ownedShards();
+        if (shards.isEmpty()) {
+            log.debug("No review shards owned by this node, skipping sweep");
             return;
         }
-
-        log.info("Found {} applications pending system review", pendingReviews.size());
-
-        // 逐个处理申请
-        int processedCount = 0;
-        for (Application application : pendingReviews) {
-            try {
-                if (processApplication(application)) {
-                    processedCount++;
-                }
-            } catch (Exception e) {
-                log.error("Error processing application {} for auto review", application.getId(), e);
-            }
+        int reviewed = reviewShards(shards, LocalDateTime.now().minus(gracePeriod).minus(sweepSlack), "sweep");
+        if (reviewed > 0) {
+            log.warn("System review sweep picked up {} applications missed by the submit event", reviewed);
         }
-
-        log.info("System auto review completed, processed {} applications", processedCount);
     }
 
     /**
-     * 处理单个申请
+     * 并行处理若干分片中提交时间早于 cutoff 的申请
+     *
+     * @return 完成预审的数量
      */
-    private boolean processApplication(Application application) {
-        // 检查申请是否超过一定时间未处理（避免重复处理刚提交的申请）
-        LocalDateTime submitTime = application.getSubmittedAt();
-        if (submitTime != null && submitTime.plusMinutes(1).isAfter(LocalDateTime.now())) {
-            log.debug("Application {} submitted too recently, skipping", application.getId());
-            return false;
-        }
-
-        String lockKey = "systemReview:process:" + application.getId();
-
-        try {
-            // 使用默认重试策略（10次），移除硬编码的3次
-            return distributedLockService.executeWithLockAndRetry(lockKey, () -> {
-                // 重新查询申请状态（防止并发修改）
-                Application app = applicationRepository.findById(application.getId()).orElse(null);
-                if (app == null) {
-                    log.warn("Application {} not found during processing", application.getId());
-                    return false;
-                }
-
-                if (app.getStatus() != ApplicationStatus.SYSTEM_REVIEWING) {
-                    log.debug("Application {} status changed to {}, skipping", app.getId(), app.getStatus());
-                    return false;
-                }
-
-                // 执行自动审核 - 修改为跳转到人工审核
-                performAutoReview(app);
-                return true;
-            });
-        } catch (RuntimeException e) {
-            // 高并发时可能无法获取锁，这是正常的，不应该算作错误
-            if (e.getMessage() != null && e.getMessage().contains("Unable to acquire lock")) {
-                log.debug("Could not acquire lock for application {} due to high concurrency, will retry in next cycle", application.getId());
-                return false;
-            }
-            // 其他异常继续抛出
-            throw e;
+    int reviewShards(Collection<Integer> shards, LocalDateTime cutoff, String trigger) {
+        int shardCount = shardLeaseManager.shards();
+        List<CompletableFuture<Integer>> futures = shards.stream()
+            .map(shard -> CompletableFuture
+                .supplyAsync(() -> shardedReviewProcessor.reviewShard(shard, shardCount, cutoff, sweepLimit), autoReviewTaskExecutor)
+                .exceptionally(e -> {
+                    log.error("Error reviewing shard {}", shard, e);
+                    return 0;
+                }))
+            .toList();
+        int reviewed = futures.stream().mapToInt(CompletableFuture::join).sum();
+        if (reviewed > 0) {
+            count(trigger, "reviewed", reviewed);
         }
+        return reviewed;
     }
 
     /**
-     * 执行自动审核逻辑 - 系统预审核通过后进入人工审核阶段
+     * 系统预审通过后进入人工审核阶段
      */
-    @Transactional
-    public void performAutoReview(Application application) {  // 改为public方法使@Transactional生效
-        log.info("Processing system pre-review for application: {}", application.getId());
-
-        try {
-            // 修复：系统审核通过后应该进入人工审核阶段，而不是直接通过
-            application.setStatus(ApplicationStatus.ADMIN_REVIEWING);
-            application.setSystemReviewComment("系统预审核通过，等待人工审核");
-            application.setSystemReviewedAt(LocalDateTime.now());
-
-            applicationRepository.save(application);
-
-            log.info("Application {} passed system pre-review, moved to manual review queue", application.getId());
-
-        } catch (Exception e) {
-            log.error("Error during system pre-review for application: {}", application.getId(), e);
-            // 审核失败时保持原状态，等待下次处理或人工介入
-        }
+    private void markPreReviewed(Application application) {
+        application.setStatus(ApplicationStatus.ADMIN_REVIEWING);
+        application.setSystemReviewComment(ShardedReviewProcessor.PRE_REVIEW_COMMENT);
+        application.setSystemReviewedAt(LocalDateTime.now());
     }
 
     /**
-     * 手动触发系统审核（用于测试或紧急情况）
+     * 手动触发系统审核（用于测试或紧急情况）：在本节点处理全部分片中已过宽限期的申请，每片最多 sweep-limit 条
      */
     public void triggerManualReview() {
         log.info("Manual system review triggered");
-        processSystemReviews();
+        List<Integer> allShards = IntStream.range(0, shardLeaseManager.shards()).boxed().toList();
+        int reviewed = reviewShards(allShards, LocalDateTime.now().minus(gracePeriod), "manual");
+        log.info("Manual system review completed, processed {} applications", reviewed);
     }
 
     /**
-     * 为特定申请触发审核
+     * 为特定申请触发审核，不等待宽限期
      */
     public void triggerReviewForApplication(Long applicationId) {
-        distributedLockService.executeWithLockAndRetry("systemReview:manual:" + applicationId, () -> {
-            Application application = applicationRepository.findById(applicationId)
-                .orElseThrow(() -> new IllegalArgumentException("申请不存在"));
-
-            if (application.getStatus() != ApplicationStatus.SYSTEM_REVIEWING) {
-                throw new IllegalStateException("申请状态不是系统审核中");
-            }
+        if (!applicationRepository.existsById(applicationId)) {
+            throw new IllegalArgumentException("申请不存在");
+        }
+        transitionEngine.apply(applicationId, ApplicationTransition.SYSTEM_PRE_REVIEW, this::markPreReviewed);
+        count("manual", "reviewed", 1);
+        log.info("Manual review completed for application {}", applicationId);
+    }
 
-            performAutoReview(application);
-            log.info("Manual review completed for application {}", applicationId);
-            return null;
-        }, 3);
+    private void count(String trigger, String result, int amount) {
+        Counter.builder("system_review_total")
+            .tag("trigger", trigger)
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment(amount);
     }
 }
@@ -6,21 +6,36 @@ import com.xuqinyang.xmudemo.repository.UserRepository;
 import com.xuqinyang.xmudemo.repository.ApplicationRepository;
 import com.xuqinyang.xmudemo.model.ApplicationStatus;
 import com.xuqinyang.xmudemo.dto.NotificationCacheDTO;
+import com.xuqinyang.xmudemo.notification.NotificationInbox;
+import com.xuqinyang.xmudemo.notification.NotificationPushHub;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * 用户通知服务
  * 负责创建、获取和管理用户通知
- * 使用Redis缓存 + 消息队列优化高并发性能
+ * 通知经消息队列异步写入数据库；未读数和最近未读通知保存在 Redis 收件箱（{@link NotificationInbox}），
+ * 写库提交后更新，读取时不访问数据库，收件箱缺失时才从数据库重建
  */
 @Service
 @RequiredArgsConstructor
@@ -32,9 +47,24 @@ public class UserNotificationService {
     private final ApplicationRepository applicationRepository;
     private final CacheService cacheService;
     private final MessageQueueService messageQueueService; // 新增：消息队列服务
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationPushHub pushHub;
+    private final NotificationInbox inbox;
 
-    // 缓存键前缀
-    private static final String NOTIFICATION_CACHE_PREFIX = "notification:";
+    // 学号 -> 用户ID，通知接口每次请求都要解析，映射基本不变
+    private final Cache<String, Long> userIdsByStudentId = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfterWrite(Duration.ofHours(1))
+        .build();
+
+    private static final String INSERT_SQL =
+        "INSERT INTO user_notifications (user_id, title, content, type, is_read, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 待写入的通知
+     */
+    public record PendingNotification(Long userId, String title, String content, String type) {
+    }
 
     // 缓存过期时间
     private static final int CACHE_EXPIRE_SECONDS = 30; // 30秒缓存
@@ -46,13 +76,16 @@ public class UserNotificationService {
     public void createNotificationAsync(Long userId, String title, String content, String type) {
         try {
             // 通过消息队列异步创建通知
-            messageQueueService.sendNotificationMessage(userId, title, content, type);
-            log.debug("Queued notification for user {}: {}", userId, title);
+            if (messageQueueService.sendNotificationMessage(userId, title, content, type)) {
+                log.debug("Queued notification for user {}: {}", userId, title);
+                return;
+            }
+            log.warn("Notification buffer full, creating notification for user {} synchronously", userId);
         } catch (Exception e) {
             log.error("Failed to queue notification for user {}: {}", userId, e.getMessage(), e);
-            // 降级：如果消息队列失败，直接同步创建
-            createNotificationSync(userId, title, content, type);
         }
+        // 降级：消息未能入队（缓冲区满或消息队列异常），直接同步创建
+        createNotificationSync(userId, title, content, type);
     }
 
     /**
@@ -76,8 +109,9 @@ public class UserNotificationService {
 
             notificationRepository.save(notification);
 
-            // 清除相关缓存
-            evictNotificationCache(userId);
+            Map<String, Object> view = notificationView(notification.getId(), title, content, type, notification.getCreatedAt());
+            afterCommit(() -> inbox.add(userId, List.of(view)));
+            pushHub.publish(List.of(new NotificationPushHub.PushEvent(userId, 1, view)));
 
             log.info("Created notification for user {}: {}", userId, title);
 
@@ -86,6 +120,52 @@ public class UserNotificationService {
         }
     }
 
+    /**
+     * 批量写入通知：一次查询过滤不存在的用户，再用一条 JDBC 批量 INSERT 写入
+     * 应在调用方事务中执行；提交后更新各用户的收件箱并推送
+     *
+     * @return 实际写入的条数
+     */
+    public int insertBatch(List<PendingNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return 0;
+        }
+        Set<Long> userIds = new HashSet<>();
+        notifications.forEach(n -> userIds.add(n.userId()));
+        Set<Long> existing = new HashSet<>(userRepository.findExistingIds(userIds));
+        List<PendingNotification> valid = new ArrayList<>(notifications.size());
+        for (PendingNotification n : notifications) {
+            if (existing.contains(n.userId())) {
+                valid.add(n);
+            } else {
+                log.warn("Attempted to create notification for non-existent user: {}", n.userId());
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, valid, valid.size(), (ps, n) -> {
+            ps.setLong(1, n.userId());
+            ps.setString(2, n.title());
+            ps.setString(3, n.content());
+            ps.setString(4, n.type());
+            ps.setBoolean(5, false);
+            ps.setTimestamp(6, now);
+        });
+        List<NotificationPushHub.PushEvent> events = new ArrayList<>(valid.size());
+        Map<Long, List<Map<String, Object>>> byUser = new LinkedHashMap<>();
+        for (PendingNotification n : valid) {
+            Map<String, Object> view = notificationView(null, n.title(), n.content(), n.type(), now.toLocalDateTime());
+            events.add(new NotificationPushHub.PushEvent(n.userId(), 1, view));
+            byUser.computeIfAbsent(n.userId(), id -> new ArrayList<>()).add(view);
+        }
+        afterCommit(() -> byUser.forEach(inbox::add));
+        pushHub.publish(events);
+        log.info("Created {} notifications for {} users in one batch", valid.size(), existing.size());
+        return valid.size();
+    }
+
     /**
      * 创建用户通知 - 兼容旧接口（默认使用异步方式）
      */
@@ -98,48 +178,28 @@ public class UserNotificationService {
      */
     public void createNotificationByStudentId(String studentId, String title, String content, String type) {
         try {
-            userRepository.findByStudentId(studentId).ifPresentOrElse(
-                user -> createNotificationAsync(user.getId(), title, content, type),
-                () -> log.warn("User not found for studentId: {}", studentId)
-            );
+            Long userId = userIdOf(studentId);
+            if (userId != null) {
+                createNotificationAsync(userId, title, content, type);
+            } else {
+                log.warn("User not found for studentId: {}", studentId);
+            }
         } catch (Exception e) {
             log.error("Failed to create notification for studentId {}: {}", studentId, e.getMessage(), e);
         }
     }
 
     /**
-     * 获取用户未读通知（带缓存）
+     * 获取用户最近的未读通知（最多收件箱容量条），收件箱命中时不访问数据库
      */
     public List<Map<String, Object>> getUnreadNotifications(Long userId) {
         try {
-            // 尝试从缓存获取
-            String cacheKey = "unread_list_" + userId;
-            Object cached = cacheService.getActivitiesListFromCache(cacheKey);
-            if (cached instanceof List<?>) {
-                @SuppressWarnings("unchecked")
-                List<NotificationCacheDTO> dtoList = (List<NotificationCacheDTO>) cached;
-                log.debug("Cache hit for unread notifications: userId={}", userId);
-                return dtoList.stream()
-                    .map(NotificationCacheDTO::toMap)
-                    .collect(Collectors.toList());
+            List<Map<String, Object>> cached = inbox.preview(userId);
+            if (cached != null) {
+                return cached;
             }
-
-            // 缓存未命中，查询数据库
-            List<UserNotification> notifications = notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(userId);
-
-            // 转换为DTO并缓存
-            List<NotificationCacheDTO> dtoList = notifications.stream()
-                .map(NotificationCacheDTO::fromEntity)
-                .collect(Collectors.toList());
-
-            // 存入缓存
-            cacheService.putActivitiesListToCache(cacheKey, dtoList, CACHE_EXPIRE_SECONDS, TimeUnit.SECONDS);
-
-            // 返回Map格式
-            return dtoList.stream()
-                .map(NotificationCacheDTO::toMap)
-                .collect(Collectors.toList());
-
+            List<Map<String, Object>> unread = loadInbox(userId);
+            return unread.subList(0, Math.min(inbox.size(), unread.size()));
         } catch (Exception e) {
             log.error("Failed to get unread notifications for user {}: {}", userId, e.getMessage(), e);
             return new ArrayList<>();
@@ -167,8 +227,8 @@ public class UserNotificationService {
             // 标记所有未读通知为已读
             int markedCount = notificationRepository.markAllAsReadByUserId(userId);
 
-            // 清除缓存
-            evictNotificationCache(userId);
+            afterCommit(() -> inbox.clear(userId));
+            pushHub.publish(List.of(new NotificationPushHub.PushEvent(userId, -markedCount, null)));
 
             // 异步删除已读通知（保持数据库清洁）
             try {
@@ -188,32 +248,34 @@ public class UserNotificationService {
     }
 
     /**
-     * 获取用户未读通知数量（带缓存）
+     * 获取用户未读通知数量，收件箱命中时不访问数据库
      */
     public long getUnreadCount(Long userId) {
         try {
-            // 尝试从缓存获取
-            String cacheKey = "unread_count_" + userId;
-            Object cached = cacheService.getStats(cacheKey);
-            if (cached instanceof Number) {
-                long count = ((Number) cached).longValue();
-                log.debug("Cache hit for unread count: userId={}, count={}", userId, count);
-                return count;
+            Long cached = inbox.unreadCount(userId);
+            if (cached != null) {
+                return cached;
             }
-
-            // 缓存未命中，查询数据库
-            long count = notificationRepository.countByUserIdAndIsReadFalse(userId);
-
-            // 存入缓存
-            cacheService.cacheStats(cacheKey, count, CACHE_EXPIRE_SECONDS, TimeUnit.SECONDS);
-
-            return count;
+            return loadInbox(userId).size();
         } catch (Exception e) {
             log.error("Failed to get unread count for user {}: {}", userId, e.getMessage(), e);
             return 0;
         }
     }
 
+    /**
+     * 从数据库读取全部未读通知并初始化收件箱
+     *
+     * @return 全部未读通知，最新在前
+     */
+    private List<Map<String, Object>> loadInbox(Long userId) {
+        List<Map<String, Object>> unread = notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDesc(userId).stream()
+            .map(n -> NotificationCacheDTO.fromEntity(n).toMap())
+            .collect(Collectors.toList());
+        inbox.load(userId, unread.size(), unread);
+        return unread;
+    }
+
     /**
      * 获取审核员待处理的申请数量（新增功能）
      */
@@ -247,9 +309,8 @@ public class UserNotificationService {
     @Transactional
     public List<Map<String, Object>> consumeNotificationsByStudentId(String studentId) {
         try {
-            return userRepository.findByStudentId(studentId)
-                .map(user -> consumeNotifications(user.getId()))
-                .orElse(new ArrayList<>());
+            Long userId = userIdOf(studentId);
+            return userId != null ? consumeNotifications(userId) : new ArrayList<>();
         } catch (Exception e) {
             log.error("Failed to consume notifications for studentId {}: {}", studentId, e.getMessage(), e);
             return new ArrayList<>();
@@ -261,9 +322,8 @@ public class UserNotificationService {
      */
     public long getUnreadCountByStudentId(String studentId) {
         try {
-            return userRepository.findByStudentId(studentId)
-                .map(user -> getUnreadCount(user.getId()))
-                .orElse(0L);
+            Long userId = userIdOf(studentId);
+            return userId != null ? getUnreadCount(userId) : 0;
         } catch (Exception e) {
             log.error("Failed to get unread count for studentId {}: {}", studentId, e.getMessage(), e);
             return 0;
@@ -275,9 +335,8 @@ public class UserNotificationService {
      */
     public long getPendingReviewCountByStudentId(String studentId) {
         try {
-            return userRepository.findByStudentId(studentId)
-                .map(user -> getPendingReviewCount(user.getId()))
-                .orElse(0L);
+            Long userId = userIdOf(studentId);
+            return userId != null ? getPendingReviewCount(userId) : 0;
         } catch (Exception e) {
             log.error("Failed to get pending review count for studentId {}: {}", studentId, e.getMessage(), e);
             return 0;
@@ -289,9 +348,7 @@ public class UserNotificationService {
      */
     public Long getUserIdByStudentId(String studentId) {
         try {
-            return userRepository.findByStudentId(studentId)
-                .map(user -> user.getId())
-                .orElse(null);
+            return userIdOf(studentId);
         } catch (Exception e) {
             log.error("Failed to get userId for studentId {}: {}", studentId, e.getMessage(), e);
             return null;
@@ -313,17 +370,33 @@ public class UserNotificationService {
     }
 
     /**
-     * 清除用户通知相关缓存
+     * 学号解析为用户ID；不存在的学号不缓存
      */
-    private void evictNotificationCache(Long userId) {
-        try {
-            // 清除未读通知列表缓存
-            cacheService.evictCache("notification", "unread_list_" + userId);
-            // 清除未读通知数量缓存
-            cacheService.evictCache("notification", "unread_count_" + userId);
-            log.debug("Evicted notification cache for user {}", userId);
-        } catch (Exception e) {
-            log.warn("Failed to evict notification cache for user {}: {}", userId, e.getMessage());
+    private Long userIdOf(String studentId) {
+        Long cached = userIdsByStudentId.getIfPresent(studentId);
+        if (cached != null) {
+            return cached;
+        }
+        Long userId = userRepository.findByStudentId(studentId).map(user -> user.getId()).orElse(null);
+        if (userId != null) {
+            userIdsByStudentId.put(studentId, userId);
+        }
+        return userId;
+    }
+
+    /**
+     * 事务提交后执行（无事务时立即执行），避免回滚的写入进入收件箱
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 
@@ -340,6 +413,23 @@ public class UserNotificationService {
         }
     }
 
+    /**
+     * 收件箱和推送中的通知内容，字段与 {@link NotificationCacheDTO#toMap()} 一致
+     */
+    private static Map<String, Object> notificationView(Long id, String title, String content, String type,
+                                                        LocalDateTime createdAt) {
+        Map<String, Object> view = new HashMap<>();
+        if (id != null) {
+            view.put("id", id);
+        }
+        view.put("title", title);
+        view.put("content", content != null ? content : "");
+        view.put("type", type != null ? type : "");
+        view.put("createdAt", String.valueOf(createdAt != null ? createdAt : LocalDateTime.now()));
+        view.put("isRead", false);
+        return view;
+    }
+
     /**
      * 转换通知为Map格式
      */
@@ -0,0 +1,148 @@
+package com.xuqinyang.xmudemo.stats;
+
+import com.xuqinyang.xmudemo.service.MessageQueueService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * API 调用统计聚合
+ * 请求线程只在内存中按“分钟 + 方法 + 路由模板 + 状态码”累加计数和延迟直方图；
+ * 每分钟结束后由调度线程把这一分钟汇总成一条 API_SUMMARY 消息发出，每个节点每分钟一条，
+ * 取代原来每个请求一条的 API_CALL / ERROR 统计消息。
+ *
+ * 累加在读锁内完成，摘除分钟在写锁内完成，摘除后不会再有记录写进已摘下的那份统计；
+ * 分钟切换后迟到的记录会重新建出该分钟的统计，在下一轮作为该分钟的补充汇总发出，不会丢失。
+ */
+@Component
+@Slf4j
+public class ApiStatsAggregator {
+
+    static final long MINUTE_MILLIS = 60_000;
+
+    record RouteKey(String method, String route, int status) {
+    }
+
+    static final class RouteStats {
+        final LongAdder calls = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    private final MessageQueueService messageQueueService;
+    private final String node = ManagementFactory.getRuntimeMXBean().getName();
+    // 分钟起始时间 -> 该分钟内各路由的统计
+    private final ConcurrentSkipListMap<Long, Map<RouteKey, RouteStats>> minutes = new ConcurrentSkipListMap<>();
+    // 请求线程共享读锁累加，调度线程独占写锁摘除分钟
+    private final StampedLock lock = new StampedLock();
+
+    public ApiStatsAggregator(MessageQueueService messageQueueService) {
+        this.messageQueueService = messageQueueService;
+    }
+
+    public void record(String method, String route, int status, long durationMillis) {
+        record(System.currentTimeMillis(), method, route, status, durationMillis);
+    }
+
+    void record(long now, String method, String route, int status, long durationMillis) {
+        long minute = now - now % MINUTE_MILLIS;
+        long stamp = lock.readLock();
+        try {
+            RouteStats stats = minutes.computeIfAbsent(minute, m -> new ConcurrentHashMap<>())
+                .computeIfAbsent(new RouteKey(method, route, status), k -> new RouteStats());
+            stats.calls.increment();
+            stats.latency.record(durationMillis);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 发出所有已结束分钟的汇总
+     */
+    @Scheduled(fixedDelay = 10000, initialDelay = 10000)
+    public void flushCompletedMinutes() {
+        flush(System.currentTimeMillis(), false);
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flush(System.currentTimeMillis(), true);
+    }
+
+    void flush(long now, boolean includeCurrent) {
+        long currentMinute = now - now % MINUTE_MILLIS;
+        List<Map.Entry<Long, Map<RouteKey, RouteStats>>> completed = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            Iterator<Map.Entry<Long, Map<RouteKey, RouteStats>>> it = minutes.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Map<RouteKey, RouteStats>> e = it.next();
+                if (!includeCurrent && e.getKey() >= currentMinute) {
+                    break;
+                }
+                completed.add(Map.entry(e.getKey(), e.getValue()));
+                it.remove();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        // 发送在锁外进行，不阻塞请求线程
+        for (Map.Entry<Long, Map<RouteKey, RouteStats>> e : completed) {
+            try {
+                messageQueueService.sendDataStatisticsMessage("SYSTEM", "API_SUMMARY", summary(e.getKey(), e.getValue()));
+            } catch (Exception ex) {
+                log.warn("Failed to emit API summary for minute {}: {}", e.getKey(), ex.getMessage());
+            }
+        }
+    }
+
+    Map<String, Object> summary(long minute, Map<RouteKey, RouteStats> routes) {
+        List<Map<String, Object>> rows = new ArrayList<>(routes.size());
+        long calls = 0;
+        long errors = 0;
+        for (Map.Entry<RouteKey, RouteStats> e : routes.entrySet()) {
+            RouteKey key = e.getKey();
+            LatencyHistogram h = e.getValue().latency;
+            long count = e.getValue().calls.sum();
+            Map<String, Object> row = new HashMap<>();
+            row.put("method", key.method());
+            row.put("route", key.route());
+            row.put("status", key.status());
+            row.put("count", count);
+            row.put("meanMs", Math.round(h.mean()));
+            row.put("p50Ms", h.percentile(0.50));
+            row.put("p95Ms", h.percentile(0.95));
+            row.put("p99Ms", h.percentile(0.99));
+            row.put("maxMs", h.max());
+            row.put("buckets", h.buckets());
+            rows.add(row);
+            calls += count;
+            if (key.status() >= 400 && key.status() != 401 && key.status() != 403) {
+                errors += count;
+            }
+        }
+        return Map.of(
+            "node", node,
+            "minute", minute,
+            "calls", calls,
+            "errors", errors,
+            "routes", rows
+        );
+    }
+
+    int pendingMinutes() {
+        return minutes.size();
+    }
+}
@@ -0,0 +1,109 @@
+package com.xuqinyang.xmudemo.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对数-线性分桶的延迟直方图（毫秒），思路同 HdrHistogram 的简化版
+ * 0~15ms 每毫秒一个桶；之后每个 2 的幂区间再等分 8 个子桶，分位数相对误差不超过 12.5%；
+ * 超过约 35 分钟的值计入最后一个桶。写入只是原子自增，可被多个请求线程并发调用。
+ * 桶边界固定，不同节点的直方图按桶上界直接相加即可合并。
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR = SUB_BUCKETS * 2;
+    private static final int MIN_EXPONENT = SUB_BITS + 1;
+    private static final int MAX_EXPONENT = 20;
+    static final int BUCKETS = LINEAR + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long millis) {
+        long v = Math.max(0, millis);
+        counts.incrementAndGet(index(v));
+        total.increment();
+        sum.add(v);
+        if (v > max.get()) {
+            max.accumulateAndGet(v, Math::max);
+        }
+    }
+
+    static int index(long v) {
+        if (v < LINEAR) {
+            return (int) v;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int k = index - LINEAR;
+        int exponent = MIN_EXPONENT + k / SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + k % SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    static long upperBound(int index) {
+        return index == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(index + 1) - 1;
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * 分位数，返回所在桶的上界（不超过实际最大值）
+     */
+    public long percentile(double q) {
+        long n = total.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 非空桶：桶上界（毫秒）-> 计数，用于跨节点合并
+     */
+    public Map<Long, Long> buckets() {
+        Map<Long, Long> out = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c > 0) {
+                out.put(upperBound(i), c);
+            }
+        }
+        return out;
+    }
+}
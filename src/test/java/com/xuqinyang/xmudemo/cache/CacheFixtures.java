@@ -0,0 +1,74 @@
+package com.xuqinyang.xmudemo.cache;
+
+import com.xuqinyang.xmudemo.dto.ApplicationCacheDTO;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * 缓存序列化测试与基准共用的数据：与 applications_all 列表同形的 ApplicationCacheDTO
+ */
+final class CacheFixtures {
+
+    private static final ApplicationStatus[] STATUSES = ApplicationStatus.values();
+
+    private CacheFixtures() {
+    }
+
+    static ArrayList<ApplicationCacheDTO> applications(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<ApplicationCacheDTO> list = new ArrayList<>(count);
+        LocalDateTime base = LocalDateTime.of(2025, 9, 1, 8, 0);
+        for (int i = 0; i < count; i++) {
+            ApplicationCacheDTO dto = new ApplicationCacheDTO();
+            dto.setId((long) i + 1);
+            dto.setContent(content(random));
+            dto.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            dto.setCreatedAt(base.plusMinutes(i));
+            dto.setLastUpdateDate(base.plusMinutes(i + 30));
+            dto.setSubmittedAt(random.nextBoolean() ? base.plusHours(2) : null);
+            dto.setSystemReviewComment(random.nextBoolean() ? "系统审核通过" : null);
+            dto.setAcademicScore(60 + random.nextDouble() * 20);
+            dto.setAchievementScore(random.nextDouble() * 15);
+            dto.setPerformanceScore(random.nextDouble() * 5);
+            dto.setTotalScore(dto.getAcademicScore() + dto.getAchievementScore() + dto.getPerformanceScore());
+            dto.setVersion((long) random.nextInt(10));
+            dto.setUserId((long) 1000 + i);
+            dto.setUserStudentId("2025" + String.format("%06d", i));
+            dto.setUserName("学生" + i);
+            dto.setActivityId(1L);
+            dto.setActivityName("2026年推荐免试研究生");
+            list.add(dto);
+        }
+        return list;
+    }
+
+    /**
+     * 申请内容 JSON：基本信息 + 若干论文/竞赛，约 1~3 KB
+     */
+    static String content(Random random) {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("{\"basicInfo\":{\"name\":\"学生\",\"gpa\":").append(3 + random.nextInt(100) / 100.0)
+            .append(",\"major\":\"计算机科学与技术\",\"rank\":").append(random.nextInt(200)).append("},");
+        sb.append("\"academicAchievements\":{\"publications\":[");
+        int pubs = 1 + random.nextInt(5);
+        for (int p = 0; p < pubs; p++) {
+            if (p > 0) sb.append(',');
+            sb.append("{\"title\":\"基于深度学习的图像识别方法研究 ").append(p)
+                .append("\",\"type\":\"A类\",\"journal\":\"IEEE TPAMI\",\"authorRank\":").append(1 + random.nextInt(3))
+                .append(",\"proof\":\"/uploads/proof-").append(random.nextInt(100000)).append(".pdf\"}");
+        }
+        sb.append("],\"competitions\":[");
+        int comps = random.nextInt(6);
+        for (int c = 0; c < comps; c++) {
+            if (c > 0) sb.append(',');
+            sb.append("{\"name\":\"中国国际大学生创新大赛\",\"level\":\"A类\",\"award\":\"国家级二等奖\",\"teamRank\":")
+                .append(1 + random.nextInt(5)).append('}');
+        }
+        sb.append("]},\"comprehensivePerformance\":{\"volunteerHours\":").append(random.nextInt(300))
+            .append(",\"remark\":\"曾获\\\"优秀学生干部\\\"称号\"}}");
+        return sb.toString();
+    }
+}
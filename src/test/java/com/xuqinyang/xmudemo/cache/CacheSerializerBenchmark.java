@@ -0,0 +1,84 @@
+package com.xuqinyang.xmudemo.cache;
+
+import com.xuqinyang.xmudemo.config.RedisConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存值序列化基准测试：带类型信息的 JSON vs 带版本头的 Smile
+ * 对象为 applications_all 同形的 ApplicationCacheDTO 列表；setup 时打印两种格式的字节数
+ * 运行方式：mvn test-compile 后执行 main 方法；加 -prof gc 可观察分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheSerializerBenchmark {
+
+    @Param({"1", "100", "1000"})
+    public int size;
+
+    private GenericJackson2JsonRedisSerializer json;
+    private VersionedSmileRedisSerializer smile;
+    private List<?> value;
+    private byte[] jsonBytes;
+    private byte[] smileBytes;
+
+    @Setup
+    public void setup() {
+        RedisConfig config = new RedisConfig();
+        json = new GenericJackson2JsonRedisSerializer(config.redisObjectMapper());
+        smile = new VersionedSmileRedisSerializer(config.redisObjectMapper());
+        value = CacheFixtures.applications(size, 42);
+        jsonBytes = json.serialize(value);
+        smileBytes = smile.serialize(value);
+        System.out.printf("%n[size=%d] json=%d bytes, smile=%d bytes (%.1f%%)%n",
+            size, jsonBytes.length, smileBytes.length, 100.0 * smileBytes.length / jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return json.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] smileSerialize() {
+        return smile.serialize(value);
+    }
+
+    @Benchmark
+    public Object jsonDeserialize() {
+        return json.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Object smileDeserialize() {
+        return smile.deserialize(smileBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CacheSerializerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,137 @@
+package com.xuqinyang.xmudemo.cache;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 一级缓存：TTL 上限、失效戳防止旧值回填、跨节点 pub/sub 失效、按缓存名的指标
+ */
+class NearCacheManagerTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private RedisMessageListenerContainer containerA;
+    private RedisMessageListenerContainer containerB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (containerA != null) containerA.destroy();
+        if (containerB != null) containerB.destroy();
+        factory.destroy();
+        server.stop();
+    }
+
+    private NearCacheManager node(SimpleMeterRegistry registry) {
+        return new NearCacheManager(new StringRedisTemplate(factory), registry, 100, Duration.ofSeconds(30));
+    }
+
+    private RedisMessageListenerContainer subscribe(NearCacheManager manager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(manager, new ChannelTopic(NearCacheManager.CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        return container;
+    }
+
+    private static void awaitNull(NearCache cache, String key) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.get(key) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNull(cache.get(key), "entry " + key + " should have been invalidated remotely");
+    }
+
+    @Test
+    void entryNeverOutlivesGivenTtl() throws Exception {
+        NearCache cache = node(new SimpleMeterRegistry()).getCache("stats");
+        cache.put("short", "v", Duration.ofMillis(50));
+        cache.put("long", "v", Duration.ofHours(1));
+        Thread.sleep(120);
+        assertNull(cache.get("short"));
+        assertEquals("v", cache.get("long"));
+    }
+
+    @Test
+    void invalidationBetweenReadAndFillSkipsFill() {
+        NearCache cache = node(new SimpleMeterRegistry()).getCache("activity");
+        long stamp = cache.stamp();
+        cache.invalidate("1");
+        cache.putIfUnchanged("1", "stale", stamp);
+        assertNull(cache.get("1"));
+
+        cache.putIfUnchanged("1", "fresh", cache.stamp());
+        assertEquals("fresh", cache.get("1"));
+    }
+
+    @Test
+    void evictionsPropagateToOtherNodes() throws Exception {
+        NearCacheManager a = node(new SimpleMeterRegistry());
+        NearCacheManager b = node(new SimpleMeterRegistry());
+        containerA = subscribe(a);
+        containerB = subscribe(b);
+
+        NearCache onB = b.getCache("activity");
+        onB.put("1", "x");
+        onB.put("list:all", "y");
+        onB.put("list:active", "z");
+        a.getCache("activity").put("1", "x");
+
+        a.evict("activity", "1");
+        awaitNull(onB, "1");
+        assertEquals("y", onB.get("list:all"));
+
+        a.evictPrefix("activity", "list:");
+        awaitNull(onB, "list:all");
+        awaitNull(onB, "list:active");
+
+        // 本节点发出的消息不会再次作用于自己
+        NearCache onA = a.getCache("activity");
+        onA.put("2", "mine");
+        a.evictRemote("activity", "2");
+        Thread.sleep(200);
+        assertEquals("mine", onA.get("2"));
+    }
+
+    @Test
+    void hitAndMissMetricsArePerCacheName() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        NearCacheManager manager = node(registry);
+        NearCache stats = manager.getCache("stats");
+        stats.put("k", 1L);
+        stats.get("k");
+        stats.get("missing");
+        manager.getCache("activity").get("missing");
+
+        double statsHits = registry.get("cache.gets").tags("cache", "stats", "result", "hit").functionCounter().count();
+        double statsMisses = registry.get("cache.gets").tags("cache", "stats", "result", "miss").functionCounter().count();
+        double activityMisses = registry.get("cache.gets").tags("cache", "activity", "result", "miss").functionCounter().count();
+        assertEquals(1, statsHits);
+        assertEquals(1, statsMisses);
+        assertEquals(1, activityMisses);
+        assertTrue(registry.find("cache.evictions").tags("cache", "stats", "level", "l1").functionCounter() != null);
+    }
+}
@@ -0,0 +1,110 @@
+package com.xuqinyang.xmudemo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 请求合并：并发调用只加载一次、异常传给所有等待者、后台刷新期间的同步调用拿到刷新结果
+ */
+class SingleFlightTest {
+
+    private static final int THREADS = 32;
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(pool.submit(() -> flight.execute("k", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "v";
+                })));
+            }
+            while (!flight.isInFlight("k")) Thread.sleep(1);
+            Thread.sleep(100); // 让其余线程都排到同一个 future 上
+            release.countDown();
+            for (Future<String> f : results) assertEquals("v", f.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertFalse(flight.isInFlight("k"));
+        assertEquals("again", flight.execute("k", () -> "again"));
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(pool.submit(() -> flight.execute("k", () -> {
+                    await(release);
+                    throw new IllegalStateException("db down");
+                })));
+            }
+            while (!flight.isInFlight("k")) Thread.sleep(1);
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Object> f : results) {
+                ExecutionException e = assertThrows(ExecutionException.class, () -> f.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void syncCallDuringRefreshGetsRefreshedValue() throws Exception {
+        SingleFlight flight = new SingleFlight();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            assertTrue(flight.executeAsync("k", () -> {
+                await(release);
+                return "refreshed";
+            }, pool));
+            assertFalse(flight.executeAsync("k", () -> "second", pool));
+
+            ExecutorService caller = Executors.newSingleThreadExecutor();
+            Future<String> sync = caller.submit(() -> flight.execute("k", () -> "loaded"));
+            Thread.sleep(100);
+            release.countDown();
+            assertEquals("refreshed", sync.get(5, TimeUnit.SECONDS));
+            caller.shutdownNow();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.xuqinyang.xmudemo.cache;
+
+import com.xuqinyang.xmudemo.config.RedisConfig;
+import com.xuqinyang.xmudemo.dto.ApplicationCacheDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 二进制缓存序列化：往返一致、比 JSON 更小、旧格式/其他版本/损坏数据降级为未命中
+ */
+class VersionedSmileRedisSerializerTest {
+
+    private final RedisConfig config = new RedisConfig();
+    private final VersionedSmileRedisSerializer smile = new VersionedSmileRedisSerializer(config.redisObjectMapper());
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer(config.redisObjectMapper());
+
+    @Test
+    void roundTripsApplicationList() {
+        ArrayList<ApplicationCacheDTO> list = CacheFixtures.applications(50, 1);
+        Object back = smile.deserialize(smile.serialize(list));
+        assertEquals(list, back);
+    }
+
+    @Test
+    void roundTripsScalarsUsedByStats() {
+        assertEquals(42L, ((Number) smile.deserialize(smile.serialize(42L))).longValue());
+        assertEquals("x", smile.deserialize(smile.serialize("x")));
+        assertNull(smile.deserialize(smile.serialize(null)));
+    }
+
+    @Test
+    void smallerThanTypedJson() {
+        ArrayList<ApplicationCacheDTO> list = CacheFixtures.applications(200, 2);
+        int jsonSize = json.serialize(list).length;
+        int smileSize = smile.serialize(list).length;
+        assertTrue(smileSize < jsonSize * 0.9, "smile=" + smileSize + " json=" + jsonSize);
+    }
+
+    @Test
+    void legacyJsonEntryIsAMiss() {
+        byte[] legacy = json.serialize(CacheFixtures.applications(3, 3));
+        assertNull(smile.deserialize(legacy));
+    }
+
+    @Test
+    void otherFormatVersionIsAMiss() {
+        VersionedSmileRedisSerializer next =
+            new VersionedSmileRedisSerializer(config.redisObjectMapper(), (byte) (VersionedSmileRedisSerializer.FORMAT_VERSION + 1));
+        byte[] bytes = next.serialize(CacheFixtures.applications(3, 4));
+        assertNull(smile.deserialize(bytes));
+    }
+
+    @Test
+    void corruptedEntryIsAMiss() {
+        byte[] bytes = smile.serialize(CacheFixtures.applications(3, 5));
+        assertNull(smile.deserialize(Arrays.copyOf(bytes, bytes.length / 2)));
+    }
+}
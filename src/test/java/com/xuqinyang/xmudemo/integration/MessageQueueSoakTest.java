@@ -0,0 +1,197 @@
+package com.xuqinyang.xmudemo.integration;
+
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
+import com.xuqinyang.xmudemo.mq.DeadLetterErrorHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.core.MessageListener;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 消费端 kill -9 浸泡测试（需要本地 RabbitMQ，配置同 application-test.properties）
+ * 向临时队列发布一批消息，用与生产相同的监听容器配置在子 JVM 中消费；
+ * 消费过程中多次 destroyForcibly（Linux 上即 SIGKILL）再重启子进程，最后检查每条消息都至少被处理过一次。
+ * 子进程在处理完成后才返回、由容器确认，被杀时未确认的消息由 broker 重新投递，所以只会重复、不会丢失。
+ */
+class MessageQueueSoakTest {
+
+    private static final int MESSAGES = 5000;
+    private static final int KILLS = 3;
+
+    @TempDir
+    Path workDir;
+
+    private CachingConnectionFactory connectionFactory;
+    private RabbitAdmin admin;
+    private String queue;
+    private Process consumer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties props = brokerProperties();
+        connectionFactory = connectionFactory(props);
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.SIMPLE);
+        admin = new RabbitAdmin(connectionFactory);
+        try {
+            queue = "soak." + UUID.randomUUID();
+            admin.declareQueue(new Queue(queue, true, false, false));
+        } catch (Exception e) {
+            assumeTrue(false, "RabbitMQ not available: " + e.getMessage());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (consumer != null) {
+            consumer.destroyForcibly();
+        }
+        if (queue != null) {
+            admin.deleteQueue(queue);
+        }
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void noMessageLostWhenConsumerIsKilled() throws Exception {
+        RabbitTemplate template = new RabbitTemplate(connectionFactory);
+        template.invoke(ops -> {
+            for (int i = 0; i < MESSAGES; i++) {
+                ops.convertAndSend("", queue, String.valueOf(i));
+            }
+            ops.waitForConfirmsOrDie(30_000);
+            return null;
+        });
+
+        Path processed = workDir.resolve("processed.log");
+        Files.createFile(processed);
+        for (int kill = 0; kill < KILLS; kill++) {
+            consumer = startConsumer(processed);
+            long target = lines(processed) + MESSAGES / (KILLS + 2);
+            waitUntil(() -> lines(processed) >= target, Duration.ofSeconds(60));
+            consumer.destroyForcibly().waitFor();
+        }
+
+        consumer = startConsumer(processed);
+        waitUntil(() -> admin.getQueueInfo(queue).getMessageCount() == 0
+            && distinct(processed).size() == MESSAGES, Duration.ofSeconds(120));
+        consumer.destroyForcibly().waitFor();
+
+        Set<String> seen = distinct(processed);
+        for (int i = 0; i < MESSAGES; i++) {
+            assertTrue(seen.contains(String.valueOf(i)), "message " + i + " was lost");
+        }
+        assertEquals(MESSAGES, seen.size());
+        System.out.printf("Processed %d messages, %d redeliveries after %d kills%n",
+            MESSAGES, lines(processed) - MESSAGES, KILLS);
+    }
+
+    private Process startConsumer(Path processed) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            SoakConsumer.class.getName(), queue, processed.toString())
+            .redirectErrorStream(true)
+            .redirectOutput(workDir.resolve("consumer.log").toFile())
+            .start();
+    }
+
+    private static long lines(Path file) {
+        try (var lines = Files.lines(file)) {
+            return lines.filter(l -> !l.isBlank()).count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Set<String> distinct(Path file) {
+        try {
+            List<String> all = new ArrayList<>(Files.readAllLines(file));
+            all.removeIf(String::isBlank);
+            return new HashSet<>(all);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in " + timeout);
+            Thread.sleep(50);
+        }
+    }
+
+    static Properties brokerProperties() throws IOException {
+        Properties props = new Properties();
+        try (var in = MessageQueueSoakTest.class.getResourceAsStream("/application-test.properties")) {
+            if (in != null) {
+                props.load(in);
+            }
+        }
+        return props;
+    }
+
+    static CachingConnectionFactory connectionFactory(Properties props) {
+        CachingConnectionFactory cf = new CachingConnectionFactory(
+            props.getProperty("spring.rabbitmq.host", "localhost"),
+            Integer.parseInt(props.getProperty("spring.rabbitmq.port", "5672")));
+        cf.setUsername(props.getProperty("spring.rabbitmq.username", "guest"));
+        cf.setPassword(props.getProperty("spring.rabbitmq.password", "guest"));
+        cf.setVirtualHost(props.getProperty("spring.rabbitmq.virtual-host", "/"));
+        return cf;
+    }
+
+    /**
+     * 子进程：使用生产的默认监听容器工厂消费，每条消息处理完后追加写入结果文件再返回
+     */
+    public static final class SoakConsumer {
+
+        public static void main(String[] args) throws Exception {
+            String queue = args[0];
+            Path processed = Path.of(args[1]);
+            CachingConnectionFactory cf = connectionFactory(brokerProperties());
+            RabbitMQConfig config = new RabbitMQConfig();
+            DeadLetterErrorHandler errorHandler = new DeadLetterErrorHandler(
+                new RabbitTemplate(cf), new SimpleMeterRegistry(), 3, Duration.ofSeconds(5));
+
+            SimpleMessageListenerContainer container =
+                config.rabbitListenerContainerFactory(cf, errorHandler, 20).createListenerContainer();
+            container.setQueueNames(queue);
+            container.setMessageListener((MessageListener) message -> {
+                try {
+                    Thread.sleep(1); // 模拟处理耗时，让被杀时有在途消息
+                    Files.writeString(processed, new String(message.getBody(), StandardCharsets.UTF_8) + "\n",
+                        StandardOpenOption.APPEND);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            container.start();
+            Thread.currentThread().join(); // 一直运行到被杀
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.xuqinyang.xmudemo.lock;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 本地按 key 排队：互斥、可重入、超时、空闲条目回收
+ */
+class KeyedLocalLocksTest {
+
+    @Test
+    void mutualExclusionPerKey() throws Exception {
+        KeyedLocalLocks locks = new KeyedLocalLocks();
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < 200; n++) {
+                        try (KeyedLocalLocks.Handle h = locks.tryAcquire("k", 5, TimeUnit.SECONDS)) {
+                            assertNotNull(h);
+                            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                            inside.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, maxInside.get());
+        assertEquals(0, locks.size());
+    }
+
+    @Test
+    void reentrantAndTimesOutForOtherThreads() throws Exception {
+        KeyedLocalLocks locks = new KeyedLocalLocks();
+        try (KeyedLocalLocks.Handle outer = locks.tryAcquire("k", 1, TimeUnit.SECONDS)) {
+            try (KeyedLocalLocks.Handle inner = locks.tryAcquire("k", 1, TimeUnit.SECONDS)) {
+                assertNotNull(inner);
+                assertEquals(1, locks.size());
+            }
+            ExecutorService other = Executors.newSingleThreadExecutor();
+            try {
+                assertNull(other.submit(() -> locks.tryAcquire("k", 50, TimeUnit.MILLISECONDS)).get());
+                assertNotNull(other.submit(() -> {
+                    KeyedLocalLocks.Handle h = locks.tryAcquire("other", 50, TimeUnit.MILLISECONDS);
+                    h.close();
+                    return h;
+                }).get());
+            } finally {
+                other.shutdownNow();
+            }
+            assertEquals(1, locks.users("k"));
+        }
+        assertEquals(0, locks.size());
+    }
+}
@@ -0,0 +1,118 @@
+package com.xuqinyang.xmudemo.lock;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.config.RedisConfig;
+import com.xuqinyang.xmudemo.service.DistributedLockService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁竞争基准测试：16 个线程争用 keys 个锁，临界区模拟一次短数据库写
+ * - localFirst=false：每个线程都进入 Redis 公平等待队列，靠释放通知唤醒
+ * - localFirst=true：同 JVM 内先按 key 本地排队，只有排到的线程访问 Redis
+ * 辅助计数 acquired / failed 为成功执行与等待超时的次数
+ * 使用进程内 jedis-mock；运行方式：mvn test-compile 后执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class LockContentionBenchmark {
+
+    @Param({"true", "false"})
+    public boolean localFirst;
+
+    @Param({"1", "8", "64"})
+    public int keys;
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private DistributedLockService lockService;
+    private RedisMessageListenerContainer container;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcome {
+        public long acquired;
+        public long failed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            acquired = 0;
+            failed = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+        lockService = new DistributedLockService(new RedisConfig().redisTemplate(factory), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(lockService, "localFirst", localFirst);
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(lockService, new ChannelTopic(DistributedLockService.RELEASE_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        container.destroy();
+        factory.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public void executeWithLock(Outcome outcome) {
+        String key = "bench:" + ThreadLocalRandom.current().nextInt(keys);
+        try {
+            lockService.executeWithLockAndRetry(key, () -> {
+                Thread.sleep(1); // 临界区：一次短事务
+                return null;
+            });
+            outcome.acquired++;
+        } catch (RuntimeException e) {
+            outcome.failed++;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LockContentionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
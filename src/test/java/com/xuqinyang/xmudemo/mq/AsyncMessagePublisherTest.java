@@ -0,0 +1,129 @@
+package com.xuqinyang.xmudemo.mq;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 异步发布：批量发送只等待一次确认、broker 不可用时溢出到磁盘并按顺序重放
+ */
+class AsyncMessagePublisherTest {
+
+    @TempDir
+    Path spillDir;
+
+    private final List<Object> delivered = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger confirmWaits = new AtomicInteger();
+    private final AtomicBoolean brokerDown = new AtomicBoolean();
+    private AsyncMessagePublisher publisher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        RabbitOperations ops = mock(RabbitOperations.class);
+        List<Object> pending = new ArrayList<>();
+        doAnswer(inv -> pending.add(inv.getArgument(2)))
+            .when(ops).convertAndSend(anyString(), anyString(), any(Object.class));
+        doAnswer(inv -> {
+            confirmWaits.incrementAndGet();
+            if (brokerDown.get()) {
+                pending.clear();
+                throw new AmqpIOException(new IOException("connection refused"));
+            }
+            delivered.addAll(pending);
+            pending.clear();
+            return null;
+        }).when(ops).waitForConfirmsOrDie(anyLong());
+
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        when(template.invoke(any(RabbitOperations.OperationsCallback.class)))
+            .thenAnswer(inv -> inv.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(ops));
+
+        publisher = new AsyncMessagePublisher(template, new SimpleMeterRegistry(),
+            4096, 64, Duration.ofSeconds(1), Duration.ofMillis(200), spillDir.toString());
+        publisher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        publisher.shutdown();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void batchesShareOneConfirm() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(publisher.enqueue("ex", "rk", Map.of("seq", i)));
+        }
+        await(() -> delivered.size() == 1000);
+        assertTrue(confirmWaits.get() < 1000 / 2, "confirm waits: " + confirmWaits.get());
+        assertEquals(0, publisher.backlog());
+    }
+
+    @Test
+    void spillsWhileBrokerIsDownAndReplaysInOrder() throws Exception {
+        brokerDown.set(true);
+        for (int i = 0; i < 300; i++) {
+            publisher.enqueue("ex", "rk", Map.of("seq", i));
+        }
+        await(() -> publisher.spillBacklog() == 300);
+        try (var files = Files.list(spillDir)) {
+            assertTrue(files.findAny().isPresent());
+        }
+
+        brokerDown.set(false);
+        for (int i = 300; i < 400; i++) {
+            publisher.enqueue("ex", "rk", Map.of("seq", i));
+        }
+        await(() -> delivered.size() == 400);
+        assertEquals(0, publisher.spillBacklog());
+        for (int i = 0; i < 400; i++) {
+            assertEquals(i, ((Map<?, ?>) delivered.get(i)).get("seq"));
+        }
+        try (var files = Files.list(spillDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void recoversSpillFilesLeftByPreviousProcess() throws Exception {
+        publisher.shutdown();
+        Files.writeString(spillDir.resolve("1-000000" + AsyncMessagePublisher.SPILL_SUFFIX),
+            "{\"exchange\":\"ex\",\"routingKey\":\"rk\",\"payload\":{\"seq\":7},\"enqueuedAt\":0}\n");
+        publisher.start();
+        await(() -> delivered.size() == 1);
+        assertEquals(7, ((Map<?, ?>) delivered.get(0)).get("seq"));
+    }
+}
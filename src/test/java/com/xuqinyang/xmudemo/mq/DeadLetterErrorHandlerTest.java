@@ -0,0 +1,134 @@
+package com.xuqinyang.xmudemo.mq;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.ImmediateAcknowledgeAmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 监听失败处理：未超过次数进入重试队列，超过次数或无法处理的消息转存死信队列后确认；批量失败按每条消息的次数处理
+ */
+class DeadLetterErrorHandlerTest {
+
+    private static final String QUEUE = "activity.process.queue";
+
+    private RabbitOperations ops;
+    private DeadLetterErrorHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        ops = mock(RabbitOperations.class);
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        when(template.invoke(any(RabbitOperations.OperationsCallback.class)))
+            .thenAnswer(inv -> inv.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(ops));
+        handler = new DeadLetterErrorHandler(template, new SimpleMeterRegistry(), 3, Duration.ofSeconds(1));
+    }
+
+    private static Message message(long retries) {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(QUEUE);
+        if (retries > 0) {
+            properties.setHeader("x-death", List.of(
+                Map.of("queue", QUEUE + ".retry", "reason", "expired", "count", retries),
+                Map.of("queue", QUEUE, "reason", "rejected", "count", retries)));
+        }
+        return new Message("{\"activityId\":1}".getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+    private static ListenerExecutionFailedException failure(Message message, Throwable cause) {
+        return new ListenerExecutionFailedException("listener threw", cause, message);
+    }
+
+    @Test
+    void countsOnlyPassesThroughOwnRetryQueue() {
+        assertEquals(0, DeadLetterErrorHandler.retryCount(message(0).getMessageProperties(), QUEUE));
+        assertEquals(2, DeadLetterErrorHandler.retryCount(message(2).getMessageProperties(), QUEUE));
+    }
+
+    @Test
+    void transientFailureIsRejectedToRetryQueue() {
+        Message m = message(2);
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+            () -> handler.handleError(failure(m, new IllegalStateException("db down"))));
+        verify(ops, never()).send(any(), any(), any(Message.class));
+    }
+
+    @Test
+    void exhaustedRetriesAreParkedAndAcked() {
+        Message m = message(3);
+        assertThrows(ImmediateAcknowledgeAmqpException.class,
+            () -> handler.handleError(failure(m, new IllegalStateException("db down"))));
+        verify(ops).send(eq(""), eq(QUEUE + ".dlq"), eq(m));
+        assertEquals(QUEUE, m.getMessageProperties().getHeader(DeadLetterErrorHandler.ORIGINAL_QUEUE_HEADER));
+        assertEquals("IllegalStateException: db down",
+            m.getMessageProperties().getHeader(DeadLetterErrorHandler.EXCEPTION_HEADER));
+    }
+
+    @Test
+    void unprocessableMessageIsParkedWithoutRetry() {
+        Message m = message(0);
+        assertThrows(ImmediateAcknowledgeAmqpException.class,
+            () -> handler.handleError(failure(m, new MessageConversionException("bad json"))));
+        verify(ops).send(eq(""), eq(QUEUE + ".dlq"), eq(m));
+    }
+
+    @Test
+    void parkingFailureFallsBackToRetry() throws Exception {
+        doThrow(new AmqpIOException(new IOException("connection reset"))).when(ops).waitForConfirmsOrDie(anyLong());
+        Message m = message(5);
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+            () -> handler.handleError(failure(m, new IllegalStateException("db down"))));
+    }
+
+    @Test
+    void failedBatchUnderLimitIsRetriedAsAWhole() {
+        List<Message> batch = List.of(message(0), message(2));
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+            () -> handler.handleError(new ListenerExecutionFailedException("batch failed", new IllegalStateException("db down"),
+                batch.toArray(new Message[0]))));
+        verify(ops, never()).send(any(), any(), any(Message.class));
+    }
+
+    @Test
+    void exhaustedMessagesOfFailedBatchAreParkedAndTheRestRetried() {
+        Message exhausted = message(3);
+        Message fresh = message(1);
+        assertThrows(ImmediateAcknowledgeAmqpException.class,
+            () -> handler.handleError(new ListenerExecutionFailedException("batch failed", new IllegalStateException("db down"),
+                exhausted, fresh)));
+        verify(ops).send(eq(""), eq(QUEUE + ".dlq"), eq(exhausted));
+        verify(ops).send(eq(""), eq(QUEUE + ".retry"), eq(fresh));
+        assertEquals(QUEUE, exhausted.getMessageProperties().getHeader(DeadLetterErrorHandler.ORIGINAL_QUEUE_HEADER));
+    }
+
+    @Test
+    void batchFailureWithoutMessageIsRetried() {
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+            () -> handler.handleError(new ListenerExecutionFailedException("batch failed", new IllegalStateException())));
+    }
+}
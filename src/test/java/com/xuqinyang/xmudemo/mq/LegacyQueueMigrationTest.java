@@ -0,0 +1,122 @@
+package com.xuqinyang.xmudemo.mq;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * v1 工作队列迁移：解除旧绑定、积压确认后才确认原消息、排空后删除；旧队列不存在时不做任何操作
+ */
+class LegacyQueueMigrationTest {
+
+    private static final String LEGACY = "activity.process.queue";
+
+    private AmqpAdmin admin;
+    private Channel channel;
+    private LegacyQueueMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        admin = mock(AmqpAdmin.class);
+        channel = mock(Channel.class);
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        when(template.execute(any(ChannelCallback.class)))
+            .thenAnswer(inv -> inv.<ChannelCallback<?>>getArgument(0).doInRabbit(channel));
+        migration = new LegacyQueueMigration(admin, template, new SimpleMeterRegistry(), Duration.ofSeconds(1));
+    }
+
+    private static GetResponse message(long tag) {
+        return new GetResponse(new Envelope(tag, false, "", LEGACY), new AMQP.BasicProperties(),
+            ("{\"activityId\":" + tag + "}").getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    private static LegacyQueueMigration.LegacyQueue activityQueue() {
+        return LegacyQueueMigration.LEGACY_QUEUES.stream()
+            .filter(q -> q.name().equals(LEGACY)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void legacyQueueNamesDropTheVersionSuffix() {
+        LegacyQueueMigration.LegacyQueue queue = activityQueue();
+        assertEquals(RabbitMQConfig.ACTIVITY_PROCESS_QUEUE, queue.target());
+        assertEquals(RabbitMQConfig.ACTIVITY_ROUTING_KEY, queue.routingKey());
+    }
+
+    @Test
+    void missingLegacyQueueIsLeftAlone() throws Exception {
+        migration.migrate();
+
+        verify(admin, never()).removeBinding(any());
+        verify(channel, never()).basicGet(anyString(), anyBoolean());
+        verify(admin, never()).deleteQueue(anyString(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void backlogIsMovedThenDrainedQueueDeleted() throws Exception {
+        when(admin.getQueueInfo(LEGACY)).thenReturn(new QueueInformation(LEGACY, 2, 0), new QueueInformation(LEGACY, 0, 0));
+        when(channel.basicGet(LEGACY, false)).thenReturn(message(1), message(2), null);
+
+        migration.migrate(activityQueue());
+
+        ArgumentCaptor<Binding> unbound = ArgumentCaptor.forClass(Binding.class);
+        verify(admin).removeBinding(unbound.capture());
+        assertEquals(LEGACY, unbound.getValue().getDestination());
+        assertEquals(RabbitMQConfig.DIRECT_EXCHANGE, unbound.getValue().getExchange());
+        assertEquals(RabbitMQConfig.ACTIVITY_ROUTING_KEY, unbound.getValue().getRoutingKey());
+        verify(channel, times(2)).basicPublish(eq(""), eq(RabbitMQConfig.ACTIVITY_PROCESS_QUEUE), any(), any());
+        verify(channel).waitForConfirmsOrDie(anyLong());
+        verify(channel).basicAck(2, true);
+        verify(admin).deleteQueue(LEGACY, true, true);
+    }
+
+    @Test
+    void unconfirmedBatchIsNotAckedAndQueueKept() throws Exception {
+        when(admin.getQueueInfo(LEGACY)).thenReturn(new QueueInformation(LEGACY, 1, 0));
+        when(channel.basicGet(LEGACY, false)).thenReturn(message(1), (GetResponse) null);
+        doThrow(new IOException("nack")).when(channel).waitForConfirmsOrDie(anyLong());
+
+        migration.migrate();
+
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        verify(admin, never()).deleteQueue(anyString(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void queueStillConsumedByOldNodesIsKept() throws Exception {
+        when(admin.getQueueInfo(LEGACY)).thenReturn(new QueueInformation(LEGACY, 0, 1));
+
+        migration.migrate(activityQueue());
+        migration.migrate(activityQueue());
+
+        verify(admin, times(2)).removeBinding(any());
+        verify(admin, never()).deleteQueue(anyString(), anyBoolean(), anyBoolean());
+    }
+}
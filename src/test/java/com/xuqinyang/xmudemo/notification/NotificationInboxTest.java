@@ -0,0 +1,121 @@
+package com.xuqinyang.xmudemo.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 通知收件箱：未初始化时读取返回 null、写入跳过；初始化后计数与列表一起更新、列表有容量上限、读取后清零
+ * Redis 使用 jedis-mock
+ */
+class NotificationInboxTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private NotificationInbox inbox;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+        inbox = new NotificationInbox(new StringRedisTemplate(factory), new ObjectMapper(),
+            new SimpleMeterRegistry(), 3, Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        factory.destroy();
+        server.stop();
+    }
+
+    private static Map<String, Object> notification(String title) {
+        return Map.of("title", title, "type", "T", "isRead", false);
+    }
+
+    @Test
+    void missingInboxIsNotWrittenByAdd() {
+        assertNull(inbox.unreadCount(7L));
+        assertNull(inbox.preview(7L));
+
+        inbox.add(7L, List.of(notification("a")));
+
+        // 未初始化时不计数，避免只计入新通知、漏掉库里已有的未读
+        assertNull(inbox.unreadCount(7L));
+        assertNull(inbox.preview(7L));
+    }
+
+    @Test
+    void addIncrementsCountAndKeepsLatestWithinCapacity() {
+        inbox.load(7L, 2, List.of(notification("b"), notification("a")));
+        assertEquals(2L, inbox.unreadCount(7L));
+
+        inbox.add(7L, List.of(notification("c"), notification("d")));
+
+        assertEquals(4L, inbox.unreadCount(7L));
+        List<Map<String, Object>> preview = inbox.preview(7L);
+        assertEquals(List.of("d", "c", "b"), preview.stream().map(n -> n.get("title")).toList());
+        assertEquals(false, preview.get(0).get("isRead"));
+    }
+
+    @Test
+    void loadKeepsOnlyCapacityButCountsAll() {
+        List<Map<String, Object>> latest = new ArrayList<>();
+        for (int i = 10; i > 0; i--) {
+            latest.add(notification("n" + i));
+        }
+        inbox.load(7L, latest.size(), latest);
+
+        assertEquals(10L, inbox.unreadCount(7L));
+        assertEquals(List.of("n10", "n9", "n8"), inbox.preview(7L).stream().map(n -> n.get("title")).toList());
+    }
+
+    @Test
+    void loadDoesNotOverwriteConcurrentlyInitializedInbox() {
+        inbox.load(7L, 1, List.of(notification("a")));
+        inbox.add(7L, List.of(notification("b")));
+
+        // 较晚完成的重建读到的是旧数据，不应覆盖
+        inbox.load(7L, 1, List.of(notification("a")));
+
+        assertEquals(2L, inbox.unreadCount(7L));
+        assertEquals(2, inbox.preview(7L).size());
+    }
+
+    @Test
+    void clearResetsCountWithoutFallingBackToDatabase() {
+        inbox.load(7L, 2, List.of(notification("b"), notification("a")));
+
+        inbox.clear(7L);
+
+        assertEquals(0L, inbox.unreadCount(7L));
+        assertTrue(inbox.preview(7L).isEmpty());
+        inbox.add(7L, List.of(notification("c")));
+        assertEquals(1L, inbox.unreadCount(7L));
+    }
+
+    @Test
+    void emptyInboxIsStillAHit() {
+        inbox.load(8L, 0, List.of());
+
+        assertEquals(0L, inbox.unreadCount(8L));
+        assertTrue(inbox.preview(8L).isEmpty());
+    }
+}
@@ -0,0 +1,157 @@
+package com.xuqinyang.xmudemo.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * 通知推送：跨节点经 Redis pub/sub 推给本地连接、未读数以增量推送、只推给目标用户、单用户连接数上限
+ * Redis 使用 jedis-mock，SSE 连接通过 MockMvc 异步请求建立
+ */
+class NotificationPushHubTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        factory.destroy();
+        server.stop();
+    }
+
+    private NotificationPushHub node(int maxConnectionsPerUser) {
+        NotificationPushHub hub = new NotificationPushHub(new StringRedisTemplate(factory), new ObjectMapper(),
+            new SimpleMeterRegistry(), Duration.ofMinutes(5), maxConnectionsPerUser);
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(hub, new ChannelTopic(NotificationPushHub.CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+        return hub;
+    }
+
+    @RestController
+    static class StreamController {
+        private final NotificationPushHub hub;
+
+        StreamController(NotificationPushHub hub) {
+            this.hub = hub;
+        }
+
+        @GetMapping("/stream")
+        SseEmitter stream(@RequestParam Long userId, @RequestParam long unread) {
+            return hub.connect(userId, unread);
+        }
+    }
+
+    private static MvcResult connect(NotificationPushHub hub, long userId, long unread) throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new StreamController(hub)).build();
+        return mvc.perform(get("/stream").param("userId", String.valueOf(userId)).param("unread", String.valueOf(unread)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    }
+
+    private static String body(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void notificationPublishedOnOneNodeReachesUserConnectedToAnother() throws Exception {
+        NotificationPushHub publisher = node(5);
+        NotificationPushHub receiver = node(5);
+        MvcResult alice = connect(receiver, 7L, 2);
+        MvcResult bob = connect(receiver, 8L, 0);
+        assertTrue(body(alice).contains("event:unread") && body(alice).contains("{\"count\":2}"));
+        assertEquals("text/event-stream;charset=UTF-8", alice.getResponse().getContentType());
+
+        publisher.publish(List.of(new NotificationPushHub.PushEvent(7L, 1,
+            Map.of("title", "申请通过", "content", "恭喜！您的申请已被批准", "type", "APPLICATION_APPROVED"))));
+
+        waitUntil(() -> body(alice).contains("{\"delta\":1}"));
+        assertTrue(body(alice).contains("event:notification"));
+        assertTrue(body(alice).contains("申请通过"));
+        assertFalse(body(bob).contains("event:notification"));
+
+        // 读取后推送负增量，不带通知内容
+        publisher.publish(List.of(new NotificationPushHub.PushEvent(7L, -3, null)));
+        waitUntil(() -> body(alice).contains("{\"delta\":-3}"));
+        assertEquals(1, body(alice).split("event:notification", -1).length - 1);
+    }
+
+    @Test
+    void eachConnectionOfTheUserReceivesTheEvent() throws Exception {
+        NotificationPushHub hub = node(5);
+        MvcResult tab1 = connect(hub, 7L, 0);
+        MvcResult tab2 = connect(hub, 7L, 0);
+
+        hub.publish(List.of(new NotificationPushHub.PushEvent(7L, 1, Map.of("title", "t"))));
+
+        waitUntil(() -> body(tab1).contains("{\"delta\":1}") && body(tab2).contains("{\"delta\":1}"));
+        assertEquals(2, hub.connectionCount());
+    }
+
+    @Test
+    void oldestConnectionIsClosedBeyondThePerUserLimit() throws Exception {
+        NotificationPushHub hub = node(2);
+        connect(hub, 7L, 0);
+        connect(hub, 7L, 0);
+        connect(hub, 7L, 0);
+        connect(hub, 9L, 0);
+
+        assertEquals(3, hub.connectionCount());
+    }
+}
@@ -0,0 +1,176 @@
+package com.xuqinyang.xmudemo.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 发件箱中继：按ID顺序批量发送并标记、broker 故障时保持未发送、重扫捡回晚提交的小ID、等待确认时不持有行锁
+ * 使用 H2（MySQL 模式）模拟数据库，RabbitTemplate 为 mock
+ */
+class OutboxRelayTest {
+
+    private JdbcTemplate jdbc;
+    private OutboxRelay relay;
+    private final List<Object> delivered = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicBoolean brokerDown = new AtomicBoolean();
+    // 等待 broker 确认期间执行，模拟确认缓慢时其他连接访问同一批行
+    private volatile Runnable duringConfirm = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:outbox_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=200");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE outbox_event (id BIGINT AUTO_INCREMENT PRIMARY KEY, exchange VARCHAR(100) NOT NULL, " +
+            "routing_key VARCHAR(100) NOT NULL, payload TEXT NOT NULL, created_at TIMESTAMP NOT NULL, sent_at TIMESTAMP NULL, " +
+            "claimed_by VARCHAR(64) NULL, claimed_until TIMESTAMP NULL)");
+
+        RabbitOperations ops = mock(RabbitOperations.class);
+        List<Object> pending = new ArrayList<>();
+        doAnswer(inv -> pending.add(inv.getArgument(2)))
+            .when(ops).convertAndSend(anyString(), anyString(), any(Object.class), any(MessagePostProcessor.class));
+        doAnswer(inv -> {
+            duringConfirm.run();
+            if (brokerDown.get()) {
+                pending.clear();
+                throw new AmqpIOException(new IOException("connection refused"));
+            }
+            delivered.addAll(pending);
+            pending.clear();
+            return null;
+        }).when(ops).waitForConfirmsOrDie(anyLong());
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        when(template.invoke(any(RabbitOperations.OperationsCallback.class)))
+            .thenAnswer(inv -> inv.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(ops));
+
+        relay = new OutboxRelay(jdbc, new DataSourceTransactionManager(dataSource), template, new SimpleMeterRegistry(),
+            50, Duration.ofMillis(50), Duration.ofMillis(300), Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofHours(24));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        relay.shutdown();
+    }
+
+    private void insert(Long id, int seq) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String payload = "{\"seq\":" + seq + "}";
+        if (id == null) {
+            jdbc.update("INSERT INTO outbox_event (exchange, routing_key, payload, created_at) VALUES ('ex', 'rk', ?, ?)", payload, now);
+        } else {
+            jdbc.update("INSERT INTO outbox_event (id, exchange, routing_key, payload, created_at) VALUES (?, 'ex', 'rk', ?, ?)", id, payload, now);
+        }
+    }
+
+    private long unsent() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE sent_at IS NULL", Long.class);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void relaysBacklogInIdOrderAndMarksSent() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            insert(null, i);
+        }
+        relay.start();
+        // 先发布、事务提交后才标记已发送
+        await(() -> unsent() == 0);
+        assertEquals(500, delivered.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, ((Map<?, ?>) delivered.get(i)).get("seq"));
+        }
+    }
+
+    @Test
+    void failedPublishLeavesEventsUnsent() throws Exception {
+        brokerDown.set(true);
+        for (int i = 0; i < 20; i++) {
+            insert(null, i);
+        }
+        relay.start();
+        Thread.sleep(300);
+        assertEquals(20, unsent());
+        assertEquals(0, delivered.size());
+
+        brokerDown.set(false);
+        relay.wakeUp();
+        await(() -> unsent() == 0);
+        assertEquals(20, delivered.size());
+    }
+
+    @Test
+    void rescanPicksUpIdsCommittedBehindTheCursor() throws Exception {
+        insert(1L, 1);
+        insert(2L, 2);
+        insert(10L, 10);
+        relay.start();
+        await(() -> delivered.size() == 3);
+
+        // 模拟一个较早分配ID、较晚提交的事务
+        insert(5L, 5);
+        relay.wakeUp();
+        await(() -> unsent() == 0);
+        assertEquals(4, delivered.size());
+    }
+
+    @Test
+    void rowsAreNotLockedWhileWaitingForConfirms() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            insert(null, i);
+        }
+        List<Object> observed = Collections.synchronizedList(new ArrayList<>());
+        duringConfirm = () -> {
+            duringConfirm = () -> { };
+            try {
+                // 认领事务已提交：另一个连接可以立即更新这批行，并能看到本节点的租约
+                observed.add(jdbc.update("UPDATE outbox_event SET created_at = created_at WHERE sent_at IS NULL"));
+                observed.add(jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM outbox_event WHERE claimed_by IS NOT NULL AND claimed_until IS NOT NULL", Long.class));
+            } catch (Exception e) {
+                observed.add(e);
+            }
+        };
+        relay.start();
+        await(() -> unsent() == 0);
+
+        assertEquals(List.of(5, 5L), observed);
+        assertEquals(0L, jdbc.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE claimed_by IS NOT NULL", Long.class));
+    }
+}
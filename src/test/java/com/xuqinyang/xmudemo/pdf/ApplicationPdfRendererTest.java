@@ -0,0 +1,101 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import com.xuqinyang.xmudemo.model.Application;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * PDF 渲染测试：折行与原逐字测量实现一致、字体跨文档复用、大图降采样
+ */
+class ApplicationPdfRendererTest {
+
+    @Test
+    void cachedWrapMatchesPerCharacterMeasurement() throws Exception {
+        File fontFile = new File(PdfFixtures.TEST_FONT);
+        assumeTrue(fontFile.isFile(), "DejaVuSans not installed");
+        GlyphWidthCache cache = new GlyphWidthCache();
+        Random random = new Random(42);
+        try (PDDocument doc = new PDDocument()) {
+            PDType0Font font = PDType0Font.load(doc, fontFile);
+            for (int n = 0; n < 300; n++) {
+                String line = PdfFixtures.paragraph(1 + random.nextInt(600), random.nextLong());
+                int size = 9 + random.nextInt(6);
+                float width = 100 + random.nextInt(420);
+                assertEquals(legacyWrap(line, font, size, width), cache.wrap(font, line, size, width), line);
+            }
+        }
+    }
+
+    @Test
+    void rendersLargeApplicationAndReusesFont() throws Exception {
+        PdfFontProvider fonts = PdfFixtures.fontProvider();
+        ApplicationPdfRenderer renderer = new ApplicationPdfRenderer(PdfFixtures.fileService(2400, 1800), fonts);
+        Application app = PdfFixtures.application(10, PdfFixtures.paragraph(3000, 1));
+
+        try (PdfFontProvider.Lease lease = fonts.acquire()) {
+            for (int round = 0; round < 2; round++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                renderer.render(app, out, lease);
+                try (PDDocument doc = PDDocument.load(out.toByteArray())) {
+                    assertTrue(doc.getNumberOfPages() > 5);
+                    List<PDImageXObject> images = images(doc);
+                    assertEquals(30, images.size());
+                    for (PDImageXObject img : images) {
+                        assertTrue(img.getWidth() <= 900, "proof image should be downsampled, width=" + img.getWidth());
+                    }
+                    String text = new PDFTextStripper().getText(doc);
+                    assertTrue(text.contains("Paper 9"));
+                    assertTrue(text.contains("86.00"));
+                }
+            }
+        }
+    }
+
+    private static List<PDImageXObject> images(PDDocument doc) throws Exception {
+        List<PDImageXObject> result = new ArrayList<>();
+        for (PDPage page : doc.getPages()) {
+            PDResources resources = page.getResources();
+            for (COSName name : resources.getXObjectNames()) {
+                PDXObject x = resources.getXObject(name);
+                if (x instanceof PDImageXObject img) result.add(img);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 原实现：每追加一个字符重新测量整行宽度
+     */
+    static List<String> legacyWrap(String line, PDType0Font font, int size, float width) throws Exception {
+        List<String> out = new ArrayList<>();
+        if (line.isEmpty()) { out.add(""); return out; }
+        StringBuilder cur = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            cur.append(line.charAt(i));
+            if (font.getStringWidth(cur.toString()) / 1000 * size > width) {
+                cur.setLength(cur.length() - 1);
+                if (cur.length() > 0) out.add(cur.toString());
+                cur = new StringBuilder().append(line.charAt(i));
+            }
+        }
+        if (cur.length() > 0) out.add(cur.toString());
+        return out;
+    }
+}
@@ -0,0 +1,158 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.User;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量 ZIP 导出：条目完整、缺失申请写入 errors.txt、客户端断开后停止渲染、数据库出错时中止而不是正常结束
+ */
+class ApplicationPdfZipExporterTest {
+
+    private ExecutorService pool;
+    private PdfFontProvider fonts;
+    private ApplicationRepository repository;
+    private final AtomicInteger loads = new AtomicInteger();
+    // 大于等于该ID的申请读取时数据库报错
+    private volatile long failFrom = Long.MAX_VALUE;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = Executors.newFixedThreadPool(3);
+        fonts = PdfFixtures.fontProvider();
+        repository = mock(ApplicationRepository.class);
+        String text = PdfFixtures.paragraph(800, 3);
+        when(repository.findByIdWithUserAndActivity(anyLong())).thenAnswer(inv -> {
+            long id = inv.getArgument(0);
+            loads.incrementAndGet();
+            if (id >= failFrom) throw new DataAccessResourceFailureException("Connection refused");
+            if (id == 13) return Optional.empty();
+            Application app = PdfFixtures.application(2, text);
+            app.setId(id);
+            User user = new User();
+            user.setStudentId("2022" + id);
+            user.setName("Student " + id);
+            app.setUser(user);
+            return Optional.of(app);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        fonts.close();
+    }
+
+    private ApplicationPdfZipExporter exporter() throws IOException {
+        ApplicationPdfRenderer renderer = new ApplicationPdfRenderer(PdfFixtures.fileService(1200, 900), fonts);
+        return new ApplicationPdfZipExporter(repository, renderer, fonts, pool, 3);
+    }
+
+    @Test
+    void streamsEveryApplicationIntoZip() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) ids.add(id);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter().export(ids, out);
+
+        Set<String> names = new HashSet<>();
+        String errors = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                byte[] data = zip.readAllBytes();
+                if (entry.getName().equals(ApplicationPdfZipExporter.ERRORS_ENTRY)) {
+                    errors = new String(data, StandardCharsets.UTF_8);
+                    continue;
+                }
+                names.add(entry.getName());
+                try (PDDocument doc = PDDocument.load(data)) {
+                    assertTrue(doc.getNumberOfPages() > 0);
+                }
+            }
+        }
+        assertEquals(19, names.size());
+        assertTrue(names.contains("20221_Student_1_1.pdf"), names.toString());
+        assertTrue(errors != null && errors.startsWith("13\t"), String.valueOf(errors));
+    }
+
+    @Test
+    void stopsRenderingWhenClientDisconnects() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 100; id < 400; id++) ids.add(id);
+        OutputStream broken = new OutputStream() {
+            long written;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                written += len;
+                if (written > 64 * 1024) throw new IOException("Broken pipe");
+            }
+        };
+        assertThrows(IOException.class, () -> exporter().export(ids, broken));
+
+        // export 返回前已等待工作线程退出，之后不再加载新的申请
+        int loadedAtAbort = loads.get();
+        assertTrue(loadedAtAbort < 50, "rendered " + loadedAtAbort + " of 300 after disconnect");
+        Thread.sleep(300);
+        assertEquals(loadedAtAbort, loads.get());
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void databaseErrorBeforeFirstResultFailsOpen() {
+        failFrom = 0;
+        // 响应尚未提交，调用方可以返回错误状态
+        assertThrows(IOException.class, () -> exporter().open(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    void databaseErrorMidwayAbortsTheZip() throws Exception {
+        failFrom = 15;
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) ids.add(id);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ApplicationPdfZipExporter.Export export = exporter().open(ids);
+        assertThrows(IOException.class, () -> {
+            try (export) {
+                export.writeTo(out);
+            }
+        });
+    }
+}
@@ -0,0 +1,170 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PDF 磁盘缓存：版本变化换 key、LRU 按大小淘汰、读取中的文件推迟删除、并发未命中只写一次、重启后恢复
+ */
+class PdfDiskCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private PdfDiskCache cache(long maxMb) throws Exception {
+        PdfDiskCache cache = new PdfDiskCache(dir.toString(), maxMb, new SimpleMeterRegistry());
+        cache.load();
+        return cache;
+    }
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] b = new byte[size];
+        for (int i = 0; i < size; i++) b[i] = (byte) (i * 31 + seed);
+        return b;
+    }
+
+    @Test
+    void keyChangesWithVersionAndUpdateTime() {
+        LocalDateTime t = LocalDateTime.of(2025, 9, 1, 10, 0, 0, 123_000_000);
+        String k = PdfDiskCache.key(7L, 3L, t);
+        assertEquals(k, PdfDiskCache.key(7L, 3L, t));
+        assertNotEquals(k, PdfDiskCache.key(7L, 4L, t));
+        assertNotEquals(k, PdfDiskCache.key(7L, 3L, t.plusNanos(1000)));
+        assertNotEquals(k, PdfDiskCache.key(70L, 3L, t));
+    }
+
+    @Test
+    void reusesFileAndDropsOldVersions() throws Exception {
+        PdfDiskCache cache = cache(16);
+        AtomicInteger renders = new AtomicInteger();
+        String v1 = PdfDiskCache.key(1L, 1L, LocalDateTime.now());
+        Path p1 = cache.getOrCreate(v1, out -> { renders.incrementAndGet(); out.write(bytes(1000, 1)); });
+        Path again = cache.getOrCreate(v1, out -> { renders.incrementAndGet(); out.write(bytes(1000, 2)); });
+        assertEquals(p1, again);
+        assertEquals(1, renders.get());
+        assertArrayEquals(bytes(1000, 1), Files.readAllBytes(p1));
+
+        // 保存后 version 变化：旧文件删除；其他申请（ID 前缀相同）不受影响
+        String other = PdfDiskCache.key(11L, 1L, LocalDateTime.now());
+        cache.getOrCreate(other, out -> out.write(bytes(10, 0)));
+        String v2 = PdfDiskCache.key(1L, 2L, LocalDateTime.now());
+        Path p2 = cache.getOrCreate(v2, out -> out.write(bytes(500, 3)));
+        assertFalse(Files.exists(p1));
+        assertTrue(cache.get(v1).isEmpty());
+        assertTrue(cache.get(other).isPresent());
+        assertEquals(510, cache.totalBytes());
+        assertTrue(Files.exists(p2));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBySize() throws Exception {
+        PdfDiskCache cache = cache(1);
+        int size = 300 * 1024;
+        List<String> keys = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            String key = PdfDiskCache.key(id, 0L, null);
+            keys.add(key);
+            int seed = (int) id;
+            cache.getOrCreate(key, out -> out.write(bytes(size, seed)));
+        }
+        assertTrue(cache.get(keys.get(0)).isPresent()); // 访问后 1 变为最近使用
+        String fourth = PdfDiskCache.key(4L, 0L, null);
+        cache.getOrCreate(fourth, out -> out.write(bytes(size, 4)));
+
+        assertTrue(cache.get(keys.get(1)).isEmpty(), "least recently used entry should be evicted");
+        assertTrue(cache.get(keys.get(0)).isPresent());
+        assertTrue(cache.get(keys.get(2)).isPresent());
+        assertTrue(cache.totalBytes() <= 1024 * 1024);
+        try (var files = Files.list(dir)) {
+            assertEquals(3, files.count());
+        }
+
+        // 重启后从目录恢复索引
+        PdfDiskCache reloaded = cache(1);
+        assertEquals(3, reloaded.size());
+        assertTrue(reloaded.get(fourth).isPresent());
+    }
+
+    @Test
+    void concurrentMissesRenderOnce() throws Exception {
+        PdfDiskCache cache = cache(16);
+        String key = PdfDiskCache.key(5L, 1L, LocalDateTime.now());
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Path>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.getOrCreate(key, out -> {
+                        renders.incrementAndGet();
+                        out.write(bytes(2048, 5));
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Path> f : results) assertArrayEquals(bytes(2048, 5), Files.readAllBytes(f.get()));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void fileBeingReadIsDeletedOnlyAfterTheReaderFinishes() throws Exception {
+        PdfDiskCache cache = cache(1);
+        int size = 600 * 1024;
+        String first = PdfDiskCache.key(1L, 0L, null);
+        cache.getOrCreate(first, out -> out.write(bytes(size, 1)));
+
+        FileChannel channel = cache.read(first, file -> {
+            FileChannel opened = FileChannel.open(file);
+            // 读取期间写入另一份，first 被淘汰出索引，但文件还在
+            cache.getOrCreate(PdfDiskCache.key(2L, 0L, null), out -> out.write(bytes(size, 2)));
+            assertTrue(cache.get(first).isEmpty());
+            assertTrue(Files.exists(file));
+            return opened;
+        }).orElseThrow();
+
+        assertFalse(Files.exists(dir.resolve(first + ".pdf")));
+        // 已打开的通道不受删除影响
+        try (InputStream in = Channels.newInputStream(channel)) {
+            assertArrayEquals(bytes(size, 1), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void newlyWrittenFileIsReadBeforeItCanBeEvicted() throws Exception {
+        PdfDiskCache cache = cache(1);
+        int size = 600 * 1024;
+        String first = PdfDiskCache.key(1L, 0L, null);
+        byte[] read = cache.readOrCreate(first, out -> out.write(bytes(size, 1)), file -> {
+            cache.getOrCreate(PdfDiskCache.key(2L, 0L, null), out -> out.write(bytes(size, 2)));
+            return Files.readAllBytes(file);
+        });
+        assertArrayEquals(bytes(size, 1), read);
+        assertFalse(Files.exists(dir.resolve(first + ".pdf")));
+    }
+}
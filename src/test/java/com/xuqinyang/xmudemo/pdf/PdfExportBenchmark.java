@@ -0,0 +1,129 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import com.xuqinyang.xmudemo.model.Application;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF 导出基准测试
+ * - renderLargeApplication：itemsPerSection 篇论文 + 2×itemsPerSection 项竞赛，每项带证明图片（一半为 2400×1800 照片）
+ * - fontPerRequest / fontFromPool：每次从文件解析字体 vs 从池中借出已解析字体
+ * - wrapPerCharacter / wrapCached：原逐字重新测量整行 vs 字形宽度缓存
+ * 运行方式：mvn test-compile 后执行 main 方法；加 -prof gc 可观察每次导出的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfExportBenchmark {
+
+    @Param({"10", "40"})
+    public int itemsPerSection;
+
+    private PdfFontProvider fonts;
+    private ApplicationPdfRenderer renderer;
+    private Application app;
+    private String paragraph;
+    private PDDocument doc;
+    private PDType0Font font;
+    private GlyphWidthCache widths;
+
+    @Setup
+    public void setup() throws IOException {
+        fonts = PdfFixtures.fontProvider();
+        renderer = new ApplicationPdfRenderer(PdfFixtures.fileService(2400, 1800), fonts);
+        app = PdfFixtures.application(itemsPerSection, PdfFixtures.paragraph(4000, 1));
+        paragraph = PdfFixtures.paragraph(2000, 2);
+        doc = new PDDocument();
+        font = PDType0Font.load(doc, new java.io.File(PdfFixtures.TEST_FONT));
+        widths = new GlyphWidthCache();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        doc.close();
+        fonts.close();
+    }
+
+    @Benchmark
+    public long renderLargeApplication() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        renderer.render(app, out);
+        return out.count;
+    }
+
+    @Benchmark
+    public PDFont fontPerRequest() throws IOException {
+        try (PDDocument d = new PDDocument(); InputStream is = new FileInputStream(PdfFixtures.TEST_FONT)) {
+            return PDType0Font.load(d, is, true);
+        }
+    }
+
+    @Benchmark
+    public PDFont fontFromPool() throws IOException {
+        try (PDDocument d = new PDDocument(); PdfFontProvider.Lease lease = fonts.acquire()) {
+            return lease.load(d);
+        }
+    }
+
+    @Benchmark
+    public List<String> wrapPerCharacter() throws Exception {
+        return ApplicationPdfRendererTest.legacyWrap(paragraph, font, 12, 515);
+    }
+
+    @Benchmark
+    public List<String> wrapCached() {
+        return widths.wrap(font, paragraph, 12, 515);
+    }
+
+    /**
+     * 只计数不保存，模拟写入响应流
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PdfExportBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
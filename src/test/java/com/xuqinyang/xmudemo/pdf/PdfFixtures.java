@@ -0,0 +1,145 @@
+package com.xuqinyang.xmudemo.pdf;
+
+import com.xuqinyang.xmudemo.model.Activity;
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.FileMetadata;
+import com.xuqinyang.xmudemo.service.FileService;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * PDF 测试数据：带大量证明图片的申请、返回固定图片的 FileService 替身
+ */
+final class PdfFixtures {
+
+    static final String TEST_FONT = "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf";
+
+    private PdfFixtures() {
+    }
+
+    /**
+     * 系统中存在 DejaVuSans 时使用它，否则退化为 Helvetica
+     */
+    static PdfFontProvider fontProvider() {
+        String path = Files.isRegularFile(Paths.get(TEST_FONT)) ? TEST_FONT : "";
+        return new PdfFontProvider(path, 4, 30);
+    }
+
+    /**
+     * 每个证明文件ID对应一张图片：偶数为大尺寸照片（JPEG），奇数为截图（PNG）
+     */
+    static FileService fileService(int photoWidth, int photoHeight) throws IOException {
+        byte[] photo = jpeg(photoWidth, photoHeight);
+        byte[] screenshot = png(900, 600);
+        FileService fileService = mock(FileService.class);
+        when(fileService.find(anyLong())).thenAnswer(inv -> {
+            long id = inv.getArgument(0);
+            FileMetadata meta = new FileMetadata();
+            meta.setOriginalFilename((id % 2 == 0 ? "photo-" : "screenshot-") + id + (id % 2 == 0 ? ".jpg" : ".png"));
+            meta.setStoredFilename(String.valueOf(id));
+            return Optional.of(meta);
+        });
+        when(fileService.read(any())).thenAnswer(inv -> {
+            FileMetadata meta = inv.getArgument(0);
+            return Long.parseLong(meta.getStoredFilename()) % 2 == 0 ? photo : screenshot;
+        });
+        return fileService;
+    }
+
+    static Application application(int itemsPerSection, String longText) {
+        StringBuilder sb = new StringBuilder(8192);
+        sb.append("{\"basicInfo\":{\"name\":\"Zhang San\",\"studentId\":\"20220001\",\"department\":\"Informatics\",")
+          .append("\"major\":\"Computer Science\",\"gpa\":3.71,\"academicRanking\":8,\"totalStudents\":160,\"convertedScore\":88.5},");
+        sb.append("\"personalStatement\":\"").append(longText).append("\",");
+        sb.append("\"academicAchievements\":{\"publications\":[");
+        long fileId = 1;
+        StringBuilder proofs = new StringBuilder();
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) { sb.append(','); proofs.append(','); }
+            sb.append("{\"title\":\"Paper ").append(i).append(": ").append(longText, 0, Math.min(120, longText.length()))
+              .append("\",\"type\":\"A\",\"authorRank\":1,\"totalAuthors\":3,\"proofFileId\":").append(fileId).append('}');
+            proofs.append("{\"id\":").append(fileId++).append('}');
+        }
+        sb.append("],\"competitions\":[");
+        StringBuilder compProofs = new StringBuilder();
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) { sb.append(','); compProofs.append(','); }
+            sb.append("{\"name\":\"Contest ").append(i).append("\",\"level\":\"A\",\"award\":\"First\",\"isTeam\":true,\"teamRank\":1,\"totalTeamMembers\":3,")
+              .append("\"proofFileIds\":[").append(fileId).append(',').append(fileId + 1).append("]}");
+            compProofs.append("{\"id\":").append(fileId++).append("},{\"id\":").append(fileId++).append('}');
+        }
+        sb.append("]},\"comprehensivePerformance\":{\"socialWork\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"position\":\"Monitor\",\"level\":\"HEAD\",\"year\":2023,\"rating\":90}");
+        }
+        sb.append("],\"volunteerService\":{\"hours\":120,\"segments\":[{\"hours\":60}]}},");
+        sb.append("\"uploadedFiles\":{\"publicationProofs\":[").append(proofs).append("],\"competitionProofs\":[").append(compProofs).append("]}}");
+
+        Activity activity = new Activity();
+        activity.setName("Graduate recommendation 2025");
+        Application app = new Application();
+        app.setActivity(activity);
+        app.setContent(sb.toString());
+        app.setAcademicScore(70.0);
+        app.setAchievementScore(12.0);
+        app.setPerformanceScore(4.0);
+        app.setTotalScore(86.0);
+        return app;
+    }
+
+    static String paragraph(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int word = 2 + random.nextInt(9);
+            for (int i = 0; i < word; i++) sb.append((char) ('a' + random.nextInt(26)));
+            sb.append(random.nextInt(8) == 0 ? ". " : " ");
+        }
+        return sb.substring(0, length);
+    }
+
+    private static byte[] jpeg(int w, int h) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, w, h, Color.BLUE));
+        g.fillRect(0, 0, w, h);
+        Random random = new Random(7);
+        for (int i = 0; i < 400; i++) {
+            g.setColor(new Color(random.nextInt(0xFFFFFF)));
+            g.fillOval(random.nextInt(w), random.nextInt(h), 20 + random.nextInt(200), 20 + random.nextInt(200));
+        }
+        g.dispose();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(img, "jpg", bos);
+        return bos.toByteArray();
+    }
+
+    private static byte[] png(int w, int h) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, w, h);
+        g.setColor(Color.DARK_GRAY);
+        for (int y = 20; y < h; y += 18) g.drawString("certificate line " + y, 20, y);
+        g.dispose();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", bos);
+        return bos.toByteArray();
+    }
+}
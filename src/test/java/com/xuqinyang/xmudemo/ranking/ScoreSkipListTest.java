@@ -0,0 +1,90 @@
+package com.xuqinyang.xmudemo.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 跳表排名索引测试
+ * 随机插入/更新/删除后与全量排序的结果逐项比对
+ */
+class ScoreSkipListTest {
+
+    @Test
+    void matchesFullRecomputeUnderRandomUpdates() {
+        Random random = new Random(20241016L);
+        ScoreSkipList index = new ScoreSkipList();
+        Map<Long, Double> expected = new HashMap<>();
+
+        for (int step = 0; step < 20000; step++) {
+            long id = random.nextInt(800);
+            int op = random.nextInt(10);
+            if (op < 7) {
+                // 分数取值集中，制造大量并列
+                double score = random.nextInt(4) == 0 ? random.nextInt(20) : Math.round(random.nextDouble() * 1000) / 10.0;
+                index.put(id, score);
+                expected.put(id, score);
+            } else {
+                index.remove(id);
+                expected.remove(id);
+            }
+            if (step % 1000 == 999) {
+                assertConsistent(index, expected, random);
+            }
+        }
+        assertConsistent(index, expected, random);
+    }
+
+    @Test
+    void resetReplacesContent() {
+        ScoreSkipList index = new ScoreSkipList();
+        index.put(1, 10);
+        index.put(2, 20);
+        Map<Long, Double> entries = new HashMap<>();
+        entries.put(5L, 1.0);
+        entries.put(6L, 3.0);
+        entries.put(7L, 3.0);
+        index.reset(entries);
+        assertEquals(3, index.size());
+        assertEquals(-1, index.position(1));
+        assertEquals(List.of(new ScoreSkipList.Entry(6, 3.0), new ScoreSkipList.Entry(7, 3.0), new ScoreSkipList.Entry(5, 1.0)), index.top(10));
+        assertEquals(1, index.countLess(3.0));
+        assertEquals(0, index.countGreater(3.0));
+    }
+
+    private static void assertConsistent(ScoreSkipList index, Map<Long, Double> expected, Random random) {
+        List<Map.Entry<Long, Double>> sorted = new ArrayList<>(expected.entrySet());
+        sorted.sort(Comparator.<Map.Entry<Long, Double>>comparingDouble(Map.Entry::getValue).reversed()
+            .thenComparing(Map.Entry::getKey));
+
+        assertEquals(sorted.size(), index.size());
+        List<ScoreSkipList.Entry> all = index.range(0, Integer.MAX_VALUE);
+        assertEquals(sorted.size(), all.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            Map.Entry<Long, Double> e = sorted.get(i);
+            assertEquals(e.getKey().longValue(), all.get(i).id());
+            assertEquals(e.getValue(), all.get(i).score(), 0.0);
+            assertEquals(i, index.position(e.getKey()));
+
+            double score = e.getValue();
+            long greater = sorted.stream().filter(x -> x.getValue() > score).count();
+            long less = sorted.stream().filter(x -> x.getValue() < score).count();
+            assertEquals(greater, index.countGreater(score));
+            assertEquals(less, index.countLess(score));
+        }
+        if (!sorted.isEmpty()) {
+            int offset = random.nextInt(sorted.size());
+            List<ScoreSkipList.Entry> page = index.range(offset, 25);
+            for (int i = 0; i < page.size(); i++) {
+                assertEquals(sorted.get(offset + i).getKey().longValue(), page.get(i).id());
+            }
+        }
+    }
+}
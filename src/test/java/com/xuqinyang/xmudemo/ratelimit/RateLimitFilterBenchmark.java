@@ -0,0 +1,107 @@
+package com.xuqinyang.xmudemo.ratelimit;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.filter.RateLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流过滤器单次请求开销：8 个线程模拟 1000 个客户端 IP 访问同一路由
+ * 目标负载 10k RPS，即每个请求的限流开销应远小于 100µs
+ * - localFastPath=false：每个请求一次 Redis 脚本调用
+ * - localFastPath=true：大部分请求在本地计数放行，增量每 100ms 批量同步
+ * 上限设得足够大，测量的是放行路径而不是 429 响应；使用进程内 jedis-mock，真实 Redis 的网络往返只会拉大两者差距
+ * 运行方式：mvn test-compile 后执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(8)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+    private static final int CLIENTS = 1000;
+    private static final FilterChain NO_OP = (req, res) -> { };
+
+    @Param({"true", "false"})
+    public boolean localFastPath;
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private SlidingWindowRateLimiter limiter;
+    private RateLimitFilter filter;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLocalFastPath(localFastPath);
+        properties.setSyncInterval(Duration.ofMillis(100));
+        properties.getIp().setDefaultLimit(10_000_000);
+        limiter = new SlidingWindowRateLimiter(new StringRedisTemplate(factory), properties, new SimpleMeterRegistry());
+        // 没有 handler mapping 时所有路径归入同一模板，只测限流本身
+        RouteTemplateResolver resolver = new RouteTemplateResolver(
+            new StaticListableBeanFactory().getBeanProvider(RequestMappingHandlerMapping.class));
+        filter = new RateLimitFilter(limiter, resolver, properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        limiter.shutdown();
+        factory.destroy();
+        server.stop();
+    }
+
+    @Benchmark
+    public int filterRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/activities");
+        request.setRemoteAddr("10.0." + ThreadLocalRandom.current().nextInt(CLIENTS / 250) + "."
+            + ThreadLocalRandom.current().nextInt(250));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP);
+        return response.getStatus();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RateLimitFilterBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,117 @@
+package com.xuqinyang.xmudemo.ratelimit;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 滑动窗口限流：Redis 精确判定、多节点本地快速路径的误差上界、路由上限配置
+ */
+class SlidingWindowRateLimiterTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private final List<SlidingWindowRateLimiter> limiters = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        limiters.forEach(SlidingWindowRateLimiter::shutdown);
+        factory.destroy();
+        server.stop();
+    }
+
+    private SlidingWindowRateLimiter node(boolean localFastPath, int expectedNodes) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setWindow(Duration.ofMinutes(10)); // 测试期间不跨窗口
+        properties.setLocalFastPath(localFastPath);
+        properties.setExpectedNodes(expectedNodes);
+        properties.setSyncInterval(Duration.ofHours(1)); // 由测试手动同步
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(new StringRedisTemplate(factory), properties, new SimpleMeterRegistry());
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    @Test
+    void redisPathAdmitsExactlyTheLimit() {
+        SlidingWindowRateLimiter limiter = node(false, 1);
+        int allowed = 0;
+        for (int i = 0; i < 25; i++) {
+            if (limiter.tryAcquire("ip:1.2.3.4:GET:/api/activities", 10)) {
+                allowed++;
+            }
+        }
+        assertEquals(10, allowed);
+        // 其他桶不受影响
+        assertTrue(limiter.tryAcquire("ip:1.2.3.4:GET:/api/applications/{id}", 10));
+    }
+
+    @Test
+    void localFastPathOvershootIsBoundedByHeadroom() {
+        int nodes = 3;
+        int limit = 200;
+        List<SlidingWindowRateLimiter> cluster = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            cluster.add(node(true, nodes));
+        }
+
+        int allowed = 0;
+        for (int i = 0; i < 1500; i++) {
+            SlidingWindowRateLimiter limiter = cluster.get(i % nodes);
+            if (limiter.tryAcquire("user:alice:POST:/api/applications/{id}/submit", limit)) {
+                allowed++;
+            }
+            if (i % 20 == 0) {
+                cluster.forEach(SlidingWindowRateLimiter::sync);
+            }
+        }
+        cluster.forEach(SlidingWindowRateLimiter::sync);
+
+        long headroom = (long) Math.ceil(limit * 0.1);
+        assertTrue(allowed >= limit - headroom, "allowed " + allowed);
+        assertTrue(allowed <= limit + headroom, "allowed " + allowed);
+    }
+
+    @Test
+    void syncKeepsRecentlyUsedKeys() {
+        SlidingWindowRateLimiter limiter = node(true, 1);
+        limiter.tryAcquire("ip:5.6.7.8:GET:/api/activities", 100);
+        assertEquals(1, limiter.localKeys());
+        limiter.sync();
+        assertEquals(1, limiter.localKeys());
+    }
+
+    @Test
+    void routeLimitsComeFromTierConfiguration() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getIp().setDefaultLimit(100);
+        properties.getIp().getRoutes().put("/api/auth/login", 60);
+        properties.getUser().setDefaultLimit(200);
+        properties.getUser().getRoutes().put("/api/admin/**", 500);
+
+        assertEquals(60, properties.limitFor(false, "/api/auth/login"));
+        assertEquals(100, properties.limitFor(false, "/api/activities"));
+        assertEquals(500, properties.limitFor(true, "/api/admin/users/{id}"));
+        assertEquals(200, properties.limitFor(true, "/api/auth/login"));
+    }
+}
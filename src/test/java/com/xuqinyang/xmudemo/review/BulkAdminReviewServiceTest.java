@@ -0,0 +1,153 @@
+package com.xuqinyang.xmudemo.review;
+
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.service.CacheService;
+import com.xuqinyang.xmudemo.service.LeaderboardService;
+import com.xuqinyang.xmudemo.service.UserNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 批量人工审核：逐条结果、一次批量写通知、缓存只清一次、非人工审核中的申请不被覆盖
+ * 使用 H2（MySQL 模式）模拟数据库
+ */
+class BulkAdminReviewServiceTest {
+
+    private JdbcTemplate jdbc;
+    private UserNotificationService notifications;
+    private CacheService cacheService;
+    private LeaderboardService leaderboardService;
+    private BulkAdminReviewService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:bulk_review_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE application (id BIGINT PRIMARY KEY, status VARCHAR(40) NOT NULL, user_id BIGINT, " +
+            "activity_id BIGINT, total_score DOUBLE, admin_review_comment VARCHAR(1000), admin_reviewed_at TIMESTAMP NULL, " +
+            "last_update_date TIMESTAMP NULL, version BIGINT)");
+        notifications = mock(UserNotificationService.class);
+        cacheService = mock(CacheService.class);
+        leaderboardService = mock(LeaderboardService.class);
+        service = new BulkAdminReviewService(jdbc, new DataSourceTransactionManager(dataSource), notifications,
+            cacheService, leaderboardService, new SimpleMeterRegistry(), 500);
+    }
+
+    private void insert(long id, ApplicationStatus status) {
+        jdbc.update("INSERT INTO application (id, status, user_id, activity_id, total_score, version) VALUES (?, ?, ?, 1, 80, 3)",
+            id, status.name(), 1000 + id);
+    }
+
+    private String status(long id) {
+        return jdbc.queryForObject("SELECT status FROM application WHERE id = ?", String.class, id);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cohortIsAppliedInOneBatchWithPerItemResults() {
+        List<BulkAdminReviewService.Decision> decisions = new ArrayList<>();
+        for (long id = 1; id <= 300; id++) {
+            insert(id, ApplicationStatus.ADMIN_REVIEWING);
+            decisions.add(new BulkAdminReviewService.Decision(id, id % 3 != 0, id % 3 != 0 ? null : "材料不全"));
+        }
+        insert(301, ApplicationStatus.APPROVED);
+        decisions.add(new BulkAdminReviewService.Decision(301L, false, "复核拒绝"));     // 已有结论
+        decisions.add(new BulkAdminReviewService.Decision(999L, true, null));           // 不存在
+        decisions.add(new BulkAdminReviewService.Decision(1L, false, "重复"));          // 重复
+        insert(302, ApplicationStatus.ADMIN_REVIEWING);
+        decisions.add(new BulkAdminReviewService.Decision(302L, false, " "));           // 拒绝无意见
+
+        BulkAdminReviewService.Result result = service.review(decisions);
+
+        assertEquals(200, result.approved());
+        assertEquals(100, result.rejected());
+        assertEquals(4, result.failed());
+        assertEquals(decisions.size(), result.items().size());
+        assertEquals(ApplicationStatus.APPROVED, result.items().get(0).status());
+        assertEquals(ApplicationStatus.REJECTED, result.items().get(2).status());
+        assertEquals("非人工审核中", result.items().get(300).error());
+        assertEquals("申请不存在", result.items().get(301).error());
+        assertFalse(result.items().get(302).success());
+        assertNull(result.items().get(303).status());
+
+        assertEquals(200, jdbc.queryForObject("SELECT COUNT(*) FROM application WHERE status = 'APPROVED' AND version = 4", Integer.class));
+        assertEquals(100, jdbc.queryForObject("SELECT COUNT(*) FROM application WHERE status = 'REJECTED' AND version = 4", Integer.class));
+        assertEquals("材料不全", jdbc.queryForObject("SELECT admin_review_comment FROM application WHERE id = 3", String.class));
+        assertEquals("APPROVED", status(301));
+        assertEquals("ADMIN_REVIEWING", status(302));
+
+        ArgumentCaptor<List<UserNotificationService.PendingNotification>> sent = ArgumentCaptor.forClass(List.class);
+        verify(notifications, times(1)).insertBatch(sent.capture());
+        assertEquals(300, sent.getValue().size());
+        verify(cacheService, times(1)).clearApplicationCachesSafely();
+        verify(cacheService, never()).evictAllApplications();
+        verify(notifications, times(1)).evictAllPendingReviewCache();
+        verify(leaderboardService).onApplicationChanged(eq(3L), eq(1L), eq(ApplicationStatus.REJECTED), any());
+        verify(leaderboardService, times(300)).onApplicationChanged(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void nothingValidTouchesNoCaches() {
+        insert(1, ApplicationStatus.REJECTED);
+        BulkAdminReviewService.Result result = service.review(List.of(
+            new BulkAdminReviewService.Decision(1L, true, null),
+            new BulkAdminReviewService.Decision(2L, false, null)));
+
+        assertEquals(2, result.failed());
+        assertTrue(result.items().stream().noneMatch(BulkAdminReviewService.ItemResult::success));
+        verify(cacheService, never()).clearApplicationCachesSafely();
+        verify(leaderboardService, never()).onApplicationChanged(any(), any(), any(), any());
+    }
+
+    @Test
+    void failingPostCommitStepDoesNotSkipTheOthers() {
+        insert(1, ApplicationStatus.ADMIN_REVIEWING);
+        insert(2, ApplicationStatus.ADMIN_REVIEWING);
+        doThrow(new IllegalStateException("redis down"))
+            .when(leaderboardService).onApplicationChanged(eq(1L), any(), any(), any());
+        doThrow(new IllegalStateException("redis down")).when(cacheService).clearApplicationCachesSafely();
+
+        BulkAdminReviewService.Result result = service.review(List.of(
+            new BulkAdminReviewService.Decision(1L, true, null),
+            new BulkAdminReviewService.Decision(2L, true, null)));
+
+        // 已提交的结论照常返回，其余步骤仍执行
+        assertEquals(2, result.approved());
+        assertEquals("APPROVED", status(1));
+        verify(leaderboardService).onApplicationChanged(eq(2L), eq(1L), eq(ApplicationStatus.APPROVED), any());
+        verify(notifications).evictAllPendingReviewCache();
+    }
+
+    @Test
+    void oversizedRequestIsRejected() {
+        List<BulkAdminReviewService.Decision> decisions =
+            Collections.nCopies(501, new BulkAdminReviewService.Decision(1L, true, null));
+        assertThrows(IllegalArgumentException.class, () -> service.review(decisions));
+        assertThrows(IllegalArgumentException.class, () -> service.review(List.of()));
+    }
+}
@@ -0,0 +1,234 @@
+package com.xuqinyang.xmudemo.review;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.mq.AsyncMessagePublisher;
+import com.xuqinyang.xmudemo.outbox.OutboxService;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import com.xuqinyang.xmudemo.service.ApplicationTransitionEngine;
+import com.xuqinyang.xmudemo.service.CacheService;
+import com.xuqinyang.xmudemo.service.LeaderboardService;
+import com.xuqinyang.xmudemo.service.SystemAutoReviewScheduler;
+import com.xuqinyang.xmudemo.service.UserNotificationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 分片预审：租约在多节点间均分、节点退出或崩溃后被接管、多节点并行扫描时每条申请只处理一次且工作量均分
+ * Redis 使用 jedis-mock，数据库使用 H2（MySQL 模式）
+ */
+class ShardedReviewTest {
+
+    private static final int SHARDS = 12;
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private JdbcTemplate jdbc;
+    private DataSourceTransactionManager transactionManager;
+    private ExecutorService executor;
+    private CacheService cacheService;
+    private LeaderboardService leaderboardService;
+    private UserNotificationService notificationService;
+    private final List<ShardLeaseManager> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:review_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE application (id BIGINT PRIMARY KEY, activity_id BIGINT, status VARCHAR(32) NOT NULL, " +
+            "total_score DOUBLE, submitted_at TIMESTAMP NULL, system_review_comment VARCHAR(500), system_reviewed_at TIMESTAMP NULL, " +
+            "last_update_date TIMESTAMP NULL, version BIGINT)");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        executor = Executors.newFixedThreadPool(8);
+        cacheService = mock(CacheService.class);
+        leaderboardService = mock(LeaderboardService.class);
+        notificationService = mock(UserNotificationService.class);
+    }
+
+    private ShardedReviewProcessor processor(int chunkSize) {
+        return new ShardedReviewProcessor(jdbc, transactionManager, cacheService, leaderboardService, notificationService, chunkSize);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        nodes.forEach(ShardLeaseManager::shutdown);
+        executor.shutdownNow();
+        factory.destroy();
+        server.stop();
+    }
+
+    private ShardLeaseManager node(Duration leaseTtl) {
+        ShardLeaseManager node = new ShardLeaseManager(new StringRedisTemplate(factory), SHARDS, leaseTtl, Duration.ofHours(1));
+        nodes.add(node);
+        return node;
+    }
+
+    private static void rebalance(int rounds, ShardLeaseManager... cluster) {
+        for (int i = 0; i < rounds; i++) {
+            for (ShardLeaseManager node : cluster) {
+                node.rebalance();
+            }
+        }
+    }
+
+    private static void assertPartition(int perNode, ShardLeaseManager... cluster) {
+        Set<Integer> all = new HashSet<>();
+        for (ShardLeaseManager node : cluster) {
+            assertEquals(perNode, node.ownedShards().size(), node.nodeId() + " owns " + node.ownedShards());
+            for (int shard : node.ownedShards()) {
+                assertTrue(all.add(shard), "shard " + shard + " owned twice");
+            }
+        }
+        assertEquals(SHARDS, all.size());
+    }
+
+    @Test
+    void shardsAreSplitEvenlyAcrossNodes() {
+        ShardLeaseManager a = node(Duration.ofMinutes(1));
+        ShardLeaseManager b = node(Duration.ofMinutes(1));
+        ShardLeaseManager c = node(Duration.ofMinutes(1));
+
+        rebalance(3, a, b, c);
+
+        assertPartition(4, a, b, c);
+    }
+
+    @Test
+    void gracefulShutdownHandsShardsOver() {
+        ShardLeaseManager a = node(Duration.ofMinutes(1));
+        ShardLeaseManager b = node(Duration.ofMinutes(1));
+        ShardLeaseManager c = node(Duration.ofMinutes(1));
+        rebalance(3, a, b, c);
+
+        c.shutdown();
+        rebalance(2, a, b);
+
+        assertPartition(6, a, b);
+    }
+
+    @Test
+    void crashedNodeShardsAreTakenOverAfterLeaseExpiry() throws InterruptedException {
+        ShardLeaseManager a = node(Duration.ofMillis(500));
+        ShardLeaseManager b = node(Duration.ofMillis(500));
+        ShardLeaseManager c = node(Duration.ofMillis(500));
+        rebalance(3, a, b, c);
+        assertPartition(4, a, b, c);
+
+        // c 不再心跳和续期，a、b 继续按周期运行
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            rebalance(1, a, b);
+        }
+
+        assertPartition(6, a, b);
+    }
+
+    @Test
+    void clusterReviewsEveryApplicationExactlyOnce() {
+        int applications = 3000;
+        Timestamp submittedAt = Timestamp.valueOf(LocalDateTime.now().minusMinutes(10));
+        jdbc.batchUpdate("INSERT INTO application (id, status, submitted_at, version) VALUES (?, 'SYSTEM_REVIEWING', ?, 0)",
+            LongStream.rangeClosed(1, applications).boxed().toList(), 500, (ps, id) -> {
+                ps.setLong(1, id);
+                ps.setTimestamp(2, submittedAt);
+            });
+
+        ShardLeaseManager a = node(Duration.ofMinutes(1));
+        ShardLeaseManager b = node(Duration.ofMinutes(1));
+        ShardLeaseManager c = node(Duration.ofMinutes(1));
+        rebalance(3, a, b, c);
+
+        List<SimpleMeterRegistry> registries = List.of(new SimpleMeterRegistry(), new SimpleMeterRegistry(), new SimpleMeterRegistry());
+        List<ShardLeaseManager> cluster = List.of(a, b, c);
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (int i = 0; i < cluster.size(); i++) {
+            runs.add(CompletableFuture.runAsync(scheduler(cluster.get(i), registries.get(i))::sweepOverdue));
+        }
+        runs.forEach(CompletableFuture::join);
+
+        assertEquals(applications, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM application WHERE status = 'ADMIN_REVIEWING' AND version = 1", Integer.class));
+        // id 在分片间均匀分布，每个节点各处理三分之一
+        for (SimpleMeterRegistry registry : registries) {
+            assertEquals(applications / 3, registry.get("system_review_total")
+                .tag("trigger", "sweep").tag("result", "reviewed").counter().count());
+        }
+    }
+
+    @Test
+    void overlappingClaimsOnOneShardDoNotDoubleReview() {
+        Timestamp submittedAt = Timestamp.valueOf(LocalDateTime.now().minusMinutes(10));
+        jdbc.batchUpdate("INSERT INTO application (id, activity_id, status, total_score, submitted_at, version) " +
+            "VALUES (?, 1, 'SYSTEM_REVIEWING', 80, ?, 0)",
+            LongStream.rangeClosed(1, 1200).boxed().toList(), 500, (ps, id) -> {
+                ps.setLong(1, id);
+                ps.setTimestamp(2, submittedAt);
+            });
+        ShardedReviewProcessor processor = processor(10);
+        LocalDateTime cutoff = LocalDateTime.now();
+
+        // 租约交接瞬间两个节点同时处理同一分片
+        List<CompletableFuture<Integer>> runs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            runs.add(CompletableFuture.supplyAsync(() -> processor.reviewShard(5, SHARDS, cutoff, Integer.MAX_VALUE), executor));
+        }
+        int reviewed = runs.stream().mapToInt(CompletableFuture::join).sum();
+
+        assertEquals(100, reviewed);
+        assertEquals(100, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM application WHERE status = 'ADMIN_REVIEWING' AND version = 1", Integer.class));
+        assertEquals(0, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM application WHERE version > 1", Integer.class));
+        assertEquals(0, jdbc.queryForObject(
+            "SELECT COUNT(*) FROM application WHERE status = 'ADMIN_REVIEWING' AND last_update_date IS NULL", Integer.class));
+        // 提交后与事件路径一样逐条清缓存、同步排行榜
+        verify(cacheService, times(100)).evictApplication(anyLong());
+        verify(leaderboardService, times(100)).onApplicationChanged(anyLong(), eq(1L), eq(ApplicationStatus.ADMIN_REVIEWING), eq(80.0));
+        verify(notificationService, atLeastOnce()).evictAllPendingReviewCache();
+    }
+
+    private SystemAutoReviewScheduler scheduler(ShardLeaseManager leases, SimpleMeterRegistry registry) {
+        return new SystemAutoReviewScheduler(mock(ApplicationRepository.class), mock(ApplicationTransitionEngine.class),
+            leases, processor(50), executor,
+            mock(OutboxService.class), mock(AsyncMessagePublisher.class), registry,
+            Duration.ZERO, Duration.ZERO, 10_000);
+    }
+}
@@ -0,0 +1,256 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import java.util.Random;
+
+/**
+ * 申请内容生成器
+ * 生成覆盖各类取值（缺失、null、字符串数字、容器、布尔等）的申请JSON，供等价性测试和基准测试使用
+ */
+final class ContentGenerator {
+
+    private static final String[] PUB_TYPES = {"A类", "B类", "C类", "高水平中文", "信息通信工程", "其他", ""};
+    private static final String[] JOURNALS = {"Nature Communications", "Science China", "Cell Reports", "cell", "IEEE TPAMI", "计算机学报", ""};
+    private static final String[] COMP_LEVELS = {"A+类", "A类", "A-类", "B类"};
+    private static final String[] COMP_AWARDS = {"国家级一等奖及以上", "国家级二等奖", "国家级三等奖", "省级一等奖及以上", "省级二等奖", "优秀奖"};
+    private static final String[] COMP_NAMES = {"挑战杯全国大学生课外学术科技作品竞赛", "中国国际大学生创新大赛", "数学建模竞赛", "ACM-ICPC"};
+    private static final String[] LEVELS = {"国家级", "省级", "校级", "院级"};
+    private static final String[] SW_LEVELS = {"EXEC", "PRESIDIUM", "HEAD", "DEPUTY", "MEMBER"};
+    private static final String[] SPORT_SCOPES = {"国际级", "国家级", "省级"};
+    private static final String[] SPORT_RESULTS = {"冠军", "亚军", "季军", "四至八名", "参与"};
+    private static final String[] MILITARY = {"FULL_YEAR", "half semester", "none", ""};
+
+    private final Random random;
+    private final StringBuilder sb = new StringBuilder(4096);
+
+    ContentGenerator(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * 随机申请内容，小概率包含非法JSON、重复字段和已有计算详情
+     */
+    String application() {
+        sb.setLength(0);
+        int shape = random.nextInt(40);
+        if (shape == 0) return null;
+        if (shape == 1) return "[" + random.nextInt(10) + "]";
+        sb.append('{');
+        field("basicInfo"); basicInfo(); sb.append(',');
+        field("specialAcademicTalent"); sb.append("{\"defensePassed\":").append(random.nextInt(12) == 0 ? weird("true") : "false").append("},");
+        field("academicAchievements"); achievements(random.nextInt(6)); sb.append(',');
+        field("comprehensivePerformance"); performance(random.nextInt(6));
+        if (random.nextInt(6) == 0) {
+            sb.append(',');
+            field("calculatedRaw");
+            sb.append(random.nextInt(5) == 0 ? "1" : "{\"academicConvertedScore\":60.5,\"stale\":true}");
+        }
+        if (random.nextInt(6) == 0) {
+            sb.append(',');
+            field("calculatedScores");
+            sb.append(random.nextInt(5) == 0 ? "null" : "{\"totalScore\":0}");
+        }
+        if (random.nextInt(30) == 0) {
+            sb.append(",\"basicInfo\":{\"gpa\":2.1}"); // 重复字段
+        }
+        sb.append('}');
+        if (shape == 2) return sb.substring(0, sb.length() / 2); // 截断
+        return sb.toString();
+    }
+
+    /**
+     * 结构规范的大型申请内容，供基准测试使用
+     */
+    String realistic(int itemsPerSection) {
+        sb.setLength(0);
+        sb.append("{\"basicInfo\":{\"name\":\"张三\",\"studentId\":\"20220001\",\"gpa\":3.71,\"academicRanking\":8,\"totalStudents\":160,")
+          .append("\"major\":\"计算机科学与技术\",\"phone\":\"13800000000\"},");
+        sb.append("\"specialAcademicTalent\":{\"defensePassed\":false,\"description\":\"").append("研究方向说明".repeat(20)).append("\"},");
+        sb.append("\"academicAchievements\":{\"publications\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"title\":\"Paper ").append(i).append(" on scalable systems\",\"type\":\"").append(PUB_TYPES[i % 5])
+              .append("\",\"journal\":\"").append(JOURNALS[i % JOURNALS.length]).append("\",\"totalAuthors\":").append(1 + i % 4)
+              .append(",\"authorRank\":").append(1 + i % 3).append(",\"isCoFirst\":").append(i % 5 == 0)
+              .append(",\"proofFileId\":").append(1000 + i).append('}');
+        }
+        sb.append("],\"patents\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"title\":\"专利").append(i).append("\",\"authorRank\":").append(1 + i % 2).append(",\"totalAuthors\":").append(1 + i % 3).append('}');
+        }
+        sb.append("],\"competitions\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"name\":\"").append(COMP_NAMES[i % COMP_NAMES.length]).append("\",\"level\":\"").append(COMP_LEVELS[i % 3])
+              .append("\",\"award\":\"").append(COMP_AWARDS[i % 5]).append("\",\"isTeam\":").append(i % 2 == 0)
+              .append(",\"isExternal\":").append(i % 3 == 0).append(",\"totalTeamMembers\":").append(1 + i % 7)
+              .append(",\"teamRank\":").append(1 + i % 6).append(",\"workKey\":\"w").append(i % 4).append("\"}");
+        }
+        sb.append("],\"innovationProjects\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"name\":\"项目").append(i).append("\",\"status\":\"").append(i % 3 == 0 ? "在研" : "已结项")
+              .append("\",\"level\":\"").append(LEVELS[i % 3]).append("\",\"role\":\"").append(i % 2 == 0 ? "组长" : "成员").append("\"}");
+        }
+        sb.append("]},\"comprehensivePerformance\":{\"volunteerService\":{\"hours\":236,\"segments\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"hours\":").append(20 + i).append(",\"type\":\"").append(i % 3 == 0 ? "large_event" : "normal").append("\"}");
+        }
+        sb.append("],\"awards\":[{\"level\":\"省级\",\"role\":\"PERSONAL\"}]},\"honors\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"level\":\"").append(LEVELS[i % 3]).append("\",\"year\":").append(2021 + i % 4).append(",\"isCollective\":").append(i % 4 == 0).append('}');
+        }
+        sb.append("],\"socialWork\":[");
+        for (int i = 0; i < itemsPerSection; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"level\":\"").append(SW_LEVELS[i % SW_LEVELS.length]).append("\",\"rating\":").append(60 + i % 40)
+              .append(",\"year\":").append(2021 + i % 4).append('}');
+        }
+        sb.append("],\"sports\":[{\"scope\":\"国家级\",\"result\":\"季军\",\"isTeam\":true,\"teamSize\":5}],")
+          .append("\"internshipMonths\":7,\"militaryYears\":0}}");
+        return sb.toString();
+    }
+
+    private void field(String name) {
+        sb.append('"').append(name).append("\":");
+    }
+
+    private void basicInfo() {
+        sb.append('{');
+        boolean first = true;
+        String[] keys = {"convertedScore", "percentageScore", "averageScore100", "gpa", "academicRanking", "totalStudents"};
+        for (String key : keys) {
+            if (random.nextInt(3) == 0) continue;
+            if (!first) sb.append(',');
+            first = false;
+            field(key);
+            sb.append(switch (key) {
+                case "gpa" -> weird(String.valueOf(random.nextDouble() * 4.5));
+                case "academicRanking", "totalStudents" -> weird(String.valueOf(random.nextInt(200) - 5));
+                default -> weird(String.valueOf(random.nextDouble() * 120 - 10));
+            });
+        }
+        sb.append('}');
+    }
+
+    private void achievements(int n) {
+        sb.append('{');
+        field("publications");
+        items(n, () -> {
+            sb.append('{');
+            if (random.nextInt(8) != 0) { field("title"); sb.append(random.nextInt(10) == 0 ? "null" : "\"Study on " + random.nextInt(100) + "\""); sb.append(','); }
+            field("type"); sb.append(str(PUB_TYPES)); sb.append(',');
+            field("journal"); sb.append(str(JOURNALS)); sb.append(',');
+            field("totalAuthors"); sb.append(weird(String.valueOf(random.nextInt(5)))); sb.append(',');
+            field("authorRank"); sb.append(weird(String.valueOf(random.nextInt(4)))); sb.append(',');
+            field("isCoFirst"); sb.append(weird(String.valueOf(random.nextBoolean())));
+            sb.append('}');
+        });
+        sb.append(',');
+        field("patents");
+        items(n, () -> {
+            sb.append("{\"title\":").append(random.nextInt(6) == 0 ? "null" : "\"p\"").append(',');
+            field("authorRank"); sb.append(weird(String.valueOf(1 + random.nextInt(3)))); sb.append(',');
+            field("totalAuthors"); sb.append(weird(String.valueOf(random.nextInt(4))));
+            sb.append('}');
+        });
+        sb.append(',');
+        field("competitions");
+        if (random.nextInt(10) == 0) {
+            sb.append("{\"x\":{\"level\":\"A类\",\"award\":\"国家级二等奖\"}}");
+        } else {
+            items(n + random.nextInt(4), () -> {
+                sb.append('{');
+                field("name"); sb.append(str(COMP_NAMES)); sb.append(',');
+                field("level"); sb.append(str(COMP_LEVELS)); sb.append(',');
+                field("award"); sb.append(str(COMP_AWARDS)); sb.append(',');
+                field("isTeam"); sb.append(weird(String.valueOf(random.nextBoolean()))); sb.append(',');
+                field("isExternal"); sb.append(weird(String.valueOf(random.nextBoolean()))); sb.append(',');
+                field("totalTeamMembers"); sb.append(weird(String.valueOf(random.nextInt(8)))); sb.append(',');
+                field("teamRank"); sb.append(weird(String.valueOf(random.nextInt(7))));
+                if (random.nextBoolean()) { sb.append(','); field("workKey"); sb.append(random.nextInt(5) == 0 ? "\"  \"" : "\" w" + random.nextInt(3) + "\""); }
+                sb.append('}');
+            });
+        }
+        sb.append(',');
+        field("innovationProjects");
+        items(n, () -> {
+            sb.append('{');
+            field("status"); sb.append(random.nextInt(4) == 0 ? "null" : (random.nextBoolean() ? "\"已结项\"" : "\"在研\"")); sb.append(',');
+            field("level"); sb.append(str(LEVELS)); sb.append(',');
+            field("role"); sb.append(random.nextBoolean() ? "\"组长\"" : "\"成员\"");
+            sb.append('}');
+        });
+        sb.append('}');
+    }
+
+    private void performance(int n) {
+        sb.append('{');
+        field("volunteerService");
+        sb.append("{\"hours\":").append(weird(String.valueOf(random.nextInt(300))));
+        if (random.nextBoolean()) {
+            sb.append(",\"segments\":");
+            items(random.nextInt(4), () -> sb.append("{\"hours\":").append(weird(String.valueOf(random.nextInt(250))))
+                    .append(",\"type\":").append(random.nextInt(3) == 0 ? "\"large_event\"" : (random.nextInt(5) == 0 ? "null" : "\"normal\"")).append('}'));
+        }
+        sb.append(",\"awards\":");
+        items(random.nextInt(3), () -> sb.append("{\"level\":").append(str(LEVELS)).append(",\"role\":")
+                .append(random.nextInt(3) == 0 ? "\"TEAM_MEMBER\"" : "\"PERSONAL\"").append('}'));
+        sb.append("},");
+        field("honors");
+        items(n, () -> sb.append("{\"level\":").append(str(LEVELS)).append(",\"year\":").append(weird(String.valueOf(2020 + random.nextInt(4))))
+                .append(",\"isCollective\":").append(weird(String.valueOf(random.nextBoolean()))).append('}'));
+        sb.append(',');
+        field("socialWork");
+        items(n, () -> sb.append("{\"level\":").append(random.nextInt(6) == 0 ? "null" : str(SW_LEVELS)).append(",\"rating\":")
+                .append(weird(String.valueOf(random.nextInt(101)))).append(",\"year\":").append(2020 + random.nextInt(4)).append('}'));
+        sb.append(',');
+        field("sports");
+        items(random.nextInt(3), () -> sb.append("{\"scope\":").append(str(SPORT_SCOPES)).append(",\"result\":").append(str(SPORT_RESULTS))
+                .append(",\"isTeam\":").append(random.nextBoolean()).append(",\"teamSize\":").append(weird(String.valueOf(random.nextInt(6)))).append('}'));
+        if (random.nextBoolean()) {
+            sb.append(',');
+            field("internshipMonths");
+            sb.append(weird(String.valueOf(random.nextInt(15))));
+        }
+        sb.append(',');
+        field("military");
+        sb.append(str(MILITARY));
+        sb.append(',');
+        field("militaryYears");
+        sb.append(weird(String.valueOf(random.nextInt(3))));
+        sb.append('}');
+    }
+
+    private void items(int n, Runnable item) {
+        sb.append('[');
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            if (random.nextInt(25) == 0) sb.append(random.nextBoolean() ? "3" : "[]");
+            else item.run();
+        }
+        sb.append(']');
+    }
+
+    private String str(String[] values) {
+        return '"' + values[random.nextInt(values.length)] + '"';
+    }
+
+    /**
+     * 以小概率把正常取值替换为字符串、null、容器或其他类型
+     */
+    private String weird(String normal) {
+        return switch (random.nextInt(14)) {
+            case 0 -> "\"" + normal + "\"";
+            case 1 -> "null";
+            case 2 -> "{}";
+            case 3 -> "[1]";
+            case 4 -> "true";
+            case 5 -> "\"" + normal + "x\"";
+            case 6 -> "2.75";
+            default -> normal;
+        };
+    }
+}
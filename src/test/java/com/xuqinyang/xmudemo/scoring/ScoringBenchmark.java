@@ -0,0 +1,87 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评分基准测试：原 JsonNode 树遍历 vs 流式评分引擎
+ * 运行方式：mvn test-compile 后执行 main 方法；加 -prof gc 可对比每次操作的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+
+    @Param({"3", "20", "100"})
+    public int itemsPerSection;
+
+    private final ScoringEngine engine = new ScoringEngine();
+    private String content;
+    private User user;
+
+    @Setup
+    public void setup() {
+        content = new ContentGenerator(new Random(42)).realistic(itemsPerSection);
+        user = new User();
+        user.setGpa(3.71);
+        user.setAcademicRank(8);
+        user.setMajorTotal(160);
+    }
+
+    /**
+     * 原实现：解析完整树、遍历、修改后整体重新序列化
+     */
+    @Benchmark
+    public Application legacyRecalc() {
+        Application app = new Application();
+        app.setUser(user);
+        app.setContent(content);
+        LegacyScoreCalculator.recalcScores(app);
+        return app;
+    }
+
+    /**
+     * 新实现：流式提取评分字段 + 流式回写计算详情
+     */
+    @Benchmark
+    public String engineRecalc() {
+        ScoreCard card = engine.score(content, user);
+        return ContentScoreWriter.write(content, card);
+    }
+
+    /**
+     * 仅评分（批量重算排名等不需要回写内容的场景）
+     */
+    @Benchmark
+    public ScoreCard engineScoreOnly() {
+        return engine.score(content, user);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ScoringBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
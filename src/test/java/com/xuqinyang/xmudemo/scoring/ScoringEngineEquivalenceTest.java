@@ -0,0 +1,108 @@
+package com.xuqinyang.xmudemo.scoring;
+
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 评分引擎等价性测试
+ * 与原 JsonNode 实现逐一对比四项成绩和回写后的申请内容
+ */
+class ScoringEngineEquivalenceTest {
+
+    private final ScoringEngine engine = new ScoringEngine();
+
+    @Test
+    void fixedEdgeCasesMatchLegacy() {
+        List<String> contents = new ArrayList<>();
+        contents.add(null);
+        contents.add("");
+        contents.add("   ");
+        contents.add("not json");
+        contents.add("{\"basicInfo\":");
+        contents.add("[1,2,3]");
+        contents.add("42");
+        contents.add("null");
+        contents.add("\"text\"");
+        contents.add("{}");
+        contents.add("{} trailing");
+        contents.add("{\"calculatedRaw\":5}");
+        contents.add("{\"calculatedRaw\":null}");
+        contents.add("{\"calculatedScores\":[1]}");
+        contents.add("{\"calculatedRaw\":{\"academicRankScore\":3,\"x\":1},\"a\":1}");
+        contents.add("{\"calculatedScores\":{\"totalScore\":1},\"calculatedRaw\":{\"academicConvertedScore\":55}}");
+        contents.add("{\"basicInfo\":{\"gpa\":3.5},\"basicInfo\":{\"convertedScore\":90}}");
+        contents.add("{\"basicInfo\":{\"convertedScore\":null,\"percentageScore\":\"88.5\"}}");
+        contents.add("{\"basicInfo\":{\"gpa\":\"abc\",\"academicRanking\":3,\"totalStudents\":0}}");
+        contents.add("{\"basicInfo\":{\"gpa\":4.5,\"academicRanking\":12345678901,\"totalStudents\":99999999999999999999}}");
+        contents.add("{\"basicInfo\":{\"convertedScore\":1e400}}");
+        contents.add("{\"basicInfo\":[1],\"academicAchievements\":\"x\",\"comprehensivePerformance\":7}");
+        contents.add("{\"academicAchievements\":{\"publications\":{\"a\":{\"title\":\"t\",\"type\":\"A类\"},\"b\":{\"title\":\"t2\",\"type\":\"C类\"}}}}");
+        contents.add("{\"academicAchievements\":{\"competitions\":{\"a\":{\"level\":\"A类\",\"award\":\"国家级二等奖\"}}}}");
+        contents.add("{\"comprehensivePerformance\":{\"internshipMonths\":null,\"military\":\"full year\"}}");
+        contents.add("{\"comprehensivePerformance\":{\"military\":\"half\",\"volunteerService\":{\"hours\":260,\"segments\":[]}}}");
+        contents.add("{\"comprehensivePerformance\":{\"volunteerService\":{\"hours\":260,\"segments\":{\"a\":{\"hours\":400}}}}}");
+        contents.add("{\"a\":\"\\u00e9\\n\\\"q\\\"\",\"b\":-0,\"c\":1.0E2,\"d\":[true,false,null,{}],\"e\":123456789012345678901234567890}");
+        contents.add("{\"specialAcademicTalent\":{\"defensePassed\":\"true \"}}");
+        contents.add("{\"specialAcademicTalent\":{\"defensePassed\":1}}");
+        contents.add("{\"specialAcademicTalent\":{\"defensePassed\":1.0}}");
+
+        for (String content : contents) {
+            assertSame(content, user(null, 3.6, 5, 100));
+            assertSame(content, user(92.5, null, null, null));
+            assertSame(content, user(null, null, null, null));
+        }
+    }
+
+    @Test
+    void randomContentsMatchLegacy() {
+        Random random = new Random(20241016L);
+        for (int i = 0; i < 5000; i++) {
+            String content = new ContentGenerator(random).application();
+            User u = switch (random.nextInt(4)) {
+                case 0 -> user(random.nextDouble() * 110 - 5, null, null, null);
+                case 1 -> user(null, random.nextDouble() * 4.5, random.nextInt(120), random.nextInt(120));
+                case 2 -> user(null, null, random.nextBoolean() ? 3 : null, null);
+                default -> user(null, null, null, null);
+            };
+            assertSame(content, u);
+        }
+    }
+
+    private void assertSame(String content, User user) {
+        Application legacy = application(content, user);
+        LegacyScoreCalculator.recalcScores(legacy);
+
+        ScoreCard card = engine.score(content, user);
+        String written = ContentScoreWriter.write(content, card);
+
+        String message = "content=" + content;
+        assertEquals(legacy.getAcademicScore(), card.academicBase(), 0.0, message);
+        assertEquals(legacy.getAchievementScore(), card.specRaw(), 0.0, message);
+        assertEquals(legacy.getPerformanceScore(), card.perfRaw(), 0.0, message);
+        assertEquals(legacy.getTotalScore(), card.totalScore(), 0.0, message);
+        assertEquals(legacy.getContent(), written, message);
+    }
+
+    private static Application application(String content, User user) {
+        Application app = new Application();
+        app.setContent(content);
+        app.setUser(user);
+        return app;
+    }
+
+    private static User user(Double converted, Double gpa, Integer rank, Integer total) {
+        User u = new User();
+        u.setConvertedScore(converted);
+        u.setGpa(gpa);
+        u.setAcademicRank(rank);
+        u.setMajorTotal(total);
+        return u;
+    }
+}
@@ -0,0 +1,228 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.model.*;
+import com.xuqinyang.xmudemo.repository.ActivityRepository;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import com.xuqinyang.xmudemo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 无锁状态迁移并发测试：500 位审核员同时操作同一批申请
+ * 每次成功迁移恰好使 version 加 1，且同一状态只会被一位审核员迁出，证明没有丢失更新
+ *
+ * 注意：这是集成测试，需要 Docker Compose 服务运行（MySQL, Redis, RabbitMQ）
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ApplicationTransitionConcurrencyTest {
+
+    private static final int REVIEWERS = 500;
+    private static final int APPLICATIONS = 10;
+
+    @Autowired
+    private ApplicationService applicationService;
+    @Autowired
+    private ApplicationRepository applicationRepository;
+    @Autowired
+    private ActivityRepository activityRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<User> students = new ArrayList<>();
+    private final List<Long> appIds = new ArrayList<>();
+    private Activity activity;
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.currentTimeMillis());
+        activity = new Activity();
+        activity.setName("状态迁移并发测试");
+        activity.setDepartment("信息学院");
+        activity.setType(ActivityType.ACADEMIC_MASTER);
+        activity.setStartTime(LocalDateTime.now());
+        activity.setDeadline(LocalDateTime.now().plusDays(7));
+        activity.setMaxApplications(1000);
+        activity.setActive(true);
+        activity = activityRepository.save(activity);
+
+        for (int i = 0; i < APPLICATIONS; i++) {
+            User u = new User();
+            u.setStudentId("transition_" + suffix + "_" + i);
+            u.setPassword("password");
+            u.setName("学生" + i);
+            u.setRole(Role.STUDENT);
+            students.add(userRepository.save(u));
+
+            Application app = new Application();
+            app.setUser(u);
+            app.setActivity(activity);
+            app.setContent("{}");
+            app.setStatus(ApplicationStatus.ADMIN_REVIEWING);
+            appIds.add(applicationRepository.save(app).getId());
+        }
+        executorService = Executors.newFixedThreadPool(REVIEWERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+        applicationRepository.deleteAllById(appIds);
+        userRepository.deleteAll(students);
+        activityRepository.delete(activity);
+    }
+
+    private static void actAsReviewer(int i) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+            "reviewer" + i, null, List.of(new SimpleGrantedAuthority("REVIEWER"))));
+    }
+
+    private Map<Long, Long> versions() {
+        Map<Long, Long> out = new HashMap<>();
+        for (Long id : appIds) {
+            Long v = applicationRepository.findById(id).orElseThrow().getVersion();
+            out.put(id, v == null ? 0L : v);
+        }
+        return out;
+    }
+
+    @Test
+    @DisplayName("500位审核员同时审核：每个申请只有一位成功，结论与版本号一致")
+    void concurrentAdminReviewHasSingleWinner() throws Exception {
+        Map<Long, Long> before = versions();
+        Map<Long, List<Integer>> winners = new ConcurrentHashMap<>();
+        Map<Long, Application> returned = new ConcurrentHashMap<>();
+        AtomicInteger lostRace = new AtomicInteger();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(REVIEWERS);
+
+        for (int i = 0; i < REVIEWERS; i++) {
+            final int reviewer = i;
+            final Long appId = appIds.get(i % APPLICATIONS);
+            executorService.submit(() -> {
+                try {
+                    actAsReviewer(reviewer);
+                    start.await();
+                    returned.put(appId, applicationService.adminReview(appId, reviewer % 2 == 0, "reviewer-" + reviewer));
+                    winners.computeIfAbsent(appId, k -> Collections.synchronizedList(new ArrayList<>())).add(reviewer);
+                } catch (IllegalStateException e) {
+                    lostRace.incrementAndGet(); // 其他审核员已给出结论
+                } catch (Throwable t) {
+                    unexpected.add(t);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    done.countDown();
+                }
+            });
+        }
+        LocalDateTime started = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        start.countDown();
+        assertTrue(done.await(120, TimeUnit.SECONDS), "测试应在超时时间内完成");
+
+        assertTrue(unexpected.isEmpty(), "不应出现状态冲突以外的异常: " + unexpected);
+        assertEquals(REVIEWERS - APPLICATIONS, lostRace.get());
+        for (Long id : appIds) {
+            List<Integer> w = winners.get(id);
+            assertNotNull(w);
+            assertEquals(1, w.size(), "每个申请只能有一位审核员成功");
+            int reviewer = w.get(0);
+            Application app = applicationRepository.findById(id).orElseThrow();
+            assertEquals(reviewer % 2 == 0 ? ApplicationStatus.APPROVED : ApplicationStatus.REJECTED, app.getStatus());
+            assertEquals("reviewer-" + reviewer, app.getAdminReviewComment());
+            assertEquals(before.get(id) + 1, app.getVersion());
+            // 条件 UPDATE 写入更新时间，返回的实体与库中一致
+            assertFalse(app.getLastUpdateDate().isBefore(started), "更新时间应为审核时间");
+            assertEquals(returned.get(id).getLastUpdateDate().truncatedTo(ChronoUnit.MICROS),
+                app.getLastUpdateDate().truncatedTo(ChronoUnit.MICROS));
+        }
+    }
+
+    @Test
+    @DisplayName("500位审核员反复复核/审核：成功次数与版本增量严格相等")
+    void reopenAndReviewCyclesLoseNoUpdates() throws Exception {
+        Map<Long, Long> before = versions();
+        Map<Long, AtomicInteger> applied = new ConcurrentHashMap<>();
+        appIds.forEach(id -> applied.put(id, new AtomicInteger()));
+        AtomicInteger exhausted = new AtomicInteger();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(REVIEWERS);
+
+        for (int i = 0; i < REVIEWERS; i++) {
+            final int reviewer = i;
+            final Long appId = appIds.get(i % APPLICATIONS);
+            executorService.submit(() -> {
+                try {
+                    actAsReviewer(reviewer);
+                    start.await();
+                    for (int round = 0; round < 4; round++) {
+                        try {
+                            if ((reviewer + round) % 2 == 0) {
+                                applicationService.adminReview(appId, true, "reviewer-" + reviewer);
+                            } else {
+                                applicationService.reopenAdminReview(appId, "reviewer-" + reviewer);
+                            }
+                            applied.get(appId).incrementAndGet();
+                        } catch (IllegalStateException e) {
+                            // 当前状态不允许该迁移
+                        } catch (ObjectOptimisticLockingFailureException e) {
+                            exhausted.incrementAndGet(); // 重试用尽，未写入
+                        }
+                    }
+                } catch (Throwable t) {
+                    unexpected.add(t);
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(300, TimeUnit.SECONDS), "测试应在超时时间内完成");
+
+        System.out.println("重试用尽次数: " + exhausted.get());
+        assertTrue(unexpected.isEmpty(), "不应出现其他异常: " + unexpected);
+        for (Long id : appIds) {
+            Application app = applicationRepository.findById(id).orElseThrow();
+            int successes = applied.get(id).get();
+            assertTrue(successes > 0);
+            assertEquals(before.get(id) + successes, app.getVersion(), "每次成功迁移都应恰好写入一次");
+            // 迁移严格交替：偶数次成功后回到人工审核中，奇数次后为已通过
+            assertEquals(successes % 2 == 0 ? ApplicationStatus.ADMIN_REVIEWING : ApplicationStatus.APPROVED, app.getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("非本人提交或取消：先报权限错误，不暴露申请当前状态")
+    void nonOwnerGetsPermissionErrorBeforeStateError() {
+        // 学生1 操作学生0 处于人工审核中的申请：状态本身也不允许提交
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+            students.get(1).getStudentId(), null, List.of(new SimpleGrantedAuthority("STUDENT"))));
+        Long othersApp = appIds.get(0);
+
+        IllegalStateException submit = assertThrows(IllegalStateException.class, () -> applicationService.submit(othersApp));
+        assertEquals("无权访问此申请", submit.getMessage());
+        IllegalStateException cancel = assertThrows(IllegalStateException.class, () -> applicationService.cancel(othersApp));
+        assertEquals("无权取消该申请", cancel.getMessage());
+        assertEquals(ApplicationStatus.ADMIN_REVIEWING, applicationRepository.findById(othersApp).orElseThrow().getStatus());
+    }
+}
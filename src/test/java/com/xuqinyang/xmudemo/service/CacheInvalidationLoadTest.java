@@ -0,0 +1,270 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.cache.NearCacheManager;
+import com.xuqinyang.xmudemo.config.RedisConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 缓存分代失效：正确性、后台 SCAN 清理，以及并发审核下 Redis 读延迟的前后对比
+ * 使用进程内 jedis-mock，不依赖 Docker 中的 Redis
+ */
+class CacheInvalidationLoadTest {
+
+    private static final int SEEDED_KEYS = 20_000;
+    private static final int APPROVERS = 8;
+    private static final int APPROVALS_PER_THREAD = 25;
+    private static final int READERS = 4;
+    private static final String PROBE_KEY = "stats:probe";
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
+    private ThreadPoolTaskScheduler scheduler;
+    private CacheService cacheService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+
+        redisTemplate = new RedisConfig().redisTemplate(factory);
+        stringRedisTemplate = new StringRedisTemplate(factory);
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        NearCacheManager nearCacheManager = new NearCacheManager(stringRedisTemplate, new SimpleMeterRegistry(),
+            1000, Duration.ofSeconds(10));
+        cacheService = new CacheService(redisTemplate, new RedisConfig().cacheRedisTemplate(factory), stringRedisTemplate,
+            new ConcurrentMapCacheManager(), scheduler, nearCacheManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        scheduler.shutdown();
+        factory.destroy();
+        server.stop();
+    }
+
+    @Test
+    void evictAllApplicationsOnlyHidesApplicationLists() {
+        cacheService.putActivitiesListToCache("applications_all", list("a1"), 60, TimeUnit.SECONDS);
+        cacheService.putActivitiesListToCache("all", list("act1"), 60, TimeUnit.SECONDS);
+        cacheService.putActivityToCache(1L, "act1", 60, TimeUnit.SECONDS);
+
+        cacheService.evictAllApplications();
+
+        assertNull(cacheService.getActivitiesListFromCache("applications_all"));
+        assertNotNull(cacheService.getActivitiesListFromCache("all"));
+        assertNotNull(cacheService.getActivityFromCache(1L));
+    }
+
+    @Test
+    void evictAllActivitiesHidesActivityAndApplicationEntries() {
+        cacheService.putActivitiesListToCache("applications_all", list("a1"), 60, TimeUnit.SECONDS);
+        cacheService.putActivitiesListToCache("all", list("act1"), 60, TimeUnit.SECONDS);
+        cacheService.putActivityToCache(1L, "act1", 60, TimeUnit.SECONDS);
+
+        cacheService.evictAllActivities();
+
+        assertNull(cacheService.getActivitiesListFromCache("applications_all"));
+        assertNull(cacheService.getActivitiesListFromCache("all"));
+        assertNull(cacheService.getActivityFromCache(1L));
+
+        cacheService.putActivityToCache(1L, "act1-v2", 60, TimeUnit.SECONDS);
+        assertEquals("act1-v2", cacheService.getActivityFromCache(1L));
+    }
+
+    @Test
+    void valueLoadedBeforeInvalidationIsNotWritten() {
+        long generation = cacheService.activityCacheGeneration();
+        // 查库之后、回写之前活动被修改并失效
+        cacheService.evictAllActivities();
+        cacheService.putActivityToCache(1L, "act1-stale", generation, 60, TimeUnit.SECONDS);
+
+        assertNull(cacheService.getActivityFromCache(1L));
+        assertTrue(stringRedisTemplate.keys(CacheService.ACTIVITY_NAMESPACE + ":*").isEmpty());
+
+        cacheService.putActivityToCache(1L, "act1-v2", cacheService.activityCacheGeneration(), 60, TimeUnit.SECONDS);
+        assertEquals("act1-v2", cacheService.getActivityFromCache(1L));
+    }
+
+    @Test
+    void listLoadedDuringInvalidationIsReturnedButNotCached() {
+        List<String> loaded = cacheService.getOrLoadList("all", 60, TimeUnit.SECONDS, () -> {
+            cacheService.evictAllActivities();
+            return list("stale");
+        });
+
+        assertEquals(list("stale"), loaded);
+        assertNull(cacheService.getActivitiesListFromCache("all"));
+        assertEquals(list("fresh"), cacheService.getOrLoadList("all", 60, TimeUnit.SECONDS, () -> list("fresh")));
+        assertEquals(list("fresh"), cacheService.getActivitiesListFromCache("all"));
+    }
+
+    @Test
+    void sweepDeletesOnlyStaleAndLegacyKeys() {
+        stringRedisTemplate.opsForValue().set("application:list:applications_all", "legacy");
+        stringRedisTemplate.opsForValue().set("lock:application:update:1", "owner");
+        cacheService.putActivitiesListToCache("applications_all", list("old"), 60, TimeUnit.SECONDS);
+        cacheService.evictAllApplications();
+        cacheService.putActivitiesListToCache("applications_all", list("new"), 60, TimeUnit.SECONDS);
+
+        long deleted = cacheService.sweepStaleKeys(CacheService.APPLICATION_NAMESPACE);
+
+        assertEquals(2, deleted);
+        assertEquals(list("new"), cacheService.getActivitiesListFromCache("applications_all"));
+        assertTrue(stringRedisTemplate.hasKey("lock:application:update:1"));
+        assertEquals(Set.of("application:g1:list:applications_all"),
+            stringRedisTemplate.keys(CacheService.APPLICATION_NAMESPACE + ":*"));
+    }
+
+    /**
+     * 并发审核每次都做全量失效，同时读线程持续直接 GET 一个 Redis 键（绕过 L1），记录读延迟。
+     * 旧实现：KEYS application:* / activity:list:applications* 再 DEL；新实现：一次 INCR。
+     */
+    @Test
+    void concurrentApprovalsLoad() throws Exception {
+        Runnable legacyEvict = () -> {
+            Set<String> keys = redisTemplate.keys("application:*");
+            if (keys != null && !keys.isEmpty()) redisTemplate.delete(keys);
+            Set<String> listKeys = redisTemplate.keys("activity:list:applications*");
+            if (listKeys != null && !listKeys.isEmpty()) redisTemplate.delete(listKeys);
+        };
+
+        seed();
+        Result before = runLoad(legacyEvict);
+        seed();
+        Result after = runLoad(cacheService::evictAllApplications);
+
+        System.out.printf("[cache-invalidation] %d keys, %d approvers x %d approvals, %d readers%n",
+            SEEDED_KEYS, APPROVERS, APPROVALS_PER_THREAD, READERS);
+        System.out.println("[cache-invalidation] KEYS+DEL   " + before);
+        System.out.println("[cache-invalidation] generation " + after);
+
+        assertTrue(after.approvalMillis < before.approvalMillis,
+            "generation bump should finish the approvals faster than KEYS scans");
+    }
+
+    private static List<String> list(String value) {
+        return new ArrayList<>(List.of(value));
+    }
+
+    private void seed() {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        Map<String, String> batch = new HashMap<>();
+        for (int i = 0; i < SEEDED_KEYS; i++) {
+            String ns = (i & 1) == 0 ? "activity:" : "application:";
+            batch.put(ns + "seed:" + i, "v" + i);
+            if (batch.size() == 1000) {
+                stringRedisTemplate.opsForValue().multiSet(batch);
+                batch.clear();
+            }
+        }
+        stringRedisTemplate.opsForValue().multiSet(batch);
+        stringRedisTemplate.opsForValue().set(PROBE_KEY, "\"hot\"");
+    }
+
+    private Result runLoad(Runnable evictAll) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(APPROVERS + READERS);
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> readers = new ArrayList<>();
+        try {
+            for (int r = 0; r < READERS; r++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    long[] samples = new long[1 << 16];
+                    int n = 0;
+                    while (running.get()) {
+                        long t0 = System.nanoTime();
+                        redisTemplate.opsForValue().get(PROBE_KEY);
+                        if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                        samples[n++] = System.nanoTime() - t0;
+                    }
+                    return Arrays.copyOf(samples, n);
+                }));
+            }
+            List<Future<?>> approvers = new ArrayList<>();
+            for (int a = 0; a < APPROVERS; a++) {
+                approvers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < APPROVALS_PER_THREAD; i++) evictAll.run();
+                    return null;
+                }));
+            }
+
+            long t0 = System.nanoTime();
+            start.countDown();
+            for (Future<?> f : approvers) f.get(5, TimeUnit.MINUTES);
+            long approvalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            running.set(false);
+
+            List<long[]> all = new ArrayList<>();
+            for (Future<long[]> f : readers) all.add(f.get(1, TimeUnit.MINUTES));
+            long[] merged = all.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            return new Result(approvalMillis, merged);
+        } finally {
+            running.set(false);
+            pool.shutdownNow();
+        }
+    }
+
+    private static final class Result {
+        final long approvalMillis;
+        final long[] sortedNanos;
+
+        Result(long approvalMillis, long[] sortedNanos) {
+            this.approvalMillis = approvalMillis;
+            this.sortedNanos = sortedNanos;
+        }
+
+        private double percentileMicros(double p) {
+            if (sortedNanos.length == 0) return 0;
+            int idx = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, idx)] / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("approvals=%dms reads=%d p50=%.0fus p99=%.0fus max=%.0fus",
+                approvalMillis, sortedNanos.length, percentileMicros(0.50), percentileMicros(0.99),
+                percentileMicros(1.0));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.cache.NearCacheManager;
+import com.xuqinyang.xmudemo.config.RedisConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CacheService 未命中合并：单节点并发未命中只加载一次、陈旧值先返回后台刷新、跨节点租约
+ */
+class CacheServiceSingleFlightTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private final List<ThreadPoolTaskScheduler> schedulers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        schedulers.forEach(ThreadPoolTaskScheduler::shutdown);
+        factory.destroy();
+        server.stop();
+    }
+
+    /**
+     * 一个 CacheService 实例代表一个节点（各自的 L1 和进程内 single-flight，共享 Redis）
+     */
+    private CacheService node(boolean distributed) {
+        RedisConfig config = new RedisConfig();
+        StringRedisTemplate strings = new StringRedisTemplate(factory);
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.initialize();
+        schedulers.add(scheduler);
+        CacheService service = new CacheService(config.redisTemplate(factory), config.cacheRedisTemplate(factory), strings,
+            new ConcurrentMapCacheManager(), scheduler,
+            new NearCacheManager(strings, new SimpleMeterRegistry(), 1000, Duration.ofSeconds(10)));
+        ReflectionTestUtils.setField(service, "distributedSingleFlight", distributed);
+        return service;
+    }
+
+    private static ArrayList<String> slowLoad(AtomicInteger loads, String value) {
+        loads.incrementAndGet();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new ArrayList<>(List.of(value));
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        CacheService cache = node(false);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.getOrLoadList("active", 60, TimeUnit.SECONDS, () -> slowLoad(loads, "v1"));
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> f : results) assertEquals(List.of("v1"), f.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(List.of("v1"), cache.getActivitiesListFromCache("active"));
+    }
+
+    @Test
+    void staleValueServedWhileRefreshing() throws Exception {
+        CacheService cache = node(false);
+        AtomicInteger loads = new AtomicInteger();
+        cache.getOrLoadList("active", 50, TimeUnit.MILLISECONDS, () -> slowLoad(loads, "old"));
+        Thread.sleep(100);
+
+        // 后台刷新阻塞在 latch 上，放行前不可能完成
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<ArrayList<String>> blockedLoad = () -> {
+            loads.incrementAndGet();
+            refreshing.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ArrayList<>(List.of("new"));
+        };
+
+        List<String> stale = assertTimeoutPreemptively(Duration.ofSeconds(2),
+            () -> cache.getOrLoadList("active", 10, TimeUnit.SECONDS, blockedLoad));
+        assertEquals(List.of("old"), stale);
+        assertTrue(refreshing.await(5, TimeUnit.SECONDS), "background refresh did not start");
+
+        // 刷新进行中的读取仍返回旧值，且并入同一次刷新
+        assertEquals(List.of("old"), cache.getOrLoadList("active", 10, TimeUnit.SECONDS, blockedLoad));
+        assertEquals(2, loads.get());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> current;
+        do {
+            assertTrue(System.currentTimeMillis() < deadline, "refreshed value not visible in time");
+            Thread.sleep(20);
+            current = cache.getOrLoadList("active", 10, TimeUnit.SECONDS, () -> slowLoad(loads, "unexpected"));
+        } while (!current.equals(List.of("new")));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void leaseCoalescesMissesAcrossNodes() throws Exception {
+        CacheService nodeA = node(true);
+        CacheService nodeB = node(true);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                CacheService node = (i & 1) == 0 ? nodeA : nodeB;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return node.getOrLoadList("applications_all", 60, TimeUnit.SECONDS, () -> slowLoad(loads, "apps"));
+                }));
+            }
+            start.countDown();
+            for (Future<List<String>> f : results) assertEquals(List.of("apps"), f.get(10, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+}
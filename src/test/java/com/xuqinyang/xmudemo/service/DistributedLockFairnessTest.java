@@ -0,0 +1,161 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.config.RedisConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 公平分布式锁：按排队顺序授予、释放通知唤醒、等待超时离队、等待指标
+ */
+class DistributedLockFairnessTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private RedisMessageListenerContainer container;
+    private RedisTemplate<String, Object> redisTemplate;
+    private SimpleMeterRegistry registry;
+    private DistributedLockService lockService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+        redisTemplate = new RedisConfig().redisTemplate(factory);
+        registry = new SimpleMeterRegistry();
+        lockService = new DistributedLockService(redisTemplate, registry);
+
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(lockService, new ChannelTopic(DistributedLockService.RELEASE_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        lockService.shutdown();
+        container.destroy();
+        factory.destroy();
+        server.stop();
+    }
+
+    private long queueLength(String key) {
+        Long size = redisTemplate.opsForList().size("lock:" + key + ":queue");
+        return size == null ? 0 : size;
+    }
+
+    private void awaitQueueLength(String key, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queueLength(key) != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, queueLength(key));
+    }
+
+    @Test
+    void waitersAreGrantedInArrivalOrder() throws Exception {
+        String key = "fair";
+        assertTrue(lockService.lock(key, 30, TimeUnit.SECONDS, 0));
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            int id = i;
+            Thread waiter = new Thread(() -> {
+                try {
+                    if (lockService.lock(key, 30, TimeUnit.SECONDS, 5000)) {
+                        order.add(id);
+                        lockService.unlock(key);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            waiter.start();
+            awaitQueueLength(key, i + 1);
+        }
+
+        long released = System.currentTimeMillis();
+        lockService.unlock(key);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 1, 2), order);
+        // 由释放通知唤醒，不需要等到心跳间隔
+        assertTrue(System.currentTimeMillis() - released < 1000);
+        assertEquals(0, queueLength(key));
+
+        assertEquals(3, registry.get("distributed_lock_queue_depth").summary().count());
+        assertEquals(4, registry.get("distributed_lock_wait_duration").tags("result", "acquired").timer().count());
+    }
+
+    @Test
+    void timedOutWaiterLeavesQueue() throws Exception {
+        String key = "timeout";
+        assertTrue(lockService.lock(key, 30, TimeUnit.SECONDS, 0));
+
+        boolean[] acquired = {true};
+        Thread waiter = new Thread(() -> {
+            try {
+                acquired[0] = lockService.lock(key, 30, TimeUnit.SECONDS, 300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(5000);
+
+        assertFalse(acquired[0]);
+        assertEquals(0, queueLength(key));
+        assertEquals(1, registry.get("distributed_lock_wait_duration").tags("result", "timeout").timer().count());
+        lockService.unlock(key);
+    }
+
+    @Test
+    void executeWithLockRunsCallbacksOneAtATime() throws Exception {
+        String key = "exclusive";
+        int[] counter = {0};
+        int[] inside = {0};
+        boolean[] overlapped = {false};
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread t = new Thread(() -> lockService.executeWithLockAndRetry(key, () -> {
+                if (++inside[0] > 1) {
+                    overlapped[0] = true;
+                }
+                Thread.sleep(5);
+                counter[0]++;
+                inside[0]--;
+                return null;
+            }));
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(10000);
+        }
+        assertFalse(overlapped[0]);
+        assertEquals(8, counter[0]);
+    }
+}
@@ -0,0 +1,89 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.config.RedisConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量续租：一次脚本续租所有到期租约，丢失的锁被移除，续租延迟与租约余量有指标
+ */
+class DistributedLockRenewalTest {
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private SimpleMeterRegistry registry;
+    private DistributedLockService lockService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+        redisTemplate = new RedisConfig().redisTemplate(factory);
+        registry = new SimpleMeterRegistry();
+        lockService = new DistributedLockService(redisTemplate, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        lockService.shutdown();
+        factory.destroy();
+        server.stop();
+    }
+
+    private double held() {
+        return registry.get("distributed_lock_held").gauge().value();
+    }
+
+    @Test
+    void heldLeasesAreRenewedTogetherAndOutliveTheirTtl() throws Exception {
+        int locks = 50;
+        for (int i = 0; i < locks; i++) {
+            assertTrue(lockService.tryLock("renew:" + i, 3, TimeUnit.SECONDS));
+        }
+        assertEquals(locks, held());
+
+        // 超过原始租期后锁仍在，说明续租循环在工作
+        Thread.sleep(3500);
+        for (int i = 0; i < locks; i++) {
+            Long ttl = redisTemplate.getExpire("lock:renew:" + i, TimeUnit.MILLISECONDS);
+            assertTrue(ttl != null && ttl > 0, "lease " + i + " should have been renewed");
+        }
+        assertTrue(registry.get("distributed_lock_renewal_lag").timer().count() >= locks);
+        assertTrue(registry.get("distributed_lock_lease_headroom_seconds").gauge().value() > 0);
+
+        for (int i = 0; i < locks; i++) {
+            lockService.unlock("renew:" + i);
+        }
+        assertEquals(0, held());
+    }
+
+    @Test
+    void lostLeaseIsDroppedOnNextRenewal() throws Exception {
+        assertTrue(lockService.tryLock("lost", 3, TimeUnit.SECONDS));
+        assertTrue(lockService.tryLock("kept", 3, TimeUnit.SECONDS));
+        redisTemplate.delete("lock:lost");
+
+        Thread.sleep(1100);
+        lockService.renewDueLeases();
+
+        assertEquals(1, held());
+        Long ttl = redisTemplate.getExpire("lock:kept", TimeUnit.MILLISECONDS);
+        assertTrue(ttl != null && ttl > 2000);
+        lockService.unlock("kept");
+    }
+}
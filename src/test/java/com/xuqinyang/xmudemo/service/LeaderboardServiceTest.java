@@ -0,0 +1,158 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.github.fppt.jedismock.RedisServer;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.ranking.ScoreSkipList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 排行榜：全量重建、提交后的增量维护（进入/移出排名、改分）、重建期间的变化不被快照覆盖
+ * Redis 使用 jedis-mock，数据库使用 H2（MySQL 模式）
+ */
+class LeaderboardServiceTest {
+
+    private static final long ACTIVITY = 1L;
+
+    private RedisServer server;
+    private LettuceConnectionFactory factory;
+    private JdbcTemplate jdbc;
+    private StringRedisTemplate redis;
+    private LeaderboardService service;
+    // 读完数据库快照后执行一次，模拟快照与替换之间提交的变化
+    private Runnable afterSnapshot;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = RedisServer.newRedisServer();
+        server.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(server.getHost(), server.getBindPort()));
+        factory.afterPropertiesSet();
+        factory.start();
+        redis = new StringRedisTemplate(factory);
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:leaderboard_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource) {
+            @Override
+            public void query(String sql, RowCallbackHandler rch, Object... args) {
+                super.query(sql, rch, args);
+                Runnable hook = afterSnapshot;
+                afterSnapshot = null;
+                if (hook != null) {
+                    hook.run();
+                }
+            }
+        };
+        jdbc.execute("CREATE TABLE application (id BIGINT PRIMARY KEY, activity_id BIGINT, status VARCHAR(40), total_score DOUBLE)");
+        service = new LeaderboardService(redis, jdbc);
+        ReflectionTestUtils.setField(service, "localTtlSeconds", 300L);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        factory.destroy();
+        server.stop();
+    }
+
+    private void insert(long id, ApplicationStatus status, double score) {
+        jdbc.update("INSERT INTO application (id, activity_id, status, total_score) VALUES (?, ?, ?, ?)", id, ACTIVITY, status.name(), score);
+    }
+
+    // 模拟一次提交：先写库，再调用提交后的增量维护
+    private void commit(long id, ApplicationStatus status, double score) {
+        jdbc.update("UPDATE application SET status = ?, total_score = ? WHERE id = ?", status.name(), score, id);
+        service.onApplicationChanged(id, ACTIVITY, status, score);
+    }
+
+    private long rank(long id) {
+        return ((Number) service.standing(ACTIVITY, id).orElseThrow().get("rank")).longValue();
+    }
+
+    @Test
+    void rebuildLoadsRankedApplicationsWithSharedRanks() {
+        insert(1, ApplicationStatus.APPROVED, 90);
+        insert(2, ApplicationStatus.SYSTEM_APPROVED, 85);
+        insert(3, ApplicationStatus.ADMIN_REVIEWING, 85);
+        insert(4, ApplicationStatus.REJECTED, 99);
+        insert(5, ApplicationStatus.DRAFT, 100);
+
+        assertEquals(3, service.rebuild(ACTIVITY));
+
+        List<Map<String, Object>> top = service.top(ACTIVITY, 0, 10);
+        assertEquals(3, top.size());
+        assertEquals(1L, top.get(0).get("applicationId"));
+        assertEquals(2, top.get(1).get("rank"));
+        assertEquals(2, top.get(2).get("rank"));
+        assertTrue(service.standing(ACTIVITY, 4L).isEmpty());
+        assertEquals(true, service.verify(ACTIVITY).get("consistent"));
+    }
+
+    @Test
+    void committedChangesAreAppliedIncrementally() {
+        insert(1, ApplicationStatus.APPROVED, 90);
+        insert(2, ApplicationStatus.APPROVED, 80);
+        insert(3, ApplicationStatus.DRAFT, 0);
+        service.rebuild(ACTIVITY);
+
+        commit(2, ApplicationStatus.APPROVED, 95);
+        commit(3, ApplicationStatus.SYSTEM_REVIEWING, 70);
+        assertEquals(1, rank(2));
+        assertEquals(2, rank(1));
+        assertEquals(3, rank(3));
+
+        commit(1, ApplicationStatus.REJECTED, 90);
+        assertTrue(service.standing(ACTIVITY, 1L).isEmpty());
+        assertEquals(2, rank(3));
+        assertEquals(2L, service.standing(ACTIVITY, 2L).orElseThrow().get("total"));
+        assertEquals(true, service.verify(ACTIVITY).get("consistent"));
+    }
+
+    @Test
+    void changesCommittedDuringRebuildSurviveTheSwap() {
+        insert(1, ApplicationStatus.APPROVED, 90);
+        insert(2, ApplicationStatus.APPROVED, 80);
+        insert(3, ApplicationStatus.APPROVED, 70);
+        insert(4, ApplicationStatus.DRAFT, 0);
+        service.rebuild(ACTIVITY);
+
+        afterSnapshot = () -> {
+            commit(3, ApplicationStatus.APPROVED, 99);
+            commit(1, ApplicationStatus.REJECTED, 90);
+            commit(4, ApplicationStatus.SYSTEM_REVIEWING, 85);
+        };
+        service.rebuild(ACTIVITY);
+
+        assertEquals(1, rank(3));
+        assertEquals(2, rank(4));
+        assertEquals(3, rank(2));
+        assertTrue(service.standing(ACTIVITY, 1L).isEmpty());
+        assertEquals(true, service.verify(ACTIVITY).get("consistent"));
+        // 重建结束后日志关闭，之后的变化只写排行榜
+        assertFalse(Boolean.TRUE.equals(redis.hasKey("leaderboard:activity:1:rebuilding")));
+        assertFalse(Boolean.TRUE.equals(redis.hasKey("leaderboard:activity:1:journal")));
+
+        // Redis 不可用时使用的本地跳表同样重放了这些变化
+        ScoreSkipList local = (ScoreSkipList) ((Map<?, ?>) ReflectionTestUtils.getField(service, "localBoards")).get(ACTIVITY);
+        assertEquals(99.0, local.score(3L));
+        assertEquals(85.0, local.score(4L));
+        assertNull(local.score(1L));
+    }
+}
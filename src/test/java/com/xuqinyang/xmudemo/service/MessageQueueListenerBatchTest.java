@@ -0,0 +1,152 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.model.User;
+import com.xuqinyang.xmudemo.repository.ActivityRepository;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量消费：一批消息只做一次批量查询、一次批量保存、一次通知批量插入；整批失败时退回逐条处理，
+ * 逐条处理仍遇到数据库故障时异常抛给容器，整批不被确认
+ */
+class MessageQueueListenerBatchTest {
+
+    private ApplicationRepository applicationRepository;
+    private UserNotificationService notificationService;
+    private MessageQueueListener listener;
+    private final List<Application> apps = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        applicationRepository = mock(ApplicationRepository.class);
+        notificationService = mock(UserNotificationService.class);
+        TransactionTemplate tx = mock(TransactionTemplate.class);
+        when(tx.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(tx).executeWithoutResult(any());
+
+        for (long id = 1; id <= 3; id++) {
+            User user = new User();
+            user.setId(100 + id);
+            Application app = new Application();
+            app.setId(id);
+            app.setUser(user);
+            app.setStatus(ApplicationStatus.ADMIN_REVIEWING);
+            apps.add(app);
+        }
+        when(applicationRepository.findAllById(anyIterable())).thenReturn(apps);
+        when(applicationRepository.findById(anyLong()))
+            .thenAnswer(inv -> apps.stream().filter(a -> a.getId().equals(inv.getArgument(0))).findFirst());
+
+        listener = new MessageQueueListener(applicationRepository, mock(ActivityRepository.class),
+            mock(PerformanceMonitorService.class), mock(CacheService.class), notificationService, tx,
+            mock(SystemAutoReviewScheduler.class));
+    }
+
+    private static Map<String, Object> message(long id, String action) {
+        return Map.of("applicationId", id, "action", action, "timestamp", System.currentTimeMillis());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reviewDecisionsAreWrittenInOneBatch() {
+        listener.handleApplicationProcessMessages(List.of(
+            message(1, "APPROVE"), message(2, "REJECT"), message(3, "APPROVE"), message(1, "REVIEW")));
+
+        verify(applicationRepository, times(1)).findAllById(anyIterable());
+        ArgumentCaptor<Iterable<Application>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(applicationRepository, times(1)).saveAll(saved.capture());
+        assertEquals(3, ((java.util.Collection<?>) saved.getValue()).size());
+        ArgumentCaptor<List<UserNotificationService.PendingNotification>> notifications = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(1)).insertBatch(notifications.capture());
+        assertEquals(3, notifications.getValue().size());
+        assertEquals(ApplicationStatus.APPROVED, apps.get(0).getStatus());
+        assertEquals(ApplicationStatus.REJECTED, apps.get(1).getStatus());
+    }
+
+    @Test
+    void failedBatchFallsBackToOneByOne() {
+        when(notificationService.insertBatch(anyList())).thenThrow(new IllegalStateException("deadlock"));
+
+        listener.handleApplicationProcessMessages(List.of(message(1, "APPROVE"), message(2, "REJECT")));
+
+        verify(applicationRepository, times(2)).findById(anyLong());
+        verify(notificationService, times(2)).createNotification(anyLong(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void databaseOutageFailsTheWholeBatch() {
+        DataAccessResourceFailureException down = new DataAccessResourceFailureException("connection refused");
+        when(applicationRepository.findAllById(anyIterable())).thenThrow(down);
+        when(applicationRepository.findById(anyLong())).thenThrow(down);
+
+        assertThrows(DataAccessResourceFailureException.class,
+            () -> listener.handleApplicationProcessMessages(List.of(message(1, "APPROVE"), message(2, "REJECT"))));
+
+        // 第一条失败即放弃，不再逐条“处理”其余消息
+        verify(applicationRepository, times(1)).findById(anyLong());
+    }
+
+    @Test
+    void poisonMessageIsSkippedWithoutFailingTheBatch() {
+        when(notificationService.insertBatch(anyList())).thenThrow(new IllegalStateException("deadlock"));
+        when(applicationRepository.findById(2L)).thenThrow(new IllegalArgumentException("bad row"));
+
+        listener.handleApplicationProcessMessages(List.of(message(1, "APPROVE"), message(2, "REJECT"), message(3, "APPROVE")));
+
+        verify(notificationService, times(2)).createNotification(anyLong(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void notificationBatchIsRejectedWhenDatabaseIsDown() {
+        DataAccessResourceFailureException down = new DataAccessResourceFailureException("connection refused");
+        when(notificationService.insertBatch(anyList())).thenThrow(down);
+        doThrow(down).when(notificationService).createNotificationSync(anyLong(), anyString(), anyString(), anyString());
+
+        assertThrows(DataAccessResourceFailureException.class, () -> listener.handleNotificationMessages(List.of(
+            Map.of("userId", 101, "title", "a", "content", "x", "type", "T"),
+            Map.of("userId", 102, "title", "b", "content", "y", "type", "T"))));
+
+        verify(notificationService, times(1)).createNotificationSync(anyLong(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void notificationsAreInsertedTogether() {
+        listener.handleNotificationMessages(List.of(
+            Map.of("userId", 101, "title", "a", "content", "x", "type", "T"),
+            Map.of("userId", 102, "title", "b", "content", "y", "type", "T"),
+            Map.of("title", "missing user id")));
+
+        verify(notificationService, times(1)).insertBatch(any());
+    }
+}
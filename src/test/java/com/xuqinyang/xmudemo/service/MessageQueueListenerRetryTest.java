@@ -0,0 +1,70 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
+import com.xuqinyang.xmudemo.mq.DeadLetterErrorHandler;
+import com.xuqinyang.xmudemo.repository.ActivityRepository;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.ListenerExecutionFailedException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 单条消息监听：业务步骤失败时异常交给容器，由失败处理拒绝到重试队列，而不是确认后丢弃
+ */
+class MessageQueueListenerRetryTest {
+
+    private ActivityRepository activityRepository;
+    private PerformanceMonitorService performanceMonitorService;
+    private CacheService cacheService;
+    private MessageQueueListener listener;
+    private DeadLetterErrorHandler errorHandler;
+
+    @BeforeEach
+    void setUp() {
+        activityRepository = mock(ActivityRepository.class);
+        performanceMonitorService = mock(PerformanceMonitorService.class);
+        cacheService = mock(CacheService.class);
+        listener = new MessageQueueListener(mock(ApplicationRepository.class), activityRepository,
+            performanceMonitorService, cacheService, mock(UserNotificationService.class),
+            mock(TransactionTemplate.class), mock(SystemAutoReviewScheduler.class));
+        errorHandler = new DeadLetterErrorHandler(mock(RabbitTemplate.class), new SimpleMeterRegistry(), 3, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void repositoryFailureRejectsMessageToRetryQueue() {
+        when(activityRepository.findById(anyLong())).thenThrow(new DataAccessResourceFailureException("db down"));
+        Map<String, Object> payload = Map.of("activityId", 7L, "action", "UPDATE");
+
+        RuntimeException thrown = assertThrows(DataAccessResourceFailureException.class,
+            () -> listener.handleActivityProcessMessage(payload));
+
+        verify(cacheService, never()).evictAllActivities();
+        verify(performanceMonitorService).recordMessageQueueMetrics(RabbitMQConfig.ACTIVITY_PROCESS_QUEUE, "error", false);
+        verify(performanceMonitorService, never()).recordMessageQueueMetrics(RabbitMQConfig.ACTIVITY_PROCESS_QUEUE, "UPDATE", true);
+
+        // 容器把监听异常包装后交给失败处理：首次失败拒绝且不重新入队，由死信参数转入重试队列
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue(RabbitMQConfig.ACTIVITY_PROCESS_QUEUE);
+        Message message = new Message("{\"activityId\":7,\"action\":\"UPDATE\"}".getBytes(StandardCharsets.UTF_8), properties);
+        assertThrows(AmqpRejectAndDontRequeueException.class,
+            () -> errorHandler.handleError(new ListenerExecutionFailedException("listener threw", thrown, message)));
+    }
+}
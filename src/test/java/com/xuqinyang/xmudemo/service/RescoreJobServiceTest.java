@@ -0,0 +1,278 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.model.RescoreJob;
+import com.xuqinyang.xmudemo.model.RescoreJobStatus;
+import com.xuqinyang.xmudemo.model.User;
+import com.xuqinyang.xmudemo.repository.RescoreJobRepository;
+import com.xuqinyang.xmudemo.scoring.ScoreCard;
+import com.xuqinyang.xmudemo.scoring.ScoringEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量重算任务：从持久化游标继续、版本冲突重试后跳过、进度与完成状态
+ * 使用 H2（MySQL 模式）模拟数据库，任务在调用线程上同步执行
+ */
+class RescoreJobServiceTest {
+
+    private static final String CONTENT =
+        "{\"basicInfo\":{\"convertedScore\":90},\"academicAchievements\":{\"competitions\":" +
+        "{\"a\":{\"level\":\"A类\",\"award\":\"国家级二等奖\"}}}}";
+
+    private JdbcTemplate jdbc;
+    private RescoreJobRepository jobRepository;
+    private ForkJoinPool scoringPool;
+    private CacheService cacheService;
+    private LeaderboardService leaderboardService;
+    private RescoreJobService service;
+    // 评分时回调（参数为申请ID），用于模拟评分与写回之间的并发修改
+    private volatile LongConsumer onScore = id -> { };
+    // 读取任务实体后执行一次，模拟读取之后执行线程写入的进度
+    private volatile Runnable afterJobLoad = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:rescore_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, gpa DOUBLE, academic_rank INT, major_total INT, converted_score DOUBLE)");
+        jdbc.execute("CREATE TABLE application (id BIGINT PRIMARY KEY, activity_id BIGINT, user_id BIGINT, status VARCHAR(40), " +
+            "version BIGINT, content CLOB, academic_score DOUBLE, achievement_score DOUBLE, performance_score DOUBLE, " +
+            "total_score DOUBLE, last_update_date TIMESTAMP NULL)");
+        jdbc.execute("CREATE TABLE rescore_job (id BIGINT AUTO_INCREMENT PRIMARY KEY, activity_id BIGINT, status VARCHAR(20) NOT NULL, " +
+            "last_processed_id BIGINT NOT NULL DEFAULT 0, total_count BIGINT NOT NULL DEFAULT 0, processed_count BIGINT NOT NULL DEFAULT 0, " +
+            "updated_count BIGINT NOT NULL DEFAULT 0, unchanged_count BIGINT NOT NULL DEFAULT 0, conflict_count BIGINT NOT NULL DEFAULT 0, " +
+            "failed_count BIGINT NOT NULL DEFAULT 0, elapsed_millis BIGINT NOT NULL DEFAULT 0, created_by VARCHAR(64), " +
+            "error_message VARCHAR(1000), created_at TIMESTAMP NOT NULL, heartbeat_at TIMESTAMP NULL, finished_at TIMESTAMP NULL)");
+        jdbc.update("INSERT INTO users (id, converted_score) VALUES (1, 90)");
+
+        jobRepository = mock(RescoreJobRepository.class);
+        when(jobRepository.findById(anyLong())).thenAnswer(inv -> {
+            Optional<RescoreJob> job = jdbc.query("SELECT * FROM rescore_job WHERE id = ?",
+                new BeanPropertyRowMapper<>(RescoreJob.class), inv.<Long>getArgument(0)).stream().findFirst();
+            Runnable hook = afterJobLoad;
+            afterJobLoad = () -> { };
+            hook.run();
+            return job;
+        });
+        // 与 JPA 一样按实体整行写回
+        when(jobRepository.save(any())).thenAnswer(inv -> {
+            RescoreJob job = inv.getArgument(0);
+            jdbc.update("UPDATE rescore_job SET status = ?, last_processed_id = ?, processed_count = ?, updated_count = ?, " +
+                    "error_message = ?, finished_at = ?, heartbeat_at = ? WHERE id = ?",
+                job.getStatus().name(), job.getLastProcessedId(), job.getProcessedCount(), job.getUpdatedCount(),
+                job.getErrorMessage(), timestamp(job.getFinishedAt()), timestamp(job.getHeartbeatAt()), job.getId());
+            return job;
+        });
+        DistributedLockService lockService = mock(DistributedLockService.class);
+        when(lockService.tryLock(anyString(), anyLong(), any(), anyBoolean())).thenReturn(true);
+        ScoringEngine engine = new ScoringEngine() {
+            @Override
+            public ScoreCard score(String content, User user) {
+                onScore.accept(idOf(content));
+                return super.score(content, user);
+            }
+        };
+        scoringPool = new ForkJoinPool(2);
+        cacheService = mock(CacheService.class);
+        leaderboardService = mock(LeaderboardService.class);
+        service = new RescoreJobService(jobRepository, jdbc,
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)), engine, lockService,
+            cacheService, leaderboardService, Runnable::run, scoringPool, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "chunkSize", 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scoringPool.shutdownNow();
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    // 申请内容带上申请ID，评分回调据此识别当前行
+    private static String content(long id) {
+        return CONTENT.substring(0, CONTENT.length() - 1) + ",\"appId\":" + id + "}";
+    }
+
+    private static long idOf(String content) {
+        int start = content.indexOf("\"appId\":") + 8;
+        int end = start;
+        while (end < content.length() && Character.isDigit(content.charAt(end))) end++;
+        return Long.parseLong(content.substring(start, end));
+    }
+
+    private void insertApplications(int count) {
+        for (long id = 1; id <= count; id++) {
+            jdbc.update("INSERT INTO application (id, activity_id, user_id, status, version, content) VALUES (?, 1, 1, 'SYSTEM_APPROVED', 0, ?)",
+                id, content(id));
+        }
+    }
+
+    private long insertJob(RescoreJobStatus status, long cursor, long processed, long total) {
+        jdbc.update("INSERT INTO rescore_job (activity_id, status, last_processed_id, processed_count, total_count, created_at, heartbeat_at) " +
+            "VALUES (1, ?, ?, ?, ?, ?, ?)", status.name(), cursor, processed, total,
+            Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(LocalDateTime.now()));
+        return jdbc.queryForObject("SELECT MAX(id) FROM rescore_job", Long.class);
+    }
+
+    private Map<String, Object> application(long id) {
+        return jdbc.queryForMap("SELECT version, total_score, last_update_date FROM application WHERE id = ?", id);
+    }
+
+    @Test
+    void resumedJobContinuesFromStoredCursor() {
+        insertApplications(10);
+        long jobId = insertJob(RescoreJobStatus.FAILED, 4, 4, 10);
+
+        service.resume(jobId);
+
+        for (long id = 1; id <= 4; id++) {
+            assertEquals(0L, ((Number) application(id).get("version")).longValue(), "row before cursor rescored: " + id);
+            assertNull(application(id).get("total_score"));
+        }
+        double expected = new ScoringEngine().score(content(5), user()).totalScore();
+        for (long id = 5; id <= 10; id++) {
+            assertEquals(1L, ((Number) application(id).get("version")).longValue());
+            assertEquals(expected, ((Number) application(id).get("total_score")).doubleValue(), 1e-9);
+            assertNotNull(application(id).get("last_update_date"));
+        }
+        RescoreJob job = service.getJob(jobId);
+        assertEquals(RescoreJobStatus.COMPLETED, job.getStatus());
+        assertEquals(10L, job.getLastProcessedId());
+        assertEquals(10L, job.getProcessedCount());
+        assertEquals(6L, job.getUpdatedCount());
+        verify(leaderboardService, times(6)).onApplicationChanged(anyLong(), eq(1L), any(), any());
+        verify(cacheService).evictAllApplications();
+    }
+
+    @Test
+    void rowsChangedConcurrentlyAreRetriedThenSkipped() {
+        insertApplications(6);
+        long jobId = insertJob(RescoreJobStatus.RUNNING, 0, 0, 6);
+        onScore = id -> {
+            // 申请 2 只在第一次评分后被改过一次，重读后应写入成功；申请 4 每次评分后都被改，最终跳过
+            if (id == 4 || (id == 2 && ((Number) application(2).get("version")).longValue() == 0)) {
+                jdbc.update("UPDATE application SET version = version + 1, total_score = -1 WHERE id = ?", id);
+            }
+        };
+
+        service.resume(jobId);
+
+        assertEquals(-1.0, ((Number) application(4).get("total_score")).doubleValue(), 1e-9);
+        assertEquals(3L, ((Number) application(4).get("version")).longValue());
+        assertEquals(2L, ((Number) application(2).get("version")).longValue());
+        assertEquals(new ScoringEngine().score(content(2), user()).totalScore(),
+            ((Number) application(2).get("total_score")).doubleValue(), 1e-9);
+        RescoreJob job = service.getJob(jobId);
+        assertEquals(RescoreJobStatus.COMPLETED, job.getStatus());
+        assertEquals(6L, job.getProcessedCount());
+        assertEquals(5L, job.getUpdatedCount());
+        assertEquals(1L, job.getConflictCount());
+        verify(leaderboardService, never()).onApplicationChanged(eq(4L), any(), any(), any());
+    }
+
+    @Test
+    void progressReflectsCancelledAndCompletedJob() {
+        insertApplications(9);
+        long jobId = insertJob(RescoreJobStatus.RUNNING, 0, 0, 9);
+        onScore = id -> {
+            // 第二块评分时取消：这一块仍会写回，但进度不再推进，恢复后按未变化计
+            if (id == 4) {
+                jdbc.update("UPDATE rescore_job SET status = 'CANCELLED' WHERE id = ?", jobId);
+            }
+        };
+
+        service.resume(jobId);
+
+        Map<String, Object> progress = service.progress(service.getJob(jobId));
+        assertEquals(RescoreJobStatus.CANCELLED, progress.get("status"));
+        assertEquals(3L, progress.get("lastProcessedId"));
+        assertEquals(3L, progress.get("processedCount"));
+        assertEquals(33.3, progress.get("percent"));
+        assertNull(application(7).get("total_score"));
+
+        onScore = id -> { };
+        service.resume(jobId);
+
+        progress = service.progress(service.getJob(jobId));
+        assertEquals(RescoreJobStatus.COMPLETED, progress.get("status"));
+        assertEquals(9L, progress.get("processedCount"));
+        assertEquals(6L, progress.get("updatedCount"));
+        assertEquals(3L, progress.get("unchangedCount"));
+        assertEquals(100.0, progress.get("percent"));
+        assertEquals(0L, ((Number) progress.get("etaSeconds")).longValue());
+        assertNotNull(progress.get("finishedAt"));
+        assertNull(progress.get("errorMessage"));
+    }
+
+    @Test
+    void cancelKeepsProgressWrittenAfterTheJobWasLoaded() {
+        long jobId = insertJob(RescoreJobStatus.RUNNING, 3, 3, 9);
+        afterJobLoad = () -> jdbc.update("UPDATE rescore_job SET last_processed_id = 6, processed_count = 6 WHERE id = ?", jobId);
+
+        RescoreJob cancelled = service.cancel(jobId);
+
+        assertEquals(RescoreJobStatus.CANCELLED, cancelled.getStatus());
+        assertEquals(6L, cancelled.getLastProcessedId());
+        assertEquals(6L, cancelled.getProcessedCount());
+        assertNotNull(cancelled.getFinishedAt());
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void resumeContinuesFromProgressWrittenAfterTheJobWasLoaded() {
+        insertApplications(9);
+        long jobId = insertJob(RescoreJobStatus.CANCELLED, 3, 3, 9);
+        afterJobLoad = () -> jdbc.update("UPDATE rescore_job SET last_processed_id = 6, processed_count = 6 WHERE id = ?", jobId);
+
+        service.resume(jobId);
+
+        // 申请 4-6 已由之前的执行写回，恢复后不会再重算
+        for (long id = 4; id <= 6; id++) {
+            assertEquals(0L, ((Number) application(id).get("version")).longValue(), "row before cursor rescored: " + id);
+        }
+        RescoreJob job = service.getJob(jobId);
+        assertEquals(RescoreJobStatus.COMPLETED, job.getStatus());
+        assertEquals(9L, job.getProcessedCount());
+        assertEquals(3L, job.getUpdatedCount());
+        assertNull(job.getErrorMessage());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setConvertedScore(90.0);
+        return user;
+    }
+}
@@ -0,0 +1,166 @@
+package com.xuqinyang.xmudemo.service;
+
+import com.xuqinyang.xmudemo.config.RabbitMQConfig;
+import com.xuqinyang.xmudemo.model.Application;
+import com.xuqinyang.xmudemo.model.ApplicationStatus;
+import com.xuqinyang.xmudemo.model.ApplicationTransition;
+import com.xuqinyang.xmudemo.mq.AsyncMessagePublisher;
+import com.xuqinyang.xmudemo.outbox.OutboxService;
+import com.xuqinyang.xmudemo.repository.ApplicationRepository;
+import com.xuqinyang.xmudemo.review.ShardLeaseManager;
+import com.xuqinyang.xmudemo.review.ShardedReviewProcessor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 系统预审：宽限期判断、状态已变化时跳过、并发迁移失败不报错、事务内走发件箱、兜底扫描只处理本节点持有的分片
+ */
+class SystemAutoReviewSchedulerTest {
+
+    private ApplicationRepository applicationRepository;
+    private ApplicationTransitionEngine transitionEngine;
+    private OutboxService outboxService;
+    private AsyncMessagePublisher publisher;
+    private ShardLeaseManager shardLeaseManager;
+    private ShardedReviewProcessor shardedReviewProcessor;
+    private SystemAutoReviewScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        applicationRepository = mock(ApplicationRepository.class);
+        transitionEngine = mock(ApplicationTransitionEngine.class);
+        outboxService = mock(OutboxService.class);
+        publisher = mock(AsyncMessagePublisher.class);
+        shardLeaseManager = mock(ShardLeaseManager.class);
+        shardedReviewProcessor = mock(ShardedReviewProcessor.class);
+        when(shardLeaseManager.shards()).thenReturn(16);
+        scheduler = new SystemAutoReviewScheduler(applicationRepository, transitionEngine,
+            shardLeaseManager, shardedReviewProcessor, Runnable::run, outboxService, publisher, new SimpleMeterRegistry(),
+            Duration.ofSeconds(60), Duration.ofSeconds(60), 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    private Application stored(long id, ApplicationStatus status, LocalDateTime submittedAt) {
+        Application app = new Application();
+        app.setId(id);
+        app.setStatus(status);
+        app.setSubmittedAt(submittedAt);
+        when(applicationRepository.findById(id)).thenReturn(Optional.of(app));
+        return app;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void dueApplicationIsMovedToManualReview() {
+        stored(1L, ApplicationStatus.SYSTEM_REVIEWING, LocalDateTime.now().minusSeconds(61));
+        Application target = new Application();
+        target.setStatus(ApplicationStatus.SYSTEM_REVIEWING);
+        when(transitionEngine.apply(eq(1L), eq(ApplicationTransition.SYSTEM_PRE_REVIEW), any(Consumer.class)))
+            .thenAnswer(inv -> {
+                inv.<Consumer<Application>>getArgument(2).accept(target);
+                return target;
+            });
+
+        assertTrue(scheduler.reviewDue(1L, "event"));
+        assertEquals(ApplicationStatus.ADMIN_REVIEWING, target.getStatus());
+        assertTrue(target.getSystemReviewedAt() != null);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applicationWithinGracePeriodIsSkipped() {
+        stored(1L, ApplicationStatus.SYSTEM_REVIEWING, LocalDateTime.now().minusSeconds(30));
+        assertFalse(scheduler.reviewDue(1L, "event"));
+        verify(transitionEngine, never()).apply(any(), any(), any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void alreadyReviewedApplicationIsSkipped() {
+        stored(1L, ApplicationStatus.ADMIN_REVIEWING, LocalDateTime.now().minusMinutes(5));
+        assertFalse(scheduler.reviewDue(1L, "event"));
+        verify(transitionEngine, never()).apply(any(), any(), any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void losingTheTransitionRaceIsNotAnError() {
+        stored(1L, ApplicationStatus.SYSTEM_REVIEWING, LocalDateTime.now().minusMinutes(5));
+        when(transitionEngine.apply(eq(1L), eq(ApplicationTransition.SYSTEM_PRE_REVIEW), any(Consumer.class)))
+            .thenThrow(new IllegalStateException("申请状态不是系统审核中"));
+        assertFalse(scheduler.reviewDue(1L, "event"));
+    }
+
+    @Test
+    void scheduleUsesOutboxInsideTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        scheduler.scheduleReview(7L);
+        verify(outboxService).record(eq(RabbitMQConfig.DIRECT_EXCHANGE), eq(RabbitMQConfig.SYSTEM_REVIEW_ROUTING_KEY), anyMap());
+        verify(publisher, never()).enqueue(any(), any(), any());
+    }
+
+    @Test
+    void scheduleOutsideTransactionPublishesDirectly() {
+        scheduler.scheduleReview(7L);
+        verify(publisher).enqueue(eq(RabbitMQConfig.DIRECT_EXCHANGE), eq(RabbitMQConfig.SYSTEM_REVIEW_ROUTING_KEY), anyMap());
+        verify(outboxService, never()).record(any(), any(), anyMap());
+    }
+
+    @Test
+    void sweepReviewsOnlyOwnedShardsWithinTheLimit() {
+        when(shardLeaseManager.ownedShards()).thenReturn(Set.of(3, 7));
+        when(shardedReviewProcessor.reviewShard(anyInt(), eq(16), any(), eq(10))).thenReturn(4);
+
+        scheduler.sweepOverdue();
+
+        verify(shardedReviewProcessor).reviewShard(eq(3), eq(16), any(), eq(10));
+        verify(shardedReviewProcessor).reviewShard(eq(7), eq(16), any(), eq(10));
+        verify(shardedReviewProcessor, times(2)).reviewShard(anyInt(), anyInt(), any(), anyInt());
+    }
+
+    @Test
+    void sweepWithoutShardsDoesNothing() {
+        when(shardLeaseManager.ownedShards()).thenReturn(Set.of());
+        scheduler.sweepOverdue();
+        verify(shardedReviewProcessor, never()).reviewShard(anyInt(), anyInt(), any(), anyInt());
+    }
+
+    @Test
+    void failingShardDoesNotStopTheOthers() {
+        when(shardedReviewProcessor.reviewShard(anyInt(), eq(16), any(), eq(10))).thenReturn(2);
+        when(shardedReviewProcessor.reviewShard(eq(5), eq(16), any(), eq(10))).thenThrow(new IllegalStateException("db down"));
+
+        assertEquals(6, scheduler.reviewShards(List.of(1, 5, 9, 12), LocalDateTime.now(), "manual"));
+    }
+}
@@ -0,0 +1,144 @@
+package com.xuqinyang.xmudemo.stats;
+
+import com.xuqinyang.xmudemo.service.MessageQueueService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * API 调用统计聚合：每分钟一条汇总消息、计数无丢失、直方图分位数误差有界
+ */
+class ApiStatsAggregatorTest {
+
+    private static final long MINUTE = 1_700_000_040_000L; // 整分钟
+
+    private MessageQueueService mq;
+    private ApiStatsAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        mq = mock(MessageQueueService.class);
+        aggregator = new ApiStatsAggregator(mq);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> emitted(int expectedMessages) {
+        ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(mq, times(expectedMessages)).sendDataStatisticsMessage(eq("SYSTEM"), eq("API_SUMMARY"), captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentCallsRollIntoOneSummaryPerMinute() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    int status = i % 100 == 0 ? 500 : 200;
+                    aggregator.record(MINUTE + i % 60_000, "GET", "/api/applications/{id}", status, i % 50);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        aggregator.flush(MINUTE + 30_000, false);
+        verify(mq, never()).sendDataStatisticsMessage(any(), any(), any());
+
+        aggregator.flush(MINUTE + 60_000, false);
+        List<Map<String, Object>> messages = emitted(1);
+        Map<String, Object> summary = messages.get(0);
+        assertEquals(MINUTE, summary.get("minute"));
+        assertEquals(80_000L, summary.get("calls"));
+        assertEquals(800L, summary.get("errors"));
+        List<Map<String, Object>> routes = (List<Map<String, Object>>) summary.get("routes");
+        assertEquals(2, routes.size());
+        long total = routes.stream().mapToLong(r -> (Long) r.get("count")).sum();
+        assertEquals(80_000L, total);
+        assertEquals(0, aggregator.pendingMinutes());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsRacingWithFlushAreNotLost() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    aggregator.record(MINUTE + i % 60_000, "GET", "/api/activities", 200, 5);
+                }
+            });
+        }
+        pool.shutdown();
+        // 迟到的记录不断写入已结束的分钟，同时反复摘除该分钟
+        while (!pool.isTerminated()) {
+            aggregator.flush(MINUTE + 60_000, false);
+        }
+        aggregator.flush(MINUTE + 60_000, false);
+
+        ArgumentCaptor<Map<String, Object>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(mq, atLeastOnce())
+            .sendDataStatisticsMessage(eq("SYSTEM"), eq("API_SUMMARY"), captor.capture());
+        long total = captor.getAllValues().stream().mapToLong(m -> (Long) m.get("calls")).sum();
+        assertEquals(200_000L, total);
+        assertEquals(0, aggregator.pendingMinutes());
+    }
+
+    @Test
+    void currentMinuteIsFlushedOnShutdownOnly() {
+        aggregator.record(MINUTE + 5, "POST", "/api/auth/login", 200, 12);
+        aggregator.record(MINUTE + 60_005, "POST", "/api/auth/login", 401, 3);
+
+        aggregator.flush(MINUTE + 60_010, false);
+        emitted(1);
+        assertEquals(1, aggregator.pendingMinutes());
+
+        aggregator.flush(MINUTE + 60_010, true);
+        emitted(2);
+        assertEquals(0, aggregator.pendingMinutes());
+    }
+
+    @Test
+    void histogramPercentilesStayWithinBucketError() {
+        LatencyHistogram h = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ThreadLocalRandom.current().nextLong(1, 5_000);
+            h.record(values[i]);
+        }
+        java.util.Arrays.sort(values);
+        for (double q : new double[]{0.5, 0.95, 0.99}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long approx = h.percentile(q);
+            assertTrue(approx >= exact && approx <= exact * 1.125 + 1, q + ": " + approx + " vs " + exact);
+        }
+        assertEquals(values.length, h.buckets().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void bucketBoundariesAreContiguous() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS - 1; i++) {
+            assertEquals(i, LatencyHistogram.index(LatencyHistogram.lowerBound(i)));
+            assertEquals(i, LatencyHistogram.index(LatencyHistogram.upperBound(i)));
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(Long.MAX_VALUE));
+    }
+}